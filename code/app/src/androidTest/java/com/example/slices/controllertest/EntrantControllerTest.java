@@ -9,6 +9,7 @@ import com.example.slices.controllers.EntrantController;
 import com.example.slices.controllers.EventController;
 import com.example.slices.controllers.Logger;
 import com.example.slices.controllers.NotificationManager;
+import com.example.slices.controllers.OptInCache;
 import com.example.slices.exceptions.DBOpFailed;
 import com.example.slices.exceptions.EntrantNotFound;
 import com.example.slices.interfaces.DBWriteCallback;
@@ -18,6 +19,7 @@ import com.example.slices.interfaces.EntrantListCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.models.Entrant;
 import com.example.slices.models.Event;
+import com.example.slices.models.Profile;
 
 import com.example.slices.models.Image;
 import com.google.firebase.Timestamp;
@@ -26,9 +28,11 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class EntrantControllerTest {
@@ -727,6 +731,88 @@ public class EntrantControllerTest {
         await(latch);
     }
 
+    /**
+     * Tests the getEntrants method across more IDs than fit in one query
+     * Pass if every existing entrant is returned once and missing IDs are ignored
+     * Fail otherwise
+     */
+    @Test
+    public void testGetEntrantsBulk() {
+        clearAll();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 35; i++) {
+            ids.add(createEntrantByFields("Bulk" + i).getId());
+        }
+        ids.add(99999);
+        CountDownLatch latch = new CountDownLatch(1);
+        EntrantController.getEntrants(ids, new EntrantListCallback() {
+            @Override
+            public void onSuccess(List<Entrant> entrants) {
+                assertEquals(35, entrants.size());
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("getEntrants failed");
+            }
+        });
+        await(latch);
+    }
+
+    /**
+     * Resolves a single entrant's notification preference through the cache
+     * @param id
+     *      Entrant ID
+     * @return
+     *      True if they want notifications
+     */
+    private boolean resolveOptIn(int id) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean ref = new AtomicBoolean();
+        OptInCache.resolve(id, enabled -> {
+            ref.set(enabled);
+            latch.countDown();
+        });
+        await(latch);
+        return ref.get();
+    }
+
+    /**
+     * Tests that opt-in flags are cached and that updateProfile refreshes them
+     * Pass if the second lookup is a hit and the updated flag is seen without another read
+     * Fail otherwise
+     */
+    @Test
+    public void testOptInCacheFollowsProfileUpdate() {
+        clearAll();
+        Entrant entrant = createEntrantByFields("OptIn");
+        OptInCache.clear();
+        OptInCache.resetStats();
+
+        assertTrue(resolveOptIn(entrant.getId()));
+        assertTrue(resolveOptIn(entrant.getId()));
+        assertEquals(1, OptInCache.getMisses());
+        assertEquals(1, OptInCache.getHits());
+
+        Profile profile = entrant.getProfile();
+        profile.setSendNotifications(false);
+        CountDownLatch latch = new CountDownLatch(1);
+        EntrantController.updateProfile(entrant, profile, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("updateProfile failed");
+            }
+        });
+        await(latch);
+
+        assertFalse(resolveOptIn(entrant.getId()));
+        assertEquals(1, OptInCache.getMisses());
+    }
+
     @Test
     public void deleteOrganizerDeletesEvent()  {
         //TODO
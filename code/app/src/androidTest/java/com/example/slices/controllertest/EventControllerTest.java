@@ -3,29 +3,42 @@ package com.example.slices.controllertest;
 import static org.junit.Assert.assertEquals;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 
+import android.location.Location;
+
 import com.example.slices.controllers.EntrantController;
 import com.example.slices.controllers.EventController;
+import com.example.slices.controllers.KeyedReader;
 import com.example.slices.controllers.Logger;
 import com.example.slices.controllers.NotificationManager;
+import com.example.slices.controllers.RosterController;
 import com.example.slices.exceptions.EventNotFound;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantCallback;
 import com.example.slices.interfaces.EntrantEventCallback;
 import com.example.slices.interfaces.EntrantListCallback;
+import com.example.slices.interfaces.EntrantPageCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.interfaces.EventIDCallback;
 import com.example.slices.interfaces.EventListCallback;
+import com.example.slices.interfaces.EventPageCallback;
+import com.example.slices.interfaces.MyEventsCallback;
 import com.example.slices.interfaces.NotificationListCallback;
 import com.example.slices.models.Entrant;
 import com.example.slices.models.Event;
 import com.example.slices.models.EventInfo;
 import com.example.slices.models.Image;
+import com.example.slices.models.Membership;
 import com.example.slices.models.Notification;
+import com.example.slices.models.SearchSettings;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -34,8 +47,11 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -272,6 +288,32 @@ public class EventControllerTest {
         await(latch);
     }
 
+    /**
+     * Tests that getEvent is served by a direct document-key read
+     * Pass if the keyed read counter increases and the fallback counter does not
+     * Fail otherwise
+     */
+    @Test
+    public void testGetEventUsesKeyedRead() {
+        clearAll();
+        Event event = createValidEvent();
+        KeyedReader.resetStats();
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.getEvent(event.getId(), new EventCallback() {
+            @Override
+            public void onSuccess(Event result) {
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get event");
+            }
+        });
+        await(latch);
+        assertEquals(1, KeyedReader.getKeyedReads());
+        assertEquals(0, KeyedReader.getFallbackReads());
+    }
+
     /**
      * Tests getting an event that does not exist
      * Pass if the exception is thrown
@@ -619,6 +661,178 @@ public class EventControllerTest {
         });
         await(latch);
     }
+    /**
+     * Tests reading the waitlist one page at a time
+     * Pass if every entrant is returned exactly once across the pages
+     * Fail otherwise
+     */
+    @Test
+    public void testGetWaitlistForEventPaged() {
+        clearAll();
+
+        Event event = createValidEvent();
+        List<Entrant> joined = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Entrant entrant = createEntrant("Page" + i);
+            joined.add(entrant);
+            CountDownLatch addLatch = new CountDownLatch(1);
+            EventController.addEntrantToWaitlist(event, entrant, new DBWriteCallback() {
+                @Override
+                public void onSuccess() {
+                    addLatch.countDown();
+                }
+                @Override
+                public void onFailure(Exception e) {
+                    fail("Failed to add to waitlist");
+                }
+            });
+            await(addLatch);
+        }
+
+        List<Entrant> read = new ArrayList<>();
+        AtomicReference<DocumentSnapshot> cursor = new AtomicReference<>();
+        int pages = 0;
+        do {
+            CountDownLatch latch = new CountDownLatch(1);
+            EventController.getWaitlistForEvent(event.getId(), 2, cursor.get(), new EntrantPageCallback() {
+                @Override
+                public void onSuccess(List<Entrant> entrants, DocumentSnapshot next) {
+                    assertTrue(entrants.size() <= 2);
+                    read.addAll(entrants);
+                    cursor.set(next);
+                    latch.countDown();
+                }
+                @Override
+                public void onFailure(Exception e) {
+                    fail("Failed to get waitlist page");
+                }
+            });
+            await(latch);
+            pages++;
+        } while (cursor.get() != null);
+
+        assertEquals(3, pages);
+        assertEquals(joined, read);
+    }
+
+    /**
+     * Tests that the browse feed can be read page by page with a name search
+     * Pass if every matching event is read exactly once and other names match nothing
+     * Fail otherwise
+     */
+    @Test
+    public void testQueryEventsPages() {
+        clearAll();
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(createValidEvent().getId());
+        }
+
+        SearchSettings search = new SearchSettings();
+        search.setName("nam");
+        List<Integer> read = new ArrayList<>();
+        AtomicReference<DocumentSnapshot> cursor = new AtomicReference<>();
+        int pages = 0;
+        do {
+            CountDownLatch latch = new CountDownLatch(1);
+            EventController.queryEvents(search, 2, cursor.get(), new EventPageCallback() {
+                @Override
+                public void onSuccess(List<Event> events, DocumentSnapshot next) {
+                    assertTrue(events.size() <= 2);
+                    for (Event event : events) {
+                        read.add(event.getId());
+                    }
+                    cursor.set(next);
+                    latch.countDown();
+                }
+                @Override
+                public void onFailure(Exception e) {
+                    fail("Failed to get events page");
+                }
+            });
+            await(latch);
+            pages++;
+        } while (cursor.get() != null);
+
+        assertEquals(3, pages);
+        Collections.sort(created);
+        Collections.sort(read);
+        assertEquals(created, read);
+
+        search.setName("zzz");
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.queryEvents(search, 2, null, new EventPageCallback() {
+            @Override
+            public void onSuccess(List<Event> events, DocumentSnapshot next) {
+                assertTrue(events.isEmpty());
+                assertNull(next);
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get events page");
+            }
+        });
+        await(latch);
+    }
+
+    /**
+     * Tests that an event written with its rosters embedded is migrated on first read
+     * Pass if the waitlist is read from the subcollection and the embedded fields are removed
+     * Fail otherwise
+     */
+    @Test
+    public void testMigrateEmbeddedRoster() {
+        clearAll();
+
+        Map<String, Object> waiting1 = new HashMap<>();
+        waiting1.put("id", 502);
+        Map<String, Object> waiting2 = new HashMap<>();
+        waiting2.put("id", 503);
+        Map<String, Object> enrolled = new HashMap<>();
+        enrolled.put("id", 501);
+        Map<String, Object> waitlist = new HashMap<>();
+        waitlist.put("entrants", Arrays.asList(waiting1, waiting2));
+        waitlist.put("entrantIds", Arrays.asList(502, 503));
+        waitlist.put("maxCapacity", 10);
+        waitlist.put("currentEntrants", 2);
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put("id", 9000);
+        legacy.put("entrants", Collections.singletonList(enrolled));
+        legacy.put("entrantIds", Collections.singletonList(501));
+        legacy.put("waitlist", waitlist);
+
+        DocumentReference doc = FirebaseFirestore.getInstance().collection("test_events").document("9000");
+        CountDownLatch writeLatch = new CountDownLatch(1);
+        doc.set(legacy).addOnSuccessListener(v -> writeLatch.countDown());
+        await(writeLatch);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.getWaitlistForEvent(9000, new EntrantListCallback() {
+            @Override
+            public void onSuccess(List<Entrant> entrants) {
+                assertEquals(2, entrants.size());
+                assertEquals(502, entrants.get(0).getId());
+                assertEquals(503, entrants.get(1).getId());
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get waitlist");
+            }
+        });
+        await(latch);
+
+        CountDownLatch docLatch = new CountDownLatch(1);
+        doc.get().addOnSuccessListener(snapshot -> {
+            assertNull(snapshot.get("entrants"));
+            assertNull(snapshot.get("waitlist.entrants"));
+            assertEquals(Long.valueOf(Event.ROSTER_VERSION), snapshot.getLong("rosterVersion"));
+            docLatch.countDown();
+        });
+        await(docLatch);
+    }
+
     /**
      * Tests getting all events for an entrant that is not in an event
      * Pass if the list is empty
@@ -697,6 +911,120 @@ public class EventControllerTest {
         await(latch);
     }
 
+    /**
+     * Reads an entrant's membership entry for an event
+     * @param entrantId
+     *      Entrant ID
+     * @param eventId
+     *      Event ID
+     * @return
+     *      The entry, or null if there is none
+     */
+    private Membership getMembership(int entrantId, int eventId) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Membership> ref = new AtomicReference<>();
+        RosterController.membershipRef(entrantId, eventId).get()
+                .addOnSuccessListener(doc -> {
+                    ref.set(doc.exists() ? doc.toObject(Membership.class) : null);
+                    latch.countDown();
+                })
+                .addOnFailureListener(e -> fail("Failed to read membership"));
+        await(latch);
+        return ref.get();
+    }
+
+    /**
+     * Tests the membership index follows an entrant through join, leave and accept,
+     * and that getMyEvents reads it
+     * Pass if the entry has the right status after each step and the events are split correctly
+     * Fail otherwise
+     */
+    @Test
+    public void testMembershipIndexTracksRoster() {
+        clearAll();
+        Entrant entrant = createEntrant("Member");
+        Event event = createValidEvent();
+
+        CountDownLatch joinLatch = new CountDownLatch(1);
+        EventController.addEntrantToWaitlist(event, entrant, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                joinLatch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to join waitlist");
+            }
+        });
+        await(joinLatch);
+        Membership joined = getMembership(entrant.getId(), event.getId());
+        assertNotNull(joined);
+        assertEquals(Membership.Status.WAITLISTED, joined.getStatus());
+        assertEquals(event.getEventInfo().getEventDate(), joined.getEventDate());
+
+        CountDownLatch waitLatch = new CountDownLatch(1);
+        EventController.getMyEvents(entrant, new MyEventsCallback() {
+            @Override
+            public void onSuccess(List<Event> events, List<Event> waitEvents, List<Event> pastEvents) {
+                assertTrue(events.isEmpty());
+                assertEquals(1, waitEvents.size());
+                assertEquals(event.getId(), waitEvents.get(0).getId());
+                assertTrue(pastEvents.isEmpty());
+                waitLatch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get events from memberships");
+            }
+        });
+        await(waitLatch);
+
+        CountDownLatch leaveLatch = new CountDownLatch(1);
+        EventController.removeEntrantFromWaitlist(event, entrant, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                leaveLatch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to leave waitlist");
+            }
+        });
+        await(leaveLatch);
+        assertNull(getMembership(entrant.getId(), event.getId()));
+
+        CountDownLatch acceptLatch = new CountDownLatch(1);
+        EventController.addEntrantToEvent(event, entrant, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                acceptLatch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to add to event");
+            }
+        });
+        await(acceptLatch);
+        Membership enrolled = getMembership(entrant.getId(), event.getId());
+        assertNotNull(enrolled);
+        assertEquals(Membership.Status.ENROLLED, enrolled.getStatus());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.getEventsForEntrant(entrant, new EntrantEventCallback() {
+            @Override
+            public void onSuccess(List<Event> events, List<Event> waitEvents) {
+                assertEquals(1, events.size());
+                assertTrue(waitEvents.isEmpty());
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get events for entrant");
+            }
+        });
+        await(latch);
+    }
+
     /**
      * Tests deleting an event with no entrants
      * Pass if the event is deleted
@@ -1850,7 +2178,120 @@ public class EventControllerTest {
         }
     }
 
+    /**
+     * Creates a valid event at a location and saves it
+     * @param lat
+     *      Latitude of the event
+     * @param lng
+     *      Longitude of the event
+     * @param entrantDist
+     *      Most metres an entrant may be away, or null if location is not required
+     * @return
+     *      Saved event
+     */
+    private Event createLocatedEvent(double lat, double lng, String entrantDist) {
+        Event event = createValidEvent();
+        Location loc = new Location("");
+        loc.setLatitude(lat);
+        loc.setLongitude(lng);
+        event.getEventInfo().setLocation(loc);
+        event.getEventInfo().setEntrantLoc(entrantDist != null);
+        event.getEventInfo().setEntrantDist(entrantDist);
+        CountDownLatch save = new CountDownLatch(1);
+        EventController.writeEvent(event, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                save.countDown();
+            }
 
-}
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to save event");
+            }
+        });
+        await(save);
+        return event;
+    }
+
+    /**
+     * Tests finding events near a point
+     * Pass if only the events within the radius are returned, nearest first
+     * Fail otherwise
+     */
+    @Test
+    public void testQueryEventsNear() {
+        clearAll();
+        // Edmonton, about 2 km and 300 km away
+        Event near = createLocatedEvent(53.5461, -113.4938, null);
+        Event nearer = createLocatedEvent(53.5232, -113.5263, null);
+        createLocatedEvent(51.0447, -114.0719, null);
+        createValidEvent();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<List<Event>> ref = new AtomicReference<>();
+        EventController.queryEventsNear(53.5232, -113.5263, 10000, new EventListCallback() {
+            @Override
+            public void onSuccess(List<Event> events) {
+                ref.set(events);
+                latch.countDown();
+            }
 
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to query events near");
+            }
+        });
+        await(latch);
 
+        List<Event> events = ref.get();
+        assertEquals(2, events.size());
+        assertEquals(nearer.getId(), events.get(0).getId());
+        assertEquals(near.getId(), events.get(1).getId());
+    }
+
+    /**
+     * Tests the join-time geofence uses the stored radius
+     * Pass if an entrant inside the radius joins and one outside is refused
+     * Fail otherwise
+     */
+    @Test
+    public void testJoinGeofence() {
+        clearAll();
+        Event event = createLocatedEvent(53.5232, -113.5263, "5000");
+        assertEquals(5000, event.getEventInfo().getEntrantRadius(), 0);
+
+        Location far = new Location("");
+        far.setLatitude(53.5461);
+        far.setLongitude(-113.2000);
+        CountDownLatch refused = new CountDownLatch(1);
+        EventController.addEntrantToWaitlist(event, createEntrant("Far"), far, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                fail("Entrant outside the radius should be refused");
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                refused.countDown();
+            }
+        });
+        await(refused);
+
+        Location close = new Location("");
+        close.setLatitude(53.5461);
+        close.setLongitude(-113.4938);
+        CountDownLatch joined = new CountDownLatch(1);
+        EventController.addEntrantToWaitlist(event, createEntrant("Close"), close, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                joined.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail("Entrant inside the radius should join: " + e.getMessage());
+            }
+        });
+        await(joined);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.slices.controllertest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.slices.controllers.EventController;
+import com.example.slices.controllers.EventRepository;
+import com.example.slices.controllers.Logger;
+import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.interfaces.EventCallback;
+import com.example.slices.models.Event;
+import com.example.slices.models.Image;
+import com.google.firebase.Timestamp;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for the EventRepository class
+ * @version 1.0
+ */
+public class EventRepositoryTest {
+
+    @BeforeClass
+    public static void globalSetup() throws InterruptedException {
+        EventController.setTesting(true);
+        Logger.setTesting(true);
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.clearEvents(latch::countDown);
+        boolean completed = latch.await(20, TimeUnit.SECONDS);
+        assertTrue("Timed out waiting for async operation", completed);
+    }
+
+    @AfterClass
+    public static void tearDown() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.clearEvents(latch::countDown);
+        boolean completed = latch.await(20, TimeUnit.SECONDS);
+        assertTrue("Timed out waiting for async operation", completed);
+        EventController.setTesting(false);
+        Logger.setTesting(false);
+    }
+
+    @Before
+    public void setup() {
+        EventRepository.clear();
+        EventRepository.resetStats();
+    }
+
+    /**
+     * Await a latch to complete
+     * @param latch
+     *      Latch to wait for
+     */
+    private void await(CountDownLatch latch) {
+        try {
+            boolean ok = latch.await(20, TimeUnit.SECONDS);
+            assertTrue("Timed out waiting for async operation", ok);
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+    }
+
+    /**
+     * Create a valid event
+     * @return
+     *      Event
+     */
+    private Event createValidEvent() {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Event> ref = new AtomicReference<>();
+        List<Timestamp> times = EventController.getTestEventTimes();
+        EventController.createEvent("Name", "Desc", "Add", null, "Guidelines", "ImgUrl",
+                times.get(2), times.get(0), times.get(1), 10, 5, false, "none", 123, new Image(),
+                new EventCallback() {
+                    @Override
+                    public void onSuccess(Event event) {
+                        ref.set(event);
+                        latch.countDown();
+                    }
+                    @Override
+                    public void onFailure(Exception e) {
+                        fail("Failed to create event: " + e.getMessage());
+                    }
+                });
+        await(latch);
+        EventRepository.clear();
+        EventRepository.resetStats();
+        return ref.get();
+    }
+
+    /**
+     * Reads an event through the repository
+     * @param id
+     *      Event ID
+     * @return
+     *      Event
+     */
+    private Event read(int id) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Event> ref = new AtomicReference<>();
+        EventRepository.getEvent(id, new EventCallback() {
+            @Override
+            public void onSuccess(Event event) {
+                ref.set(event);
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get event");
+            }
+        });
+        await(latch);
+        return ref.get();
+    }
+
+    /**
+     * Tests that concurrent reads of one event share a single Firestore read
+     * Pass if one miss is recorded and the rest are coalesced
+     * Fail otherwise
+     */
+    @Test
+    public void testConcurrentReadsCoalesce() {
+        Event event = createValidEvent();
+        int readers = 10;
+        CountDownLatch latch = new CountDownLatch(readers);
+        for (int i = 0; i < readers; i++) {
+            EventRepository.getEvent(event.getId(), new EventCallback() {
+                @Override
+                public void onSuccess(Event result) {
+                    assertEquals(event.getId(), result.getId());
+                    latch.countDown();
+                }
+                @Override
+                public void onFailure(Exception e) {
+                    fail("Failed to get event");
+                }
+            });
+        }
+        await(latch);
+        assertEquals(1, EventRepository.getMisses());
+        assertEquals(readers - 1, EventRepository.getCoalesced());
+    }
+
+    /**
+     * Tests that a repeated read is served from memory
+     * Pass if the second read is a hit
+     * Fail otherwise
+     */
+    @Test
+    public void testRepeatReadHits() {
+        Event event = createValidEvent();
+        read(event.getId());
+        read(event.getId());
+        assertEquals(1, EventRepository.getMisses());
+        assertEquals(1, EventRepository.getHits());
+    }
+
+    /**
+     * Tests that an update is visible to the next cached read
+     * Pass if the read returns the updated name without another miss
+     * Fail otherwise
+     */
+    @Test
+    public void testUpdateKeepsCacheCoherent() {
+        Event event = createValidEvent();
+        read(event.getId());
+        event.getEventInfo().setName("Renamed");
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.updateEvent(event, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to update event");
+            }
+        });
+        await(latch);
+        Event result = read(event.getId());
+        assertEquals("Renamed", result.getEventInfo().getName());
+        assertEquals(1, EventRepository.getMisses());
+    }
+
+    /**
+     * Tests that callers get their own copies of a cached event
+     * Pass if changing a returned event does not change the next read
+     * Fail otherwise
+     */
+    @Test
+    public void testReadsAreCopies() {
+        Event event = createValidEvent();
+        Event first = read(event.getId());
+        first.getCancelledIds().add(42);
+        first.getEventInfo().setName("Changed");
+        Event second = read(event.getId());
+        assertTrue(first != second);
+        assertFalse(second.getCancelledIds().contains(42));
+        assertEquals("Name", second.getEventInfo().getName());
+        assertEquals(1, EventRepository.getHits());
+    }
+
+    /**
+     * Tests that an older revision never replaces a newer cached one
+     * Pass if a stale put is ignored and a newer observed copy replaces the entry
+     * Fail otherwise
+     */
+    @Test
+    public void testRevisionInvalidation() {
+        Event event = createValidEvent();
+        Event newer = new Event(event);
+        newer.setRevision(2);
+        newer.getEventInfo().setName("Newer");
+        EventRepository.put(newer);
+
+        Event older = new Event(event);
+        older.setRevision(1);
+        older.getEventInfo().setName("Older");
+        EventRepository.put(older);
+        assertEquals("Newer", read(event.getId()).getEventInfo().getName());
+
+        Event newest = new Event(event);
+        newest.setRevision(3);
+        newest.getEventInfo().setName("Newest");
+        EventRepository.observe(newest);
+        assertEquals("Newest", read(event.getId()).getEventInfo().getName());
+        assertEquals(0, EventRepository.getMisses());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.slices.controllertest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.slices.controllers.IdAllocator;
+import com.example.slices.controllers.Logger;
+import com.example.slices.interfaces.IDBlockCallback;
+import com.example.slices.interfaces.IDCallback;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the IdAllocator class
+ * Runs against the test collections (point FirebaseFirestore at the emulator to run offline)
+ * @version 1.0
+ */
+public class IdAllocatorTest {
+
+    private final CollectionReference testRef =
+            FirebaseFirestore.getInstance().collection("test_id_allocator");
+
+    @Before
+    public void setup() {
+        Logger.setTesting(true);
+        CountDownLatch latch = new CountDownLatch(1);
+        IdAllocator.reset(testRef, latch::countDown);
+        await(latch);
+    }
+
+    @After
+    public void tearDown() {
+        IdAllocator.setBlockSize(IdAllocator.DEFAULT_BLOCK_SIZE);
+        CountDownLatch latch = new CountDownLatch(1);
+        IdAllocator.reset(testRef, latch::countDown);
+        await(latch);
+        Logger.setTesting(false);
+    }
+
+    /**
+     * Await a latch to complete
+     * @param latch
+     *      Latch to wait for
+     */
+    private void await(CountDownLatch latch) {
+        try {
+            boolean ok = latch.await(60, TimeUnit.SECONDS);
+            assertTrue("Timed out waiting for async operation", ok);
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+    }
+
+    /**
+     * Tests the first ID handed out for an empty collection
+     * Pass if the ID is 1
+     * Fail otherwise
+     */
+    @Test
+    public void testFirstIdEmptyCollection() {
+        CountDownLatch latch = new CountDownLatch(1);
+        int[] ref = new int[1];
+        IdAllocator.nextId(testRef, new IDCallback() {
+            @Override
+            public void onSuccess(int id) {
+                ref[0] = id;
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to allocate ID");
+            }
+        });
+        await(latch);
+        assertEquals(1, ref[0]);
+    }
+
+    /**
+     * Tests many concurrent clients leasing blocks from the same counter
+     * Pass if no ID is handed out twice
+     * Fail otherwise
+     */
+    @Test
+    public void testConcurrentLeasesDisjoint() {
+        int clients = 40;
+        int size = 8;
+        CountDownLatch latch = new CountDownLatch(clients);
+        Set<Integer> ids = Collections.synchronizedSet(new HashSet<>());
+        for (int i = 0; i < clients; i++) {
+            IdAllocator.leaseBlock(testRef, size, new IDBlockCallback() {
+                @Override
+                public void onSuccess(int start, int count) {
+                    for (int id = start; id < start + count; id++) {
+                        ids.add(id);
+                    }
+                    latch.countDown();
+                }
+                @Override
+                public void onFailure(Exception e) {
+                    fail("Failed to lease block: " + e.getMessage());
+                }
+            });
+        }
+        await(latch);
+        assertEquals(clients * size, ids.size());
+    }
+
+    /**
+     * Tests a burst of local allocations that spans several leased blocks
+     * Pass if every ID is unique
+     * Fail otherwise
+     */
+    @Test
+    public void testNextIdUniqueAcrossBlocks() {
+        IdAllocator.setBlockSize(4);
+        int calls = 150;
+        CountDownLatch latch = new CountDownLatch(calls);
+        Set<Integer> ids = Collections.synchronizedSet(new HashSet<>());
+        for (int i = 0; i < calls; i++) {
+            IdAllocator.nextId(testRef, new IDCallback() {
+                @Override
+                public void onSuccess(int id) {
+                    ids.add(id);
+                    latch.countDown();
+                }
+                @Override
+                public void onFailure(Exception e) {
+                    fail("Failed to allocate ID");
+                }
+            });
+        }
+        await(latch);
+        assertEquals(calls, ids.size());
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.slices.controllertest;
 
-import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -8,8 +8,10 @@ import static org.junit.Assert.fail;
 import android.net.Uri;
 import com.example.slices.R;
 import com.example.slices.controllers.ImageController;
+import com.example.slices.controllers.ImageUrlCache;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.ImageListCallback;
+import com.example.slices.interfaces.ImagePageCallback;
 import com.example.slices.interfaces.ImageUploadCallback;
 import com.example.slices.models.Image;
 
@@ -18,7 +20,10 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -79,6 +84,112 @@ public class ImageControllerTest {
         return Uri.parse("android.resource://com.example.slices/" + R.raw.test);
     }
 
+    /**
+     * Uploads the test image and waits for it
+     * @param userId
+     *      Uploader ID used to name the image
+     * @return
+     *      The uploaded image
+     */
+    private Image upload(String userId) {
+        CountDownLatch latch = new CountDownLatch(1);
+        final Image[] uploaded = new Image[1];
+        ImageController.uploadImage(getTestImageUri(), userId, new ImageUploadCallback() {
+            @Override
+            public void onSuccess(Image image) {
+                uploaded[0] = image;
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail("Upload failed");
+            }
+        });
+        await(latch);
+        return uploaded[0];
+    }
+
+    /**
+     * Reads one catalog page and waits for it
+     * @param pageSize
+     *      Most images to list
+     * @param pageToken
+     *      Token of the page, or null for the first
+     * @param next
+     *      Receives the next page token
+     * @return
+     *      Images on the page
+     */
+    private List<Image> getPage(int pageSize, String pageToken, String[] next) {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Image> page = new ArrayList<>();
+        ImageController.getImages(pageSize, pageToken, new ImagePageCallback() {
+            @Override
+            public void onSuccess(List<Image> images, String nextPageToken) {
+                page.addAll(images);
+                next[0] = nextPageToken;
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to list images");
+            }
+        });
+        await(latch);
+        return page;
+    }
+
+    /**
+     * Tests the catalog pages through every image and serves repeat pages from the URL cache
+     * Pass if the pages hold each upload once with its URL and the second read only hits the cache
+     * Fail otherwise
+     */
+    @Test
+    public void testGetImagesPages() {
+        clearAll();
+
+        Set<String> uploaded = new HashSet<>();
+        for (String userId : new String[]{"201", "202", "203"}) {
+            uploaded.add(upload(userId).getPath());
+        }
+
+        ImageUrlCache.clear();
+        ImageUrlCache.resetStats();
+        Set<String> listed = listAll(2);
+        assertEquals(uploaded, listed);
+        assertEquals(3, ImageUrlCache.getMisses());
+
+        listAll(2);
+        assertEquals(3, ImageUrlCache.getHits());
+        assertEquals(3, ImageUrlCache.getMisses());
+    }
+
+    /**
+     * Pages through the whole catalog
+     * @param pageSize
+     *      Most images per page
+     * @return
+     *      Paths of every listed image
+     */
+    private Set<String> listAll(int pageSize) {
+        Set<String> listed = new HashSet<>();
+        String[] next = new String[1];
+        int pages = 0;
+        do {
+            List<Image> page = getPage(pageSize, next[0], next);
+            assertTrue(page.size() <= pageSize);
+            for (Image image : page) {
+                assertNotNull(image.getUrl());
+                assertTrue("Image listed twice", listed.add(image.getPath()));
+            }
+            pages++;
+        } while (next[0] != null);
+        assertTrue(pages >= 2);
+        return listed;
+    }
+
     /**
      * Tests uploading an image and asserts that the object is not null
      * and the attribute are not null either
@@ -182,7 +293,7 @@ public class ImageControllerTest {
 
     /**
      * Creates an image and then modifies and asserts
-     * that the path and link are different
+     * that it was replaced in place with a newer version
      */
     @Test
     public void testModifyImage() {
@@ -226,8 +337,10 @@ public class ImageControllerTest {
 
         await(latch2);
 
-        assertNotEquals(first[0].getPath(), modified[0].getPath());
-        assertNotEquals(first[0].getUrl(), modified[0].getUrl());
+        assertEquals(first[0].getPath(), modified[0].getPath());
+        assertEquals(first[0].getThumbPath(), modified[0].getThumbPath());
+        assertTrue(modified[0].getVersion() > first[0].getVersion());
+        assertNotNull(modified[0].getUrl());
     }
 
     /**
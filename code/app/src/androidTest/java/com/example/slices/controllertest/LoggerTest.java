@@ -190,7 +190,46 @@ public class LoggerTest {
         await(latch2);
     }
 
+    /**
+     * Tests that buffered logs are written together with the next entry that has a callback
+     * Pass if every entry is in the database when the callback fires and none were dropped
+     * Fail otherwise
+     */
+    @Test
+    public void testBufferedLogsFlushWithCallback() {
+        clearAll();
+        int buffered = 150;
+        long droppedBefore = Logger.getDroppedCount();
+        for (int i = 0; i < buffered; i++) {
+            Logger.logLotteryRun(i, null);
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        Logger.logLotteryRun(buffered, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                latch.countDown();
+            }
 
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to flush logs");
+            }
+        });
+        await(latch);
 
-
+        CountDownLatch latch2 = new CountDownLatch(1);
+        Logger.getLogsOfType(LogType.LOTTERY_RUN, new LogListCallback() {
+            @Override
+            public void onSuccess(List<LogEntry> logs) {
+                assertEquals(buffered + 1, logs.size());
+                latch2.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get logs");
+            }
+        });
+        await(latch2);
+        assertEquals(droppedBefore, Logger.getDroppedCount());
+    }
 }
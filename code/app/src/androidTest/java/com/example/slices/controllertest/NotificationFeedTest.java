@@ -0,0 +1,214 @@
+package com.example.slices.controllertest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.slices.controllers.Logger;
+import com.example.slices.controllers.NotificationFeed;
+import com.example.slices.controllers.NotificationManager;
+import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.interfaces.NotificationFeedListener;
+import com.example.slices.models.Notification;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the NotificationFeed class
+ * @version 1.0
+ */
+public class NotificationFeedTest {
+
+    /**
+     * Mirrors the feed the way an adapter would
+     */
+    private static class Recorder implements NotificationFeedListener {
+        private final List<String> ids = new ArrayList<>();
+
+        synchronized List<String> ids() {
+            return new ArrayList<>(ids);
+        }
+
+        @Override
+        public synchronized void onReplaced(List<Notification> notifications) {
+            ids.clear();
+            for (Notification n : notifications) ids.add(n.getId());
+        }
+
+        @Override
+        public synchronized void onAppended(List<Notification> notifications) {
+            for (Notification n : notifications) ids.add(n.getId());
+        }
+
+        @Override
+        public synchronized void onInserted(int position, Notification notification) {
+            ids.add(position, notification.getId());
+        }
+
+        @Override
+        public synchronized void onChanged(int position, Notification notification) {
+            ids.set(position, notification.getId());
+        }
+
+        @Override
+        public synchronized void onMoved(int from, int to) {
+            ids.add(to, ids.remove(from));
+        }
+
+        @Override
+        public synchronized void onRemoved(int position) {
+            ids.remove(position);
+        }
+    }
+
+    private static class Owner implements LifecycleOwner {
+        private final LifecycleRegistry registry = LifecycleRegistry.createUnsafe(this);
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+
+    @BeforeClass
+    public static void globalSetup() throws InterruptedException {
+        Logger.setTesting(true);
+        NotificationManager.setTesting(true);
+        CountDownLatch latch = new CountDownLatch(1);
+        NotificationManager.clearNotifications(latch::countDown);
+        assertTrue("Global setup timed out", latch.await(20, TimeUnit.SECONDS));
+    }
+
+    @AfterClass
+    public static void tearDown() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        NotificationManager.clearNotifications(latch::countDown);
+        assertTrue("Global teardown timed out", latch.await(20, TimeUnit.SECONDS));
+        Logger.setTesting(false);
+        NotificationManager.setTesting(false);
+    }
+
+    /**
+     * Writes a notification with a fixed timestamp and waits for it
+     */
+    private void write(String id, long seconds) {
+        Notification n = new Notification("T", "B", id, 700, 2);
+        n.setTimestamp(new Timestamp(seconds, 0));
+        CountDownLatch latch = new CountDownLatch(1);
+        NotificationManager.writeNotification(n, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("writeNotification failed");
+            }
+        });
+        await(latch);
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            assertTrue("Timed out waiting for async operation", latch.await(20, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+    }
+
+    /**
+     * Waits for the recorder to show the expected notifications in order
+     */
+    private void awaitIds(Recorder recorder, String... expected) {
+        List<String> want = Arrays.asList(expected);
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!recorder.ids().equals(want)) {
+            if (System.currentTimeMillis() > deadline) {
+                assertEquals(want, recorder.ids());
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                fail("Interrupted");
+            }
+        }
+    }
+
+    private void move(Owner owner, Lifecycle.Event event) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                () -> owner.registry.handleLifecycleEvent(event));
+    }
+
+    /**
+     * Tests the feed applies inserts and removes as they happen and only listens while started
+     * Pass if the recorded feed follows the collection, newest first
+     * Fail otherwise
+     */
+    @Test
+    public void testFeedFollowsChangesWhileStarted() {
+        long base = System.currentTimeMillis() / 1000;
+        write("feed0", base);
+        write("feed1", base + 1);
+
+        Recorder recorder = new Recorder();
+        Owner owner = new Owner();
+        NotificationFeed feed = new NotificationFeed(NotificationManager.getFeedQuery(),
+                NotificationFeedTest::toNotification, recorder);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> feed.bind(owner));
+        move(owner, Lifecycle.Event.ON_START);
+        awaitIds(recorder, "feed1", "feed0");
+
+        write("feed2", base + 2);
+        awaitIds(recorder, "feed2", "feed1", "feed0");
+
+        CountDownLatch deleted = new CountDownLatch(1);
+        NotificationManager.deleteNotification("feed1", new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                deleted.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("deleteNotification failed");
+            }
+        });
+        await(deleted);
+        awaitIds(recorder, "feed2", "feed0");
+
+        // Stopped feeds stop listening and catch up when started again
+        move(owner, Lifecycle.Event.ON_STOP);
+        write("feed3", base + 3);
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+        assertEquals(Arrays.asList("feed2", "feed0"), recorder.ids());
+        move(owner, Lifecycle.Event.ON_START);
+        awaitIds(recorder, "feed3", "feed2", "feed0");
+        move(owner, Lifecycle.Event.ON_DESTROY);
+    }
+
+    private static Notification toNotification(DocumentSnapshot doc) {
+        Notification n = new Notification();
+        n.setId(doc.getId());
+        return n;
+    }
+}
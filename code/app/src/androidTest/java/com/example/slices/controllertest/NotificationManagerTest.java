@@ -10,11 +10,16 @@ import com.example.slices.controllers.EventController;
 import com.example.slices.controllers.Logger;
 import com.example.slices.controllers.NotificationManager;
 import com.example.slices.exceptions.NotificationNotFound;
+import com.example.slices.interfaces.BulkSendCallback;
+import com.example.slices.interfaces.BulkDeleteCallback;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.interfaces.NotificationCallback;
 import com.example.slices.interfaces.NotificationListCallback;
+import com.example.slices.interfaces.NotificationPageCallback;
+import com.example.slices.interfaces.UnreadCountCallback;
+import com.example.slices.models.BulkSendResult;
 import com.example.slices.models.Entrant;
 import com.example.slices.models.Event;
 import com.example.slices.models.Image;
@@ -30,12 +35,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 
 import static org.junit.Assert.*;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
 /**
  * Tests for the NotificationManager class
  * @author Ryan Haubrich
@@ -449,6 +456,54 @@ public class NotificationManagerTest {
 
 
 
+    /**
+     * Tests a bulk send larger than one write batch
+     * Pass if every recipient is reported as delivered and every notification is written
+     * Fail otherwise
+     */
+    @Test
+    public void testSendBulkNotificationAcrossBatches() throws InterruptedException {
+        clearAll();
+        int count = 520;
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(50000 + i);
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<BulkSendResult> ref = new AtomicReference<>();
+        NotificationManager.sendBulkNotification("Many", "Body", ids, 123, new BulkSendCallback() {
+            @Override
+            public void onSuccess(BulkSendResult result) {
+                ref.set(result);
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Bulk send failed: " + e.getMessage());
+            }
+        });
+        assertTrue("Timed out waiting for bulk send", latch.await(120, TimeUnit.SECONDS));
+
+        BulkSendResult result = ref.get();
+        assertEquals(count, result.getDelivered().size());
+        assertTrue(result.getSkipped().isEmpty());
+        assertFalse(result.hasFailures());
+
+        CountDownLatch check = new CountDownLatch(1);
+        NotificationManager.getAllNotifications(new NotificationListCallback() {
+            @Override
+            public void onSuccess(List<Notification> notifications) {
+                assertEquals(count, notifications.size());
+                check.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("getAllNotifications failed");
+            }
+        });
+        await(check);
+    }
+
     /**
      * Tests the getAllNotifications method on empty database
      * Pass if the list is empty
@@ -641,6 +696,247 @@ public class NotificationManagerTest {
     }
 
 
+    /**
+     * Helper to read a recipient's unread counter
+     * @param recipientId
+     *      Recipient ID
+     * @return
+     *      Unread count
+     */
+    private long getUnread(int recipientId) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Long> ref = new AtomicReference<>(-1L);
+        NotificationManager.getUnreadCount(recipientId, new UnreadCountCallback() {
+            @Override
+            public void onSuccess(long unread) {
+                ref.set(unread);
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("getUnreadCount failed");
+            }
+        });
+        await(latch);
+        return ref.get();
+    }
+
+    /**
+     * Helper to write a notification and wait for it
+     * @param notification
+     *      Notification to write
+     */
+    private void write(Notification notification) {
+        CountDownLatch latch = new CountDownLatch(1);
+        NotificationManager.writeNotification(notification, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("writeNotification failed");
+            }
+        });
+        await(latch);
+    }
+
+    /**
+     * Tests the inbox pages through active notifications newest first and the unread
+     * counter follows sends, reads, answers, deletes and clears
+     * Pass if every page and count matches
+     * Fail otherwise
+     */
+    @Test
+    public void testInboxPagesAndUnreadCounter() {
+        clearAll();
+        int recipient = 501;
+        long base = System.currentTimeMillis() / 1000;
+        List<Notification> sent = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Notification n = new Notification("T" + i, "B" + i, "inbox" + i, recipient, 2);
+            n.setTimestamp(new Timestamp(base + i, 0));
+            sent.add(n);
+            write(n);
+        }
+        Invitation invitation = new Invitation("Inv", "Body", "inbox3", recipient, 2, 9);
+        invitation.setTimestamp(new Timestamp(base + 3, 0));
+        write(invitation);
+        assertEquals(4, getUnread(recipient));
+
+        // Two pages, newest first
+        CountDownLatch first = new CountDownLatch(1);
+        AtomicReference<DocumentSnapshot> cursor = new AtomicReference<>();
+        NotificationManager.getInbox(recipient, 3, null, new NotificationPageCallback() {
+            @Override
+            public void onSuccess(List<Notification> notifications, DocumentSnapshot next) {
+                assertEquals(3, notifications.size());
+                assertEquals("inbox3", notifications.get(0).getId());
+                assertTrue(notifications.get(0) instanceof Invitation);
+                assertEquals("inbox1", notifications.get(2).getId());
+                assertNotNull(next);
+                cursor.set(next);
+                first.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("getInbox failed");
+            }
+        });
+        await(first);
+        CountDownLatch second = new CountDownLatch(1);
+        NotificationManager.getInbox(recipient, 3, cursor.get(), new NotificationPageCallback() {
+            @Override
+            public void onSuccess(List<Notification> notifications, DocumentSnapshot next) {
+                assertEquals(1, notifications.size());
+                assertEquals("inbox0", notifications.get(0).getId());
+                assertNull(next);
+                second.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("getInbox failed on second page");
+            }
+        });
+        await(second);
+
+        // Reading a notification and answering the invitation take them out of the inbox
+        sent.get(0).setRead(true);
+        write(sent.get(0));
+        invitation.setAccepted(true);
+        CountDownLatch answer = new CountDownLatch(1);
+        NotificationManager.updateInvitation(invitation, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                answer.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("updateInvitation failed");
+            }
+        });
+        await(answer);
+        assertEquals(2, getUnread(recipient));
+
+        // Rewriting an unchanged notification does not count it twice
+        write(sent.get(1));
+        assertEquals(2, getUnread(recipient));
+
+        CountDownLatch del = new CountDownLatch(1);
+        NotificationManager.deleteNotification("inbox2", new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                del.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("deleteNotification failed");
+            }
+        });
+        await(del);
+        assertEquals(1, getUnread(recipient));
+
+        CountDownLatch clear = new CountDownLatch(1);
+        NotificationManager.clearNotificationsForRecipient(recipient, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                clear.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("clearNotificationsForRecipient failed");
+            }
+        });
+        await(clear);
+        assertEquals(0, getUnread(recipient));
+    }
+
+    /**
+     * Tests clearing one recipient's notifications keeps the unread counters right
+     * Pass if only that recipient's notifications go and its counter ends at zero
+     * Fail otherwise
+     */
+    @Test
+    public void testClearNotificationsForRecipientUpdatesCounter() {
+        clearAll();
+        int recipient = 601;
+        for (int i = 0; i < 3; i++) {
+            write(new Notification("T", "B", "clear" + i, recipient, 2));
+        }
+        write(new Notification("T", "B", "keep", 602, 2));
+        assertEquals(3, getUnread(recipient));
+
+        CountDownLatch cleared = new CountDownLatch(1);
+        AtomicInteger total = new AtomicInteger(-1);
+        NotificationManager.clearNotificationsForRecipient(recipient, new BulkDeleteCallback() {
+            @Override
+            public void onProgress(int deleted) {}
+            @Override
+            public void onSuccess(int deleted) {
+                total.set(deleted);
+                cleared.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("clearNotificationsForRecipient failed");
+            }
+        });
+        await(cleared);
+        assertEquals(3, total.get());
+        assertEquals(0, getUnread(recipient));
+        assertEquals(1, getUnread(602));
+    }
+
+    /**
+     * Tests clearing more notifications than fit in one batch
+     * Pass if every page is deleted and progress is reported per batch
+     * Fail otherwise
+     */
+    @Test
+    public void testClearNotificationsPastBatchLimit() {
+        clearAll();
+        int count = 520;
+        List<Integer> recipients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            recipients.add(1000 + i);
+        }
+        CountDownLatch sent = new CountDownLatch(1);
+        NotificationManager.sendBulkNotification("T", "B", recipients, 2, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                sent.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("sendBulkNotification failed");
+            }
+        });
+        await(sent);
+
+        CountDownLatch cleared = new CountDownLatch(1);
+        AtomicInteger progress = new AtomicInteger();
+        AtomicInteger total = new AtomicInteger(-1);
+        NotificationManager.clearNotifications(new BulkDeleteCallback() {
+            @Override
+            public void onProgress(int deleted) {
+                progress.incrementAndGet();
+            }
+            @Override
+            public void onSuccess(int deleted) {
+                total.set(deleted);
+                cleared.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("clearNotifications failed");
+            }
+        });
+        await(cleared);
+        assertEquals(count, total.get());
+        assertTrue(progress.get() >= 2);
+        assertEquals(0, getUnread(1000));
+    }
+
     /**
      * Tests the getNotificationById method on non-existent notification
      * Pass if the notification is not found
@@ -1062,7 +1358,7 @@ public class NotificationManagerTest {
 
         //Check event membership
         CountDownLatch evCheck = new CountDownLatch(1);
-        EventController.getEvent(event.getId(), new EventCallback() {
+        EventController.getEventWithRoster(event.getId(), new EventCallback() {
             @Override
             public void onSuccess(Event e) {
                 assertTrue(e.getEntrants().contains(entrant));
@@ -1222,7 +1518,7 @@ public class NotificationManagerTest {
 
         //Check event: not on waitlist, also not in entrants
         CountDownLatch evCheck = new CountDownLatch(1);
-        EventController.getEvent(event.getId(), new EventCallback() {
+        EventController.getEventWithRoster(event.getId(), new EventCallback() {
             @Override
             public void onSuccess(Event e) {
                 assertFalse(e.getWaitlist().getEntrants().contains(entrant));
@@ -0,0 +1,104 @@
+package com.example.slices.controllertest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.slices.controllers.QRCodeManager;
+import com.example.slices.interfaces.QRCodeCallback;
+import com.example.slices.models.QREncoder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the QR code caches in QRCodeManager
+ */
+public class QRCodeManagerTest {
+
+    private static final int EVENT_ID = 987654;
+
+    private Context context;
+
+    @Before
+    public void setup() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        QRCodeManager.clearMemoryCache();
+        cacheFile().delete();
+    }
+
+    private File cacheFile() {
+        return new File(new File(context.getCacheDir(), "qr_codes"), EVENT_ID + "_" + QREncoder.DEFAULT_SIZE + ".png");
+    }
+
+    /**
+     * Gets the test event's QR code and waits for it
+     * @return
+     *      The bitmap delivered to the callback
+     */
+    private Bitmap getQRCode() {
+        CountDownLatch latch = new CountDownLatch(1);
+        final Bitmap[] result = new Bitmap[1];
+        QRCodeManager.getQRCode(context, EVENT_ID, new QRCodeCallback() {
+            @Override
+            public void onSuccess(Bitmap bitmap) {
+                result[0] = bitmap;
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get QR code: " + e.getMessage());
+            }
+        });
+        try {
+            assertTrue("Timed out waiting for async operation", latch.await(20, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+        assertNotNull(result[0]);
+        return result[0];
+    }
+
+    /**
+     * Tests a generated QR code is kept in memory and on disk
+     * Pass if the second request returns the same bitmap and the PNG exists
+     * Fail otherwise
+     */
+    @Test
+    public void testMemoryCache() {
+        Bitmap first = getQRCode();
+        assertEquals(QREncoder.DEFAULT_SIZE, first.getWidth());
+        assertTrue(cacheFile().isFile());
+
+        assertSame(first, getQRCode());
+        assertSame(first, QRCodeManager.generateQRCode(EVENT_ID));
+    }
+
+    /**
+     * Tests a QR code evicted from memory is read back from disk
+     * Pass if the reloaded bitmap is a new bitmap with the same pixels
+     * Fail otherwise
+     */
+    @Test
+    public void testDiskCache() {
+        Bitmap first = getQRCode();
+        QRCodeManager.clearMemoryCache();
+
+        Bitmap reloaded = getQRCode();
+        assertNotSame(first, reloaded);
+        assertTrue(first.sameAs(reloaded));
+    }
+}
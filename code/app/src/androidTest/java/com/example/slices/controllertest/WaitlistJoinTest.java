@@ -0,0 +1,288 @@
+package com.example.slices.controllertest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.slices.controllers.EventController;
+import com.example.slices.controllers.Logger;
+import com.example.slices.exceptions.WaitlistFull;
+import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.interfaces.EntrantListCallback;
+import com.example.slices.interfaces.EventCallback;
+import com.example.slices.models.Entrant;
+import com.example.slices.models.Event;
+import com.example.slices.models.Image;
+import com.google.firebase.Timestamp;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for concurrent joins to an event waitlist
+ * @version 1.0
+ */
+public class WaitlistJoinTest {
+
+    @BeforeClass
+    public static void globalSetup() throws InterruptedException {
+        EventController.setTesting(true);
+        Logger.setTesting(true);
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.clearEvents(latch::countDown);
+        boolean completed = latch.await(20, TimeUnit.SECONDS);
+        assertTrue("Timed out waiting for async operation", completed);
+    }
+
+    @AfterClass
+    public static void tearDown() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        EventController.clearEvents(latch::countDown);
+        boolean completed = latch.await(60, TimeUnit.SECONDS);
+        assertTrue("Timed out waiting for async operation", completed);
+        EventController.setTesting(false);
+        Logger.setTesting(false);
+    }
+
+    /**
+     * Await a latch to complete
+     * @param latch
+     *      Latch to wait for
+     * @param seconds
+     *      Seconds to wait before failing
+     */
+    private void await(CountDownLatch latch, int seconds) {
+        try {
+            boolean ok = latch.await(seconds, TimeUnit.SECONDS);
+            assertTrue("Timed out waiting for async operation", ok);
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+    }
+
+    /**
+     * Create a valid event with the given waitlist capacity
+     * @param maxWaiting
+     *      Waitlist capacity
+     * @return
+     *      Event
+     */
+    private Event createValidEvent(int maxWaiting) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Event> ref = new AtomicReference<>();
+        List<Timestamp> times = EventController.getTestEventTimes();
+        EventController.createEvent("Name", "Desc", "Add", null, "Guidelines", "ImgUrl",
+                times.get(2), times.get(0), times.get(1), 10, maxWaiting, false, "none", 123, new Image(),
+                new EventCallback() {
+                    @Override
+                    public void onSuccess(Event event) {
+                        ref.set(event);
+                        latch.countDown();
+                    }
+                    @Override
+                    public void onFailure(Exception e) {
+                        fail("Failed to create event: " + e.getMessage());
+                    }
+                });
+        await(latch, 20);
+        return ref.get();
+    }
+
+    /**
+     * Reads an event straight from the database
+     * @param id
+     *      Event ID
+     * @return
+     *      Event
+     */
+    private Event read(int id) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Event> ref = new AtomicReference<>();
+        EventController.getEvent(id, new EventCallback() {
+            @Override
+            public void onSuccess(Event event) {
+                ref.set(event);
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get event");
+            }
+        });
+        await(latch, 20);
+        return ref.get();
+    }
+
+    /**
+     * Reads an event's waitlist
+     * @param id
+     *      Event ID
+     * @return
+     *      Entrants on the waitlist
+     */
+    private List<Entrant> readWaitlist(int id) {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<List<Entrant>> ref = new AtomicReference<>();
+        EventController.getWaitlistForEvent(id, new EntrantListCallback() {
+            @Override
+            public void onSuccess(List<Entrant> entrants) {
+                ref.set(entrants);
+                latch.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Failed to get waitlist");
+            }
+        });
+        await(latch, 60);
+        return ref.get();
+    }
+
+    /**
+     * Joins the waitlist with many entrants at once, all from the same stale copy of the event
+     * @param event
+     *      Event to join
+     * @param joiners
+     *      Number of entrants joining
+     * @param full
+     *      Counts joins refused with WaitlistFull
+     * @return
+     *      Number of successful joins
+     */
+    private int joinConcurrently(Event event, int joiners, AtomicInteger full) {
+        CountDownLatch latch = new CountDownLatch(joiners);
+        AtomicInteger joined = new AtomicInteger();
+        for (int i = 0; i < joiners; i++) {
+            Entrant entrant = new Entrant("Joiner" + i, "joiner" + i + "@mail.com", "123", 1000 + i);
+            EventController.addEntrantToWaitlist(event, entrant, new DBWriteCallback() {
+                @Override
+                public void onSuccess() {
+                    joined.incrementAndGet();
+                    latch.countDown();
+                }
+                @Override
+                public void onFailure(Exception e) {
+                    if (e instanceof WaitlistFull) {
+                        full.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        await(latch, 600);
+        return joined.get();
+    }
+
+    /**
+     * Tests that 500 simultaneous joins are all stored
+     * Pass if the waitlist holds every joiner exactly once and the counter matches
+     * Fail otherwise
+     */
+    @Test
+    public void testConcurrentJoinsAllStored() {
+        int joiners = 500;
+        Event event = createValidEvent(joiners);
+        AtomicInteger full = new AtomicInteger();
+        assertEquals(joiners, joinConcurrently(event, joiners, full));
+
+        List<Entrant> waitlist = readWaitlist(event.getId());
+        Set<Integer> ids = new HashSet<>();
+        for (Entrant entrant : waitlist) {
+            ids.add(entrant.getId());
+        }
+        assertEquals(joiners, waitlist.size());
+        assertEquals(joiners, ids.size());
+
+        Event stored = read(event.getId());
+        assertEquals(joiners, stored.getWaitlist().getEntrantIds().size());
+        assertEquals(joiners, stored.getWaitlist().getCurrentEntrants());
+    }
+
+    /**
+     * Tests that concurrent joins never overfill the waitlist
+     * Pass if exactly the capacity is admitted and the rest are refused as full
+     * Fail otherwise
+     */
+    @Test
+    public void testConcurrentJoinsRespectCapacity() {
+        int capacity = 10;
+        int joiners = 20;
+        Event event = createValidEvent(capacity);
+        AtomicInteger full = new AtomicInteger();
+        assertEquals(capacity, joinConcurrently(event, joiners, full));
+        assertEquals(joiners - capacity, full.get());
+
+        Event stored = read(event.getId());
+        assertEquals(capacity, stored.getWaitlist().getEntrantIds().size());
+        assertEquals(capacity, stored.getWaitlist().getCurrentEntrants());
+        assertEquals(capacity, readWaitlist(event.getId()).size());
+    }
+
+    /**
+     * Tests that joining twice is refused and leaving frees the place
+     * Pass if the second join fails and a leave followed by a join succeeds
+     * Fail otherwise
+     */
+    @Test
+    public void testDuplicateJoinAndLeave() {
+        Event event = createValidEvent(5);
+        Entrant entrant = new Entrant("Solo", "solo@mail.com", "123", 42);
+        AtomicInteger full = new AtomicInteger();
+
+        CountDownLatch first = new CountDownLatch(1);
+        EventController.addEntrantToWaitlist(event, entrant, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                first.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("First join failed");
+            }
+        });
+        await(first, 20);
+
+        // A stale copy still passes the local checks, so the transaction must refuse it
+        Event stale = read(event.getId());
+        stale.getWaitlist().getEntrantIds().clear();
+        CountDownLatch second = new CountDownLatch(1);
+        EventController.addEntrantToWaitlist(stale, entrant, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                fail("Duplicate join succeeded");
+            }
+            @Override
+            public void onFailure(Exception e) {
+                second.countDown();
+            }
+        });
+        await(second, 20);
+
+        CountDownLatch leave = new CountDownLatch(1);
+        EventController.removeEntrantFromWaitlist(event, entrant, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                leave.countDown();
+            }
+            @Override
+            public void onFailure(Exception e) {
+                fail("Leave failed");
+            }
+        });
+        await(leave, 20);
+
+        Event stored = read(event.getId());
+        assertEquals(0, stored.getWaitlist().getCurrentEntrants());
+        assertEquals(0, stored.getWaitlist().getEntrantIds().size());
+        assertEquals(1, joinConcurrently(event, 1, full));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.slices.modeltests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.example.slices.models.EntrantCsv;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class EntrantCsvTest {
+    /**
+     * Tests fields are quoted only when RFC 4180 requires it
+     * Pass if commas, quotes and line breaks are quoted and quotes are doubled
+     * Fail otherwise
+     */
+    @Test
+    public void testEscape() {
+        String plain = "Ada Lovelace";
+        assertSame(plain, EntrantCsv.escape(plain));
+        assertEquals("", EntrantCsv.escape(null));
+        assertEquals("\"Lovelace, Ada\"", EntrantCsv.escape("Lovelace, Ada"));
+        assertEquals("\"Ada \"\"Countess\"\" L\"", EntrantCsv.escape("Ada \"Countess\" L"));
+        assertEquals("\"line\nbreak\"", EntrantCsv.escape("line\nbreak"));
+        assertEquals("\"carriage\rreturn\"", EntrantCsv.escape("carriage\rreturn"));
+    }
+
+    /**
+     * Tests records are comma separated and end with CRLF
+     * Pass if the header and a row are written as expected
+     * Fail otherwise
+     */
+    @Test
+    public void testWriteRecord() throws IOException {
+        StringBuilder out = new StringBuilder();
+        EntrantCsv.writeRecord(out, EntrantCsv.header(Arrays.asList(
+                EntrantCsv.Column.ID, EntrantCsv.Column.NAME, EntrantCsv.Column.STATUS)));
+        EntrantCsv.writeRecord(out, Arrays.asList("7", "Smith, J", EntrantCsv.Status.WAITLIST.getLabel()));
+        EntrantCsv.writeRecord(out, Arrays.asList("8", null, "Enrolled"));
+        assertEquals("ID,Name,Status\r\n7,\"Smith, J\",Waitlist\r\n8,,Enrolled\r\n", out.toString());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.slices.modeltests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.slices.models.EventInfo;
+import com.example.slices.models.GeoHash;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class GeoHashTest {
+    /**
+     * Tests points are encoded to the standard geohash
+     * Pass if known points give their published hashes
+     * Fail otherwise
+     */
+    @Test
+    public void testEncode() {
+        assertEquals("ezs42", GeoHash.encode(42.6, -5.6, 5));
+        assertEquals("u4pruydqqv", GeoHash.encode(57.64911, 10.40744));
+        assertEquals("c3x2", GeoHash.encode(53.5232, -113.5263, 4));
+    }
+
+    /**
+     * Tests the haversine distance
+     * Pass if known distances are within 0.5%
+     * Fail otherwise
+     */
+    @Test
+    public void testDistance() {
+        assertEquals(0, GeoHash.distance(10, 20, 10, 20), 1e-6);
+        // One degree of latitude
+        assertEquals(111195, GeoHash.distance(0, 0, 1, 0), 10);
+        // Edmonton to Calgary
+        assertEquals(280000, GeoHash.distance(53.5461, -113.4938, 51.0447, -114.0719), 1400);
+    }
+
+    /**
+     * Tests the query ranges cover every point within the radius
+     * Pass if random points in the circle fall in one of the ranges
+     * Fail otherwise
+     */
+    @Test
+    public void testQueryBoundsCoverCircle() {
+        Random random = new Random(7);
+        double[][] centers = {{53.5232, -113.5263}, {0.001, 179.999}, {-33.86, 151.2}, {85, 0}};
+        double[] radii = {50, 1000, 25000, 500000};
+        for (double[] center : centers) {
+            for (double radius : radii) {
+                List<String[]> bounds = GeoHash.queryBounds(center[0], center[1], radius);
+                assertTrue(bounds.size() <= 9);
+                for (int i = 0; i < 200; i++) {
+                    // Random point at up to the radius in a random direction
+                    double bearing = random.nextDouble() * 2 * Math.PI;
+                    double d = random.nextDouble() * radius / GeoHash.EARTH_RADIUS;
+                    double lat1 = Math.toRadians(center[0]);
+                    double lng1 = Math.toRadians(center[1]);
+                    double lat2 = Math.asin(Math.sin(lat1) * Math.cos(d)
+                            + Math.cos(lat1) * Math.sin(d) * Math.cos(bearing));
+                    double lng2 = lng1 + Math.atan2(Math.sin(bearing) * Math.sin(d) * Math.cos(lat1),
+                            Math.cos(d) - Math.sin(lat1) * Math.sin(lat2));
+                    double lng = Math.toDegrees(lng2);
+                    if (lng >= 180) lng -= 360;
+                    if (lng < -180) lng += 360;
+                    String hash = GeoHash.encode(Math.toDegrees(lat2), lng);
+
+                    boolean covered = false;
+                    for (String[] bound : bounds) {
+                        if (hash.compareTo(bound[0]) >= 0 && hash.compareTo(bound[1]) <= 0) {
+                            covered = true;
+                            break;
+                        }
+                    }
+                    assertTrue("Point " + hash + " not covered for radius " + radius, covered);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests EventInfo stores the geohash and the numeric radius
+     * Pass if they follow the coordinates and the distance text
+     * Fail otherwise
+     */
+    @Test
+    public void testEventInfoFields() {
+        EventInfo info = new EventInfo();
+        assertNull(info.getGeohash());
+        info.setEventLatitude(57.64911);
+        info.setEventLongitude(10.40744);
+        assertEquals("u4pruydqqv", info.getGeohash());
+
+        info.setEntrantDist("5000");
+        assertEquals(5000, info.getEntrantRadius(), 0);
+        info.setEntrantDist("2500.0");
+        assertEquals(2500, info.getEntrantRadius(), 0);
+        info.setEntrantDist("none");
+        assertEquals(0, info.getEntrantRadius(), 0);
+        info.setEntrantDist(null);
+        assertFalse(info.getEntrantRadius() > 0);
+    }
+}
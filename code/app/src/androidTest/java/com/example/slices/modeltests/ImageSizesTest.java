@@ -0,0 +1,37 @@
+package com.example.slices.modeltests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.slices.models.ImageSizes;
+
+import org.junit.Test;
+
+public class ImageSizesTest {
+    /**
+     * Tests the decoder sample size never drops the longer side below the limit
+     * Pass if the largest such power of two is chosen
+     * Fail otherwise
+     */
+    @Test
+    public void testSampleSize() {
+        assertEquals(1, ImageSizes.sampleSize(800, 600, 1600));
+        assertEquals(1, ImageSizes.sampleSize(3000, 2000, 1600));
+        assertEquals(2, ImageSizes.sampleSize(4000, 3000, 1600));
+        assertEquals(4, ImageSizes.sampleSize(3000, 8000, 1600));
+        assertEquals(8, ImageSizes.sampleSize(4000, 3000, 320));
+    }
+
+    /**
+     * Tests sizes are scaled down to the limit keeping their aspect ratio
+     * Pass if smaller sizes are kept and larger ones fit exactly
+     * Fail otherwise
+     */
+    @Test
+    public void testFit() {
+        assertArrayEquals(new int[]{800, 600}, ImageSizes.fit(800, 600, 1600));
+        assertArrayEquals(new int[]{1600, 1200}, ImageSizes.fit(2000, 1500, 1600));
+        assertArrayEquals(new int[]{180, 320}, ImageSizes.fit(1080, 1920, 320));
+        assertArrayEquals(new int[]{320, 1}, ImageSizes.fit(5000, 2, 320));
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.slices.modeltests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.slices.models.LocationIndex;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LocationIndexTest {
+
+    private static Map<String, Double> location(Double lat, Double lng) {
+        Map<String, Double> map = new HashMap<>();
+        map.put("latitude", lat);
+        map.put("longitude", lng);
+        return map;
+    }
+
+    /**
+     * Builds an index of random points around a center
+     */
+    private static LocationIndex around(double lat, double lng, double spread, int n) {
+        Random random = new Random(42);
+        int[] ids = new int[n];
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            lats[i] = lat + (random.nextDouble() - 0.5) * spread;
+            lngs[i] = lng + (random.nextDouble() - 0.5) * spread;
+        }
+        return new LocationIndex(ids, lats, lngs, n);
+    }
+
+    private static int total(LocationIndex.Clusters clusters) {
+        int sum = 0;
+        for (int c = 0; c < clusters.size; c++) {
+            sum += clusters.getCount(c);
+        }
+        return sum;
+    }
+
+    /**
+     * Tests waitlist locations are decoded into the index
+     * Pass if entries with a bad ID or missing coordinates are skipped
+     * Fail otherwise
+     */
+    @Test
+    public void testDecode() {
+        Map<String, Map<String, Double>> locations = new HashMap<>();
+        locations.put("1", location(53.5, -113.5));
+        locations.put("2", location(51.0, null));
+        locations.put("abc", location(50.0, -110.0));
+        locations.put("3", null);
+        locations.put("4", location(95.0, 0.0));
+
+        LocationIndex index = LocationIndex.decode(locations);
+        assertEquals(1, index.size());
+        assertEquals(1, index.getId(0));
+        assertEquals(53.5, index.getLatitude(0), 0);
+        assertEquals(-113.5, index.getLongitude(0), 0);
+
+        assertEquals(0, LocationIndex.decode(null).size());
+        assertNull(LocationIndex.decode(null).bounds());
+    }
+
+    /**
+     * Tests points are grouped into fewer clusters when zoomed out
+     * Pass if every point is in exactly one cluster and zooming in splits clusters
+     * Fail otherwise
+     */
+    @Test
+    public void testCluster() {
+        LocationIndex index = around(53.5, -113.5, 0.5, 5000);
+
+        LocationIndex.Clusters world = index.cluster(2, 64);
+        assertEquals(1, world.size);
+        assertEquals(5000, world.getCount(0));
+        assertEquals(53.5, world.getLatitude(0), 0.05);
+        assertEquals(-113.5, world.getLongitude(0), 0.05);
+
+        LocationIndex.Clusters city = index.cluster(12, 64);
+        assertTrue(city.size > 1);
+        assertEquals(5000, total(city));
+
+        LocationIndex.Clusters street = index.cluster(LocationIndex.MAX_ZOOM, 64);
+        assertEquals(5000, street.size);
+        assertEquals(index.getLatitude(street.getFirst(0)), street.getLatitude(0), 0);
+
+        // Cached per zoom level and cell size
+        assertTrue(city == index.cluster(12, 64));
+        assertTrue(street == index.cluster(LocationIndex.MAX_ZOOM + 3, 64));
+
+        // Only recently used clusterings are kept
+        for (int zoom = 0; zoom <= LocationIndex.MAX_ZOOM; zoom++) {
+            index.cluster(zoom, 32);
+        }
+        LocationIndex.Clusters again = index.cluster(12, 64);
+        assertTrue(city != again);
+        assertEquals(city.size, again.size);
+    }
+
+    /**
+     * Tests only the clusters inside the camera bounds are returned
+     * Pass if boxes on either side and across longitude 180 keep the right clusters
+     * Fail otherwise
+     */
+    @Test
+    public void testVisible() {
+        int[] ids = {1, 2, 3};
+        double[] lats = {10, 10, 50};
+        double[] lngs = {179.5, -179.5, 0};
+        LocationIndex index = new LocationIndex(ids, lats, lngs, 3);
+        LocationIndex.Clusters clusters = index.cluster(LocationIndex.MAX_ZOOM, 64);
+
+        assertEquals(3, clusters.visible(-90, -180, 90, 180).length);
+        assertEquals(1, clusters.visible(40, -10, 60, 10).length);
+        // Box crossing longitude 180 from 179 to -179
+        assertEquals(2, clusters.visible(0, 179, 20, -179).length);
+        assertEquals(0, clusters.visible(-20, 179, 0, -179).length);
+    }
+
+    /**
+     * Tests heatmap intensity is drawn around points in a tile only
+     * Pass if the tile holding the points is warm and a far tile is empty
+     * Fail otherwise
+     */
+    @Test
+    public void testDensity() {
+        LocationIndex index = around(53.5, -113.5, 0.01, 200);
+        float[] heat = new float[LocationIndex.TILE_SIZE * LocationIndex.TILE_SIZE];
+        int zoom = 10;
+        int tiles = 1 << zoom;
+        int tileX = (int) ((-113.5 + 180) / 360 * tiles);
+        double sin = Math.sin(Math.toRadians(53.5));
+        int tileY = (int) ((0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * tiles);
+
+        float max = index.density(tileX, tileY, zoom, 24, heat);
+        assertTrue(max >= 1);
+        float hottest = 0;
+        for (float h : heat) hottest = Math.max(hottest, h);
+        assertTrue(hottest > 0);
+
+        index.density(tileX + 5, tileY, zoom, 24, heat);
+        for (float h : heat) assertEquals(0, h, 0);
+    }
+
+    /**
+     * Tests the heat found by looking up the cells near a tile matches adding up every cluster
+     * Pass if each pixel matches a scan over all clusters, including tiles at the edge of the points
+     * Fail otherwise
+     */
+    @Test
+    public void testDensityMatchesScan() {
+        LocationIndex index = around(53.5, -113.5, 2, 20000);
+        int zoom = 9;
+        int radius = 24;
+        double worldPx = LocationIndex.TILE_SIZE * Math.pow(2, zoom);
+        LocationIndex.Clusters clusters = index.cluster(zoom, radius / 4);
+        float[] heat = new float[LocationIndex.TILE_SIZE * LocationIndex.TILE_SIZE];
+        int centerX = (int) ((-113.5 + 180) / 360 * (1 << zoom));
+        double sin = Math.sin(Math.toRadians(53.5));
+        int centerY = (int) ((0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * (1 << zoom));
+
+        for (int tileX = centerX - 2; tileX <= centerX + 2; tileX++) {
+            for (int tileY = centerY - 2; tileY <= centerY + 2; tileY++) {
+                index.density(tileX, tileY, zoom, radius, heat);
+                float[] expected = new float[heat.length];
+                for (int c = 0; c < clusters.size; c++) {
+                    double s = Math.sin(Math.toRadians(clusters.getLatitude(c)));
+                    double px = (clusters.getLongitude(c) + 180) / 360 * worldPx
+                            - tileX * LocationIndex.TILE_SIZE;
+                    double py = (0.5 - Math.log((1 + s) / (1 - s)) / (4 * Math.PI)) * worldPx
+                            - tileY * LocationIndex.TILE_SIZE;
+                    int minRow = Math.max(0, (int) Math.floor(py - radius));
+                    int maxRow = Math.min(LocationIndex.TILE_SIZE - 1, (int) Math.ceil(py + radius));
+                    int minCol = Math.max(0, (int) Math.floor(px - radius));
+                    int maxCol = Math.min(LocationIndex.TILE_SIZE - 1, (int) Math.ceil(px + radius));
+                    for (int row = minRow; row <= maxRow; row++) {
+                        for (int col = minCol; col <= maxCol; col++) {
+                            double dx = col + 0.5 - px;
+                            double dy = row + 0.5 - py;
+                            double d2 = (dx * dx + dy * dy) / (radius * radius);
+                            if (d2 < 1) {
+                                expected[row * LocationIndex.TILE_SIZE + col] += clusters.getCount(c) * (1 - d2) * (1 - d2);
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < heat.length; i++) {
+                    assertEquals(expected[i], heat[i], 1e-2 + expected[i] * 1e-3);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.slices.modeltests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.slices.models.EventInfo;
+import com.example.slices.models.SearchIndex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchIndexTest {
+    /**
+     * Tests names are split into normalized words
+     * Pass if case, accents, punctuation and repeats are removed
+     * Fail otherwise
+     */
+    @Test
+    public void testWords() {
+        assertEquals(Arrays.asList("cafe", "jazz", "night"),
+                SearchIndex.words("  Café JAZZ-night, jazz! "));
+        assertTrue(SearchIndex.words(null).isEmpty());
+        assertTrue(SearchIndex.words("  --  ").isEmpty());
+    }
+
+    /**
+     * Tests every prefix of every word becomes a token
+     * Pass if the tokens match and long words are capped
+     * Fail otherwise
+     */
+    @Test
+    public void testTokens() {
+        assertEquals(Arrays.asList("s", "sw", "swi", "swim", "l", "le", "les", "less", "lesso", "lesson"),
+                SearchIndex.tokens("Swim Lesson"));
+
+        List<String> tokens = SearchIndex.tokens("Supercalifragilisticexpialidocious");
+        assertEquals(SearchIndex.MAX_TOKEN_LENGTH, tokens.size());
+        assertEquals("supercalifragilistic", tokens.get(tokens.size() - 1));
+    }
+
+    /**
+     * Tests query words are checked as word prefixes
+     * Pass if every query word must start a word of the name
+     * Fail otherwise
+     */
+    @Test
+    public void testMatches() {
+        List<String> query = SearchIndex.words("les swi");
+        assertTrue(SearchIndex.matches("Swim Lesson", query));
+        assertFalse(SearchIndex.matches("Swim Class", query));
+        assertFalse(SearchIndex.matches("Lessons", SearchIndex.words("sons")));
+        assertEquals("lesson", SearchIndex.lookupToken(SearchIndex.words("swim lesson")));
+    }
+
+    /**
+     * Tests EventInfo exposes the index fields written to Firestore
+     * Pass if they follow the name
+     * Fail otherwise
+     */
+    @Test
+    public void testEventInfoIndexFields() {
+        EventInfo info = new EventInfo();
+        info.setName("Piano Recital");
+        assertEquals("piano recital", info.getNameLower());
+        assertTrue(info.getSearchTokens().contains("pia"));
+        assertTrue(info.getSearchTokens().contains("recital"));
+
+        info.setName("Bake Sale");
+        assertFalse(info.getSearchTokens().contains("pia"));
+        assertTrue(info.getSearchTokens().contains("bak"));
+    }
+}
@@ -14,13 +14,16 @@ import androidx.navigation.ui.NavigationUI;
 
 import com.example.slices.controllers.EntrantController;
 import com.example.slices.controllers.Logger;
+import com.example.slices.controllers.NotificationManager;
 import com.example.slices.databinding.ActivityMainBinding;
 import com.example.slices.exceptions.EntrantNotFound;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantCallback;
 import com.example.slices.interfaces.EntrantIDCallback;
+import com.example.slices.interfaces.UnreadCountCallback;
 import com.example.slices.models.Entrant;
 import com.example.slices.models.InstanceUtil;
+import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 /**
  * MainActivity View that sets up navigation for the bottom navigation bars
@@ -40,6 +43,7 @@ public class MainActivity extends AppCompatActivity {
         SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
         
         super.onCreate(savedInstanceState);
+        Logger.init(this);
 
         binding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
@@ -100,6 +104,44 @@ public class MainActivity extends AppCompatActivity {
         return appMode;
     }
 
+    /**
+     * Reads the user's unread notification counter and shows it as a badge on the
+     * notifications tab of the user and organizer menus
+     */
+    public void refreshUnreadBadge() {
+        Entrant user = sharedViewModel.getUser();
+        if (user == null) {
+            return;
+        }
+        NotificationManager.getUnreadCount(user.getId(), new UnreadCountCallback() {
+            @Override
+            public void onSuccess(long unread) {
+                showUnreadBadge(binding.bottomNav, unread);
+                showUnreadBadge(binding.bottomNavOrg, unread);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // Leave the badge as it was
+            }
+        });
+    }
+
+    /**
+     * Shows or removes the unread badge on one menu
+     * @param nav
+     *      Menu to update
+     * @param unread
+     *      Number of unread notifications
+     */
+    private void showUnreadBadge(BottomNavigationView nav, long unread) {
+        if (unread > 0) {
+            nav.getOrCreateBadge(R.id.NotifFragment).setNumber((int) Math.min(unread, 999));
+        } else {
+            nav.removeBadge(R.id.NotifFragment);
+        }
+    }
+
     /**
      * Initialize the user information, either obtain entrant from firebase
      * if the deviceId exists, or create a new Entrant in firebase with the
@@ -125,6 +167,7 @@ public class MainActivity extends AppCompatActivity {
                     enableNavigation();
                     navController.navigate(R.id.MyEventsFragment);
                 }
+                refreshUnreadBadge();
             }
 
             @Override
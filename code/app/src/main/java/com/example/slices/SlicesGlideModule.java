@@ -0,0 +1,61 @@
+package com.example.slices;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+
+/**
+ * App-wide Glide configuration.
+ * Caps the memory cache and bitmap pool at what Glide would pick for the device, up to a fixed
+ * budget, and gives event images their own disk cache so scrolling lists back over rows does
+ * not download or decode them again.
+ * @version 1.0
+ */
+@GlideModule
+public final class SlicesGlideModule extends AppGlideModule {
+    /**
+     * Most memory kept for decoded images
+     */
+    static final long MAX_MEMORY_CACHE_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Most memory kept for reusable bitmaps
+     */
+    static final long MAX_BITMAP_POOL_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Size of the on-disk image cache
+     */
+    static final long DISK_CACHE_BYTES = 150L * 1024 * 1024;
+
+    static final String DISK_CACHE_NAME = "event_images";
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context).build();
+        builder.setMemoryCache(new LruResourceCache(
+                Math.min(calculator.getMemoryCacheSize(), MAX_MEMORY_CACHE_BYTES)));
+        builder.setBitmapPool(new LruBitmapPool(
+                Math.min(calculator.getBitmapPoolSize(), MAX_BITMAP_POOL_BYTES)));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(
+                context, DISK_CACHE_NAME, DISK_CACHE_BYTES));
+        builder.setLogLevel(Log.ERROR);
+    }
+
+    /**
+     * No libraries register Glide modules in their manifests
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -34,14 +34,43 @@ import java.util.List;
  */
 public class AdminEventAdapter extends RecyclerView.Adapter<AdminEventAdapter.ViewHolder> {
 
+    /**
+     * Size of the event image in admin_event_card
+     */
+    private static final int IMAGE_SIZE_DP = 40;
+
     private final Context context;
     private List<Event> eventList;
     private List<Event> eventListFull;
+    private final EventImagePreloader preloader;
 
     public AdminEventAdapter(Context context, List<Event> eventList) {
         this.context = context;
         this.eventList = eventList;
         this.eventListFull = new ArrayList<>(eventList);
+        this.preloader = new EventImagePreloader(Glide.with(context),
+                position -> position < this.eventList.size() ? this.eventList.get(position) : null,
+                EventImages.px(context, IMAGE_SIZE_DP), R.drawable.ic_event_avatar);
+    }
+
+    /**
+     * Starts preloading event images as the list scrolls
+     * @param recyclerView list this adapter was attached to
+     */
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        preloader.attach(recyclerView);
+    }
+
+    /**
+     * Stops preloading event images
+     * @param recyclerView list this adapter was detached from
+     */
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        preloader.detach(recyclerView);
     }
 
     /**
@@ -90,20 +119,10 @@ public class AdminEventAdapter extends RecyclerView.Adapter<AdminEventAdapter.Vi
         holder.title.setText(eventInfo.getName() != null ? eventInfo.getName() : "Unnamed Event");
         holder.details.setText(eventInfo.getDescription() != null ? eventInfo.getDescription() : "No description");
 
-        String imageUrl = eventInfo.getImageUrl();
         Context ctx = holder.itemView.getContext();
 
-        if (imageUrl != null && !imageUrl.trim().isEmpty()) {
-            Glide.with(ctx)
-                    .load(imageUrl)
-                    .placeholder(R.drawable.ic_event_avatar)
-                    .error(R.drawable.ic_event_avatar)
-                    .into(holder.icon);
-        } else {
-            Glide.with(ctx)
-                    .load(R.drawable.ic_event_avatar)
-                    .into(holder.icon);
-        }
+        // Thumbnail sized to the view; the avatar stands in when there is no image
+        preloader.request(event).into(holder.icon);
 
         holder.removeButton.setOnClickListener(v -> {
             String eventId = String.valueOf(event.getId());
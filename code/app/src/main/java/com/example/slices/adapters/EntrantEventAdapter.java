@@ -14,6 +14,7 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.NavController;
 import androidx.navigation.NavOptions;
 import androidx.navigation.fragment.NavHostFragment;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.slices.controllers.EventController;
@@ -37,7 +38,6 @@ import com.example.slices.models.EventInfo;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 /** EntrantEventAdapter
@@ -45,10 +45,12 @@ import java.util.Locale;
  * This adapter is used when an event is clicked to join or to leave the event. It changes the text
  * as well as the background colors as per Storyboard illustration (purple BG / white BG with
  * white text / black text, respectively).
+ * Events are supplied with submitList, which diffs them against the current list on a
+ * background thread so appending a page only binds the new cards.
  *
  * @author Raj Prasad
  */
-public class EntrantEventAdapter extends RecyclerView.Adapter<EntrantEventAdapter.EventViewHolder> {
+public class EntrantEventAdapter extends ListAdapter<Event, EntrantEventAdapter.EventViewHolder> {
 
     /**
      * Callback interface for requesting location from the fragment
@@ -65,9 +67,14 @@ public class EntrantEventAdapter extends RecyclerView.Adapter<EntrantEventAdapte
         void onLocationFailed();
     }
 
+    /**
+     * Size of the event image in browse_events_card
+     */
+    private static final int IMAGE_SIZE_DP = 50;
+
     private final Context context;
     private final Fragment fragment; // for NavController
-    private final List<Event> events;
+    private final EventImagePreloader preloader;
 
     @Nullable
     private SharedViewModel vm;
@@ -82,13 +89,38 @@ public class EntrantEventAdapter extends RecyclerView.Adapter<EntrantEventAdapte
      * Constructor for EntrantEventAdapter for displaying events that the entrant can join or leave
      * @param context
      *     the current context
-     * @param events
-     *      the list of events to display
+     * @param fragment
+     *      the fragment hosting the list, used for navigation
      */
-    public EntrantEventAdapter(Context context, Fragment fragment, List<Event> events) {
+    public EntrantEventAdapter(Context context, Fragment fragment) {
+        super(new EventDiffCallback());
         this.context = context;
         this.fragment = fragment;
-        this.events = events;
+        this.preloader = new EventImagePreloader(Glide.with(context),
+                position -> position < getItemCount() ? getItem(position) : null,
+                EventImages.px(context, IMAGE_SIZE_DP), R.drawable.ic_image);
+    }
+
+    /**
+     * Starts preloading event images as the list scrolls
+     * @param recyclerView
+     *      the list this adapter was attached to
+     */
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        preloader.attach(recyclerView);
+    }
+
+    /**
+     * Stops preloading event images
+     * @param recyclerView
+     *      the list this adapter was detached from
+     */
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        preloader.detach(recyclerView);
     }
 
     /**
@@ -129,16 +161,11 @@ public class EntrantEventAdapter extends RecyclerView.Adapter<EntrantEventAdapte
 
     @Override
     public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
-        Event event = events.get(position);
+        Event event = getItem(position);
 
         holder.bind(event);
     }
 
-    @Override
-    public int getItemCount() {
-        return events.size();
-    }
-
     class EventViewHolder extends RecyclerView.ViewHolder {
 
         private final TextView title;
@@ -173,17 +200,8 @@ public class EntrantEventAdapter extends RecyclerView.Adapter<EntrantEventAdapte
             details.setText(formatter.format(date));
             place.setText(eventInfo.getAddress());
 
-            // Load image with placeholder/error; skip glide on missing URL
-            String imageUrl = eventInfo.getImageUrl();
-            if (imageUrl == null || imageUrl.trim().isEmpty()) {
-                image.setImageResource(R.drawable.ic_image);
-            } else {
-                Glide.with(context)
-                        .load(imageUrl)
-                        .placeholder(R.drawable.ic_image)
-                        .error(R.drawable.ic_image)
-                        .into(image);
-            }
+            // Load the thumbnail sized to the view, with placeholder/error/fallback
+            preloader.request(event).into(image);
 
             // Item click navigates to EventDetailsFragment
             itemView.setOnClickListener(v -> {
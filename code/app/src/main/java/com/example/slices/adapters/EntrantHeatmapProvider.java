@@ -0,0 +1,94 @@
+package com.example.slices.adapters;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.example.slices.models.LocationIndex;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Draws entrant locations as heatmap tiles for a map TileOverlay.
+ * The map asks for tiles on its own background threads; each tile is rendered from the
+ * index's clusters, so the cost does not grow with the number of entrants.
+ * @version 1.0
+ */
+public class EntrantHeatmapProvider implements TileProvider {
+    /**
+     * Radius each entrant spreads over, in tile pixels
+     */
+    public static final int RADIUS_PX = 24;
+
+    /**
+     * Colours from cool to hot; intensity is also shown as opacity
+     */
+    private static final int[] GRADIENT = {
+            Color.rgb(102, 225, 0),
+            Color.rgb(255, 225, 0),
+            Color.rgb(255, 0, 0)
+    };
+
+    private static final int SIZE = LocationIndex.TILE_SIZE;
+
+    private final LocationIndex index;
+
+    /**
+     * Reused per thread, as the map renders several tiles at once
+     */
+    private final ThreadLocal<float[]> intensity = ThreadLocal.withInitial(() -> new float[SIZE * SIZE]);
+    private final ThreadLocal<int[]> pixels = ThreadLocal.withInitial(() -> new int[SIZE * SIZE]);
+
+    /**
+     * Creates a provider for the entrants in an index
+     * @param index
+     *      Decoded entrant locations
+     */
+    public EntrantHeatmapProvider(LocationIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        float[] heat = intensity.get();
+        float max = index.density(x, y, zoom, RADIUS_PX, heat);
+
+        int[] colors = pixels.get();
+        boolean empty = true;
+        for (int i = 0; i < colors.length; i++) {
+            float t = Math.min(1f, heat[i] / max);
+            if (t <= 0) {
+                colors[i] = Color.TRANSPARENT;
+            } else {
+                colors[i] = color(t);
+                empty = false;
+            }
+        }
+        if (empty) {
+            return NO_TILE;
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(colors, SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        bitmap.recycle();
+        return new Tile(SIZE, SIZE, out.toByteArray());
+    }
+
+    /**
+     * Picks the colour for an intensity, blending between the gradient stops
+     */
+    private static int color(float t) {
+        float position = t * (GRADIENT.length - 1);
+        int stop = Math.min(GRADIENT.length - 2, (int) position);
+        float blend = position - stop;
+        int from = GRADIENT[stop];
+        int to = GRADIENT[stop + 1];
+        int alpha = (int) (60 + 160 * t);
+        return Color.argb(alpha,
+                (int) (Color.red(from) + (Color.red(to) - Color.red(from)) * blend),
+                (int) (Color.green(from) + (Color.green(to) - Color.green(from)) * blend),
+                (int) (Color.blue(from) + (Color.blue(to) - Color.blue(from)) * blend));
+    }
+}
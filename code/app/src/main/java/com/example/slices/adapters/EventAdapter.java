@@ -19,6 +19,7 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.NavController;
 import androidx.navigation.NavOptions;
 import androidx.navigation.fragment.NavHostFragment;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.SimpleDateFormat;
@@ -29,18 +30,41 @@ import java.util.Locale;
 /**
  * Recycler Adapter for use with events in the user
  * MyEvents fragment
+ * Backed by a ListAdapter, so later lists passed to submitList are diffed
+ * and only the changed cards are rebound
  * @author Brad Erdely
  */
-public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder> {
+public class EventAdapter extends ListAdapter<Event, EventAdapter.ViewHolder> {
+
+    /**
+     * Size of the card image in user_events_card
+     */
+    private static final int IMAGE_SIZE_DP = 50;
 
     private final Context context;
-    private final List<Event> events;
     private final Fragment fragment; // Reference for NavController
+    private final EventImagePreloader preloader;
 
     public EventAdapter(Context context, List<Event> events, Fragment fragment) {
+        super(new EventDiffCallback());
         this.context = context;
-        this.events = events;
         this.fragment = fragment;
+        this.preloader = new EventImagePreloader(Glide.with(context),
+                position -> position < getItemCount() ? getItem(position) : null,
+                EventImages.px(context, IMAGE_SIZE_DP), R.drawable.ic_image);
+        submitList(events);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        preloader.attach(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        preloader.detach(recyclerView);
     }
 
     @NonNull
@@ -53,7 +77,7 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Event event = events.get(position);
+        Event event = getItem(position);
         EventInfo eventInfo = event.getEventInfo();
 
 
@@ -64,17 +88,8 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
         holder.details.setText(formatter.format(date));
         holder.place.setText(eventInfo.getAddress());
 
-        // Load image with safe fallback when URL is missing/invalid
-        String imageUrl = eventInfo.getImageUrl();
-        if (imageUrl == null || imageUrl.trim().isEmpty()) {
-            holder.image.setImageResource(R.drawable.ic_image);
-        } else {
-            Glide.with(context)
-                    .load(imageUrl)
-                    .placeholder(R.drawable.ic_image)
-                    .error(R.drawable.ic_image)
-                    .into(holder.image);
-        }
+        // Load the thumbnail sized to the view; falls back to the placeholder when URL is missing/invalid
+        preloader.request(event).into(holder.image);
 
         // Click listener to navigate to EventDetailsFragment
         holder.itemView.setOnClickListener(v -> {
@@ -100,11 +115,6 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
         navController.navigate(R.id.action_global_EventDetailsFragment, bundle, options);
     }
 
-    @Override
-    public int getItemCount() {
-        return events.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView title, details, place;
         ImageView image;
@@ -0,0 +1,38 @@
+package com.example.slices.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.slices.models.Event;
+import com.example.slices.models.EventInfo;
+
+import java.util.Objects;
+
+/**
+ * DiffUtil callback for event lists
+ * Events are the same item when their IDs match, and unchanged when everything an event
+ * card shows is unchanged, so refreshing a list only rebinds the cards that differ
+ */
+public class EventDiffCallback extends DiffUtil.ItemCallback<Event> {
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Event oldItem, @NonNull Event newItem) {
+        return oldItem.getId() == newItem.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Event oldItem, @NonNull Event newItem) {
+        EventInfo a = oldItem.getEventInfo();
+        EventInfo b = newItem.getEventInfo();
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getEventDate(), b.getEventDate())
+                && Objects.equals(a.getRegEnd(), b.getRegEnd())
+                && Objects.equals(a.getAddress(), b.getAddress())
+                && Objects.equals(a.getThumbnailUrl(), b.getThumbnailUrl())
+                && Objects.equals(EventImages.cacheKey(a, true), EventImages.cacheKey(b, true))
+                && a.getCurrentEntrants() == b.getCurrentEntrants();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.slices.adapters;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.example.slices.models.Event;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Loads the thumbnails of the rows about to scroll into view.
+ * Adapters create one and attach it from onAttachedToRecyclerView; it issues the same request
+ * as EventImages.thumbnail, so the row finds the image already decoded in memory.
+ * @version 1.0
+ */
+class EventImagePreloader implements ListPreloader.PreloadModelProvider<Event> {
+    /**
+     * Rows ahead of the visible ones to preload
+     */
+    static final int MAX_PRELOAD = 10;
+
+    private final RequestManager glide;
+    private final IntFunction<Event> itemAt;
+    private final int sizePx;
+    @DrawableRes
+    private final int placeholder;
+    private RecyclerViewPreloader<Event> scrollListener;
+
+    /**
+     * @param glide
+     *      Request manager the rows load with
+     * @param itemAt
+     *      Gets the event at an adapter position, or null if there is none
+     * @param sizePx
+     *      Width and height of the row image view in pixels
+     * @param placeholder
+     *      Placeholder the rows use
+     */
+    EventImagePreloader(RequestManager glide, IntFunction<Event> itemAt, int sizePx,
+                        @DrawableRes int placeholder) {
+        this.glide = glide;
+        this.itemAt = itemAt;
+        this.sizePx = sizePx;
+        this.placeholder = placeholder;
+    }
+
+    /**
+     * Starts preloading as the list scrolls
+     * @param recyclerView
+     *      List the adapter was attached to
+     */
+    void attach(RecyclerView recyclerView) {
+        detach(recyclerView);
+        scrollListener = new RecyclerViewPreloader<>(glide, this,
+                new FixedPreloadSizeProvider<>(sizePx, sizePx), MAX_PRELOAD);
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    /**
+     * Stops preloading
+     * @param recyclerView
+     *      List the adapter was detached from
+     */
+    void detach(RecyclerView recyclerView) {
+        if (scrollListener != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+            scrollListener = null;
+        }
+    }
+
+    /**
+     * Builds the request a row binds with
+     * @param event
+     *      Event of the row
+     * @return
+     *      Request for its thumbnail
+     */
+    RequestBuilder<Drawable> request(Event event) {
+        return EventImages.thumbnail(glide, event == null ? null : event.getEventInfo(), sizePx, placeholder);
+    }
+
+    @NonNull
+    @Override
+    public List<Event> getPreloadItems(int position) {
+        Event event = itemAt.apply(position);
+        if (event == null || EventImages.model(event.getEventInfo(), true) == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(event);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Event event) {
+        return request(event);
+    }
+}
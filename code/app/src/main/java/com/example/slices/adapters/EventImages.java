@@ -0,0 +1,123 @@
+package com.example.slices.adapters;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.example.slices.models.EventInfo;
+import com.example.slices.models.Image;
+
+/**
+ * Builds the Glide requests for event images.
+ * Images uploaded through ImageController are cached under their storage path and version
+ * rather than their download URL, so a refreshed download token still hits the cache and an
+ * image replaced in place is fetched again. List rows request the thumbnail at the size of
+ * their view; the same request is used to preload rows, so preloaded images are reused.
+ * @version 1.0
+ */
+public final class EventImages {
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private EventImages() {}
+
+    /**
+     * Download URL whose cache key is the image's path and version instead of the URL
+     */
+    private static final class StableUrl extends GlideUrl {
+        private final String key;
+
+        StableUrl(String url, String key) {
+            super(url);
+            this.key = key;
+        }
+
+        @Override
+        public String getCacheKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Gets what Glide should load for an event's image
+     * @param info
+     *      Event info, may be null
+     * @param thumbnail
+     *      True for the list thumbnail, false for the full image
+     * @return
+     *      Model to load, or null if there is no image URL
+     */
+    public static Object model(EventInfo info, boolean thumbnail) {
+        if (info == null) {
+            return null;
+        }
+        String url = thumbnail ? info.getThumbnailUrl() : info.getImageUrl();
+        if (url == null || url.trim().isEmpty()) {
+            return null;
+        }
+        String key = cacheKey(info, thumbnail);
+        return key == null ? url : new StableUrl(url, key);
+    }
+
+    /**
+     * Gets the cache key of an event's image
+     * @param info
+     *      Event info, may be null
+     * @param thumbnail
+     *      True for the list thumbnail, false for the full image
+     * @return
+     *      Path and version of the image, or null if the image is only known by URL
+     */
+    public static String cacheKey(EventInfo info, boolean thumbnail) {
+        Image image = info == null ? null : info.getImage();
+        if (image == null || image.getPath() == null || image.getUrl() == null) {
+            return null;
+        }
+        boolean hasThumb = image.getThumbUrl() != null && image.getThumbPath() != null;
+        String path = thumbnail && hasThumb ? image.getThumbPath() : image.getPath();
+        return path + "#" + image.getVersion();
+    }
+
+    /**
+     * Builds the request for an event's list thumbnail, decoded at the size of its view
+     * @param glide
+     *      Request manager of the screen
+     * @param info
+     *      Event info, may be null
+     * @param sizePx
+     *      Width and height of the image view in pixels
+     * @param placeholder
+     *      Drawable shown while loading and when there is no image
+     * @return
+     *      Request to load into the view or preload
+     */
+    public static RequestBuilder<Drawable> thumbnail(@NonNull RequestManager glide, EventInfo info,
+                                                     int sizePx, @DrawableRes int placeholder) {
+        return glide.load(model(info, true))
+                .override(sizePx)
+                .centerCrop()
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .placeholder(placeholder)
+                .error(placeholder)
+                .fallback(placeholder);
+    }
+
+    /**
+     * Converts a layout size to pixels
+     * @param context
+     *      Context for the display density
+     * @param dp
+     *      Size in dp
+     * @return
+     *      Size in pixels
+     */
+    public static int px(Context context, int dp) {
+        return Math.round(dp * context.getResources().getDisplayMetrics().density);
+    }
+}
@@ -27,13 +27,34 @@ public class ImagesAdapter extends RecyclerView.Adapter<ImagesAdapter.VH> {
         void onClick(Event event);
     }
 
+    /**
+     * Size of the image holder in images_card
+     */
+    private static final int IMAGE_SIZE_DP = 110;
+
     private final Context context;
     private final OnDetailsClick detailsCallback;
     private final List<Event> events = new ArrayList<>();
+    private final EventImagePreloader preloader;
 
     public ImagesAdapter(Context context, OnDetailsClick callback) {
         this.context = context;
         this.detailsCallback = callback;
+        this.preloader = new EventImagePreloader(Glide.with(context),
+                position -> position < events.size() ? events.get(position) : null,
+                EventImages.px(context, IMAGE_SIZE_DP), R.drawable.card_background);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        preloader.attach(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        preloader.detach(recyclerView);
     }
     public void setEvents(List<Event> list) {
         events.clear();
@@ -55,11 +76,7 @@ public class ImagesAdapter extends RecyclerView.Adapter<ImagesAdapter.VH> {
 
         h.title.setText(e.getEventInfo().getName());
 
-        Glide.with(context)
-                .load(e.getEventInfo().getImageUrl())
-                .placeholder(R.drawable.card_background)
-                .centerCrop()
-                .into(h.img);
+        preloader.request(e).into(h.img);
 
         //
         h.details.setOnClickListener(v -> detailsCallback.onClick(e));
@@ -10,13 +10,15 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 
-import com.example.slices.controllers.EventController;
+import com.example.slices.controllers.EventRepository;
 import com.example.slices.controllers.NotificationManager;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EventCallback;
+import com.example.slices.interfaces.NotificationFeedListener;
 import com.example.slices.models.Event;
 import com.example.slices.models.EventInfo;
 import com.example.slices.models.Invitation;
@@ -42,7 +44,8 @@ import java.util.TimeZone;
  * Used in NotifFragment
  * @author Bhupinder Singh
  */
-public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.VH> {
+public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.VH>
+        implements NotificationFeedListener {
     private final Context context;
     private final List<Notification> items = new ArrayList<>();
     private final boolean isAdmin;
@@ -69,6 +72,79 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
         notifyDataSetChanged();
     }
 
+    /**
+     * Appends a page of notifications after the ones already shown.
+     * @param list notifications to add
+     */
+    public void addNotifications(List<Notification> list) {
+        int start = items.size();
+        items.addAll(list);
+        notifyItemRangeInserted(start, list.size());
+    }
+
+    /**
+     * Replaces the notifications with a new list, updating only the cards that differ.
+     * @param list notifications to display
+     */
+    @Override
+    public void onReplaced(List<Notification> list) {
+        List<Notification> old = new ArrayList<>(items);
+        NotificationDiffCallback diff = new NotificationDiffCallback();
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return old.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return list.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return diff.areItemsTheSame(old.get(oldPosition), list.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return diff.areContentsTheSame(old.get(oldPosition), list.get(newPosition));
+            }
+        });
+        items.clear();
+        items.addAll(list);
+        result.dispatchUpdatesTo(this);
+    }
+
+    @Override
+    public void onAppended(List<Notification> list) {
+        addNotifications(list);
+    }
+
+    @Override
+    public void onInserted(int position, Notification notification) {
+        items.add(position, notification);
+        notifyItemInserted(position);
+    }
+
+    @Override
+    public void onChanged(int position, Notification notification) {
+        items.set(position, notification);
+        notifyItemChanged(position);
+    }
+
+    @Override
+    public void onMoved(int from, int to) {
+        items.add(to, items.remove(from));
+        notifyItemMoved(from, to);
+    }
+
+    @Override
+    public void onRemoved(int position) {
+        items.remove(position);
+        notifyItemRemoved(position);
+    }
+
     @NonNull @Override
     public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View v = LayoutInflater.from(context)
@@ -111,7 +187,7 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
         if (n.getEventId() == 0) {
             h.eventName.setText("General Notification");
         } else {
-            EventController.getEvent(n.getEventId(), new EventCallback() {
+            EventRepository.getEvent(n.getEventId(), new EventCallback() {
                 @Override
                 public void onSuccess(Event event) {
                     if (event != null && event.getEventInfo() != null) {
@@ -0,0 +1,31 @@
+package com.example.slices.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.slices.models.Notification;
+
+import java.util.Objects;
+
+/**
+ * DiffUtil callback for notification lists
+ * Notifications are the same item when their IDs match, and unchanged when everything a
+ * notification card shows is unchanged
+ */
+public class NotificationDiffCallback extends DiffUtil.ItemCallback<Notification> {
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Notification oldItem, @NonNull Notification newItem) {
+        return Objects.equals(oldItem.getId(), newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Notification oldItem, @NonNull Notification newItem) {
+        return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                && Objects.equals(oldItem.getBody(), newItem.getBody())
+                && Objects.equals(oldItem.getTimestamp(), newItem.getTimestamp())
+                && oldItem.getType() == newItem.getType()
+                && oldItem.getEventId() == newItem.getEventId()
+                && oldItem.getRead() == newItem.getRead();
+    }
+}
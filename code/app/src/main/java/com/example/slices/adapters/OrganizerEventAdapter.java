@@ -38,9 +38,15 @@ import java.util.Locale;
 
 public class OrganizerEventAdapter extends RecyclerView.Adapter<OrganizerEventAdapter.ViewHolder> {
 
+    /**
+     * Size of the event image in organizer_event_card
+     */
+    private static final int IMAGE_SIZE_DP = 60;
+
     private final Context context;
     private final List<Event> eventList;
     private final OrganizerEventsFragment fragment; // Needed for navigation
+    private final EventImagePreloader preloader;
 
     /**
      * Constructor for OrganizerEventAdapter.
@@ -53,6 +59,31 @@ public class OrganizerEventAdapter extends RecyclerView.Adapter<OrganizerEventAd
         this.context = context;
         this.eventList = eventList;
         this.fragment = fragment;
+        this.preloader = new EventImagePreloader(Glide.with(context),
+                position -> position < eventList.size() ? eventList.get(position) : null,
+                EventImages.px(context, IMAGE_SIZE_DP), R.drawable.ic_image);
+    }
+
+    /**
+     * Starts preloading card images as the list scrolls.
+     *
+     * @param recyclerView The list this adapter was attached to.
+     */
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        preloader.attach(recyclerView);
+    }
+
+    /**
+     * Stops preloading card images.
+     *
+     * @param recyclerView The list this adapter was detached from.
+     */
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        preloader.detach(recyclerView);
     }
 
     /**
@@ -90,17 +121,8 @@ public class OrganizerEventAdapter extends RecyclerView.Adapter<OrganizerEventAd
         String eventTime = sdf.format(eventInfo.getEventDate().toDate());
         holder.eventDateTime.setText(eventTime + " | " + eventInfo.getAddress());
 
-        // Load image with graceful fallback for empty/invalid URLs
-        String imageUrl = eventInfo.getImageUrl();
-        if (imageUrl == null || imageUrl.trim().isEmpty()) {
-            holder.imgEvent.setImageResource(R.drawable.ic_image);
-        } else {
-            Glide.with(context)
-                    .load(imageUrl)
-                    .placeholder(R.drawable.ic_image)
-                    .error(R.drawable.ic_image)
-                    .into(holder.imgEvent);
-        }
+        // Load the thumbnail sized to the view, with graceful fallback for empty/invalid URLs
+        preloader.request(event).into(holder.imgEvent);
 
         // Simple click listener to navigate to OrganizerEditEventFragment
         holder.itemView.setOnClickListener(v -> {
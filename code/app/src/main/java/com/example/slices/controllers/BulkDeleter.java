@@ -0,0 +1,393 @@
+package com.example.slices.controllers;
+
+import android.annotation.SuppressLint;
+
+import com.example.slices.exceptions.DBOpFailed;
+import com.example.slices.interfaces.BulkDeleteCallback;
+import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.models.AsyncBatchExecutor;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.ListResult;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Deletes everything a query or a storage folder holds, a page at a time.
+ * Firestore pages are read in document ID order with limit and a cursor, each page is deleted in
+ * one WriteBatch, and up to MAX_IN_FLIGHT batches are committed while the next page is read.
+ * A page can run a step before its batch, such as deleting subcollections or documents that
+ * need a transaction. Only what the query still matches is ever deleted, so running the same
+ * purge again after an interruption carries on from the last committed batch.
+ * @version 1.0
+ */
+public class BulkDeleter {
+    /**
+     * Firestore limit on writes in one batch
+     */
+    static final int MAX_BATCH_OPS = 500;
+
+    /**
+     * Documents deleted per batch
+     */
+    public static final int DEFAULT_PAGE_SIZE = 450;
+
+    /**
+     * Batches committed at the same time
+     */
+    static final int MAX_IN_FLIGHT = 4;
+
+    /**
+     * Storage objects listed per page; the most Storage returns at once
+     */
+    static final int STORAGE_PAGE_SIZE = 1000;
+
+    /**
+     * Storage deletes running at the same time
+     */
+    static final int STORAGE_IN_FLIGHT = 16;
+
+    @SuppressLint("StaticFieldLeak")
+    private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private BulkDeleter() {}
+
+    /**
+     * Creates a purge of every document a query matches
+     * @param query
+     *      Query to empty; must not set its own order, limit or cursor
+     * @return
+     *      Job to configure and start
+     */
+    static Job of(Query query) {
+        return new Job(query);
+    }
+
+    /**
+     * Deletes every object under a storage folder and its subfolders, a listing page at a time
+     * @param folder
+     *      Folder to empty
+     * @param callback
+     *      Callback to call with progress and when the folder and its subfolders are empty
+     * @return
+     *      Job that can be cancelled
+     */
+    static Job purge(StorageReference folder, BulkDeleteCallback callback) {
+        Job job = new Job(null);
+        job.callback = callback;
+        job.listFrom(folder, null);
+        return job;
+    }
+
+    /**
+     * Adapts a purge for the clear methods that take a Runnable, which run it however the purge ends
+     * @param onComplete
+     *      Runnable to run once the purge has finished or failed
+     * @return
+     *      Callback that ignores progress
+     */
+    static BulkDeleteCallback completing(Runnable onComplete) {
+        return new BulkDeleteCallback() {
+            @Override
+            public void onProgress(int deleted) {}
+
+            @Override
+            public void onSuccess(int deleted) {
+                onComplete.run();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                onComplete.run();
+            }
+        };
+    }
+
+    /**
+     * One running or configured purge
+     */
+    public static final class Job {
+        private final Query query;
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private Function<List<DocumentSnapshot>, Task<Void>> beforeBatch;
+        private Consumer<Runnable> afterAll;
+        private BulkDeleteCallback callback;
+
+        private DocumentSnapshot cursor;
+        private final Deque<StorageReference> folders = new ArrayDeque<>();
+        private int inFlight = 0;
+        private int deleted = 0;
+        private boolean reading = false;
+        private boolean exhausted = false;
+        private boolean cancelled = false;
+        private boolean finished = false;
+        private Exception error;
+
+        private Job(Query query) {
+            this.query = query;
+        }
+
+        /**
+         * Sets the number of documents deleted per batch
+         * @param pageSize
+         *      Documents per batch, at most MAX_BATCH_OPS
+         * @return
+         *      This job
+         */
+        Job pageSize(int pageSize) {
+            this.pageSize = Math.max(1, Math.min(pageSize, MAX_BATCH_OPS));
+            return this;
+        }
+
+        /**
+         * Sets a step to run for each page before its batch is committed
+         * @param beforeBatch
+         *      Step given the page, returning a task the batch waits for
+         * @return
+         *      This job
+         */
+        Job beforeBatch(Function<List<DocumentSnapshot>, Task<Void>> beforeBatch) {
+            this.beforeBatch = beforeBatch;
+            return this;
+        }
+
+        /**
+         * Sets a step to run once the query matches nothing more; skipped if the purge is
+         * cancelled or fails
+         * @param afterAll
+         *      Step given the Runnable to call when it is done
+         * @return
+         *      This job
+         */
+        Job afterAll(Consumer<Runnable> afterAll) {
+            this.afterAll = afterAll;
+            return this;
+        }
+
+        /**
+         * Starts deleting
+         * @param callback
+         *      Callback to call with progress and when the query matches nothing more
+         * @return
+         *      This job
+         */
+        Job start(BulkDeleteCallback callback) {
+            this.callback = callback;
+            synchronized (this) {
+                reading = true;
+            }
+            readNext();
+            return this;
+        }
+
+        /**
+         * Stops reading new pages; batches already committing finish, then the callback's
+         * onSuccess reports what was deleted. Running the purge again resumes it
+         */
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        public synchronized int getDeleted() {
+            return deleted;
+        }
+
+        /**
+         * Reads the page after the cursor; reading is set by the caller
+         */
+        private void readNext() {
+            Query page = query.orderBy(FieldPath.documentId()).limit(pageSize);
+            if (cursor != null) {
+                page = page.startAfter(cursor);
+            }
+            page.get()
+                    .addOnSuccessListener(this::onPage)
+                    .addOnFailureListener(e -> {
+                        synchronized (this) {
+                            reading = false;
+                            if (error == null) error = e;
+                        }
+                        finishIfDone();
+                    });
+        }
+
+        /**
+         * Starts committing a page and reads the next one if there is room
+         */
+        private void onPage(QuerySnapshot page) {
+            List<DocumentSnapshot> docs = page.getDocuments();
+            boolean readMore;
+            synchronized (this) {
+                reading = false;
+                if (docs.size() < pageSize) {
+                    exhausted = true;
+                }
+                if (!docs.isEmpty()) {
+                    cursor = docs.get(docs.size() - 1);
+                    inFlight++;
+                }
+                readMore = claimRead();
+            }
+            if (!docs.isEmpty()) {
+                commit(docs);
+            }
+            if (readMore) {
+                readNext();
+            } else {
+                finishIfDone();
+            }
+        }
+
+        /**
+         * Deletes one page, after its before-batch step
+         */
+        private void commit(List<DocumentSnapshot> docs) {
+            Task<Void> ready = beforeBatch == null ? Tasks.forResult(null) : beforeBatch.apply(docs);
+            ready.onSuccessTask(v -> {
+                        WriteBatch batch = db.batch();
+                        for (DocumentSnapshot doc : docs) {
+                            batch.delete(doc.getReference());
+                        }
+                        return batch.commit();
+                    })
+                    .addOnCompleteListener(t -> {
+                        boolean readMore;
+                        int progress;
+                        synchronized (this) {
+                            inFlight--;
+                            if (t.isSuccessful()) {
+                                deleted += docs.size();
+                            } else if (error == null) {
+                                error = t.getException();
+                            }
+                            progress = deleted;
+                            readMore = claimRead();
+                        }
+                        if (t.isSuccessful()) {
+                            callback.onProgress(progress);
+                        }
+                        if (readMore) {
+                            readNext();
+                        } else {
+                            finishIfDone();
+                        }
+                    });
+        }
+
+        /**
+         * Marks a read as started if another page should be read now; call while synchronized
+         * @return
+         *      True if the caller should read the next page
+         */
+        private boolean claimRead() {
+            if (reading || exhausted || cancelled || error != null || inFlight >= MAX_IN_FLIGHT) {
+                return false;
+            }
+            reading = true;
+            return true;
+        }
+
+        /**
+         * Reports the outcome once nothing is reading or committing
+         */
+        private void finishIfDone() {
+            Exception failure;
+            int total;
+            boolean complete;
+            synchronized (this) {
+                if (finished || reading || inFlight > 0 || !(exhausted || cancelled || error != null)) {
+                    return;
+                }
+                finished = true;
+                failure = error;
+                total = deleted;
+                complete = !cancelled;
+            }
+            if (failure != null) {
+                Logger.logError("Bulk delete failed after " + total + " documents: " + failure.getMessage(), null);
+                callback.onFailure(new DBOpFailed("Failed to delete all documents, deleted " + total));
+            } else if (complete && afterAll != null) {
+                afterAll.accept(() -> callback.onSuccess(total));
+            } else {
+                callback.onSuccess(total);
+            }
+        }
+
+        /**
+         * Lists one storage page and deletes its objects before listing the next; subfolders
+         * found along the way are emptied after the current folder
+         */
+        private void listFrom(StorageReference folder, String pageToken) {
+            Task<ListResult> list = pageToken == null
+                    ? folder.list(STORAGE_PAGE_SIZE)
+                    : folder.list(STORAGE_PAGE_SIZE, pageToken);
+            list.addOnSuccessListener(result -> {
+                        List<Consumer<DBWriteCallback>> deletes = new ArrayList<>();
+                        synchronized (this) {
+                            folders.addAll(result.getPrefixes());
+                        }
+                        for (StorageReference item : result.getItems()) {
+                            deletes.add(cb -> item.delete()
+                                    .addOnSuccessListener(v -> cb.onSuccess())
+                                    .addOnFailureListener(cb::onFailure));
+                        }
+                        new AsyncBatchExecutor(STORAGE_IN_FLIGHT).run(deletes, results -> {
+                            boolean more;
+                            StorageReference next = folder;
+                            String token = result.getPageToken();
+                            int progress;
+                            synchronized (this) {
+                                for (AsyncBatchExecutor.Result r : results) {
+                                    if (r.isSuccess()) {
+                                        deleted++;
+                                    } else if (error == null) {
+                                        error = r.getError();
+                                    }
+                                }
+                                progress = deleted;
+                                if (token == null && !folders.isEmpty()) {
+                                    next = folders.poll();
+                                }
+                                exhausted = token == null && next == folder;
+                                more = !exhausted && !cancelled && error == null;
+                            }
+                            if (!results.isEmpty()) {
+                                callback.onProgress(progress);
+                            }
+                            if (more) {
+                                listFrom(next, next == folder ? token : null);
+                            } else {
+                                finishIfDone();
+                            }
+                        });
+                    })
+                    .addOnFailureListener(e -> {
+                        synchronized (this) {
+                            if (error == null) error = e;
+                        }
+                        finishIfDone();
+                    });
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.slices.controllers;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.media.MediaScannerConnection;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.provider.MediaStore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A file being written to Downloads, and how to publish or discard it afterwards.
+ * Goes through MediaStore on Android 10 and later, where the file stays hidden until published,
+ * and straight into Downloads before that.
+ * @version 1.0
+ */
+interface DownloadTarget {
+    OutputStream open() throws IOException;
+
+    /**
+     * Makes the finished file visible
+     * @return
+     *      Content URI or path of the file
+     */
+    String publish();
+
+    void discard();
+
+    /**
+     * Picks where to write the file for this Android version
+     * @param context
+     *      Context used to write the file
+     * @param fileName
+     *      Name of the file in Downloads
+     * @param mimeType
+     *      MIME type of the file
+     * @return
+     *      Target to open, then publish or discard
+     */
+    static DownloadTarget create(Context context, String fileName, String mimeType) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new DownloadTarget() {
+                private final ContentResolver resolver = context.getContentResolver();
+                private Uri uri;
+
+                @Override
+                public OutputStream open() throws IOException {
+                    ContentValues values = new ContentValues();
+                    values.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
+                    values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+                    values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+                    values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+                    uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+                    OutputStream out = uri != null ? resolver.openOutputStream(uri) : null;
+                    if (out == null) {
+                        throw new IOException("Failed to create file in Downloads storage");
+                    }
+                    return out;
+                }
+
+                @Override
+                public String publish() {
+                    ContentValues values = new ContentValues();
+                    values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+                    resolver.update(uri, values, null, null);
+                    return uri.toString();
+                }
+
+                @Override
+                public void discard() {
+                    if (uri != null) resolver.delete(uri, null, null);
+                }
+            };
+        }
+        File file = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), fileName);
+        return new DownloadTarget() {
+            @Override
+            public OutputStream open() throws IOException {
+                return new FileOutputStream(file);
+            }
+
+            @Override
+            public String publish() {
+                // Let the media scanner index the file so it appears in Downloads right away
+                MediaScannerConnection.scanFile(context, new String[]{file.getAbsolutePath()},
+                        new String[]{mimeType}, null);
+                return file.getAbsolutePath();
+            }
+
+            @Override
+            public void discard() {
+                file.delete();
+            }
+        };
+    }
+}
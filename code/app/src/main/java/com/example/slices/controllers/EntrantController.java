@@ -7,20 +7,24 @@ import androidx.annotation.NonNull;
 import com.example.slices.exceptions.DBOpFailed;
 import com.example.slices.exceptions.EntrantNotFound;
 import com.example.slices.exceptions.EventNotFound;
+import com.example.slices.interfaces.BulkDeleteCallback;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantCallback;
 import com.example.slices.interfaces.EntrantEventCallback;
 import com.example.slices.interfaces.EntrantIDCallback;
 import com.example.slices.interfaces.EntrantListCallback;
+import com.example.slices.interfaces.IDCallback;
 import com.example.slices.interfaces.ProfileCallback;
 import com.example.slices.models.AsyncBatchExecutor;
 import com.example.slices.models.Entrant;
 import com.example.slices.models.Event;
 import com.example.slices.models.Profile;
+import com.example.slices.models.RosterChange;
 import com.example.slices.testing.DebugLogger;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskExecutors;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -30,8 +34,10 @@ import com.google.firebase.firestore.QuerySnapshot;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -50,6 +56,10 @@ public class EntrantController {
      * Reference to the entrants collection in the database
      */
     private static CollectionReference entrantRef = firestore.collection("entrants");
+    /**
+     * Firestore limit on values in a whereIn filter
+     */
+    private static final int MAX_WHERE_IN = 30;
 
     /**
      * Private constructor to prevent instantiation
@@ -67,45 +77,90 @@ public class EntrantController {
         } else {
             entrantRef = firestore.collection("entrants");
         }
+        OptInCache.clear();
     }
 
     /**
-     * Gets an entrant from the database asynchronously
+     * Gets the membership index of an entrant, one document per event keyed by event ID
+     * @param entrantId
+     *      ID of the entrant
+     * @return
+     *      Reference to the entrant's memberships subcollection
+     */
+    static CollectionReference membershipRef(int entrantId) {
+        return entrantRef.document(String.valueOf(entrantId)).collection("memberships");
+    }
+
+    /**
+     * Gets an entrant from the database asynchronously, reading the document by key
      * @param id
      *      Entrant ID to search for
      * @param callback
      *      Callback to call when the operation is complete
      */
     public static void getEntrant(int id, EntrantCallback callback) {
-        entrantRef
-                .whereEqualTo("id", id)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (!queryDocumentSnapshots.isEmpty()) {
-                        DocumentSnapshot doc = queryDocumentSnapshots.getDocuments().get(0);
-                        Entrant entrant = doc.toObject(Entrant.class);
-                        if (entrant != null) {
-                            Logger.logSystem("Fetched entrant id=" + id, null);
-                            callback.onSuccess(entrant);
-                        }
-                        else{
-                            Logger.logError("Entrant object null after fetch id=" + id, null);
-                            callback.onFailure(new EntrantNotFound("Entrant not found", String.valueOf(id)));
-                        }
+        KeyedReader.read(entrantRef, id, doc -> {
+            Entrant entrant = doc != null ? doc.toObject(Entrant.class) : null;
+            if (entrant != null) {
+                Logger.logSystem("Fetched entrant id=" + id, null);
+                callback.onSuccess(entrant);
+            } else {
+                Logger.logError("Entrant not found id=" + id, null);
+                callback.onFailure(new EntrantNotFound("Entrant not found", String.valueOf(id)));
+            }
+        }, e -> {
+            Logger.logError("Failed to fetch entrant id=" + id, null);
+            callback.onFailure(new DBOpFailed("Failed to get entrant"));
+        });
+    }
 
-                    } else {
-                        Logger.logError("Entrant not found id=" + id, null);
-                        callback.onFailure(new EntrantNotFound("Entrant not found", String.valueOf(id)));
 
-                    }
-                })
+    /**
+     * Gets many entrants from the database asynchronously, using chunked whereIn queries
+     * rather than one read per entrant
+     * @param ids
+     *      Entrant IDs to fetch
+     * @param callback
+     *      Callback with the entrants that were found, in no particular order
+     */
+    public static void getEntrants(List<Integer> ids, EntrantListCallback callback) {
+        fetchEntrants(ids, TaskExecutors.MAIN_THREAD)
+                .addOnSuccessListener(callback::onSuccess)
                 .addOnFailureListener(e -> {
-                    Logger.logError("Failed to fetch entrant id=" + id, null);
-                    callback.onFailure(new DBOpFailed("Failed to get entrant"));
+                    Logger.logError("Failed to fetch " + ids.size() + " entrants", null);
+                    callback.onFailure(new DBOpFailed("Failed to get entrants"));
                 });
-
     }
 
+    /**
+     * Reads many entrants with chunked whereIn queries
+     * @param ids
+     *      Entrant IDs to fetch
+     * @param executor
+     *      Executor to convert the documents on
+     * @return
+     *      Task with the entrants that were found, in no particular order
+     */
+    static Task<List<Entrant>> fetchEntrants(List<Integer> ids, Executor executor) {
+        List<Integer> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int i = 0; i < unique.size(); i += MAX_WHERE_IN) {
+            List<Integer> chunk = unique.subList(i, Math.min(i + MAX_WHERE_IN, unique.size()));
+            queries.add(entrantRef.whereIn("id", new ArrayList<>(chunk)).get());
+        }
+        return Tasks.whenAllSuccess(queries).continueWith(executor, t -> {
+            List<Entrant> entrants = new ArrayList<>();
+            for (Object result : t.getResult()) {
+                for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                    Entrant entrant = doc.toObject(Entrant.class);
+                    if (entrant != null) {
+                        entrants.add(entrant);
+                    }
+                }
+            }
+            return entrants;
+        });
+    }
 
     /**
      * Gets an entrant from the database asynchronously
@@ -145,36 +200,25 @@ public class EntrantController {
     }
 
     /**
-     * Gets the next available entrant ID
+     * Gets the next available entrant ID from the IdAllocator
      * @param callback
      *      Callback to call when the operation is complete
      */
     public static void getNewEntrantId(EntrantIDCallback callback) {
-        entrantRef
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (!queryDocumentSnapshots.isEmpty()) {
-                        int highestId = 0;
-                        for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                            int id = doc.getLong("id").intValue();
-                            if (id > highestId) {
-                                highestId = id;
-                            }
-                        }
-                        Logger.logSystem("Generated new entrant ID=" + (highestId + 1), null);
-                        callback.onSuccess(highestId + 1);
-                    } else {
-                        Logger.logSystem("Generated new entrant ID=1 (first entrant)", null);
-                        callback.onSuccess(1);
-                    }
-
-                }).addOnFailureListener(e -> {
-                    Logger.logError("Failed to generate new entrant ID", null);
-                    callback.onFailure(new DBOpFailed("Failed to get next entrant ID"));
-                });
-
+        IdAllocator.nextId(entrantRef, new IDCallback() {
+            @Override
+            public void onSuccess(int id) {
+                callback.onSuccess(id);
+            }
 
+            @Override
+            public void onFailure(Exception e) {
+                Logger.logError("Failed to generate new entrant ID", null);
+                callback.onFailure(new DBOpFailed("Failed to get next entrant ID"));
+            }
+        });
     }
+
     /**
      * Writes an entrant to the database asynchronously
      * @param entrant
@@ -183,6 +227,7 @@ public class EntrantController {
      *      Callback to call when the operation is complete
      */
     public static void writeEntrant(Entrant entrant, DBWriteCallback callback) {
+        OptInCache.invalidate(entrant.getId());
         entrantRef.document(String.valueOf(entrant.getId()))
                 .set(entrant)
                 .addOnSuccessListener(aVoid -> {
@@ -204,6 +249,7 @@ public class EntrantController {
      *      Callback to call when the operation is complete
      */
     public static void updateEntrant(Entrant entrant, DBWriteCallback callback) {
+        OptInCache.invalidate(entrant.getId());
         entrantRef.document(String.valueOf(entrant.getId()))
                 .set(entrant)
                 .addOnSuccessListener(aVoid -> {
@@ -224,6 +270,7 @@ public class EntrantController {
      *      Callback to call when the operation is complete
      */
     public static void updateEntrantAndEvents(Entrant entrant, DBWriteCallback callback) {
+        OptInCache.invalidate(entrant.getId());
         entrantRef.document(String.valueOf(entrant.getId()))
                 .set(entrant)
                 .addOnSuccessListener(aVoid -> {
@@ -238,32 +285,16 @@ public class EntrantController {
         EventController.getEventsForEntrant(entrant, new EntrantEventCallback() {
             @Override
             public void onSuccess(List<Event> events, List<Event> waitEvents) {
+                List<Task<Void>> updates = new ArrayList<>();
                 for(Event event : events) {
-                    int i  = event.getEntrants().indexOf(entrant);
-                    event.getEntrants().set(i, entrant);
-                    EventController.updateEvent(event, new DBWriteCallback() {
-                        @Override
-                        public void onSuccess() {}
-
-                        @Override
-                        public void onFailure(Exception e) {
-                            callback.onFailure(new DBOpFailed("Failed to update user profile in event"));
-                        }
-                    });
+                    updates.add(EventController.updateRosterEntrant(event, RosterChange.Roster.ENTRANTS, entrant));
                 }
                 for(Event event : waitEvents) {
-                    int i  = event.getWaitlist().getEntrants().indexOf(entrant);
-                    event.getWaitlist().getEntrants().set(i, entrant);
-                    EventController.updateEvent(event, new DBWriteCallback() {
-                        @Override
-                        public void onSuccess() {}
-
-                        @Override
-                        public void onFailure(Exception e) {
-                            callback.onFailure(new DBOpFailed("Failed to update user profile in event"));
-                        }
-                    });
+                    updates.add(EventController.updateRosterEntrant(event, RosterChange.Roster.WAITLIST, entrant));
                 }
+                Tasks.whenAll(updates)
+                        .addOnFailureListener(e ->
+                                callback.onFailure(new DBOpFailed("Failed to update user profile in event")));
             }
 
             @Override
@@ -384,7 +415,7 @@ public class EntrantController {
 
 
     /**
-     * Deletes the entrant document from Firestore and verifies deletion.
+     * Deletes the entrant document and its membership index from Firestore and verifies deletion.
      * @param entrant
      *      Entrant to delete
      * @param callback
@@ -392,8 +423,9 @@ public class EntrantController {
      */
     private static void deleteEntrantDoc(Entrant entrant, DBWriteCallback callback) {
 
-        entrantRef.document(String.valueOf(entrant.getId()))
-                .delete()
+        OptInCache.invalidate(entrant.getId());
+        RosterController.deleteMemberships(entrant.getId())
+                .onSuccessTask(aVoid -> entrantRef.document(String.valueOf(entrant.getId())).delete())
                 .addOnSuccessListener(aVoid -> {
 
                     DebugLogger.d("Event", "Entrant deleted");
@@ -431,24 +463,30 @@ public class EntrantController {
      *
      */
     public static void clearEntrants(Runnable onComplete) {
-        entrantRef.get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<Task<Void>> deleteTasks = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        deleteTasks.add(entrantRef.document(doc.getId()).delete());
+        clearEntrants(BulkDeleter.completing(onComplete));
+    }
+
+    /**
+     * Deletes every entrant and its membership index in batches, then resets the entrant ID counter
+     * @param callback
+     *      Callback to call with progress and when every entrant is deleted
+     * @return
+     *      Job that can be cancelled; calling clearEntrants again resumes it
+     */
+    public static BulkDeleter.Job clearEntrants(BulkDeleteCallback callback) {
+        return BulkDeleter.of(entrantRef)
+                .beforeBatch(docs -> {
+                    List<Task<Void>> memberships = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        memberships.add(RosterController.deleteAll(doc.getReference().collection("memberships")));
                     }
-                    // Wait for all deletes to finish
-                    Tasks.whenAll(deleteTasks)
-                            .addOnSuccessListener(aVoid -> {
-                                Logger.logSystem("Cleared all entrants", null);
-                                onComplete.run();
-                            });
+                    return Tasks.whenAll(memberships);
                 })
-                .addOnFailureListener(e -> {
-                    System.out.println("Failed to clear entrants: " + e.getMessage());
-                    Logger.logError("Failed to clear entrants", null);
-                    onComplete.run();
-                });
+                .afterAll(done -> {
+                    Logger.logSystem("Cleared all entrants", null);
+                    IdAllocator.reset(entrantRef, done);
+                })
+                .start(callback);
     }
 
 
@@ -498,15 +536,14 @@ public class EntrantController {
      */
     private static void verifyDeleteEntrant(Entrant entrant, DBWriteCallback callback) {
         //Check if entrant or profile is in the database
-        entrantRef.whereEqualTo("id", entrant.getId()).get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        callback.onSuccess();
-                    } else {
-                        Logger.logError("verifyDeleteEntrant: entrant still in DB id=" + entrant.getId(), null);
-                        callback.onFailure(new DBOpFailed("Entrant still in database"));
-                    }
-                });
+        KeyedReader.read(entrantRef, entrant.getId(), doc -> {
+            if (doc == null) {
+                callback.onSuccess();
+            } else {
+                Logger.logError("verifyDeleteEntrant: entrant still in DB id=" + entrant.getId(), null);
+                callback.onFailure(new DBOpFailed("Entrant still in database"));
+            }
+        }, callback::onFailure);
 
     }
 
@@ -651,9 +688,11 @@ public class EntrantController {
      */
     public static void updateProfile(Entrant entrant, Profile profile, DBWriteCallback callback) {
         Logger.logEntrantUpdate(entrant.getId(), -1, null);
+        OptInCache.invalidate(entrant.getId());
         entrantRef.document(String.valueOf(entrant.getId()))
             .update("profile", profile)
             .addOnSuccessListener(aVoid -> {
+                OptInCache.put(entrant.getId(), profile.getSendNotifications());
                 Logger.logEntrantUpdate(entrant.getId(), -1, null);
                 callback.onSuccess();
             })
@@ -0,0 +1,221 @@
+package com.example.slices.controllers;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.slices.interfaces.CSVExportCallback;
+import com.example.slices.models.Entrant;
+import com.example.slices.models.EntrantCsv;
+import com.example.slices.models.Event;
+import com.example.slices.models.Profile;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes an event's entrants to a CSV file in Downloads.
+ * The export runs on a background thread: entrant IDs are taken from the event's lists, profiles
+ * are read PAGE_SIZE at a time with chunked whereIn queries, and each page is streamed through a
+ * buffered writer before the next is read, so memory stays flat for large events. Files go
+ * through MediaStore on Android 10 and later and straight into Downloads before that.
+ * @version 1.0
+ */
+public class EntrantExporter {
+    /**
+     * Entrant profiles read and written per page
+     */
+    static final int PAGE_SIZE = 300;
+
+    /**
+     * Runs exports one at a time
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Converts fetched pages while the export thread waits for them
+     */
+    private static final ExecutorService reader = Executors.newSingleThreadExecutor();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private EntrantExporter() {}
+
+    /**
+     * A running export
+     */
+    public static final class Job {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        /**
+         * Stops the export after the page being written; the partial file is deleted
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    /**
+     * Starts exporting an event's entrants
+     * @param event
+     *      Event to export
+     * @param context
+     *      Context used to write the file
+     * @param statuses
+     *      Lists to export, written in the order given
+     * @param columns
+     *      Columns to write, in order
+     * @param callback
+     *      Callback with progress and the saved file, called on the main thread
+     * @return
+     *      Job that can be cancelled
+     */
+    public static Job export(Event event, Context context, Collection<EntrantCsv.Status> statuses,
+                             List<EntrantCsv.Column> columns, CSVExportCallback callback) {
+        Job job = new Job();
+        Context app = context.getApplicationContext();
+        executor.execute(() -> run(event, app, new ArrayList<>(new LinkedHashSet<>(statuses)), columns, job, callback));
+        return job;
+    }
+
+    /**
+     * Runs an export on the background thread
+     */
+    private static void run(Event event, Context context, List<EntrantCsv.Status> statuses,
+                            List<EntrantCsv.Column> columns, Job job, CSVExportCallback callback) {
+        Map<EntrantCsv.Status, List<Integer>> ids = new HashMap<>();
+        int total = 0;
+        for (EntrantCsv.Status status : statuses) {
+            List<Integer> list = new ArrayList<>(new LinkedHashSet<>(idsFor(event, status)));
+            ids.put(status, list);
+            total += list.size();
+        }
+        if (total == 0) {
+            Logger.logError("Export failed: no entrants for event id=" + event.getId(), null);
+            handler.post(() -> callback.onFailure(new Exception("No entrants to export")));
+            return;
+        }
+        Logger.logSystem("Starting entrants export for event id=" + event.getId() + ", " + total + " entrants", null);
+
+        DownloadTarget target = DownloadTarget.create(context, fileName(event), "text/csv");
+        int exported = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(target.open(), StandardCharsets.UTF_8))) {
+            EntrantCsv.writeRecord(writer, EntrantCsv.header(columns));
+            for (EntrantCsv.Status status : statuses) {
+                List<Integer> list = ids.get(status);
+                for (int i = 0; i < list.size(); i += PAGE_SIZE) {
+                    if (job.isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    List<Integer> page = list.subList(i, Math.min(i + PAGE_SIZE, list.size()));
+                    Map<Integer, Entrant> found = new HashMap<>();
+                    for (Entrant entrant : Tasks.await(EntrantController.fetchEntrants(page, reader))) {
+                        found.put(entrant.getId(), entrant);
+                    }
+                    for (int id : page) {
+                        EntrantCsv.writeRecord(writer, row(id, found.get(id), status, columns));
+                    }
+                    exported += page.size();
+                    int progress = exported;
+                    int all = total;
+                    handler.post(() -> callback.onProgress(progress, all));
+                }
+            }
+        } catch (CancellationException e) {
+            target.discard();
+            Logger.logSystem("Export cancelled for event id=" + event.getId() + " after " + exported + " entrants", null);
+            handler.post(callback::onCancelled);
+            return;
+        } catch (Exception e) {
+            target.discard();
+            Logger.logError("Export failed for event id=" + event.getId() + ": " + e.getMessage(), null);
+            handler.post(() -> callback.onFailure(e));
+            return;
+        }
+        String location = target.publish();
+        Logger.logSystem("Exported " + exported + " entrants for event id=" + event.getId(), null);
+        handler.post(() -> callback.onSuccess(location));
+    }
+
+    /**
+     * Gets the entrant IDs on one of an event's lists
+     */
+    private static List<Integer> idsFor(Event event, EntrantCsv.Status status) {
+        List<Integer> ids = null;
+        switch (status) {
+            case ENROLLED:
+                ids = event.getEntrantIds();
+                break;
+            case INVITED:
+                ids = event.getInvitedIds();
+                break;
+            case WAITLIST:
+                ids = event.getWaitlist() != null ? event.getWaitlist().getEntrantIds() : null;
+                break;
+            case CANCELLED:
+                ids = event.getCancelledIds();
+                break;
+        }
+        return ids != null ? ids : new ArrayList<>();
+    }
+
+    /**
+     * Builds one row; entrants that no longer exist keep their ID and status
+     */
+    private static List<String> row(int id, Entrant entrant, EntrantCsv.Status status,
+                                    List<EntrantCsv.Column> columns) {
+        Profile profile = entrant != null ? entrant.getProfile() : null;
+        List<String> fields = new ArrayList<>(columns.size());
+        for (EntrantCsv.Column column : columns) {
+            switch (column) {
+                case ID:
+                    fields.add(String.valueOf(id));
+                    break;
+                case NAME:
+                    fields.add(profile != null ? profile.getName() : null);
+                    break;
+                case EMAIL:
+                    fields.add(profile != null ? profile.getEmail() : null);
+                    break;
+                case PHONE:
+                    fields.add(profile != null ? profile.getPhoneNumber() : null);
+                    break;
+                case STATUS:
+                    fields.add(status.getLabel());
+                    break;
+            }
+        }
+        return fields;
+    }
+
+    private static String fileName(Event event) {
+        String name = event.getEventInfo() != null && event.getEventInfo().getName() != null
+                ? event.getEventInfo().getName().replaceAll("[^a-zA-Z0-9]", "_")
+                : "event_" + event.getId();
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        return name + "_entrants_" + timestamp + ".csv";
+    }
+}
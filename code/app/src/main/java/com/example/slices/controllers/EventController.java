@@ -4,38 +4,58 @@ import android.annotation.SuppressLint;
 import android.location.Location;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
 
 import com.example.slices.exceptions.DBOpFailed;
+import com.example.slices.exceptions.DuplicateEntry;
 import com.example.slices.exceptions.EventNotFound;
+import com.example.slices.exceptions.WaitlistFull;
+import com.example.slices.interfaces.BulkDeleteCallback;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantEventCallback;
 import com.example.slices.interfaces.EntrantListCallback;
+import com.example.slices.interfaces.EntrantPageCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.interfaces.EventIDCallback;
 import com.example.slices.interfaces.EventListCallback;
+import com.example.slices.interfaces.EventPageCallback;
+import com.example.slices.interfaces.IDCallback;
+import com.example.slices.interfaces.MyEventsCallback;
 import com.example.slices.interfaces.StringListCallback;
 import com.example.slices.controllers.ImageController;
 import com.example.slices.models.AsyncBatchExecutor;
 import com.example.slices.models.Entrant;
+import com.example.slices.models.EntrantCsv;
 import com.example.slices.models.Event;
 import com.example.slices.models.EventInfo;
+import com.example.slices.models.GeoHash;
 import com.example.slices.models.Image;
+import com.example.slices.models.IntHashSet;
+import com.example.slices.models.Lottery;
+import com.example.slices.models.Membership;
 import com.example.slices.models.NotificationType;
+import com.example.slices.models.RosterChange;
+import com.example.slices.models.RosterEntry;
+import com.example.slices.models.SearchIndex;
 import com.example.slices.models.SearchSettings;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
+import com.example.slices.models.Waitlist;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 /**
@@ -55,6 +75,21 @@ public class EventController {
      */
     private static CollectionReference eventRef = db.collection("events");
 
+    /**
+     * Most events a name search returns
+     */
+    public static final int MAX_SEARCH_RESULTS = 100;
+
+    /**
+     * Events read and rewritten per batch by backfillSearchIndex
+     */
+    private static final int BACKFILL_PAGE_SIZE = 400;
+
+    /**
+     * Firestore limit on values in a whereIn filter
+     */
+    private static final int MAX_WHERE_IN = 30;
+
     /**
      * Private constructor to prevent instantiation
      */
@@ -73,10 +108,11 @@ public class EventController {
         } else {
             eventRef = db.collection("events");
         }
+        EventRepository.clear();
     }
 
     /**
-     * Gets an event from the database asynchronously
+     * Gets an event from the database asynchronously, reading the document by key
      *
      * @param callback
      *      Callback to call when the operation is complete
@@ -85,31 +121,84 @@ public class EventController {
      */
 
     public static void getEvent(int id, EventCallback callback) {
-        eventRef
-                .whereEqualTo("id", id)
-                .get()
-                .addOnSuccessListener(new OnSuccessListener<QuerySnapshot>() {
-                    @Override
-                    public void onSuccess(QuerySnapshot queryDocumentSnapshots) {
-                        if (!queryDocumentSnapshots.isEmpty()) {
-                            DocumentSnapshot doc = queryDocumentSnapshots.getDocuments().get(0);
+        KeyedReader.read(eventRef, id, doc -> {
+            if (doc != null) {
+                Event event = doc.toObject(Event.class);
+                EventRepository.observe(event);
+                Logger.logSystem("Fetched event id=" + id, null);
+                callback.onSuccess(event);
+            } else {
+                Logger.logError("Event not found id=" + id, null);
+                callback.onFailure(new EventNotFound("Event not found", String.valueOf(id)));
+            }
+        }, e -> {
+            Logger.logError("Failed to fetch event id=" + id, null);
+            callback.onFailure(new DBOpFailed("Failed to get event"));
+        });
+    }
+
+    /**
+     * Gets many events from the database asynchronously, using chunked whereIn queries
+     * rather than one read per event
+     * @param ids
+     *      Event IDs to fetch
+     * @param callback
+     *      Callback with the events that were found, in no particular order
+     */
+    public static void getEvents(List<Integer> ids, EventListCallback callback) {
+        List<Integer> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int i = 0; i < unique.size(); i += MAX_WHERE_IN) {
+            List<Integer> chunk = unique.subList(i, Math.min(i + MAX_WHERE_IN, unique.size()));
+            queries.add(eventRef.whereIn("id", new ArrayList<>(chunk)).get());
+        }
+        Tasks.whenAllSuccess(queries)
+                .addOnSuccessListener(results -> {
+                    List<Event> events = new ArrayList<>();
+                    for (Object result : results) {
+                        for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
                             Event event = doc.toObject(Event.class);
-                            Logger.logSystem("Fetched event id=" + id, null);
-                            callback.onSuccess(event);
-                        } else {
-                            Logger.logError("Event not found id=" + id, null);
-                            callback.onFailure(new EventNotFound("Event not found", String.valueOf(id)));
+                            if (event != null) {
+                                EventRepository.observe(event);
+                                events.add(event);
+                            }
                         }
                     }
+                    callback.onSuccess(events);
                 })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Logger.logError("Failed to fetch event id=" + id, null);
-                        callback.onFailure(new DBOpFailed("Failed to get event"));
-                    }
+                .addOnFailureListener(e -> {
+                    Logger.logError("Failed to fetch " + unique.size() + " events", null);
+                    callback.onFailure(new DBOpFailed("Failed to get events"));
                 });
+    }
 
+    /**
+     * Reads the images stored on the events that use them, using chunked whereIn queries
+     * so download URLs can be reused without asking storage for each image
+     * @param paths
+     *      Storage paths of the images
+     * @return
+     *      Task with the images found, in no particular order
+     */
+    static Task<List<Image>> getStoredImages(List<String> paths) {
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(paths));
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int i = 0; i < unique.size(); i += MAX_WHERE_IN) {
+            List<String> chunk = unique.subList(i, Math.min(i + MAX_WHERE_IN, unique.size()));
+            queries.add(eventRef.whereIn("eventInfo.image.path", new ArrayList<>(chunk)).get());
+        }
+        return Tasks.whenAllSuccess(queries).continueWith(task -> {
+            List<Image> images = new ArrayList<>();
+            for (Object result : task.getResult()) {
+                for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                    Image image = doc.get("eventInfo.image", Image.class);
+                    if (image != null) {
+                        images.add(image);
+                    }
+                }
+            }
+            return images;
+        });
     }
 
     /**
@@ -122,8 +211,7 @@ public class EventController {
      */
 
     public static void writeEvent(Event event, DBWriteCallback callback) {
-        eventRef.document(String.valueOf(event.getId()))
-                .set(event)
+        saveEvent(event, true)
                 .addOnSuccessListener(aVoid -> {
                     Logger.logEventCreate(event.getId(), null);
                     callback.onSuccess();
@@ -145,8 +233,7 @@ public class EventController {
      */
 
     public static void updateEvent(Event event, DBWriteCallback callback) {
-        eventRef.document(String.valueOf(event.getId()))
-                .set(event)
+        saveEvent(event, false)
                 .addOnSuccessListener(aVoid -> {
                     Logger.logEventUpdate(event.getId(), null);
                     callback.onSuccess();
@@ -159,43 +246,55 @@ public class EventController {
     }
 
     /**
-     * Gets the next available event ID
+     * Writes an event document together with the roster changes made to it in memory.
+     * Events still using the embedded roster layout are migrated first so the write
+     * cannot drop their rosters.
+     *
+     * @param event
+     *      Event to write
+     * @param create
+     *      True for a new event, false to update an existing one
+     * @return
+     *      Task that completes when the event and its roster changes are written
+     */
+    private static Task<Void> saveEvent(Event event, boolean create) {
+        DocumentReference doc = eventRef.document(String.valueOf(event.getId()));
+        List<RosterChange> changes = event.drainRosterChanges();
+        Task<Void> ready = event.getRosterVersion() < Event.ROSTER_VERSION
+                ? RosterController.migrate(doc)
+                : Tasks.forResult(null);
+        return ready.continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                return Tasks.forException(task.getException());
+            }
+            event.setRosterVersion(Event.ROSTER_VERSION);
+            return RosterController.commit(doc, event, changes, create);
+        }).addOnSuccessListener(aVoid -> EventRepository.put(event))
+                .addOnFailureListener(e -> {
+                    event.restoreRosterChanges(changes);
+                    EventRepository.invalidate(event.getId());
+                });
+    }
+
+    /**
+     * Gets the next available event ID from the IdAllocator
      *
      * @param callback
      *      Callback to call when the operation is complete
      */
     public static void getNewEventId(EventIDCallback callback) {
-        eventRef
-                .get()
-                .addOnSuccessListener(new OnSuccessListener<QuerySnapshot>() {
-                    @Override
-                    public void onSuccess(QuerySnapshot queryDocumentSnapshots) {
-                        if (!queryDocumentSnapshots.isEmpty()) {
-
-                            int highestId = 0;
-                            for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                                int id = doc.getLong("id").intValue();
-                                if (id > highestId) {
-                                    highestId = id;
-                                }
-                            }
-
-                            Logger.logSystem("Generated new event ID=" + (highestId + 1), null);
-                            callback.onSuccess(highestId + 1);
-                        } else {
-                            Logger.logSystem("Generated new event ID=1 (first event)", null);
-                            callback.onSuccess(1);
-                        }
-                    }
-
-                }).addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Logger.logError("Failed to generate new event ID", null);
-                        callback.onFailure(new DBOpFailed("Failed to get next event ID"));
-                    }
-                });
+        IdAllocator.nextId(eventRef, new IDCallback() {
+            @Override
+            public void onSuccess(int id) {
+                callback.onSuccess(id);
+            }
 
+            @Override
+            public void onFailure(Exception e) {
+                Logger.logError("Failed to generate new event ID", null);
+                callback.onFailure(new DBOpFailed("Failed to get next event ID"));
+            }
+        });
     }
 
     /**
@@ -225,6 +324,40 @@ public class EventController {
                 });
     }
 
+    /**
+     * Gets an event together with its entrant list, waitlist and join locations.
+     * Only screens that show the roster need this; getEvent leaves the lists empty.
+     *
+     * @param id
+     *      Event ID to search for
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getEventWithRoster(int id, EventCallback callback) {
+        getEvent(id, new EventCallback() {
+            @Override
+            public void onSuccess(Event event) {
+                withMigratedRoster(event, () -> RosterController.loadRoster(eventRef.document(String.valueOf(id)),
+                        event, new DBWriteCallback() {
+                    @Override
+                    public void onSuccess() {
+                        callback.onSuccess(event);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        callback.onFailure(e);
+                    }
+                }), callback::onFailure);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
     /**
      * Gets all entrants or a specific event
      *
@@ -234,29 +367,26 @@ public class EventController {
      *      Callback to call when the operation is complete
      */
     public static void getEntrantsForEvent(int eventId, EntrantListCallback callback) {
-        eventRef
-                .whereEqualTo("id", eventId)
-                .get()
-                .addOnSuccessListener(query -> {
-                    if (!query.isEmpty()) {
-                        Event event = query.getDocuments().get(0).toObject(Event.class);
+        getRoster(eventId, RosterChange.Roster.ENTRANTS, callback);
+    }
 
-                        if (event != null && event.getEntrants() != null) {
-                            Logger.logSystem("Fetched entrants for event id=" + eventId, null);
-                            callback.onSuccess(event.getEntrants());
-                        } else {
-                            callback.onSuccess(new ArrayList<>());
-                        }
-                    } else {
-                        Logger.logError("Event not found while fetching entrants id=" + eventId, null);
-                        callback.onFailure(new EventNotFound("Event not found", String.valueOf(eventId)));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Logger.logError("Failed to fetch entrants for event id=" + eventId, null);
-                    callback.onFailure(new DBOpFailed("Failed to get entrants for event"));
-                });
+    /**
+     * Gets one page of the entrants for a specific event, in the order they joined
+     *
+     * @param eventId
+     *      Event ID to search for
+     * @param pageSize
+     *      Maximum number of entrants to return
+     * @param startAfter
+     *      Cursor returned with the previous page, or null for the first page
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getEntrantsForEvent(int eventId, int pageSize, DocumentSnapshot startAfter,
+                                           EntrantPageCallback callback) {
+        getRosterPage(eventId, RosterChange.Roster.ENTRANTS, pageSize, startAfter, callback);
     }
+
     /**
      * Gets the waitlist for a specific event.
      *
@@ -266,76 +396,286 @@ public class EventController {
      *      Callback to call when the operation is complete
      */
     public static void getWaitlistForEvent(int eventId, EntrantListCallback callback) {
-        eventRef
-                .whereEqualTo("id", eventId)
-                .get()
-                .addOnSuccessListener(query -> {
-                    if (!query.isEmpty()) {
-                        Event event = query.getDocuments().get(0).toObject(Event.class);
-                        if (event != null && event.getWaitlist() != null) {
-                            Logger.logSystem("Fetched waitlist for event id=" + eventId, null);
-                            callback.onSuccess(event.getWaitlist().getEntrants());
-                        } else {
-                            callback.onSuccess(new ArrayList<>());
-                        }
-                    } else {
-                        Logger.logError("Event not found while fetching waitlist id=" + eventId, null);
-                        callback.onFailure(new EventNotFound("Event not found", String.valueOf(eventId)));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Logger.logError("Failed to fetch waitlist for event id=" + eventId, null);
-                    callback.onFailure(new DBOpFailed("Failed to get entrants for event"));
-                });
+        getRoster(eventId, RosterChange.Roster.WAITLIST, callback);
+    }
 
+    /**
+     * Gets one page of the waitlist for a specific event, in the order entrants joined
+     *
+     * @param eventId
+     *      Event ID to search for
+     * @param pageSize
+     *      Maximum number of entrants to return
+     * @param startAfter
+     *      Cursor returned with the previous page, or null for the first page
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getWaitlistForEvent(int eventId, int pageSize, DocumentSnapshot startAfter,
+                                           EntrantPageCallback callback) {
+        getRosterPage(eventId, RosterChange.Roster.WAITLIST, pageSize, startAfter, callback);
     }
 
     /**
-     * Gets all events for a given entrant
+     * Reads a whole roster for an event
      *
-     * @param entrant
-     *      user to find events for
+     * @param eventId
+     *      Event ID to search for
+     * @param roster
+     *      Roster to read
      * @param callback
      *      Callback to call when the operation is complete
      */
-    public static void getEventsForEntrant(Entrant entrant, EntrantEventCallback callback) {
+    private static void getRoster(int eventId, RosterChange.Roster roster, EntrantListCallback callback) {
+        getEvent(eventId, new EventCallback() {
+            @Override
+            public void onSuccess(Event event) {
+                withMigratedRoster(event, () -> RosterController.readAll(eventRef.document(String.valueOf(eventId)),
+                        roster, entries -> {
+                            List<Entrant> entrants = new ArrayList<>();
+                            for (RosterEntry entry : entries) {
+                                entrants.add(entry.getEntrant());
+                            }
+                            Logger.logSystem("Fetched " + roster + " for event id=" + eventId, null);
+                            callback.onSuccess(entrants);
+                        }, e -> {
+                            Logger.logError("Failed to fetch " + roster + " for event id=" + eventId, null);
+                            callback.onFailure(new DBOpFailed("Failed to get entrants for event"));
+                        }), callback::onFailure);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * Reads one page of a roster for an event
+     *
+     * @param eventId
+     *      Event ID to search for
+     * @param roster
+     *      Roster to read
+     * @param pageSize
+     *      Maximum number of entrants to return
+     * @param startAfter
+     *      Cursor returned with the previous page, or null for the first page
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void getRosterPage(int eventId, RosterChange.Roster roster, int pageSize,
+                                      DocumentSnapshot startAfter, EntrantPageCallback callback) {
+        DocumentReference doc = eventRef.document(String.valueOf(eventId));
+        if (startAfter != null) {
+            // Only the first page needs the migration check
+            RosterController.getPage(doc, roster, pageSize, startAfter, callback);
+            return;
+        }
+        getEvent(eventId, new EventCallback() {
+            @Override
+            public void onSuccess(Event event) {
+                withMigratedRoster(event, () -> RosterController.getPage(doc, roster, pageSize, null, callback),
+                        callback::onFailure);
+            }
 
-        Query q = eventRef.whereGreaterThan("eventInfo.eventDate", Timestamp.now());
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
 
-        Query eventsQuery = q.whereArrayContains("entrantIds", entrant.getId());
-        Query waitlistQuery = q.whereArrayContains("waitlist.entrantIds", entrant.getId());
+    /**
+     * Runs an action once an event's rosters are in the subcollection layout
+     *
+     * @param event
+     *      Event whose rosters are about to be read
+     * @param action
+     *      Action to run
+     * @param onFailure
+     *      Receives the exception if the migration fails
+     */
+    private static void withMigratedRoster(Event event, Runnable action, Consumer<Exception> onFailure) {
+        if (event.getRosterVersion() >= Event.ROSTER_VERSION) {
+            action.run();
+            return;
+        }
+        RosterController.migrate(eventRef.document(String.valueOf(event.getId())))
+                .addOnSuccessListener(aVoid -> {
+                    event.setRosterVersion(Event.ROSTER_VERSION);
+                    EventRepository.invalidate(event.getId());
+                    action.run();
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Failed to migrate roster for event id=" + event.getId(), null);
+                    onFailure.accept(new DBOpFailed("Failed to migrate event roster"));
+                });
+    }
 
-        eventsQuery.get().addOnSuccessListener(queryDocumentSnapshots -> {
-            List<Event> events = new ArrayList<>();
-            for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                Event event = doc.toObject(Event.class);
+    /**
+     * Replaces the stored copy of an entrant in one of an event's rosters
+     *
+     * @param event
+     *      Event the entrant belongs to
+     * @param roster
+     *      Roster the entrant is in
+     * @param entrant
+     *      Updated entrant
+     * @return
+     *      Task that completes when the roster entry is updated
+     */
+    public static Task<Void> updateRosterEntrant(Event event, RosterChange.Roster roster, Entrant entrant) {
+        DocumentReference doc = eventRef.document(String.valueOf(event.getId()));
+        Task<Void> ready = event.getRosterVersion() < Event.ROSTER_VERSION
+                ? RosterController.migrate(doc)
+                : Tasks.forResult(null);
+        return ready.onSuccessTask(aVoid -> RosterController.updateEntrant(doc, roster, entrant));
+    }
 
-                if (event != null)
-                    events.add(event);
+    /**
+     * Moves the rosters of every event still embedding them into the roster subcollections
+     *
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void migrateRosters(DBWriteCallback callback) {
+        RosterController.migrateAll(eventRef, new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                EventRepository.clear();
+                callback.onSuccess();
             }
 
-            waitlistQuery.get().addOnSuccessListener(waitlistSnapshots -> {
-                List<Event> waitEvents = new ArrayList<>();
-                for (DocumentSnapshot doc : waitlistSnapshots.getDocuments()) {
-                    Event event = doc.toObject(Event.class);
-                    if (event != null)
-                        waitEvents.add(event);
+            @Override
+            public void onFailure(Exception e) {
+                EventRepository.clear();
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * Writes the entrant membership index for every event, for events whose rosters
+     * changed before the index was kept
+     *
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void backfillMemberships(DBWriteCallback callback) {
+        RosterController.backfillMemberships(eventRef, callback);
+    }
+
+    /**
+     * Gets every event an entrant is enrolled in or waitlisted for, split into upcoming
+     * and past events. Reads the entrant's membership index once; the events come from
+     * EventRepository, so cached ones cost nothing and the rest are read together.
+     * Membership entries whose event no longer exists are deleted as they are found.
+     *
+     * @param entrant
+     *      user to find events for
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getMyEvents(Entrant entrant, MyEventsCallback callback) {
+        int entrantId = entrant.getId();
+        EntrantController.membershipRef(entrantId).get().addOnSuccessListener(snapshot -> {
+            List<Integer> ids = new ArrayList<>();
+            for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                Membership membership = doc.toObject(Membership.class);
+                if (membership != null && membership.getStatus() != Membership.Status.CANCELLED) {
+                    ids.add(membership.getEventId());
                 }
+            }
 
-                Logger.logSystem("Fetched future events + waitlist events for entrant id=" + entrant.getId(), null);
+            EventRepository.getEvents(ids, new EventListCallback() {
+                @Override
+                public void onSuccess(List<Event> found) {
+                    List<Event> events = new ArrayList<>();
+                    List<Event> waitEvents = new ArrayList<>();
+                    List<Event> pastEvents = new ArrayList<>();
+                    IntHashSet missing = new IntHashSet(ids);
+                    Timestamp now = Timestamp.now();
+                    for (Event event : found) {
+                        missing.remove(event.getId());
+                        // The event's own lists are authoritative over the index entry
+                        Membership.Status status = Membership.statusIn(event, entrantId);
+                        Timestamp date = event.getEventInfo() != null ? event.getEventInfo().getEventDate() : null;
+                        if (date == null || status == null || status == Membership.Status.CANCELLED) {
+                            continue;
+                        }
+                        if (date.compareTo(now) < 0) {
+                            pastEvents.add(event);
+                        } else if (status == Membership.Status.ENROLLED) {
+                            events.add(event);
+                        } else {
+                            waitEvents.add(event);
+                        }
+                    }
+                    Collections.sort(events);
+                    Collections.sort(waitEvents);
+                    Collections.sort(pastEvents);
+                    if (!missing.isEmpty()) {
+                        pruneMemberships(entrantId, missing.toArray());
+                    }
 
-                callback.onSuccess(events, waitEvents);
+                    Logger.logSystem("Fetched " + found.size() + " events from membership index for entrant id="
+                            + entrantId, null);
+                    callback.onSuccess(events, waitEvents, pastEvents);
+                }
 
-            }).addOnFailureListener(e -> {
-                Logger.logError("Failed to fetch waitlist events for entrant id=" + entrant.getId(), null);
-                callback.onFailure(new DBOpFailed("Failed to get waitlist events"));
+                @Override
+                public void onFailure(Exception e) {
+                    Logger.logError("Failed to fetch membership events for entrant id=" + entrantId, null);
+                    callback.onFailure(new DBOpFailed("Failed to get events for entrant"));
+                }
             });
-
         }).addOnFailureListener(e -> {
-            Logger.logError("Failed to fetch events for entrant id=" + entrant.getId(), null);
+            Logger.logError("Failed to read memberships for entrant id=" + entrantId, null);
             callback.onFailure(new DBOpFailed("Failed to get events for entrant"));
         });
+    }
 
+    /**
+     * Deletes membership entries that point at events which no longer exist
+     * @param entrantId
+     *      ID of the entrant
+     * @param eventIds
+     *      IDs of the deleted events
+     */
+    private static void pruneMemberships(int entrantId, int[] eventIds) {
+        WriteBatch batch = db.batch();
+        for (int eventId : eventIds) {
+            batch.delete(RosterController.membershipRef(entrantId, eventId));
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> Logger.logSystem("Pruned " + eventIds.length
+                        + " stale memberships for entrant id=" + entrantId, null))
+                .addOnFailureListener(e -> Logger.logError("Failed to prune memberships for entrant id="
+                        + entrantId, null));
+    }
+
+    /**
+     * Gets the upcoming events for a given entrant
+     *
+     * @param entrant
+     *      user to find events for
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getEventsForEntrant(Entrant entrant, EntrantEventCallback callback) {
+        getMyEvents(entrant, new MyEventsCallback() {
+            @Override
+            public void onSuccess(List<Event> events, List<Event> waitEvents, List<Event> pastEvents) {
+                callback.onSuccess(events, waitEvents);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
     }
 
     /**
@@ -393,38 +733,25 @@ public class EventController {
      *      Callback to call when the operation is complete
      */
     public static void getPastEventsForEntrant(Entrant entrant, EntrantEventCallback callback) {
-
-        Query q = eventRef.whereLessThan("eventInfo.eventDate", Timestamp.now());
-
-        Query eventsQuery = q.whereArrayContains("entrantIds", entrant.getId());
-        Query waitlistQuery = q.whereArrayContains("waitlist.entrantIds", entrant.getId());
-
-        eventsQuery.get().addOnSuccessListener(queryDocumentSnapshots -> {
-            List<Event> events = new ArrayList<>();
-            for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                Event event = doc.toObject(Event.class);
-                if (event != null) events.add(event);
-            }
-
-            waitlistQuery.get().addOnSuccessListener(waitlistSnapshots -> {
-                List<Event> waitEvents = new ArrayList<>();
-                for (DocumentSnapshot doc : waitlistSnapshots.getDocuments()) {
-                    Event event = doc.toObject(Event.class);
-                    if (event != null) waitEvents.add(event);
+        getMyEvents(entrant, new MyEventsCallback() {
+            @Override
+            public void onSuccess(List<Event> events, List<Event> waitEvents, List<Event> pastEvents) {
+                List<Event> enrolled = new ArrayList<>();
+                List<Event> waited = new ArrayList<>();
+                for (Event event : pastEvents) {
+                    if (Membership.statusIn(event, entrant.getId()) == Membership.Status.ENROLLED) {
+                        enrolled.add(event);
+                    } else {
+                        waited.add(event);
+                    }
                 }
+                callback.onSuccess(enrolled, waited);
+            }
 
-                Logger.logSystem("Fetched past events for entrant id=" + entrant.getId(), null);
-
-                callback.onSuccess(events, waitEvents);
-
-            }).addOnFailureListener(e -> {
-                Logger.logError("Failed to fetch past waitlist events for entrant id=" + entrant.getId(), null);
-                callback.onFailure(new DBOpFailed("Failed to get waitlist events"));
-            });
-
-        }).addOnFailureListener(e -> {
-            Logger.logError("Failed to fetch past events for entrant id=" + entrant.getId(), null);
-            callback.onFailure(new DBOpFailed("Failed to get events for entrant"));
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
         });
     }
 
@@ -472,7 +799,7 @@ public class EventController {
      */
     public static void deleteEvent(String id, DBWriteCallback callback) {
 
-        getEvent(Integer.parseInt(id), new EventCallback() {
+        getEventWithRoster(Integer.parseInt(id), new EventCallback() {
             @Override
             public void onSuccess(Event event) {
 
@@ -498,8 +825,9 @@ public class EventController {
                 List<Entrant> entrants = event.getEntrants();
 
                 if (entrants == null || entrants.isEmpty()) {
-                    eventRef.document(id).delete()
+                    deleteEventDocument(id)
                             .addOnSuccessListener(unused -> {
+                                EventRepository.invalidate(Integer.parseInt(id));
                                 Logger.logEventDelete(Integer.parseInt(id), null);
                                 verifyDeleteEvent(id, callback);
                             })
@@ -532,9 +860,9 @@ public class EventController {
                             @Override
                             public void onSuccess() {
 
-                                eventRef.document(id)
-                                        .delete()
+                                deleteEventDocument(id)
                                         .addOnSuccessListener(unused -> {
+                                            EventRepository.invalidate(Integer.parseInt(id));
                                             Logger.logEventDelete(Integer.parseInt(id), null);
                                             verifyDeleteEvent(id, callback);
                                         })
@@ -842,15 +1170,28 @@ public class EventController {
      *      Callback to call when the operation is complete
      */
     public static void removeEntrantFromWaitlist(Event event, Entrant entrant, DBWriteCallback callback) {
-        boolean removed = event.removeEntrantFromWaitlist(entrant);
-        if (removed) {
-            Logger.logWaitlistModified("Removed from waitlist", event.getId(), entrant.getId(), null);
-            updateEvent(event, callback);
-        }
-        else {
-            Logger.logError("Entrant not in waitlist event id=" + event.getId() + ", entrant=" + entrant.getId(), null);
-            callback.onFailure(new Exception("Entrant not in event"));
-        }
+        DocumentReference doc = eventRef.document(String.valueOf(event.getId()));
+        migratedRoster(event)
+                .onSuccessTask(aVoid -> RosterController.leaveWaitlist(doc, entrant.getId()))
+                .addOnSuccessListener(removed -> {
+                    EventRepository.invalidate(event.getId());
+                    if (removed) {
+                        // Mirror the stored change on the caller's copy
+                        if (event.getWaitlist().getEntrantIds().contains(entrant.getId())) {
+                            event.getWaitlist().removeEntrant(entrant.getId());
+                        }
+                        Logger.logWaitlistModified("Removed from waitlist", event.getId(), entrant.getId(), null);
+                        callback.onSuccess();
+                    } else {
+                        Logger.logError("Entrant not in waitlist event id=" + event.getId() + ", entrant=" + entrant.getId(), null);
+                        callback.onFailure(new Exception("Entrant not in event"));
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    EventRepository.invalidate(event.getId());
+                    Logger.logError("Failed to remove entrant from waitlist event id=" + event.getId(), null);
+                    callback.onFailure(new DBOpFailed("Failed to leave waitlist"));
+                });
     }
 
     /**
@@ -872,7 +1213,7 @@ public class EventController {
             }
         }
 
-        if (event.getEntrants() != null && event.getEntrants().contains(entrant)) {
+        if (event.getEntrantIds() != null && event.getEntrantIds().contains(entrant.getId())) {
             Logger.logError("Attempted to add entrant already in event to waitlist event id=" + event.getId(), null);
             callback.onFailure(new Exception("Entrant already in event"));
             return;
@@ -884,33 +1225,7 @@ public class EventController {
             return;
         }
 
-        try {
-            boolean added = event.addEntrantToWaitlist(entrant);
-            if (added) {
-                // Remove from cancelled list if they were previously cancelled
-                List<Integer> cancelledIds = event.getCancelledIds();
-                if (cancelledIds != null && cancelledIds.contains(entrant.getId())) {
-                    cancelledIds.remove(Integer.valueOf(entrant.getId()));
-                    Logger.logSystem("Removed entrant from cancelled list on rejoin: entrantId=" + entrant.getId() + ", eventId=" + event.getId(), null);
-                }
-                
-                // Remove from invited list if they were previously invited (fresh start)
-                List<Integer> invitedIds = event.getInvitedIds();
-                if (invitedIds != null && invitedIds.contains(entrant.getId())) {
-                    invitedIds.remove(Integer.valueOf(entrant.getId()));
-                    Logger.logSystem("Removed entrant from invited list on rejoin: entrantId=" + entrant.getId() + ", eventId=" + event.getId(), null);
-                }
-                
-                Logger.logWaitlistModified("Added to waitlist", event.getId(), entrant.getId(), null);
-                updateEvent(event, callback);
-            } else {
-                Logger.logError("Failed to add entrant to waitlist event id=" + event.getId(), null);
-                callback.onFailure(new Exception("Failed to add entrant to waitlist"));
-            }
-        } catch (Exception e) {
-            Logger.logError("Exception adding entrant to waitlist event id=" + event.getId(), null);
-            callback.onFailure(e);
-        }
+        joinWaitlist(event, entrant, null, callback);
     }
 
     /**
@@ -941,7 +1256,7 @@ public class EventController {
             return;
         }
         
-        if (event.getEntrants() != null && event.getEntrants().contains(entrant)) {
+        if (event.getEntrantIds() != null && event.getEntrantIds().contains(entrant.getId())) {
             Logger.logError("Attempted to add entrant already in event to waitlist event id=" + event.getId(), null);
             callback.onFailure(new Exception("Entrant already in event"));
             return;
@@ -953,34 +1268,70 @@ public class EventController {
             return;
         }
 
-        try {
-            // Add entrant with location
-            boolean added = event.addEntrantToWaitlist(entrant, loc);
-            if (added) {
-                // Remove from cancelled list if they were previously cancelled
-                List<Integer> cancelledIds = event.getCancelledIds();
-                if (cancelledIds != null && cancelledIds.contains(entrant.getId())) {
-                    cancelledIds.remove(Integer.valueOf(entrant.getId()));
-                    Logger.logSystem("Removed entrant from cancelled list on rejoin: entrantId=" + entrant.getId() + ", eventId=" + event.getId(), null);
-                }
-                
-                // Remove from invited list if they were previously invited (fresh start)
-                List<Integer> invitedIds = event.getInvitedIds();
-                if (invitedIds != null && invitedIds.contains(entrant.getId())) {
-                    invitedIds.remove(Integer.valueOf(entrant.getId()));
-                    Logger.logSystem("Removed entrant from invited list on rejoin: entrantId=" + entrant.getId() + ", eventId=" + event.getId(), null);
-                }
-                
-                Logger.logWaitlistModified("Added to waitlist with location", event.getId(), entrant.getId(), null);
-                updateEvent(event, callback);
-            } else {
-                Logger.logError("Failed to add entrant to waitlist event id=" + event.getId(), null);
-                callback.onFailure(new Exception("Failed to add entrant to waitlist"));
-            }
-        } catch (Exception e) {
-            Logger.logError("Exception adding entrant to waitlist event id=" + event.getId(), null);
-            callback.onFailure(e);
+        joinWaitlist(event, entrant, loc, callback);
+    }
+
+    /**
+     * Joins the waitlist in a transaction and mirrors the result on the caller's copy of the event.
+     * The stored event is the source of truth for capacity and duplicates, so concurrent
+     * joins never overwrite each other and never exceed the waitlist capacity.
+     * @param event
+     *      Event to add entrant to
+     * @param entrant
+     *      Entrant to add
+     * @param loc
+     *      Location of the entrant, or null
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void joinWaitlist(Event event, Entrant entrant, Location loc, DBWriteCallback callback) {
+        DocumentReference doc = eventRef.document(String.valueOf(event.getId()));
+        migratedRoster(event)
+                .onSuccessTask(aVoid -> RosterController.joinWaitlist(doc, entrant, loc))
+                .addOnSuccessListener(aVoid -> {
+                    EventRepository.invalidate(event.getId());
+                    Waitlist waitlist = event.getWaitlist();
+                    if (!waitlist.getEntrantIds().contains(entrant.getId())) {
+                        waitlist.addEntrant(entrant);
+                        waitlist.setEntrantLocation(entrant.getId(), loc);
+                    }
+                    // Rejoining clears any earlier cancellation or invitation
+                    if (event.getCancelledIds() != null) {
+                        event.getCancelledIds().remove(Integer.valueOf(entrant.getId()));
+                    }
+                    if (event.getInvitedIds() != null) {
+                        event.getInvitedIds().remove(Integer.valueOf(entrant.getId()));
+                    }
+                    Logger.logWaitlistModified(loc != null ? "Added to waitlist with location" : "Added to waitlist",
+                            event.getId(), entrant.getId(), null);
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    EventRepository.invalidate(event.getId());
+                    Exception cause = e.getCause() instanceof RuntimeException ? (Exception) e.getCause() : e;
+                    if (cause instanceof WaitlistFull || cause instanceof DuplicateEntry || cause instanceof EventNotFound) {
+                        Logger.logError("Join refused for event id=" + event.getId() + ": " + cause.getMessage(), null);
+                        callback.onFailure(cause);
+                        return;
+                    }
+                    Logger.logError("Exception adding entrant to waitlist event id=" + event.getId(), null);
+                    callback.onFailure(new DBOpFailed("Failed to add entrant to waitlist"));
+                });
+    }
+
+    /**
+     * Migrates an event's embedded rosters if it still has them
+     * @param event
+     *      Event about to be changed
+     * @return
+     *      Task that completes when the event uses the subcollection layout
+     */
+    private static Task<Void> migratedRoster(Event event) {
+        if (event.getRosterVersion() >= Event.ROSTER_VERSION) {
+            return Tasks.forResult(null);
         }
+        return RosterController.migrate(eventRef.document(String.valueOf(event.getId())))
+                .addOnSuccessListener(aVoid -> event.setRosterVersion(Event.ROSTER_VERSION));
     }
 
     /**
@@ -1000,41 +1351,16 @@ public class EventController {
             return true; // No location required, allow join
         }
         
-        // Does the event have a location?
-        Location eventLoc = info.getLocation();
-        if (eventLoc == null) {
-            Logger.logError("Geolocation event has no location set, event id=" + event.getId(), null);
-            return false; // Event requires location but doesn't have one
-        }
-        
-        // Did the entrant provide a location?
-        if (entrantLoc == null) {
-            Logger.logError("Geolocation event requires entrant location but none provided, event id=" + event.getId(), null);
-            return false; // Location required but not provided
-        }
-        
-        // Parse max distance
-        int maxDistanceMeters;
-        try {
-            maxDistanceMeters = Integer.parseInt(info.getEntrantDist());
-        } catch (Exception e) {
-            Logger.logError("Invalid distance format for event id=" + event.getId(), null);
-            return false;
-        }
-        
-        // Calculate distance between event and entrant
-        float distance = eventLoc.distanceTo(entrantLoc);
-        
-        Logger.logSystem("Distance check: event id=" + event.getId() + 
-                       ", distance=" + distance + "m, max=" + maxDistanceMeters + "m", null);
-        
-        if (distance <= maxDistanceMeters) {
-            Logger.logSystem("Entrant within range, allowing join", null);
-            return true;
-        } else {
-            Logger.logSystem("Entrant too far (" + distance + "m > " + maxDistanceMeters + "m), rejecting join", null);
+        // The event needs a location and a radius, and the entrant a location
+        // A refused join is logged by the caller
+        Double eventLat = info.getEventLatitude();
+        Double eventLng = info.getEventLongitude();
+        double radius = info.getEntrantRadius();
+        if (eventLat == null || eventLng == null || radius <= 0 || entrantLoc == null) {
             return false;
         }
+
+        return GeoHash.distance(eventLat, eventLng, entrantLoc.getLatitude(), entrantLoc.getLongitude()) <= radius;
     }
 
 
@@ -1114,24 +1440,31 @@ public class EventController {
      * @param onComplete Callback to call when the operation is complete
      */
     public static void clearEvents(Runnable onComplete) {
-        eventRef.get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<Task<Void>> deleteTasks = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        deleteTasks.add(eventRef.document(doc.getId()).delete());
-                    }
-                    Tasks.whenAll(deleteTasks)
-                            .addOnSuccessListener(aVoid -> {
-                                Logger.logSystem("Cleared all events", null);
-                                onComplete.run();
-                            });
+        clearEvents(BulkDeleter.completing(onComplete));
+    }
 
+    /**
+     * Deletes every event and its rosters in batches, then resets the event ID counter
+     * @param callback
+     *      Callback to call with progress and when every event is deleted
+     * @return
+     *      Job that can be cancelled; calling clearEvents again resumes it
+     */
+    public static BulkDeleter.Job clearEvents(BulkDeleteCallback callback) {
+        return BulkDeleter.of(eventRef)
+                .beforeBatch(docs -> {
+                    List<Task<Void>> rosters = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        rosters.add(RosterController.deleteRoster(doc.getReference()));
+                    }
+                    return Tasks.whenAll(rosters);
                 })
-                .addOnFailureListener(e -> {
-                    Logger.logError("Failed to clear events", null);
-                    System.out.println("Failed to clear events: " + e.getMessage());
-                    onComplete.run();
-                });
+                .afterAll(done -> {
+                    EventRepository.clear();
+                    Logger.logSystem("Cleared all events", null);
+                    IdAllocator.reset(eventRef, done);
+                })
+                .start(callback);
     }
 
     /**
@@ -1166,7 +1499,11 @@ public class EventController {
 
     /**
      * Queries the Firestore and gets all event that match the parameters
-     * inputted from the SearchSettings asynchronously
+     * inputted from the SearchSettings asynchronously.
+     * Names are matched through the searchTokens index stored with each event: the most
+     * selective query word is looked up in Firestore, at most MAX_SEARCH_RESULTS events are
+     * read, and the other words are checked on the returned events. A query word matches an
+     * event when it starts one of the words of its name
      * @param search
      *      SearchSettings object that contains all desired parameters
      * @param callback
@@ -1175,7 +1512,116 @@ public class EventController {
      *      Brad
      */
     public static void queryEvents(SearchSettings search, EventListCallback callback) {
+        List<String> words = SearchIndex.words(search.getName());
+        Query q = searchQuery(search, words);
+        if (!words.isEmpty()) {
+            q = q.limit(MAX_SEARCH_RESULTS);
+        }
+
+        q.get().addOnSuccessListener(query -> {
+            ArrayList<Event> events = filterSearchResults(query, search, words);
+            Logger.logSystem("QueryEvents returned " + events.size() + " results", null);
+            callback.onSuccess(events);
+
+        }).addOnFailureListener(e -> {
+            Logger.logError("Failed to query events", null);
+            callback.onFailure(new DBOpFailed("Failed to get Events"));
+        });
+    }
+
+    /**
+     * Gets one page of the events matching a search, soonest first.
+     * Filters are applied the same way as queryEvents; the ones checked on the device can
+     * leave a page with fewer events than requested, so keep reading while next is not null
+     * @param search
+     *      SearchSettings object that contains all desired parameters
+     * @param pageSize
+     *      Number of events to read
+     * @param startAfter
+     *      Cursor returned with the previous page, or null for the first page
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void queryEvents(SearchSettings search, int pageSize, DocumentSnapshot startAfter,
+                                   EventPageCallback callback) {
+        List<String> words = SearchIndex.words(search.getName());
+        Query q = searchQuery(search, words)
+                .orderBy("eventInfo.eventDate")
+                .limit(pageSize);
+        if (startAfter != null) {
+            q = q.startAfter(startAfter);
+        }
+
+        q.get().addOnSuccessListener(query -> {
+            ArrayList<Event> events = filterSearchResults(query, search, words);
+            callback.onSuccess(events, RosterController.nextCursor(query, pageSize));
+
+        }).addOnFailureListener(e -> {
+            Logger.logError("Failed to query events page", null);
+            callback.onFailure(new DBOpFailed("Failed to get Events"));
+        });
+    }
+
+    /**
+     * Gets the events within a radius of a point, nearest first.
+     * Reads the geohash ranges covering the circle, then drops the events outside it
+     * @param lat
+     *      Latitude of the point in degrees
+     * @param lng
+     *      Longitude of the point in degrees
+     * @param radius
+     *      Radius in metres
+     * @param callback
+     *      Callback with the events in range
+     */
+    public static void queryEventsNear(double lat, double lng, double radius, EventListCallback callback) {
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (String[] bound : GeoHash.queryBounds(lat, lng, radius)) {
+            queries.add(eventRef.orderBy("eventInfo.geohash")
+                    .startAt(bound[0])
+                    .endAt(bound[1])
+                    .get());
+        }
+        Tasks.whenAllSuccess(queries)
+                .addOnSuccessListener(results -> {
+                    // The cells do not overlap, so each event is read at most once
+                    List<Event> events = new ArrayList<>();
+                    Map<Integer, Double> distances = new HashMap<>();
+                    for (Object result : results) {
+                        for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                            Event event = doc.toObject(Event.class);
+                            if (event == null || event.getEventInfo() == null)
+                                continue;
+                            EventInfo info = event.getEventInfo();
+                            if (info.getEventLatitude() == null || info.getEventLongitude() == null)
+                                continue;
+                            double distance = GeoHash.distance(lat, lng, info.getEventLatitude(), info.getEventLongitude());
+                            if (distance <= radius) {
+                                events.add(event);
+                                distances.put(event.getId(), distance);
+                            }
+                        }
+                    }
+                    events.sort((a, b) -> Double.compare(distances.get(a.getId()), distances.get(b.getId())));
+                    callback.onSuccess(events);
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Failed to query events near " + lat + "," + lng, null);
+                    callback.onFailure(new DBOpFailed("Failed to get Events"));
+                });
+    }
 
+    /**
+     * Builds the Firestore part of a search: open registration, the date range and the
+     * name index lookup
+     * @param search
+     *      Search parameters
+     * @param words
+     *      Normalized words of the name being searched for
+     * @return
+     *      Query for the matching events
+     */
+    private static Query searchQuery(SearchSettings search, List<String> words) {
         Query q = eventRef.whereGreaterThanOrEqualTo("eventInfo.regEnd", Timestamp.now());
 
         // Date filters
@@ -1185,51 +1631,139 @@ public class EventController {
         if (search.getAvailEnd() != null)
             q = q.whereLessThan("eventInfo.eventDate", search.getAvailEnd());
 
-        q.get().addOnSuccessListener(query -> {
-            ArrayList<Event> events = new ArrayList<>();
+        // Name filter
+        if (!words.isEmpty()) {
+            q = q.whereArrayContains("eventInfo.searchTokens", SearchIndex.lookupToken(words));
+        }
+        return q;
+    }
 
-            for (DocumentSnapshot doc : query.getDocuments()) {
-                Event event = doc.toObject(Event.class);
-                if (event == null)
-                    continue;
+    /**
+     * Decodes search results and applies the filters Firestore cannot: the remaining name
+     * words and the enrolled check
+     * @param query
+     *      Results of searchQuery
+     * @param search
+     *      Search parameters
+     * @param words
+     *      Normalized words of the name being searched for
+     * @return
+     *      Matching events in query order
+     */
+    private static ArrayList<Event> filterSearchResults(QuerySnapshot query, SearchSettings search, List<String> words) {
+        ArrayList<Event> events = new ArrayList<>();
 
-                boolean include = true;
+        for (DocumentSnapshot doc : query.getDocuments()) {
+            Event event = doc.toObject(Event.class);
+            if (event == null)
+                continue;
 
-                if (search.getName() != null && !search.getName().isEmpty()) {
-                    String eventName = event.getEventInfo().getName().toLowerCase();
-                    String searchName = search.getName().toLowerCase();
-                    if (!eventName.contains(searchName)) {
-                        include = false;
-                    }
-                }
-                
-                if (search.isEnrolled()) {
-                    int id = search.getId();
+            boolean include = true;
 
-                    boolean inEntrants = event.getEntrants() != null &&
-                            event.getEntrantIds().contains(id);
+            if (!words.isEmpty() && !SearchIndex.matches(event.getEventInfo().getName(), words)) {
+                include = false;
+            }
 
-                    boolean inWaitlist = event.getWaitlist() != null &&
-                            event.getWaitlist().getEntrantIds() != null &&
-                            event.getWaitlist().getEntrantIds().contains(id);
+            if (search.isEnrolled()) {
+                int id = search.getId();
 
-                    if (inEntrants || inWaitlist) {
-                        include = false;
-                    }
-                }
+                boolean inEntrants = event.getEntrantIds() != null &&
+                        event.getEntrantIds().contains(id);
 
-                if (include) {
-                    events.add(event);
+                boolean inWaitlist = event.getWaitlist() != null &&
+                        event.getWaitlist().containsEntrant(id);
+
+                if (inEntrants || inWaitlist) {
+                    include = false;
                 }
             }
 
-            Logger.logSystem("QueryEvents returned " + events.size() + " results", null);
-            callback.onSuccess(events);
+            if (include) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
 
-        }).addOnFailureListener(e -> {
-            Logger.logError("Failed to query events", null);
-            callback.onFailure(new DBOpFailed("Failed to get Events"));
-        });
+    /**
+     * Writes the nameLower and searchTokens fields of every event whose stored index is
+     * missing or out of date, so events written before the index existed can be found by name.
+     * Events are read in pages ordered by ID and each page is rewritten in one batch
+     *
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void backfillSearchIndex(DBWriteCallback callback) {
+        backfillFrom(null, 0, 0, callback);
+    }
+
+    /**
+     * Backfills the events after a cursor and then the remaining pages
+     * @param startAfter
+     *      Last event of the previous page, or null to start at the beginning
+     * @param checked
+     *      Number of events checked so far
+     * @param updated
+     *      Number of events rewritten so far
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void backfillFrom(DocumentSnapshot startAfter, int checked, int updated, DBWriteCallback callback) {
+        Query query = eventRef.orderBy("id").limit(BACKFILL_PAGE_SIZE);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.get()
+                .addOnSuccessListener(page -> {
+                    WriteBatch batch = db.batch();
+                    int stale = 0;
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        String name = doc.getString("eventInfo.name");
+                        String nameLower = SearchIndex.normalize(name);
+                        List<String> tokens = SearchIndex.tokens(name);
+                        if (!tokens.equals(doc.get("eventInfo.searchTokens"))
+                                || !Objects.equals(nameLower, doc.getString("eventInfo.nameLower"))) {
+                            batch.update(doc.getReference(),
+                                    "eventInfo.nameLower", nameLower,
+                                    "eventInfo.searchTokens", tokens);
+                            stale++;
+                        }
+                    }
+                    int total = checked + page.size();
+                    int rewritten = updated + stale;
+                    Task<Void> write = stale == 0 ? Tasks.forResult(null) : batch.commit();
+                    write.addOnSuccessListener(v -> {
+                                DocumentSnapshot next = RosterController.nextCursor(page, BACKFILL_PAGE_SIZE);
+                                if (next == null) {
+                                    EventRepository.clear();
+                                    Logger.logSystem("Search index backfill checked " + total
+                                            + " events, updated " + rewritten, null);
+                                    callback.onSuccess();
+                                } else {
+                                    backfillFrom(next, total, rewritten, callback);
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Logger.logError("Search index backfill failed after " + checked + " events", null);
+                                callback.onFailure(new DBOpFailed("Failed to backfill search index"));
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Search index backfill failed to read events", null);
+                    callback.onFailure(new DBOpFailed("Failed to backfill search index"));
+                });
+    }
+
+    /**
+     * Deletes an event's roster subcollections and then the event document itself
+     * @param id
+     *      ID of the event to delete
+     * @return
+     *      Task that completes when the event is deleted
+     */
+    private static Task<Void> deleteEventDocument(String id) {
+        DocumentReference doc = eventRef.document(id);
+        return RosterController.deleteRoster(doc).onSuccessTask(aVoid -> doc.delete());
     }
 
     /**
@@ -1277,39 +1811,23 @@ public class EventController {
                     return;
                 }
 
-                if (entrants.size() <= spots) {
-                    notifyWinners(entrants, event, new DBWriteCallback() {
-                        @Override
-                        public void onSuccess() {
-                            Logger.logLotteryRun(event.getId(), null);
-                            callback.onSuccess();
-                        }
-
-                        @Override
-                        public void onFailure(Exception e) {
-                            Logger.logError("Lottery notifyWinners failed event id=" + event.getId(), null);
-                            callback.onFailure(e);
-                        }
-                    });
-                    return;
-                }
-
-                List<Entrant> pool = new ArrayList<>(entrants);
-                List<Entrant> winners = new ArrayList<>();
-
-                for (int i = 0; i < spots; i++) {
-                    int randomIndex = (int)(Math.random() * pool.size());
-                    winners.add(pool.remove(randomIndex));
-                }
-
+                Map<Integer, Entrant> byId = indexById(entrants);
+                Lottery.Draw draw = Lottery.draw(toIdArray(entrants), spots, null, Lottery.newSeed());
+                List<Entrant> winners = pick(draw.getWinners(), byId);
+                List<Entrant> losers = pick(draw.getLosers(), byId);
 
                 notifyWinners(winners, event, new DBWriteCallback() {
                     @Override
                     public void onSuccess() {
-                        notifyLosers(pool, event, new DBWriteCallback() {
+                        if (losers.isEmpty()) {
+                            Logger.logLotteryRun(event.getId(), draw, null);
+                            callback.onSuccess();
+                            return;
+                        }
+                        notifyLosers(losers, event, new DBWriteCallback() {
                             @Override
                             public void onSuccess() {
-                                Logger.logLotteryRun(event.getId(), null);
+                                Logger.logLotteryRun(event.getId(), draw, null);
                                 callback.onSuccess();
                             }
 
@@ -1364,64 +1882,27 @@ public class EventController {
                     return;
                 }
 
-                // Get exclusion lists
-                List<Integer> cancelledIds = event.getCancelledIds();
-                List<Integer> invitedIds = event.getInvitedIds();
-                
-                if (cancelledIds == null) {
-                    cancelledIds = new ArrayList<>();
-                }
-                if (invitedIds == null) {
-                    invitedIds = new ArrayList<>();
-                }
-
-                // Filter out excluded entrants
-                List<Entrant> eligiblePool = new ArrayList<>();
-                for (Entrant entrant : entrants) {
-                    int entrantId = entrant.getId();
-                    if (!cancelledIds.contains(entrantId) && !invitedIds.contains(entrantId)) {
-                        eligiblePool.add(entrant);
+                // Entrants who declined or were already invited cannot win again
+                IntHashSet excluded = new IntHashSet(event.getCancelledIds());
+                if (event.getInvitedIds() != null) {
+                    for (Integer id : event.getInvitedIds()) {
+                        if (id != null) excluded.add(id);
                     }
                 }
 
-                if (eligiblePool.isEmpty()) {
+                Lottery.Draw draw = Lottery.draw(toIdArray(entrants), spots, excluded, Lottery.newSeed());
+                if (draw.getPoolSize() == 0) {
                     Logger.logError("Replacement lottery failed: no eligible entrants after exclusions event id=" + event.getId(), null);
                     callback.onFailure(new Exception("No eligible entrants in waitlist"));
                     return;
                 }
-
-                // If eligible pool is smaller than or equal to available spots, invite everyone
-                if (eligiblePool.size() <= spots) {
-                    notifyWinners(eligiblePool, event, new DBWriteCallback() {
-                        @Override
-                        public void onSuccess() {
-                            Logger.logLotteryRun(event.getId(), null);
-                            callback.onSuccess();
-                        }
-
-                        @Override
-                        public void onFailure(Exception e) {
-                            Logger.logError("Replacement lottery notifyWinners failed event id=" + event.getId(), null);
-                            callback.onFailure(e);
-                        }
-                    });
-                    return;
-                }
-
-                // Randomly select winners from eligible pool
-                List<Entrant> pool = new ArrayList<>(eligiblePool);
-                List<Entrant> winners = new ArrayList<>();
-
-                for (int i = 0; i < spots; i++) {
-                    int randomIndex = (int)(Math.random() * pool.size());
-                    winners.add(pool.remove(randomIndex));
-                }
+                List<Entrant> winners = pick(draw.getWinners(), indexById(entrants));
 
                 // Send invitations to winners (no need to notify losers in replacement lottery)
                 notifyWinners(winners, event, new DBWriteCallback() {
                     @Override
                     public void onSuccess() {
-                        Logger.logLotteryRun(event.getId(), null);
+                        Logger.logLotteryRun(event.getId(), draw, null);
                         callback.onSuccess();
                     }
 
@@ -1441,6 +1922,53 @@ public class EventController {
         });
     }
 
+    /**
+     * Gets the IDs of a list of entrants
+     * @param entrants
+     *      Entrants
+     * @return
+     *      Their IDs, in list order
+     */
+    private static int[] toIdArray(List<Entrant> entrants) {
+        int[] ids = new int[entrants.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entrants.get(i).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Indexes a list of entrants by ID
+     * @param entrants
+     *      Entrants
+     * @return
+     *      Map from ID to entrant
+     */
+    private static Map<Integer, Entrant> indexById(List<Entrant> entrants) {
+        Map<Integer, Entrant> byId = new HashMap<>(entrants.size() * 2);
+        for (Entrant entrant : entrants) {
+            byId.put(entrant.getId(), entrant);
+        }
+        return byId;
+    }
+
+    /**
+     * Looks up drawn IDs
+     * @param ids
+     *      IDs from a lottery draw
+     * @param byId
+     *      Entrants by ID
+     * @return
+     *      Entrants in draw order
+     */
+    private static List<Entrant> pick(int[] ids, Map<Integer, Entrant> byId) {
+        List<Entrant> picked = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            picked.add(byId.get(id));
+        }
+        return picked;
+    }
+
     /**
      * Safely derive the current entrant count using the in-memory list when available,
      * otherwise fall back to the persisted counter in EventInfo. This keeps behavior
@@ -1561,123 +2089,39 @@ public class EventController {
      */
     public static void removeImage(Event e, DBWriteCallback callback) {
         e.getEventInfo().setImageUrl(null);
-        eventRef.document(String.valueOf(e.getId()))
-                .set(e)
+        saveEvent(e, false)
                 .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(e1 -> callback.onFailure(new Exception("Failed to remove image")));
     }
 
     /**
-     * Exports enrolled entrants to a text file in the Downloads folder
+     * Exports enrolled entrants to a CSV file in the Downloads folder
      * 
      * @param event Event containing entrants to export
      * @param context Android context for file operations
      * @param callback Callback with file path or error
      */
     public static void exportEntrantsToCSV(Event event, android.content.Context context, com.example.slices.interfaces.CSVExportCallback callback) {
-        try {
-            // Get enrolled entrants
-            List<Entrant> entrants = event.getEntrants();
-            if (entrants == null || entrants.isEmpty()) {
-                Logger.logError("Export failed: No enrolled entrants", null);
-                callback.onFailure(new Exception("No enrolled entrants to export"));
-                return;
-            }
-            
-            Logger.logSystem("Starting entrants export for event id=" + event.getId() + ", " + entrants.size() + " entrants", null);
-            
-            // Get Downloads directory
-            java.io.File downloadsDir = android.os.Environment.getExternalStoragePublicDirectory(
-                android.os.Environment.DIRECTORY_DOWNLOADS
-            );
-            
-            // Create filename with event name and timestamp - use .txt for easy viewing
-            String eventName = event.getEventInfo().getName().replaceAll("[^a-zA-Z0-9]", "_");
-            String timestamp = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss", java.util.Locale.getDefault())
-                .format(new java.util.Date());
-            String fileName = eventName + "_entrants_" + timestamp + ".txt";
-            
-            java.io.File txtFile = new java.io.File(downloadsDir, fileName);
-            Logger.logSystem("Export file path: " + txtFile.getAbsolutePath(), null);
-            
-            // Write content in a readable format
-            java.io.FileWriter writer = new java.io.FileWriter(txtFile);
-            
-            // Write header
-            writer.append("Event: " + event.getEventInfo().getName() + "\n");
-            writer.append("Enrolled Participants: " + entrants.size() + "\n");
-            writer.append("Exported: " + new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss", java.util.Locale.getDefault())
-                .format(new java.util.Date()) + "\n");
-            writer.append("=" .repeat(60) + "\n\n");
-            
-            // Write data rows
-            int rowCount = 0;
-            for (Entrant entrant : entrants) {
-                rowCount++;
-                
-                // Get profile data with null checks
-                String name = "N/A";
-                String email = "N/A";
-                String phone = "N/A";
-                
-                if (entrant.getProfile() != null) {
-                    name = entrant.getProfile().getName() != null ? entrant.getProfile().getName() : "N/A";
-                    email = entrant.getProfile().getEmail() != null ? entrant.getProfile().getEmail() : "N/A";
-                    phone = entrant.getProfile().getPhoneNumber() != null ? entrant.getProfile().getPhoneNumber() : "N/A";
-                } else {
-                    Logger.logSystem("Warning: Entrant " + entrant.getId() + " has null profile", null);
-                }
-                
-                // Write in readable format
-                writer.append("Participant #" + rowCount + "\n");
-                writer.append("  ID: " + entrant.getId() + "\n");
-                writer.append("  Name: " + name + "\n");
-                writer.append("  Email: " + email + "\n");
-                writer.append("  Phone: " + phone + "\n");
-                writer.append("\n");
-            }
-            
-            writer.flush();
-            writer.close();
-            
-            Logger.logSystem("Export file written successfully: " + rowCount + " participants", null);
-            Logger.logSystem("File exists: " + txtFile.exists() + ", size: " + txtFile.length() + " bytes", null);
-            
-            // Notify media scanner so file appears in Downloads immediately
-            android.media.MediaScannerConnection.scanFile(
-                context,
-                new String[]{txtFile.getAbsolutePath()},
-                new String[]{"text/plain"},
-                null
-            );
-            
-            Logger.logSystem("Export successful for event id=" + event.getId(), null);
-            callback.onSuccess(txtFile.getAbsolutePath());
-            
-        } catch (Exception e) {
-            Logger.logError("Export failed for event id=" + event.getId() + ": " + e.getMessage(), null);
-            e.printStackTrace();
-            callback.onFailure(e);
-        }
+        exportEntrantsToCSV(event, context, Collections.singletonList(EntrantCsv.Status.ENROLLED),
+                EntrantCsv.DEFAULT_COLUMNS, callback);
     }
-    
+
     /**
-     * Helper method to escape CSV special characters
-     * 
-     * @param value String value to escape
-     * @return Escaped string safe for CSV
+     * Exports the entrants on some of an event's lists to a CSV file in the Downloads folder,
+     * on a background thread
+     *
+     * @param event Event whose entrants to export
+     * @param context Android context for file operations
+     * @param statuses Lists to export, in the order they are written
+     * @param columns Columns to write, in order
+     * @param callback Callback with progress and the file path or error, called on the main thread
+     * @return Job that can be cancelled
      */
-    private static String escapeCsv(String value) {
-        if (value == null) {
-            return "";
-        }
-        
-        // If value contains comma, quote, or newline, wrap in quotes and escape quotes
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
-        }
-        
-        return value;
+    public static EntrantExporter.Job exportEntrantsToCSV(Event event, android.content.Context context,
+                                                          List<EntrantCsv.Status> statuses,
+                                                          List<EntrantCsv.Column> columns,
+                                                          com.example.slices.interfaces.CSVExportCallback callback) {
+        return EntrantExporter.export(event, context, statuses, columns, callback);
     }
 
     /**
@@ -1766,11 +2210,8 @@ public class EventController {
         invitedIds.remove(Integer.valueOf(entrantId));
 
         // Remove from waitlist if present
-        if (event.getWaitlist() != null && event.getWaitlist().getEntrants() != null) {
-            event.getWaitlist().getEntrants().removeIf(e -> e.getId() == entrantId);
-        }
-        if (event.getWaitlist() != null && event.getWaitlist().getEntrantIds() != null) {
-            event.getWaitlist().getEntrantIds().remove(Integer.valueOf(entrantId));
+        if (event.getWaitlist() != null) {
+            event.removeEntrantFromWaitlist(entrantId);
         }
 
         // Add to cancelledIds
@@ -1888,11 +2329,8 @@ public class EventController {
             invitedIds.remove(Integer.valueOf(entrantId));
 
             // Remove from waitlist if present
-            if (event.getWaitlist() != null && event.getWaitlist().getEntrants() != null) {
-                event.getWaitlist().getEntrants().removeIf(e -> e.getId() == entrantId);
-            }
-            if (event.getWaitlist() != null && event.getWaitlist().getEntrantIds() != null) {
-                event.getWaitlist().getEntrantIds().remove(Integer.valueOf(entrantId));
+            if (event.getWaitlist() != null) {
+                event.removeEntrantFromWaitlist(entrantId);
             }
 
             // Add to cancelledIds
@@ -0,0 +1,461 @@
+package com.example.slices.controllers;
+
+import com.example.slices.exceptions.EventNotFound;
+import com.example.slices.interfaces.EventCallback;
+import com.example.slices.interfaces.EventListCallback;
+import com.example.slices.models.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-through cache in front of EventController.getEvent and getEvents.
+ * Keeps a bounded LRU of decoded events that expire after a TTL, and collapses
+ * concurrent requests for the same ID into a single Firestore read.
+ * EventController's writers call put/invalidate so the cache always reflects this
+ * client's own writes; a read that was in flight while a write happened is handed to
+ * its callers but not cached, so it can never overwrite the newer entry.
+ * Entries are also versioned by the event's revision: an older copy never replaces a
+ * newer one, and reads that bypass the cache replace a cached copy they are newer than.
+ * The cache keeps its own copy of each event and hands every caller a separate copy,
+ * so callers may change the events they get.
+ * Use for display reads; read-modify-write flows that must see other clients' changes
+ * should call EventController.getEvent directly.
+ * @version 1.0
+ */
+public class EventRepository {
+    /**
+     * Maximum number of events kept in memory
+     */
+    private static final int MAX_ENTRIES = 100;
+    /**
+     * How long a cached event is served before it is re-read
+     */
+    private static long ttlMillis = 60_000;
+
+    /**
+     * Cached copy of an event with the time it was stored
+     */
+    private static class Entry {
+        final Event event;
+        final long storedAt;
+
+        Entry(Event event, long storedAt) {
+            this.event = event;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * A Firestore read in progress and the callers waiting on it
+     */
+    private static class InFlight {
+        final List<EventCallback> callbacks = new ArrayList<>();
+        boolean stale;
+    }
+
+    /**
+     * Access-ordered map so the eldest entry is the least recently used
+     */
+    private static final LinkedHashMap<Integer, Entry> cache =
+            new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    /**
+     * Reads currently in flight keyed by event ID
+     */
+    private static final Map<Integer, InFlight> inFlight = new HashMap<>();
+
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long coalesced = 0;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private EventRepository() {}
+
+    /**
+     * Gets an event, from memory if a fresh copy is cached
+     * @param id
+     *      Event ID to search for
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getEvent(int id, EventCallback callback) {
+        Event cached = null;
+        boolean fetch = false;
+        synchronized (cache) {
+            Entry entry = cache.get(id);
+            if (entry != null && System.currentTimeMillis() - entry.storedAt < ttlMillis) {
+                hits++;
+                cached = new Event(entry.event);
+            } else {
+                if (entry != null) {
+                    cache.remove(id);
+                }
+                InFlight pending = inFlight.get(id);
+                if (pending != null) {
+                    coalesced++;
+                    pending.callbacks.add(callback);
+                    return;
+                }
+                misses++;
+                pending = new InFlight();
+                pending.callbacks.add(callback);
+                inFlight.put(id, pending);
+                fetch = true;
+            }
+        }
+        if (!fetch) {
+            callback.onSuccess(cached);
+            return;
+        }
+
+        EventController.getEvent(id, new EventCallback() {
+            @Override
+            public void onSuccess(Event event) {
+                List<EventCallback> waiting;
+                synchronized (cache) {
+                    InFlight pending = inFlight.remove(id);
+                    waiting = pending != null ? pending.callbacks : new ArrayList<>();
+                    if (event != null && pending != null && !pending.stale) {
+                        store(event);
+                    }
+                }
+                for (EventCallback cb : waiting) {
+                    cb.onSuccess(event != null ? new Event(event) : null);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                List<EventCallback> waiting;
+                synchronized (cache) {
+                    InFlight pending = inFlight.remove(id);
+                    waiting = pending != null ? pending.callbacks : new ArrayList<>();
+                }
+                for (EventCallback cb : waiting) {
+                    cb.onFailure(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets many events, serving fresh copies from memory and reading the rest with
+     * EventController.getEvents. IDs already being read by getEvent wait on that read
+     * instead of being fetched twice.
+     * @param ids
+     *      Event IDs to get
+     * @param callback
+     *      Callback with the events that exist, in the order of their IDs
+     */
+    public static void getEvents(List<Integer> ids, EventListCallback callback) {
+        List<Integer> order = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Integer, Event> found = new HashMap<>();
+        List<Integer> fetch = new ArrayList<>();
+        BulkRead read = new BulkRead(order, found, callback);
+        synchronized (cache) {
+            for (int id : order) {
+                Entry entry = cache.get(id);
+                if (entry != null && System.currentTimeMillis() - entry.storedAt < ttlMillis) {
+                    hits++;
+                    found.put(id, new Event(entry.event));
+                    continue;
+                }
+                if (entry != null) {
+                    cache.remove(id);
+                }
+                InFlight pending = inFlight.get(id);
+                if (pending != null) {
+                    coalesced++;
+                    read.waiting++;
+                    pending.callbacks.add(read.waiter(id));
+                    continue;
+                }
+                misses++;
+                inFlight.put(id, new InFlight());
+                fetch.add(id);
+            }
+            if (!fetch.isEmpty()) {
+                read.waiting++;
+            }
+        }
+        // Release the hold taken while the reads were being set up
+        read.finishOne();
+        if (fetch.isEmpty()) {
+            return;
+        }
+
+        EventController.getEvents(fetch, new EventListCallback() {
+            @Override
+            public void onSuccess(List<Event> events) {
+                Map<Integer, Event> byId = new HashMap<>();
+                for (Event event : events) {
+                    byId.put(event.getId(), event);
+                }
+                Map<Integer, List<EventCallback>> waiting = new HashMap<>();
+                synchronized (cache) {
+                    for (int id : fetch) {
+                        InFlight pending = inFlight.remove(id);
+                        Event event = byId.get(id);
+                        if (event != null && pending != null && !pending.stale) {
+                            store(event);
+                        }
+                        if (pending != null && !pending.callbacks.isEmpty()) {
+                            waiting.put(id, pending.callbacks);
+                        }
+                    }
+                }
+                for (Map.Entry<Integer, List<EventCallback>> e : waiting.entrySet()) {
+                    Event event = byId.get(e.getKey());
+                    for (EventCallback cb : e.getValue()) {
+                        if (event != null) {
+                            cb.onSuccess(new Event(event));
+                        } else {
+                            cb.onFailure(new EventNotFound("Event not found", String.valueOf(e.getKey())));
+                        }
+                    }
+                }
+                read.add(byId);
+                read.finishOne();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                List<EventCallback> waiting = new ArrayList<>();
+                synchronized (cache) {
+                    for (int id : fetch) {
+                        InFlight pending = inFlight.remove(id);
+                        if (pending != null) {
+                            waiting.addAll(pending.callbacks);
+                        }
+                    }
+                }
+                for (EventCallback cb : waiting) {
+                    cb.onFailure(e);
+                }
+                read.fail(e);
+            }
+        });
+    }
+
+    /**
+     * Collects the results of one getEvents call as its reads complete
+     */
+    private static class BulkRead {
+        final List<Integer> order;
+        final Map<Integer, Event> found;
+        final EventListCallback callback;
+        /**
+         * Reads still outstanding plus one while getEvents is setting them up;
+         * guarded by the cache lock
+         */
+        int waiting = 1;
+        boolean done;
+
+        BulkRead(List<Integer> order, Map<Integer, Event> found, EventListCallback callback) {
+            this.order = order;
+            this.found = found;
+            this.callback = callback;
+        }
+
+        EventCallback waiter(int id) {
+            return new EventCallback() {
+                @Override
+                public void onSuccess(Event event) {
+                    if (event != null) {
+                        add(Collections.singletonMap(id, event));
+                    }
+                    finishOne();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (e instanceof EventNotFound) {
+                        finishOne();
+                    } else {
+                        fail(e);
+                    }
+                }
+            };
+        }
+
+        void add(Map<Integer, Event> events) {
+            synchronized (cache) {
+                found.putAll(events);
+            }
+        }
+
+        void finishOne() {
+            List<Event> events;
+            synchronized (cache) {
+                if (done || --waiting > 0) {
+                    return;
+                }
+                done = true;
+                events = new ArrayList<>();
+                for (int id : order) {
+                    Event event = found.get(id);
+                    if (event != null) {
+                        events.add(event);
+                    }
+                }
+            }
+            callback.onSuccess(events);
+        }
+
+        void fail(Exception e) {
+            synchronized (cache) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            callback.onFailure(e);
+        }
+    }
+
+    /**
+     * Stores a copy of an event that was just written so later reads see it without a round-trip
+     * @param event
+     *      Event that was written
+     */
+    public static void put(Event event) {
+        if (event == null) {
+            return;
+        }
+        synchronized (cache) {
+            markStale(event.getId());
+            store(event);
+        }
+    }
+
+    /**
+     * Replaces the cached copy of an event if one read without the cache is newer
+     * @param event
+     *      Event read from Firestore
+     */
+    public static void observe(Event event) {
+        if (event == null) {
+            return;
+        }
+        synchronized (cache) {
+            Entry entry = cache.get(event.getId());
+            if (entry != null && entry.event.getRevision() < event.getRevision()) {
+                cache.put(event.getId(), new Entry(new Event(event), System.currentTimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * Caches a copy of an event unless a newer revision is already cached; callers hold the cache lock
+     * @param event
+     *      Event to cache
+     */
+    private static void store(Event event) {
+        Entry entry = cache.get(event.getId());
+        if (entry == null || entry.event.getRevision() <= event.getRevision()) {
+            cache.put(event.getId(), new Entry(new Event(event), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Drops an event from the cache
+     * @param id
+     *      ID of the event to drop
+     */
+    public static void invalidate(int id) {
+        synchronized (cache) {
+            markStale(id);
+            cache.remove(id);
+        }
+    }
+
+    /**
+     * Drops every cached event
+     */
+    public static void clear() {
+        synchronized (cache) {
+            for (InFlight pending : inFlight.values()) {
+                pending.stale = true;
+            }
+            cache.clear();
+        }
+    }
+
+    /**
+     * Prevents a read started before a write from being cached
+     * @param id
+     *      ID of the event that was written
+     */
+    private static void markStale(int id) {
+        InFlight pending = inFlight.get(id);
+        if (pending != null) {
+            pending.stale = true;
+        }
+    }
+
+    /**
+     * Sets how long cached events are served
+     * @param millis
+     *      TTL in milliseconds
+     */
+    public static void setTtlMillis(long millis) {
+        ttlMillis = millis;
+    }
+
+    /**
+     * Getter for the number of reads served from memory
+     * @return
+     *      Cache hits
+     */
+    public static long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * Getter for the number of reads that went to Firestore
+     * @return
+     *      Cache misses
+     */
+    public static long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * Getter for the number of reads that joined a read already in flight
+     * @return
+     *      Coalesced reads
+     */
+    public static long getCoalesced() {
+        synchronized (cache) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Resets the hit/miss counters
+     */
+    public static void resetStats() {
+        synchronized (cache) {
+            hits = 0;
+            misses = 0;
+            coalesced = 0;
+        }
+    }
+}
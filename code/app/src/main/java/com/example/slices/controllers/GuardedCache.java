@@ -0,0 +1,133 @@
+package com.example.slices.controllers;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe map shared by the controllers' client-side caches, with hit/miss counters.
+ * Each cache resolves misses with an asynchronous read, and a write on this client can land
+ * while that read is in flight. Callers take generation() before the read and store its
+ * results with putAllIfCurrent, which drops them if any put/remove/clear happened meanwhile,
+ * so an older remote value never replaces a fresher local one.
+ * @param <K>
+ *      Key type
+ * @param <V>
+ *      Cached value type
+ * @version 1.0
+ */
+class GuardedCache<K, V> {
+    private final Map<K, V> map;
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param map
+     *      Backing map, which decides eviction order; only accessed through this cache
+     */
+    GuardedCache(Map<K, V> map) {
+        this.map = map;
+    }
+
+    /**
+     * Gets the current write generation, to be passed to putAllIfCurrent
+     * @return
+     *      Number of writes so far
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Looks up a value and counts the hit or miss
+     * @param key
+     *      Key to look up
+     * @param usable
+     *      Whether a cached value can still be used, e.g. it has not expired
+     * @return
+     *      The cached value, or null if absent or not usable
+     */
+    synchronized V lookup(K key, Predicate<V> usable) {
+        V value = map.get(key);
+        if (value != null && usable.test(value)) {
+            hits++;
+            return value;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Gets a value without counting it
+     * @param key
+     *      Key to look up
+     * @return
+     *      The cached value, or null
+     */
+    synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Stores a value that was just written on this client
+     * @param key
+     *      Key to store under
+     * @param value
+     *      Value to store
+     */
+    synchronized void put(K key, V value) {
+        generation++;
+        map.put(key, value);
+    }
+
+    /**
+     * Stores values read remotely, unless a write happened since the read started
+     * @param startGeneration
+     *      generation() taken before the read
+     * @param values
+     *      Values to store
+     * @return
+     *      Whether the values were stored
+     */
+    synchronized boolean putAllIfCurrent(long startGeneration, Map<K, V> values) {
+        if (generation != startGeneration) {
+            return false;
+        }
+        map.putAll(values);
+        return true;
+    }
+
+    /**
+     * Drops a cached value
+     * @param key
+     *      Key to drop
+     */
+    synchronized void remove(K key) {
+        generation++;
+        map.remove(key);
+    }
+
+    /**
+     * Drops every cached value
+     */
+    synchronized void clear() {
+        generation++;
+        map.clear();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Resets the hit and miss counters
+     */
+    synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+    }
+}
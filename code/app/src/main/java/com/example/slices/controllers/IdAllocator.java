@@ -0,0 +1,268 @@
+package com.example.slices.controllers;
+
+import android.annotation.SuppressLint;
+
+import com.example.slices.exceptions.DBOpFailed;
+import com.example.slices.interfaces.IDBlockCallback;
+import com.example.slices.interfaces.IDCallback;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocates unique integer IDs for documents in a collection.
+ * Each collection has a counter document in "counters" holding the next unused ID.
+ * Clients lease whole blocks of IDs from the counter inside a transaction and then
+ * hand them out locally, so most allocations need no network round-trip and two
+ * clients can never be handed the same ID.
+ * The counter is seeded from the highest existing "id" the first time it is used,
+ * which keeps IDs continuous with documents written before the counter existed.
+ * @version 1.0
+ */
+public class IdAllocator {
+    /**
+     * Reference to the database
+     */
+    @SuppressLint("StaticFieldLeak")
+    private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    /**
+     * Reference to the counters collection in the database
+     */
+    private static final CollectionReference counterRef = db.collection("counters");
+
+    /**
+     * Number of IDs leased per transaction unless changed
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    /**
+     * Number of IDs leased per transaction
+     */
+    private static int blockSize = DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Local leases keyed by collection ID
+     */
+    private static final Map<String, Lease> leases = new HashMap<>();
+
+    /**
+     * A block of IDs held by this client, [next, limit)
+     */
+    private static class Lease {
+        long next;
+        long limit;
+        boolean refilling;
+        final List<IDCallback> waiting = new ArrayList<>();
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private IdAllocator() {}
+
+    /**
+     * Sets the number of IDs leased per transaction
+     * @param size
+     *      Block size, must be positive
+     */
+    public static void setBlockSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        blockSize = size;
+    }
+
+    /**
+     * Gets the next unique ID for a collection. Served from the local lease when possible,
+     * otherwise a new block is leased. Concurrent callers share a single lease transaction.
+     * @param collection
+     *      Collection the ID is for
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void nextId(CollectionReference collection, IDCallback callback) {
+        String key = collection.getId();
+        Lease lease;
+        int id = 0;
+        boolean served = false;
+        synchronized (leases) {
+            lease = leases.get(key);
+            if (lease == null) {
+                lease = new Lease();
+                leases.put(key, lease);
+            }
+            if (lease.next < lease.limit) {
+                id = (int) lease.next++;
+                served = true;
+            } else {
+                lease.waiting.add(callback);
+                if (lease.refilling) {
+                    return;
+                }
+                lease.refilling = true;
+            }
+        }
+        if (served) {
+            callback.onSuccess(id);
+            return;
+        }
+        refill(collection, lease);
+    }
+
+    /**
+     * Leases a block of IDs directly from the counter document, bypassing the local lease.
+     * Every call behaves like an independent client.
+     * @param collection
+     *      Collection the IDs are for
+     * @param size
+     *      Number of IDs to lease
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void leaseBlock(CollectionReference collection, int size, IDBlockCallback callback) {
+        leaseTask(collection, size)
+                .addOnSuccessListener(start -> callback.onSuccess(start.intValue(), size))
+                .addOnFailureListener(e -> {
+                    Logger.logError("Failed to lease ID block for " + collection.getId(), null);
+                    callback.onFailure(new DBOpFailed("Failed to lease ID block"));
+                });
+    }
+
+    /**
+     * Drops the local lease and deletes the counter for a collection: Used for testing
+     * @param collection
+     *      Collection whose counter should be reset
+     * @param onComplete
+     *      Callback to call when the operation is complete
+     */
+    public static void reset(CollectionReference collection, Runnable onComplete) {
+        synchronized (leases) {
+            leases.remove(collection.getId());
+        }
+        counterRef.document(collection.getId())
+                .delete()
+                .addOnCompleteListener(task -> onComplete.run());
+    }
+
+    /**
+     * Leases a new block for the local lease and serves waiting callers from it
+     * @param collection
+     *      Collection the IDs are for
+     * @param lease
+     *      Lease to refill
+     */
+    private static void refill(CollectionReference collection, Lease lease) {
+        int size = blockSize;
+        leaseTask(collection, size)
+                .addOnSuccessListener(start -> {
+                    List<IDCallback> ready = new ArrayList<>();
+                    List<Integer> ids = new ArrayList<>();
+                    boolean more;
+                    synchronized (leases) {
+                        lease.next = start;
+                        lease.limit = start + size;
+                        while (!lease.waiting.isEmpty() && lease.next < lease.limit) {
+                            ready.add(lease.waiting.remove(0));
+                            ids.add((int) lease.next++);
+                        }
+                        more = !lease.waiting.isEmpty();
+                        lease.refilling = more;
+                    }
+                    Logger.logSystem("Leased IDs " + start + "-" + (start + size - 1)
+                            + " for " + collection.getId(), null);
+                    for (int i = 0; i < ready.size(); i++) {
+                        ready.get(i).onSuccess(ids.get(i));
+                    }
+                    if (more) {
+                        refill(collection, lease);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    List<IDCallback> failed;
+                    synchronized (leases) {
+                        failed = new ArrayList<>(lease.waiting);
+                        lease.waiting.clear();
+                        lease.refilling = false;
+                    }
+                    Logger.logError("Failed to lease ID block for " + collection.getId(), null);
+                    for (IDCallback cb : failed) {
+                        cb.onFailure(new DBOpFailed("Failed to get next ID"));
+                    }
+                });
+    }
+
+    /**
+     * Leases a block from the counter, seeding the counter first if it does not exist
+     * @param collection
+     *      Collection the IDs are for
+     * @param size
+     *      Number of IDs to lease
+     * @return
+     *      Task resolving to the first ID of the block
+     */
+    private static Task<Long> leaseTask(CollectionReference collection, int size) {
+        DocumentReference counter = counterRef.document(collection.getId());
+        return runLease(counter, -1, size).continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                return Tasks.forException(task.getException());
+            }
+            if (task.getResult() != null) {
+                return Tasks.forResult(task.getResult());
+            }
+            // Counter missing: seed it from the highest existing ID (one indexed read)
+            return collection.orderBy("id", Query.Direction.DESCENDING)
+                    .limit(1)
+                    .get()
+                    .continueWithTask(seedTask -> {
+                        if (!seedTask.isSuccessful()) {
+                            return Tasks.forException(seedTask.getException());
+                        }
+                        long seed = 1;
+                        if (!seedTask.getResult().isEmpty()) {
+                            Long max = seedTask.getResult().getDocuments().get(0).getLong("id");
+                            if (max != null) {
+                                seed = max + 1;
+                            }
+                        }
+                        return runLease(counter, seed, size);
+                    });
+        });
+    }
+
+    /**
+     * Runs the lease transaction against a counter document
+     * @param counter
+     *      Counter document
+     * @param seed
+     *      Value to start from if the counter does not exist, or -1 to not create it
+     * @param size
+     *      Number of IDs to lease
+     * @return
+     *      Task resolving to the first ID of the block, or null if the counter is missing and no seed was given
+     */
+    private static Task<Long> runLease(DocumentReference counter, long seed, int size) {
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(counter);
+            Long next = snapshot.exists() ? snapshot.getLong("next") : null;
+            if (next == null) {
+                if (seed < 0) {
+                    return null;
+                }
+                next = seed;
+            }
+            Map<String, Object> data = new HashMap<>();
+            data.put("next", next + size);
+            transaction.set(counter, data);
+            return next;
+        });
+    }
+}
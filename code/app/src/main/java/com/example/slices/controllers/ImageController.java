@@ -1,30 +1,36 @@
 package com.example.slices.controllers;
 
 import android.annotation.SuppressLint;
+import android.content.ContentResolver;
 import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 import com.example.slices.exceptions.DBOpFailed;
+import com.example.slices.interfaces.BulkDeleteCallback;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.interfaces.ImageListCallback;
+import com.example.slices.interfaces.ImagePageCallback;
 import com.example.slices.interfaces.ImageUploadCallback;
 import com.example.slices.interfaces.ImageUrlCallback;
 import com.example.slices.models.Event;
 import com.example.slices.models.Image;
 import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
 import com.google.firebase.Timestamp;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.ListResult;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Controller for facilitating the storing, updating, and retrieving
@@ -38,15 +44,34 @@ public class ImageController {
     private static final FirebaseStorage storage = FirebaseStorage.getInstance();
     private static StorageReference imagesRef = storage.getReference().child("event_images/");
 
+    /**
+     * Folder under imagesRef holding thumbnails, named after their full image
+     */
+    private static final String THUMBS = "thumbs/";
+
+    /**
+     * Decoding and encoding happen here, off the main thread
+     */
+    private static final Executor transcoder = Executors.newSingleThreadExecutor();
+
+    /**
+     * Images listed per page by getAllImages
+     */
+    static final int CATALOG_PAGE_SIZE = 100;
+
     private ImageController() {}
 
     public static void setTesting(boolean testing) {
         if (testing)
             imagesRef = storage.getReference().child("event_images_test/");
+        ImageUrlCache.clear();
     }
 
     /**
      * Uploads an image to the firebase storage asynchronously
+     * The image is downsampled, stripped of metadata and re-encoded on a background thread, and
+     * a thumbnail is uploaded beside it. An image that cannot be decoded is not uploaded, since
+     * only re-encoding removes its metadata
      * @param imageUri
      *      Uri of the image to be uploaded
      * @param userId
@@ -60,79 +85,166 @@ public class ImageController {
             return;
         }
 
-        String path = userId + "_" + Timestamp.now().toDate().getTime();
+        upload(userId + "_" + Timestamp.now().toDate().getTime(), imageUri, callback);
+    }
+
+    /**
+     * Writes an image and its thumbnail at a path, replacing whatever was there
+     * @param path
+     *      path of the image in storage
+     * @param imageUri
+     *      Uri of the image to be uploaded
+     * @param callback
+     *      Callback with the image, versioned by the time it was written
+     */
+    private static void upload(String path, Uri imageUri, ImageUploadCallback callback) {
+        long version = Timestamp.now().toDate().getTime();
+        String thumbPath = thumbPath(path);
 
         StorageReference imageRef = imagesRef.child(path);
+        StorageReference thumbRef = imagesRef.child(thumbPath);
+        ContentResolver resolver = FirebaseApp.getInstance().getApplicationContext().getContentResolver();
+
+        Tasks.call(transcoder, () -> ImageTranscoder.transcode(resolver, imageUri))
+                .addOnSuccessListener(encoded -> {
+                    StorageMetadata metadata = new StorageMetadata.Builder()
+                            .setContentType(ImageTranscoder.CONTENT_TYPE)
+                            .build();
+                    Task<Uri> fullUrl = imageRef.putBytes(encoded.full, metadata)
+                            .onSuccessTask(snapshot -> imageRef.getDownloadUrl());
+                    Task<Uri> thumbUrl = thumbRef.putBytes(encoded.thumb, metadata)
+                            .onSuccessTask(snapshot -> thumbRef.getDownloadUrl());
+                    Tasks.whenAllSuccess(fullUrl, thumbUrl)
+                            .addOnSuccessListener(urls -> {
+                                Image image = new Image(path, urls.get(0).toString(),
+                                        thumbPath, urls.get(1).toString());
+                                image.setVersion(version);
+                                ImageUrlCache.put(image);
+                                callback.onSuccess(image);
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.d("Image Controller", "Failed to upload image", null);
+                                callback.onFailure(new DBOpFailed("Failed to upload image"));
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.d("Image Controller", "Could not transcode image: " + e.getMessage(), null);
+                    callback.onFailure(new DBOpFailed("Image could not be read"));
+                });
+    }
 
-        imageRef.putFile(imageUri)
-                .addOnSuccessListener(taskSnapshot ->
-                        imageRef.getDownloadUrl().addOnSuccessListener(uri ->
-                            callback.onSuccess(new Image(path, uri.toString()))
-                        )
-                )
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Log.d("Image Controller", "Failed to upload image", null);
-                        callback.onFailure(new DBOpFailed("Failed to upload image"));
+    /**
+     * Gets the storage path of an image's thumbnail
+     * @param path
+     *      Path of the full image
+     * @return
+     *      Path of its thumbnail under imagesRef
+     */
+    static String thumbPath(String path) {
+        return THUMBS + path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Deletes an image's thumbnail if it has one; images uploaded before thumbnails have none
+     * @param path
+     *      Path of the full image
+     * @return
+     *      Task that succeeds whether or not there was a thumbnail
+     */
+    private static Task<Void> deleteThumb(String path) {
+        return imagesRef.child(thumbPath(path)).delete().continueWith(task -> null);
+    }
+
+    /**
+     * Gets one page of images from the storage
+     * Download URLs come from ImageUrlCache, so a page whose images are cached or stored on
+     * their events costs a single listing call
+     * @param pageSize
+     *      Most images to list
+     * @param pageToken
+     *      Token from the previous page, or null for the first page
+     * @param callback
+     *      Callback with the page and the token for the next one
+     */
+    public static void getImages(int pageSize, String pageToken, ImagePageCallback callback) {
+        Task<ListResult> list = pageToken == null
+                ? imagesRef.list(pageSize)
+                : imagesRef.list(pageSize, pageToken);
+        list.addOnSuccessListener(result -> ImageUrlCache.resolve(result.getItems(), resolved -> {
+                    List<Image> images = new ArrayList<>();
+                    for (StorageReference item : result.getItems()) {
+                        Image image = resolved.get(item.getName());
+                        if (image != null) {
+                            images.add(image);
+                        }
                     }
+                    callback.onSuccess(images, result.getPageToken());
+                }))
+                .addOnFailureListener(e -> {
+                    Log.d("Image Controller", "Failed to list images", null);
+                    callback.onFailure(new DBOpFailed("Failed to list images"));
                 });
     }
 
     /**
-     * Gets a list of all images from the storage
+     * Gets a list of all images from the storage, a page at a time
      * @param callback
      *      Callback to call once the operation is complete
      */
     public static void getAllImages(ImageListCallback callback) {
-        imagesRef.listAll()
-                .addOnSuccessListener(listResult -> {
-                    List<StorageReference> items = listResult.getItems();
+        getAllImages(null, new ArrayList<>(), callback);
+    }
 
-                    if (items.isEmpty()) {
-                        callback.onSuccess(new ArrayList<>());
-                    }
+    private static void getAllImages(String pageToken, List<Image> images, ImageListCallback callback) {
+        getImages(CATALOG_PAGE_SIZE, pageToken, new ImagePageCallback() {
+            @Override
+            public void onSuccess(List<Image> page, String nextPageToken) {
+                images.addAll(page);
+                if (nextPageToken == null) {
+                    callback.onSuccess(images);
+                } else {
+                    getAllImages(nextPageToken, images, callback);
+                }
+            }
 
-                    List<Task<Uri>> tasks = new ArrayList<>();
-                    for (StorageReference item : items)
-                        tasks.add(item.getDownloadUrl());
-
-                    Tasks.whenAllSuccess(tasks)
-                            .addOnSuccessListener(downUrls -> {
-                                List<Image> images = new ArrayList<>();
-                                for (int i = 0; i < items.size(); i++) {
-                                    images.add(new Image(items.get(i).getPath(), downUrls.get(i).toString()));
-                                }
-                                callback.onSuccess(images);
-                            })
-                            .addOnFailureListener(new OnFailureListener() {
-                                @Override
-                                public void onFailure(@NonNull Exception e) {
-                                    Log.d("Image Controller", "Failed to get all images", null);
-                                    callback.onFailure(new DBOpFailed("Failed to get all images"));
-                                }
-                            });}
-                )
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Log.d("Image Controller", "Failed to get all images", null);
-                        callback.onFailure(new DBOpFailed("Failed to get all images"));
-                    }
-                });
+            @Override
+            public void onFailure(Exception e) {
+                Log.d("Image Controller", "Failed to get all images", null);
+                callback.onFailure(new DBOpFailed("Failed to get all images"));
+            }
+        });
     }
 
     /**
-     * Gets a single image's download url, likely not used with current implementation
+     * Gets a single image's download url, from the cache when possible
      * @param path
      *      path of the image in storage
      * @param callback
      *      Callback to when the operation is complete
      */
     public static void getImageUrl(String path, ImageUrlCallback callback) {
+        Image cached = ImageUrlCache.get(path);
+        if (cached != null) {
+            callback.onSuccess(cached.getUrl());
+            return;
+        }
+        refreshImageUrl(path, callback);
+    }
+
+    /**
+     * Asks storage for an image's download url and caches it, replacing a cached url whose
+     * token was revoked
+     * @param path
+     *      path of the image in storage
+     * @param callback
+     *      Callback to when the operation is complete
+     */
+    public static void refreshImageUrl(String path, ImageUrlCallback callback) {
+        ImageUrlCache.invalidate(path);
         imagesRef.child(path)
                 .getDownloadUrl()
                 .addOnSuccessListener(uri -> {
+                    ImageUrlCache.put(new Image(path, String.valueOf(uri)));
                     callback.onSuccess(String.valueOf(uri));
                 })
                 .addOnFailureListener(new OnFailureListener() {
@@ -145,15 +257,17 @@ public class ImageController {
     }
 
     /**
-     * Deletes an image from the firebase storage
+     * Deletes an image and its thumbnail from the firebase storage
      * @param path
      *      path of the image in storage to delete
      * @param callback
      *      Callback to when the operation is complete
      */
     public static void deleteImage(String path, DBWriteCallback callback) {
+        ImageUrlCache.invalidate(path);
         imagesRef.child(path)
                 .delete()
+                .onSuccessTask(unused -> deleteThumb(path))
                 .addOnSuccessListener(unused -> {
                     Log.d("Image Controller", "Successfully deleted image at: " + path, null);
                     callback.onSuccess();
@@ -227,9 +341,10 @@ public class ImageController {
     }
 
     /**
-     * Modify an image in storage by deleting and uploading in order to refresh glide
+     * Replaces an image in place, keeping its path and bumping its version so Glide, which caches
+     * event images by path and version, loads the new one
      * @param path
-     *      path of the image in storage to delete
+     *      path of the image in storage to replace, or null to upload a new image
      * @param imageUri
      *      Uri of the new image to upload
      * @param userId
@@ -238,81 +353,61 @@ public class ImageController {
      *      Callback to when the operation is complete
      */
     public static void modifyImage(String path, Uri imageUri, String userId, ImageUploadCallback callback) {
-        if(path != null) {
-            imagesRef.child(path)
-                    .delete()
-                    .addOnSuccessListener(new OnSuccessListener<Void>() {
-                        @Override
-                        public void onSuccess(Void unused) {
-                            uploadImage(imageUri, userId, new ImageUploadCallback() {
-                                @Override
-                                public void onSuccess(Image image) {
-                                    callback.onSuccess(image);
-                                }
-
-                                @Override
-                                public void onFailure(Exception e) {
-                                    callback.onFailure(new DBOpFailed("Failed to get download data for new image"));
-
-                                }
-                            });
-                        }
-                    })
-                    .addOnFailureListener(new OnFailureListener() {
-                        @Override
-                        public void onFailure(@NonNull Exception e) {
-                            callback.onFailure(new DBOpFailed("Failed to delete old image"));
-                        }
-                    });
+        if (path == null) {
+            uploadImage(imageUri, userId, callback);
+            return;
         }
-        else {
-            uploadImage(imageUri, userId, new ImageUploadCallback() {
-                @Override
-                public void onSuccess(Image image) {
-                    callback.onSuccess(image);
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    callback.onFailure(new DBOpFailed("Failed to get download data for new image"));
-
-                }
-            });
+        if (imageUri == null) {
+            callback.onFailure(new IllegalArgumentException("Image URI is null"));
+            return;
         }
+        ImageUrlCache.invalidate(path);
+        upload(path, imageUri, new ImageUploadCallback() {
+            @Override
+            public void onSuccess(Image image) {
+                callback.onSuccess(image);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(new DBOpFailed("Failed to get download data for new image"));
+            }
+        });
     }
 
+    /**
+     * Deletes every event image: Used for testing
+     * @param onComplete
+     *      Callback to call when the operation is complete
+     */
     public static void clearImages(Runnable onComplete) {
-        imagesRef.listAll()
-                .addOnSuccessListener(new OnSuccessListener<ListResult>() {
-                    @Override
-                    public void onSuccess(ListResult listResult) {
-                        List<StorageReference> items = listResult.getItems();
+        clearImages(new BulkDeleteCallback() {
+            @Override
+            public void onProgress(int deleted) {}
 
-                        if (items.isEmpty())
-                            onComplete.run();
+            @Override
+            public void onSuccess(int deleted) {
+                Log.d("Image Controller", "Successfully cleared " + deleted + " images", null);
+                onComplete.run();
+            }
 
-                        List<Task<Void>> deletionTasks = new ArrayList<>();
-                        for(StorageReference item : items) {
-                            deletionTasks.add(item.delete());
-                        }
+            @Override
+            public void onFailure(Exception e) {
+                Log.d("Image Controller", "Failed to clear all images", e);
+                onComplete.run();
+            }
+        });
+    }
 
-                        Tasks.whenAll(deletionTasks)
-                                .addOnSuccessListener(unused -> {
-                                    Log.d("Image Controller", "Successfully cleared all images", null);
-                                    onComplete.run();
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.d("Image Controller", "Failed to clear all images", e);
-                                    onComplete.run();
-                                });
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Log.d("Image Controller", "Failed to list all images for deletion", e);
-                        onComplete.run();
-                    }
-                });
+    /**
+     * Deletes every event image and thumbnail, a listing page at a time with bounded parallel deletes
+     * @param callback
+     *      Callback to call with progress and when every image is deleted
+     * @return
+     *      Job that can be cancelled; calling clearImages again resumes it
+     */
+    public static BulkDeleter.Job clearImages(BulkDeleteCallback callback) {
+        ImageUrlCache.clear();
+        return BulkDeleter.purge(imagesRef, callback);
     }
 }
@@ -0,0 +1,189 @@
+package com.example.slices.controllers;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+
+import com.example.slices.models.ImageSizes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Prepares picked images for upload: decodes them downsampled, applies and drops their EXIF
+ * orientation, and re-encodes a capped full image and a small thumbnail as WebP.
+ * Re-encoding writes no metadata, so location and camera tags never leave the device.
+ * Runs on the caller's thread; ImageController calls it from a background executor.
+ * @version 1.0
+ */
+class ImageTranscoder {
+    static final String CONTENT_TYPE = "image/webp";
+
+    private static final int START_QUALITY = 85;
+    private static final int MIN_QUALITY = 40;
+    private static final int QUALITY_STEP = 10;
+
+    /**
+     * Encoded full image and thumbnail
+     */
+    static final class Encoded {
+        final byte[] full;
+        final byte[] thumb;
+
+        Encoded(byte[] full, byte[] thumb) {
+            this.full = full;
+            this.thumb = thumb;
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ImageTranscoder() {}
+
+    /**
+     * Decodes and re-encodes an image
+     * @param resolver
+     *      Resolver to open the image with
+     * @param uri
+     *      Uri of the picked image
+     * @return
+     *      Encoded full image and thumbnail
+     * @throws IOException
+     *      If the image cannot be read or decoded
+     */
+    static Encoded transcode(ContentResolver resolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image: " + uri);
+        }
+
+        int orientation = readOrientation(resolver, uri);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = ImageSizes.sampleSize(
+                bounds.outWidth, bounds.outHeight, ImageSizes.FULL_MAX_DIMENSION);
+        Bitmap decoded;
+        try (InputStream in = open(resolver, uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Not a decodable image: " + uri);
+        }
+
+        Bitmap oriented = orient(decoded, orientation);
+        Bitmap full = scale(oriented, ImageSizes.FULL_MAX_DIMENSION);
+        if (full != oriented) oriented.recycle();
+        Bitmap thumb = scale(full, ImageSizes.THUMB_MAX_DIMENSION);
+        try {
+            return new Encoded(
+                    encode(full, ImageSizes.FULL_MAX_BYTES),
+                    encode(thumb, ImageSizes.THUMB_MAX_BYTES));
+        } finally {
+            if (thumb != full) thumb.recycle();
+            full.recycle();
+        }
+    }
+
+    /**
+     * Reads an image's EXIF orientation. A missing or unreadable EXIF block is treated as upright,
+     * so an image with broken metadata is still re-encoded rather than rejected
+     */
+    private static int readOrientation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = open(resolver, uri)) {
+            return new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Cannot open " + uri);
+        }
+        return in;
+    }
+
+    /**
+     * Turns a bitmap upright according to its EXIF orientation, recycling the original
+     */
+    private static Bitmap orient(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                return bitmap;
+        }
+        Bitmap oriented = Bitmap.createBitmap(
+                bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (oriented != bitmap) bitmap.recycle();
+        return oriented;
+    }
+
+    /**
+     * Scales a bitmap to fit a limit, leaving the original to the caller
+     */
+    private static Bitmap scale(Bitmap bitmap, int maxDimension) {
+        int[] size = ImageSizes.fit(bitmap.getWidth(), bitmap.getHeight(), maxDimension);
+        if (size[0] == bitmap.getWidth() && size[1] == bitmap.getHeight()) {
+            return bitmap;
+        }
+        return Bitmap.createScaledBitmap(bitmap, size[0], size[1], true);
+    }
+
+    /**
+     * Encodes a bitmap, lowering quality until it fits the byte cap or reaches MIN_QUALITY
+     */
+    private static byte[] encode(Bitmap bitmap, int maxBytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int quality = START_QUALITY;
+        while (true) {
+            out.reset();
+            bitmap.compress(format(), quality, out);
+            if (out.size() <= maxBytes || quality <= MIN_QUALITY) {
+                return out.toByteArray();
+            }
+            quality = Math.max(MIN_QUALITY, quality - QUALITY_STEP);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat format() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+    }
+}
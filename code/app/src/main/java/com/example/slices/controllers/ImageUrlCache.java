@@ -0,0 +1,153 @@
+package com.example.slices.controllers;
+
+import com.example.slices.models.Image;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Cache of event image download URLs, keyed by the image's name in storage.
+ * Listing a catalog page resolves each image here first; images that are not cached are looked
+ * up on the events that use them with EventController.getStoredImages, and only images no event
+ * refers to cost a getDownloadUrl request. Download URLs stay valid until their token is revoked,
+ * so entries do not expire; ImageController.refreshImageUrl replaces a revoked one.
+ * @version 1.0
+ */
+public class ImageUrlCache {
+    /**
+     * Most images kept; the least recently used are dropped first
+     */
+    static final int MAX_ENTRIES = 500;
+
+    /**
+     * Images by name in access order; URLs resolved by a page listing that overlapped an upload or
+     * refreshImageUrl are not stored, so a revoked URL read from an event cannot replace the new one
+     */
+    private static final GuardedCache<String, Image> cache = new GuardedCache<>(
+            new LinkedHashMap<String, Image>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ImageUrlCache() {}
+
+    /**
+     * Resolves the download URLs of listed images
+     * Images whose URL cannot be found are left out
+     * @param items
+     *      Listed storage objects
+     * @param callback
+     *      Receives the resolved images, keyed by name
+     */
+    static void resolve(List<StorageReference> items, Consumer<Map<String, Image>> callback) {
+        Map<String, Image> images = new HashMap<>();
+        Map<String, StorageReference> missing = new LinkedHashMap<>();
+        long startGeneration = cache.generation();
+        for (StorageReference item : items) {
+            Image image = cache.lookup(item.getName(), cached -> true);
+            if (image != null) {
+                images.put(item.getName(), image);
+            } else {
+                missing.put(item.getName(), item);
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.accept(images);
+            return;
+        }
+
+        EventController.getStoredImages(new ArrayList<>(missing.keySet()))
+                .continueWith(task -> task.isSuccessful() ? task.getResult() : new ArrayList<Image>())
+                .addOnSuccessListener(stored -> {
+                    Map<String, Image> found = new HashMap<>();
+                    for (Image image : stored) {
+                        if (image.getUrl() != null && missing.containsKey(image.getPath())) {
+                            found.put(image.getPath(), image);
+                        }
+                    }
+
+                    List<String> names = new ArrayList<>();
+                    List<Task<?>> lookups = new ArrayList<>();
+                    for (Map.Entry<String, StorageReference> entry : missing.entrySet()) {
+                        if (!found.containsKey(entry.getKey())) {
+                            names.add(entry.getKey());
+                            lookups.add(entry.getValue().getDownloadUrl());
+                        }
+                    }
+                    Tasks.whenAllComplete(lookups).addOnSuccessListener(done -> {
+                        for (int i = 0; i < names.size(); i++) {
+                            Task<?> lookup = done.get(i);
+                            if (lookup.isSuccessful()) {
+                                found.put(names.get(i), new Image(names.get(i), String.valueOf(lookup.getResult())));
+                            }
+                        }
+                        cache.putAllIfCurrent(startGeneration, found);
+                        images.putAll(found);
+                        callback.accept(images);
+                    });
+                });
+    }
+
+    /**
+     * Gets a cached image
+     * @param name
+     *      Name of the image in storage
+     * @return
+     *      The cached image, or null
+     */
+    static Image get(String name) {
+        return cache.get(name);
+    }
+
+    /**
+     * Stores an image that was just uploaded or looked up
+     * @param image
+     *      Image with its path and URL
+     */
+    static void put(Image image) {
+        cache.put(image.getPath(), image);
+    }
+
+    /**
+     * Drops an image's cached URL
+     * @param name
+     *      Name of the image in storage
+     */
+    static void invalidate(String name) {
+        cache.remove(name);
+    }
+
+    /**
+     * Drops every cached URL
+     */
+    public static void clear() {
+        cache.clear();
+    }
+
+    public static long getHits() {
+        return cache.getHits();
+    }
+
+    public static long getMisses() {
+        return cache.getMisses();
+    }
+
+    /**
+     * Resets the hit and miss counters: Used for testing
+     */
+    public static void resetStats() {
+        cache.resetStats();
+    }
+}
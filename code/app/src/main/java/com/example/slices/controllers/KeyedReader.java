@@ -0,0 +1,126 @@
+package com.example.slices.controllers;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reads documents by their numeric "id" field.
+ * Events and entrants are written with document(String.valueOf(id)), so the document
+ * is first fetched directly by key. Only if that document does not exist is the
+ * whereEqualTo("id") query run, which covers legacy documents stored under another key.
+ * Counts which path served each read so the fallback can be retired once it stops firing.
+ * @version 1.0
+ */
+public class KeyedReader {
+    /**
+     * Reads served by document(id).get()
+     */
+    private static final AtomicLong keyedReads = new AtomicLong();
+    /**
+     * Reads served by the whereEqualTo("id") fallback query
+     */
+    private static final AtomicLong fallbackReads = new AtomicLong();
+    /**
+     * Reads that found no document on either path
+     */
+    private static final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private KeyedReader() {}
+
+    /**
+     * Reads a document by its numeric ID
+     * @param ref
+     *      Collection to read from
+     * @param id
+     *      Value of the "id" field, also used as the document key
+     * @param onResult
+     *      Receives the document, or null if no document has this ID
+     * @param onFailure
+     *      Receives the exception if a read fails
+     */
+    public static void read(CollectionReference ref, int id,
+                            Consumer<DocumentSnapshot> onResult, Consumer<Exception> onFailure) {
+        ref.document(String.valueOf(id))
+                .get()
+                .addOnSuccessListener(doc -> {
+                    if (doc.exists()) {
+                        keyedReads.incrementAndGet();
+                        onResult.accept(doc);
+                        return;
+                    }
+                    readByQuery(ref, id, onResult, onFailure);
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    /**
+     * Falls back to the legacy query for documents whose key is not their ID
+     * @param ref
+     *      Collection to read from
+     * @param id
+     *      Value of the "id" field
+     * @param onResult
+     *      Receives the document, or null if no document has this ID
+     * @param onFailure
+     *      Receives the exception if the query fails
+     */
+    private static void readByQuery(CollectionReference ref, int id,
+                                    Consumer<DocumentSnapshot> onResult, Consumer<Exception> onFailure) {
+        ref.whereEqualTo("id", id)
+                .limit(1)
+                .get()
+                .addOnSuccessListener(query -> {
+                    if (query.isEmpty()) {
+                        misses.incrementAndGet();
+                        onResult.accept(null);
+                        return;
+                    }
+                    fallbackReads.incrementAndGet();
+                    Logger.logSystem("Legacy key read served by query: " + ref.getId() + " id=" + id, null);
+                    onResult.accept(query.getDocuments().get(0));
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    /**
+     * Getter for the number of reads served by document key
+     * @return
+     *      Number of keyed reads
+     */
+    public static long getKeyedReads() {
+        return keyedReads.get();
+    }
+
+    /**
+     * Getter for the number of reads served by the fallback query
+     * @return
+     *      Number of fallback reads
+     */
+    public static long getFallbackReads() {
+        return fallbackReads.get();
+    }
+
+    /**
+     * Getter for the number of reads that found nothing
+     * @return
+     *      Number of misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Resets all counters: Used for testing
+     */
+    public static void resetStats() {
+        keyedReads.set(0);
+        fallbackReads.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,472 @@
+package com.example.slices.controllers;
+
+import android.annotation.SuppressLint;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.models.LogType;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Buffers Logger's DATABASE mode writes and commits them in WriteBatch chunks.
+ * Entries are held in a bounded queue and flushed when FLUSH_SIZE are waiting, after
+ * FLUSH_INTERVAL_MS, when the app goes to the background, or straight away for entries whose
+ * caller passed a callback. When the queue is full the oldest entry without a callback is
+ * dropped and counted; the count is written as a SYSTEM log with the next flush.
+ * Unwritten entries are saved to a file within PERSIST_DELAY_MS of being queued, and straight
+ * away when the app is backgrounded or a flush fails. init reloads them, so they survive process
+ * death, including a crash in the foreground. Saves are debounced, so a burst of entries costs
+ * one write. Document IDs are fixed when an entry is created, so an entry written twice is
+ * overwritten rather than duplicated.
+ * @version 1.0
+ */
+public class LogBuffer {
+    /**
+     * Entries waiting before a flush is triggered by size
+     */
+    static final int FLUSH_SIZE = 100;
+
+    /**
+     * Longest time an entry waits before a flush
+     */
+    static final long FLUSH_INTERVAL_MS = 5_000;
+
+    /**
+     * Longest time a queued entry waits before it is saved to the file
+     */
+    static final long PERSIST_DELAY_MS = 1_000;
+
+    /**
+     * Most entries held in memory
+     */
+    static final int CAPACITY = 1_000;
+
+    /**
+     * Firestore limit on writes in one batch
+     */
+    private static final int MAX_BATCH_OPS = 500;
+
+    private static final String FILE_NAME = "pending_logs.json";
+
+    @SuppressLint("StaticFieldLeak")
+    private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final ExecutorService disk = Executors.newSingleThreadExecutor();
+
+    /**
+     * A buffered entry and the caller waiting on it, if any
+     */
+    private static final class Item {
+        final Logger.PendingLog log;
+        final DBWriteCallback callback;
+
+        Item(Logger.PendingLog log, DBWriteCallback callback) {
+            this.log = log;
+            this.callback = callback;
+        }
+    }
+
+    private static final ArrayDeque<Item> queue = new ArrayDeque<>();
+    /**
+     * Entries in the batch being committed, kept so a save during a flush still includes them
+     */
+    private static List<Item> committing = new ArrayList<>();
+    private static boolean flushing = false;
+    private static boolean timerPending = false;
+    private static boolean persistPending = false;
+    private static long dropped = 0;
+    private static long unreportedDrops = 0;
+    private static File file;
+
+    private static final Runnable timerFlush = () -> {
+        synchronized (queue) {
+            timerPending = false;
+        }
+        flush();
+    };
+
+    private static final Runnable timerPersist = () -> {
+        synchronized (queue) {
+            persistPending = false;
+        }
+        persist();
+    };
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private LogBuffer() {}
+
+    /**
+     * Enables local persistence, reloads entries saved by an earlier process and flushes
+     * whenever the app leaves the foreground
+     * @param context
+     *      Any context, the application context is kept
+     */
+    static void init(Context context) {
+        Context app = context.getApplicationContext();
+        synchronized (queue) {
+            if (file != null) {
+                return;
+            }
+            file = new File(app.getFilesDir(), FILE_NAME);
+        }
+        app.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                    flush();
+                    persist();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+
+            @Override
+            public void onLowMemory() {}
+        });
+        disk.execute(LogBuffer::restore);
+    }
+
+    /**
+     * Queues an entry for the next flush
+     * @param log
+     *      Entry to write
+     * @param callback
+     *      Called once the entry is written or fails, may be null. Entries with a callback are
+     *      flushed straight away and are never dropped
+     */
+    static void add(Logger.PendingLog log, DBWriteCallback callback) {
+        boolean flushNow;
+        synchronized (queue) {
+            if (queue.size() >= CAPACITY && !evictOldest()) {
+                if (callback == null) {
+                    dropped++;
+                    unreportedDrops++;
+                    return;
+                }
+            }
+            queue.add(new Item(log, callback));
+            flushNow = callback != null || queue.size() >= FLUSH_SIZE;
+            if (!flushNow && !timerPending) {
+                timerPending = true;
+                handler.postDelayed(timerFlush, FLUSH_INTERVAL_MS);
+            }
+            if (file != null && !persistPending) {
+                persistPending = true;
+                handler.postDelayed(timerPersist, PERSIST_DELAY_MS);
+            }
+        }
+        if (flushNow) {
+            handler.post(LogBuffer::flush);
+        }
+    }
+
+    /**
+     * Drops the oldest entry nobody is waiting on
+     * @return
+     *      True if an entry was dropped
+     */
+    private static boolean evictOldest() {
+        Iterator<Item> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().callback == null) {
+                it.remove();
+                dropped++;
+                unreportedDrops++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Commits up to one batch of queued entries. Only one flush runs at a time; when it
+     * finishes another is started if enough entries are still waiting
+     */
+    static void flush() {
+        List<Item> items = new ArrayList<>();
+        long drops;
+        synchronized (queue) {
+            if (flushing || queue.isEmpty()) {
+                return;
+            }
+            flushing = true;
+            drops = unreportedDrops;
+            unreportedDrops = 0;
+            int limit = drops > 0 ? MAX_BATCH_OPS - 1 : MAX_BATCH_OPS;
+            while (!queue.isEmpty() && items.size() < limit) {
+                items.add(queue.poll());
+            }
+            committing = items;
+        }
+
+        WriteBatch batch = db.batch();
+        for (Item item : items) {
+            Logger.addToBatch(batch, item.log);
+        }
+        if (drops > 0) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("message", "Dropped " + drops + " log entries under backpressure");
+            Logger.addToBatch(batch, Logger.newPendingLog(LogType.SYSTEM, "System message", data));
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    for (Item item : items) {
+                        if (item.callback != null) item.callback.onSuccess();
+                    }
+                    finishFlush(true);
+                })
+                .addOnFailureListener(e -> {
+                    Log.w("Logger", "Log flush of " + items.size() + " entries failed", e);
+                    synchronized (queue) {
+                        committing = new ArrayList<>();
+                        unreportedDrops += drops;
+                        // Put unclaimed entries back at the front, oldest first, while there is room
+                        for (int i = items.size() - 1; i >= 0; i--) {
+                            Item item = items.get(i);
+                            if (item.callback != null) {
+                                continue;
+                            }
+                            if (queue.size() < CAPACITY) {
+                                queue.addFirst(item);
+                            } else {
+                                dropped++;
+                                unreportedDrops++;
+                            }
+                        }
+                    }
+                    for (Item item : items) {
+                        if (item.callback != null) item.callback.onFailure(e);
+                    }
+                    persist();
+                    finishFlush(false);
+                });
+    }
+
+    /**
+     * Ends a flush and schedules the next one
+     * @param succeeded
+     *      Whether the flush committed
+     */
+    private static void finishFlush(boolean succeeded) {
+        boolean again;
+        boolean empty;
+        synchronized (queue) {
+            flushing = false;
+            committing = new ArrayList<>();
+            empty = queue.isEmpty();
+            again = succeeded && (queue.size() >= FLUSH_SIZE || hasCallbacks());
+            if (!again && !empty && !timerPending) {
+                timerPending = true;
+                handler.postDelayed(timerFlush, FLUSH_INTERVAL_MS);
+            }
+        }
+        if (again) {
+            handler.post(LogBuffer::flush);
+        } else if (succeeded && empty) {
+            disk.execute(LogBuffer::deleteFile);
+        }
+    }
+
+    private static boolean hasCallbacks() {
+        for (Item item : queue) {
+            if (item.callback != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Saves the queued entries to local storage, replacing any earlier save; the file is
+     * deleted if nothing is waiting
+     */
+    static void persist() {
+        JSONArray array = new JSONArray();
+        synchronized (queue) {
+            if (file == null) {
+                return;
+            }
+            List<Item> items = new ArrayList<>(committing);
+            items.addAll(queue);
+            if (items.isEmpty()) {
+                disk.execute(LogBuffer::deleteFile);
+                return;
+            }
+            for (Item item : items) {
+                try {
+                    array.put(toJson(item.log));
+                } catch (JSONException e) {
+                    Log.w("Logger", "Could not save log entry", e);
+                }
+            }
+        }
+        byte[] bytes = array.toString().getBytes(StandardCharsets.UTF_8);
+        disk.execute(() -> {
+            File tmp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(bytes);
+                out.getFD().sync();
+            } catch (IOException e) {
+                Log.w("Logger", "Could not save pending logs", e);
+                return;
+            }
+            if (!tmp.renameTo(file)) {
+                Log.w("Logger", "Could not replace pending log file");
+            }
+        });
+    }
+
+    /**
+     * Reloads entries saved by an earlier process; runs on the disk executor
+     */
+    private static void restore() {
+        if (!file.exists()) {
+            return;
+        }
+        List<Logger.PendingLog> logs = new ArrayList<>();
+        try {
+            String json = new String(readFile(), StandardCharsets.UTF_8);
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) {
+                logs.add(fromJson(array.getJSONObject(i)));
+            }
+        } catch (IOException | JSONException | IllegalArgumentException e) {
+            Log.w("Logger", "Discarding unreadable pending log file", e);
+            deleteFile();
+            return;
+        }
+        Log.d("Logger", "Restored " + logs.size() + " pending log entries");
+        for (Logger.PendingLog log : logs) {
+            add(log, null);
+        }
+        handler.post(LogBuffer::flush);
+    }
+
+    private static byte[] readFile() throws IOException {
+        try (FileInputStream in = new FileInputStream(file);
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void deleteFile() {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.w("Logger", "Could not delete pending log file");
+        }
+    }
+
+    private static JSONObject toJson(Logger.PendingLog log) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("path", log.getRef().getPath());
+        json.put("type", log.getType().name());
+        json.put("description", log.getDescription());
+        json.put("seconds", log.getTimestamp().getSeconds());
+        json.put("nanos", log.getTimestamp().getNanoseconds());
+        JSONObject data = new JSONObject();
+        if (log.getData() != null) {
+            for (Map.Entry<String, Object> entry : log.getData().entrySet()) {
+                data.put(entry.getKey(), JSONObject.wrap(entry.getValue()));
+            }
+        }
+        json.put("data", data);
+        return json;
+    }
+
+    private static Logger.PendingLog fromJson(JSONObject json) throws JSONException {
+        Map<String, Object> data = new HashMap<>();
+        JSONObject stored = json.getJSONObject("data");
+        Iterator<String> keys = stored.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = stored.get(key);
+            if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                List<Object> list = new ArrayList<>();
+                for (int i = 0; i < array.length(); i++) {
+                    list.add(array.get(i));
+                }
+                value = list;
+            }
+            data.put(key, value);
+        }
+        return new Logger.PendingLog(db.document(json.getString("path")),
+                LogType.valueOf(json.getString("type")),
+                json.getString("description"),
+                data,
+                new Timestamp(json.getLong("seconds"), json.getInt("nanos")));
+    }
+
+    /**
+     * Drops everything queued without writing it: Used when clearing logs in tests
+     */
+    static void discard() {
+        List<Item> items;
+        synchronized (queue) {
+            items = new ArrayList<>(queue);
+            queue.clear();
+            unreportedDrops = 0;
+        }
+        for (Item item : items) {
+            if (item.callback != null) {
+                item.callback.onFailure(new IllegalStateException("Log discarded"));
+            }
+        }
+        if (file != null) {
+            disk.execute(LogBuffer::deleteFile);
+        }
+    }
+
+    /**
+     * @return
+     *      Entries dropped under backpressure since the process started
+     */
+    static long getDropped() {
+        synchronized (queue) {
+            return dropped;
+        }
+    }
+
+    /**
+     * @return
+     *      Entries waiting to be written
+     */
+    static int getPending() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+}
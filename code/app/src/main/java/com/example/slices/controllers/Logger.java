@@ -2,22 +2,25 @@ package com.example.slices.controllers;
 
 
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.util.Log;
 
+import com.example.slices.interfaces.BulkDeleteCallback;
 import com.example.slices.interfaces.DBWriteCallback;
 
 import com.example.slices.interfaces.LogListCallback;
 
 import com.example.slices.models.LogEntry;
 import com.example.slices.models.LogType;
+import com.example.slices.models.Lottery;
 
-import com.google.android.gms.tasks.Task;
-import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 
 import java.util.ArrayList;
@@ -27,9 +30,9 @@ import java.util.Map;
 /**
  * Singleton class to log notifications.
  * Handles creating log entries, assigning IDs, writing to the database, and logging.
- * Uses DBConnector for database operations.
+ * In database mode entries are buffered by LogBuffer and written in batches.
  * @author Ryan Haubrich
- * @version 1.0
+ * @version 1.1
  */
 public class Logger {
     /**
@@ -104,27 +107,166 @@ public class Logger {
      */
     public static void logAction(LogType type, String description, Map<String, Object> data, DBWriteCallback callback) {
         if (mode == Mode.LOCAL) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("[").append(type).append("] ").append(description);
-
-            if (data != null && !data.isEmpty()) {
-                sb.append(" | data=");
-                sb.append(data.toString());
-            }
-            Log.d("Logger", sb.toString());
+            logLocal(type, description, data);
             if (callback != null) callback.onSuccess();
             return;
         }
-        DocumentReference ref = logRef.document();
-        String id = ref.getId();
-        LogEntry entry = new LogEntry(id, Timestamp.now(), description, type, data);
-        ref.set(entry)
-                .addOnSuccessListener(aVoid -> {
-                    if (callback != null) callback.onSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    if (callback != null) callback.onFailure(e);
-                });
+        LogBuffer.add(newPendingLog(type, description, data), callback);
+    }
+
+    /**
+     * Enables local persistence of unwritten DATABASE mode logs and flushes them when the
+     * app is backgrounded. Call once at startup
+     *
+     * @param context Any context, the application context is kept
+     */
+    public static void init(Context context) {
+        LogBuffer.init(context);
+    }
+
+    /**
+     * Writes buffered logs now instead of waiting for the size or time trigger
+     */
+    public static void flush() {
+        LogBuffer.flush();
+    }
+
+    /**
+     * Gets the number of log entries dropped because the buffer was full
+     *
+     * @return Dropped entry count since the process started
+     */
+    public static long getDroppedCount() {
+        return LogBuffer.getDropped();
+    }
+
+    /**
+     * Gets the number of log entries waiting to be written
+     *
+     * @return Buffered entry count
+     */
+    public static int getPendingCount() {
+        return LogBuffer.getPending();
+    }
+
+    /**
+     * Prepares a log entry to be written as part of a caller's WriteBatch.
+     * In local mode the entry is printed straight away and nothing needs writing.
+     *
+     * @param type        Type of action to log
+     * @param description Description of the action
+     * @param data        Data associated with the action
+     * @return
+     *      Pending entry to pass to addToBatch, or null if there is nothing to write
+     */
+    public static PendingLog prepareAction(LogType type, String description, Map<String, Object> data) {
+        if (mode == Mode.LOCAL) {
+            logLocal(type, description, data);
+            return null;
+        }
+        return newPendingLog(type, description, data);
+    }
+
+    /**
+     * Creates an entry in the current log collection with its document ID fixed
+     *
+     * @param type        Type of action to log
+     * @param description Description of the action
+     * @param data        Data associated with the action
+     * @return Pending entry
+     */
+    static PendingLog newPendingLog(LogType type, String description, Map<String, Object> data) {
+        return new PendingLog(logRef.document(), type, description, data, Timestamp.now());
+    }
+
+    /**
+     * Adds a prepared log entry to a batch. Writing the same entry again overwrites it,
+     * so a retried batch never duplicates a log.
+     *
+     * @param batch
+     *      Batch to add the write to
+     * @param log
+     *      Entry from prepareAction, may be null
+     */
+    public static void addToBatch(WriteBatch batch, PendingLog log) {
+        if (log != null) {
+            batch.set(log.ref, log.toEntry());
+        }
+    }
+
+    /**
+     * Adds a prepared log entry to a transaction
+     *
+     * @param transaction
+     *      Transaction to add the write to
+     * @param log
+     *      Entry from prepareAction, may be null
+     */
+    public static void addToTransaction(Transaction transaction, PendingLog log) {
+        if (log != null) {
+            transaction.set(log.ref, log.toEntry());
+        }
+    }
+
+    /**
+     * Prints a log entry to logcat
+     *
+     * @param type        Type of action to log
+     * @param description Description of the action
+     * @param data        Data associated with the action
+     */
+    private static void logLocal(LogType type, String description, Map<String, Object> data) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[").append(type).append("] ").append(description);
+
+        if (data != null && !data.isEmpty()) {
+            sb.append(" | data=");
+            sb.append(data.toString());
+        }
+        Log.d("Logger", sb.toString());
+    }
+
+    /**
+     * Log entry waiting to be written in a batch
+     */
+    public static final class PendingLog {
+        private final DocumentReference ref;
+        private final LogType type;
+        private final String description;
+        private final Map<String, Object> data;
+        private final Timestamp timestamp;
+
+        PendingLog(DocumentReference ref, LogType type, String description, Map<String, Object> data, Timestamp timestamp) {
+            this.ref = ref;
+            this.type = type;
+            this.description = description;
+            this.data = data;
+            this.timestamp = timestamp;
+        }
+
+        LogEntry toEntry() {
+            return new LogEntry(ref.getId(), timestamp, description, type, data);
+        }
+
+        DocumentReference getRef() {
+            return ref;
+        }
+
+        LogType getType() {
+            return type;
+        }
+
+        String getDescription() {
+            return description;
+        }
+
+        Map<String, Object> getData() {
+            return data;
+        }
+
+        Timestamp getTimestamp() {
+            return timestamp;
+        }
     }
 
     /**
@@ -224,6 +366,22 @@ public class Logger {
         logAction(LogType.LOTTERY_RUN, "Lottery run", data, callback);
     }
 
+    /**
+     * Logs a lottery draw with everything needed to repeat it with Lottery.verify
+     *
+     * @param eventId
+     *      ID of the event
+     * @param draw
+     *      The draw that was made
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void logLotteryRun(int eventId, Lottery.Draw draw, DBWriteCallback callback) {
+        Map<String, Object> data = draw.toRecord();
+        data.put("eventId", eventId);
+        logAction(LogType.LOTTERY_RUN, "Lottery run", data, callback);
+    }
+
     /**
      * Logs an invitation sent from an event to an entrant
      *
@@ -239,6 +397,21 @@ public class Logger {
         logAction(LogType.INVITATION_SENT, "Invitation sent from " + eventId + " to " + entrantId, data, callback);
     }
 
+    /**
+     * Prepares an invitation log for a batch, see logInvSent
+     *
+     * @param eventId
+     *      ID of the event
+     * @param entrantId
+     *      ID of the recipient entrant
+     * @return
+     *      Pending entry, or null in local mode
+     */
+    public static PendingLog prepareInvSent(int eventId, int entrantId) {
+        Map<String, Object> data = Map.of("eventId", eventId, "entrantId", entrantId);
+        return prepareAction(LogType.INVITATION_SENT, "Invitation sent from " + eventId + " to " + entrantId, data);
+    }
+
     /**
      * Logs an invitation acceptance by an entrant
      *
@@ -312,11 +485,45 @@ public class Logger {
         logAction(LogType.NOTIFICATION_SENT, "Notification", data, callback);
     }
 
+    /**
+     * Prepares a notification log for a batch, see logNotification
+     *
+     * @param message
+     *      The notification message content
+     * @param recipientId
+     *      ID of the message recipient
+     * @param senderId
+     *      ID of the message sender
+     * @return
+     *      Pending entry, or null in local mode
+     */
+    public static PendingLog prepareNotification(String message, int recipientId, int senderId) {
+        Map<String, Object> data = Map.of("message", message, "recipientId", recipientId, "senderId", senderId);
+        return prepareAction(LogType.NOTIFICATION_SENT, "Notification", data);
+    }
+
     public static void logNotSelected(String message, int recipientId, int senderId, DBWriteCallback callback) {
         Map<String, Object> data = Map.of("message", message, "recipientId", recipientId, "senderId", senderId);
         logAction(LogType.NOTSELECTED_SENT, "NotSelected", data, callback);
     }
 
+    /**
+     * Prepares a not-selected log for a batch, see logNotSelected
+     *
+     * @param message
+     *      The notification message content
+     * @param recipientId
+     *      ID of the message recipient
+     * @param senderId
+     *      ID of the message sender
+     * @return
+     *      Pending entry, or null in local mode
+     */
+    public static PendingLog prepareNotSelected(String message, int recipientId, int senderId) {
+        Map<String, Object> data = Map.of("message", message, "recipientId", recipientId, "senderId", senderId);
+        return prepareAction(LogType.NOTSELECTED_SENT, "NotSelected", data);
+    }
+
     /**
      * Logs a modification to an event's waitlist
      *
@@ -409,19 +616,19 @@ public class Logger {
      * Runnable to execute once all logs have been cleared or if an error occurs
      */
     public static void clearLogs(Runnable onComplete) {
-        logRef.get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<Task<Void>> deleteTasks = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        deleteTasks.add(logRef.document(doc.getId()).delete());
-                    }
-                    // Wait for all deletes to finish
-                    Tasks.whenAll(deleteTasks)
-                            .addOnSuccessListener(aVoid -> onComplete.run());
-                })
-                .addOnFailureListener(e -> {
-                    System.out.println("Failed to clear logs: " + e.getMessage());
-                    onComplete.run();
-                });
+        clearLogs(BulkDeleter.completing(onComplete));
+    }
+
+    /**
+     * Drops buffered logs and deletes every stored log in batches
+     *
+     * @param callback
+     * Callback to call with progress and when every log is deleted
+     * @return
+     * Job that can be cancelled; calling clearLogs again resumes it
+     */
+    public static BulkDeleter.Job clearLogs(BulkDeleteCallback callback) {
+        LogBuffer.discard();
+        return BulkDeleter.of(logRef).start(callback);
     }
 }
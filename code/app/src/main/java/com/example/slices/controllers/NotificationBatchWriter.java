@@ -0,0 +1,254 @@
+package com.example.slices.controllers;
+
+import android.annotation.SuppressLint;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.slices.models.BulkSendResult;
+import com.example.slices.models.Notification;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes notifications for many recipients in WriteBatch commits.
+ * Each recipient's notification, its unread counter increment and its log entry go in the same
+ * batch, batches hold at most MAX_BATCH_OPS writes, and at most MAX_IN_FLIGHT batches are
+ * committed at once. A batch that fails with a transient error is retried in a transaction that
+ * writes nothing if the failed commit was applied after all, so a retry never counts a
+ * notification twice. Document IDs are fixed before the first attempt, which is what lets the
+ * retry find them.
+ * @version 1.0
+ */
+public class NotificationBatchWriter {
+    /**
+     * Firestore limit on writes in one batch
+     */
+    static final int MAX_BATCH_OPS = 500;
+
+    /**
+     * Batches committed at the same time
+     */
+    static final int MAX_IN_FLIGHT = 4;
+
+    /**
+     * Attempts per batch before its recipients are reported as failed
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Delay before the first retry, doubled for each later one
+     */
+    private static final long RETRY_DELAY_MS = 250;
+
+    @SuppressLint("StaticFieldLeak")
+    private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private NotificationBatchWriter() {}
+
+    /**
+     * Writes for a single recipient
+     */
+    static final class Delivery {
+        final int recipientId;
+        final DocumentReference ref;
+        final Notification notification;
+        final Logger.PendingLog log;
+
+        /**
+         * @param recipientId
+         *      ID of the recipient
+         * @param ref
+         *      Document to write the notification to
+         * @param notification
+         *      Notification to write
+         * @param log
+         *      Log entry to write with it, or null
+         */
+        Delivery(int recipientId, DocumentReference ref, Notification notification, Logger.PendingLog log) {
+            this.recipientId = recipientId;
+            this.ref = ref;
+            this.notification = notification;
+            this.log = log;
+        }
+
+        int ops() {
+            int ops = notification.getActive() ? 2 : 1;
+            return log == null ? ops : ops + 1;
+        }
+    }
+
+    /**
+     * Writes all deliveries and records the outcome of each in the result
+     * @param deliveries
+     *      Writes to make
+     * @param result
+     *      Result to record delivered and failed recipients in
+     * @param onComplete
+     *      Run once every batch has committed or run out of attempts
+     */
+    static void write(List<Delivery> deliveries, BulkSendResult result, Runnable onComplete) {
+        List<List<Delivery>> chunks = chunk(deliveries);
+        if (chunks.isEmpty()) {
+            onComplete.run();
+            return;
+        }
+        AtomicInteger next = new AtomicInteger(0);
+        AtomicInteger remaining = new AtomicInteger(chunks.size());
+        Runnable[] pump = new Runnable[1];
+        pump[0] = () -> {
+            int index = next.getAndIncrement();
+            if (index >= chunks.size()) {
+                return;
+            }
+            commit(chunks.get(index), 1, result, () -> {
+                if (remaining.decrementAndGet() == 0) {
+                    onComplete.run();
+                } else {
+                    pump[0].run();
+                }
+            });
+        };
+        for (int i = 0; i < Math.min(MAX_IN_FLIGHT, chunks.size()); i++) {
+            pump[0].run();
+        }
+    }
+
+    /**
+     * Splits deliveries into groups that fit in one batch, never splitting a recipient's writes
+     * @param deliveries
+     *      Writes to make
+     * @return
+     *      Groups of deliveries
+     */
+    static List<List<Delivery>> chunk(List<Delivery> deliveries) {
+        List<List<Delivery>> chunks = new ArrayList<>();
+        List<Delivery> current = new ArrayList<>();
+        int ops = 0;
+        for (Delivery delivery : deliveries) {
+            if (ops + delivery.ops() > MAX_BATCH_OPS) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                ops = 0;
+            }
+            current.add(delivery);
+            ops += delivery.ops();
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Commits one group, retrying transient failures
+     * @param chunk
+     *      Deliveries in the group
+     * @param attempt
+     *      Attempt number, starting at 1
+     * @param result
+     *      Result to record outcomes in
+     * @param onDone
+     *      Run once the group has committed or been given up on
+     */
+    private static void commit(List<Delivery> chunk, int attempt, BulkSendResult result, Runnable onDone) {
+        Task<Void> write = attempt == 1 ? writeBatch(chunk) : rewrite(chunk);
+        write
+                .addOnSuccessListener(aVoid -> {
+                    for (Delivery delivery : chunk) {
+                        result.addDelivered(delivery.recipientId);
+                    }
+                    onDone.run();
+                })
+                .addOnFailureListener(e -> {
+                    if (attempt < MAX_ATTEMPTS && isTransient(e)) {
+                        Logger.logError("Notification batch attempt " + attempt + " failed, retrying: " + e.getMessage(), null);
+                        handler.postDelayed(() -> commit(chunk, attempt + 1, result, onDone),
+                                RETRY_DELAY_MS << (attempt - 1));
+                        return;
+                    }
+                    Logger.logError("Notification batch of " + chunk.size() + " recipients failed: " + e.getMessage(), null);
+                    for (Delivery delivery : chunk) {
+                        result.addFailed(delivery.recipientId, e);
+                    }
+                    onDone.run();
+                });
+    }
+
+    /**
+     * Writes a group in one batch. Its notification IDs are new, so none of its documents exist yet
+     * @param chunk
+     *      Deliveries in the group
+     * @return
+     *      Task that completes when the batch is committed
+     */
+    private static Task<Void> writeBatch(List<Delivery> chunk) {
+        WriteBatch batch = db.batch();
+        for (Delivery delivery : chunk) {
+            batch.set(delivery.ref, delivery.notification);
+            if (delivery.notification.getActive()) {
+                NotificationManager.countUnread(batch, delivery.recipientId, 1);
+            }
+            Logger.addToBatch(batch, delivery.log);
+        }
+        return batch.commit();
+    }
+
+    /**
+     * Writes a group again after a failed commit. A commit that reported a failure may still have
+     * been applied, and its counter increments must not be applied twice. A batch is all or nothing,
+     * so the transaction checks the group's first notification and writes nothing if it exists
+     * @param chunk
+     *      Deliveries in the group
+     * @return
+     *      Task that completes when the transaction is committed
+     */
+    private static Task<Void> rewrite(List<Delivery> chunk) {
+        return db.runTransaction(transaction -> {
+            if (transaction.get(chunk.get(0).ref).exists()) {
+                return null;
+            }
+            for (Delivery delivery : chunk) {
+                transaction.set(delivery.ref, delivery.notification);
+                if (delivery.notification.getActive()) {
+                    NotificationManager.countUnread(transaction, delivery.recipientId, 1);
+                }
+                Logger.addToTransaction(transaction, delivery.log);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Checks if a failed commit is worth retrying
+     * @param e
+     *      Failure of the commit
+     * @return
+     *      True for errors that may succeed on another attempt
+     */
+    private static boolean isTransient(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) {
+            return false;
+        }
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case ABORTED:
+            case DEADLINE_EXCEEDED:
+            case INTERNAL:
+            case RESOURCE_EXHAUSTED:
+            case UNAVAILABLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
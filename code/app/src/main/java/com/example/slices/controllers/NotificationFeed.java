@@ -0,0 +1,304 @@
+package com.example.slices.controllers;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.slices.interfaces.NotificationFeedListener;
+import com.example.slices.models.Notification;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Live, windowed view of the notifications a query returns, newest first.
+ * The newest WINDOW_SIZE notifications are kept live by one limited snapshot listener, and each
+ * snapshot's document changes are applied one at a time instead of rebuilding the list. Older
+ * notifications are read a page at a time with a cursor when loadMore is called and are not live.
+ * Notifications pushed out of the window by newer ones stay in the feed below it.
+ * The listener is attached while the bound lifecycle is started and removed when it stops;
+ * the first snapshot after attaching replaces the feed so the adapter can diff it.
+ * @version 1.0
+ */
+public class NotificationFeed implements DefaultLifecycleObserver {
+    /**
+     * Newest notifications kept live
+     */
+    public static final int WINDOW_SIZE = 50;
+
+    /**
+     * Older notifications read per page
+     */
+    public static final int PAGE_SIZE = 25;
+
+    private final Query query;
+    private final Function<DocumentSnapshot, Notification> convert;
+    private final NotificationFeedListener listener;
+
+    /**
+     * Documents in the feed; the first liveCount are in the live window
+     */
+    private final List<DocumentSnapshot> docs = new ArrayList<>();
+    private int liveCount = 0;
+
+    private ListenerRegistration registration;
+    private boolean resync = true;
+    private boolean loading = false;
+    private boolean exhausted = false;
+
+    /**
+     * Bumped on every attach so pages read before it are dropped
+     */
+    private int generation = 0;
+
+    /**
+     * @param query
+     *      Query ordered by timestamp, newest first, without a limit
+     * @param convert
+     *      Turns a document into the notification to show; must not return null, as the feed
+     *      mirrors the query's positions
+     * @param listener
+     *      Listener to apply updates to, usually the adapter
+     */
+    public NotificationFeed(Query query, Function<DocumentSnapshot, Notification> convert,
+                            NotificationFeedListener listener) {
+        this.query = query;
+        this.convert = convert;
+        this.listener = listener;
+    }
+
+    /**
+     * Keeps the feed live while a lifecycle is started
+     * @param owner
+     *      Lifecycle to follow, such as a fragment's view lifecycle
+     */
+    public void bind(LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(this);
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        attach();
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        detach();
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        detach();
+        owner.getLifecycle().removeObserver(this);
+    }
+
+    /**
+     * Reads the next older page and appends it; does nothing while a page is loading or
+     * every notification is already in the feed
+     */
+    public void loadMore() {
+        if (loading || exhausted || resync || docs.isEmpty()) {
+            return;
+        }
+        loading = true;
+        int current = generation;
+        query.startAfter(docs.get(docs.size() - 1))
+                .limit(PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(page -> {
+                    if (current != generation) return;
+                    loading = false;
+                    exhausted = page.size() < PAGE_SIZE;
+                    Set<String> shown = ids(docs);
+                    List<Notification> added = new ArrayList<>();
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        if (shown.add(doc.getId())) {
+                            docs.add(doc);
+                            added.add(convert.apply(doc));
+                        }
+                    }
+                    if (!added.isEmpty()) {
+                        listener.onAppended(added);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    if (current != generation) return;
+                    loading = false;
+                    Logger.logError("Failed to load older notifications: " + e.getMessage(), null);
+                });
+    }
+
+    /**
+     * Attaches the window listener if it is not attached
+     */
+    private void attach() {
+        if (registration != null) {
+            return;
+        }
+        generation++;
+        resync = true;
+        loading = false;
+        registration = query.limit(WINDOW_SIZE).addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                Logger.logError("Notification feed listener failed: " + error.getMessage(), null);
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            if (resync) {
+                resync = false;
+                replace(snapshot);
+            } else {
+                apply(snapshot);
+            }
+        });
+    }
+
+    /**
+     * Removes the window listener
+     */
+    private void detach() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    /**
+     * Replaces the feed with a snapshot, keeping older notifications already read below it
+     */
+    private void replace(QuerySnapshot snapshot) {
+        List<DocumentSnapshot> next = new ArrayList<>(snapshot.getDocuments());
+        int live = next.size();
+        if (live < WINDOW_SIZE) {
+            exhausted = true;
+        } else {
+            DocumentSnapshot last = next.get(live - 1);
+            Set<String> inWindow = ids(next);
+            for (DocumentSnapshot doc : docs) {
+                if (!inWindow.contains(doc.getId()) && sortsAfter(doc, last)) next.add(doc);
+            }
+            exhausted = exhausted && next.size() > live;
+        }
+        docs.clear();
+        docs.addAll(next);
+        liveCount = live;
+        List<Notification> notifications = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            notifications.add(convert.apply(doc));
+        }
+        listener.onReplaced(notifications);
+    }
+
+    /**
+     * Applies a snapshot's changes to the live window in order
+     */
+    private void apply(QuerySnapshot snapshot) {
+        List<DocumentSnapshot> removed = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            DocumentSnapshot doc = change.getDocument();
+            switch (change.getType()) {
+                case ADDED: {
+                    // A notification read in an older page can move up into the window
+                    int older = indexOf(doc.getId(), liveCount);
+                    if (older >= 0) {
+                        docs.remove(older);
+                        listener.onRemoved(older);
+                    }
+                    removed.removeIf(d -> d.getId().equals(doc.getId()));
+                    docs.add(change.getNewIndex(), doc);
+                    liveCount++;
+                    listener.onInserted(change.getNewIndex(), convert.apply(doc));
+                    break;
+                }
+                case MODIFIED: {
+                    int from = change.getOldIndex();
+                    int to = change.getNewIndex();
+                    docs.remove(from);
+                    docs.add(to, doc);
+                    if (from != to) {
+                        listener.onMoved(from, to);
+                    }
+                    listener.onChanged(to, convert.apply(doc));
+                    break;
+                }
+                case REMOVED: {
+                    int position = change.getOldIndex();
+                    docs.remove(position);
+                    liveCount--;
+                    listener.onRemoved(position);
+                    removed.add(doc);
+                    break;
+                }
+            }
+        }
+        // A full window drops its oldest notification when a newer one arrives; anything removed
+        // that sorts after the new last notification was pushed out, not deleted, so keep it below
+        if (removed.isEmpty() || snapshot.size() < WINDOW_SIZE || liveCount == 0) {
+            return;
+        }
+        DocumentSnapshot last = docs.get(liveCount - 1);
+        removed.sort((a, b) -> sortsAfter(a, b) ? 1 : sortsAfter(b, a) ? -1 : 0);
+        int position = liveCount;
+        for (DocumentSnapshot doc : removed) {
+            if (sortsAfter(doc, last)) {
+                docs.add(position, doc);
+                listener.onInserted(position, convert.apply(doc));
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Finds a document in the feed
+     * @param id
+     *      Document ID
+     * @param from
+     *      First position to look at
+     * @return
+     *      Position of the document, or -1
+     */
+    private int indexOf(String id, int from) {
+        for (int i = from; i < docs.size(); i++) {
+            if (docs.get(i).getId().equals(id)) return i;
+        }
+        return -1;
+    }
+
+    private static Set<String> ids(List<DocumentSnapshot> docs) {
+        Set<String> ids = new HashSet<>();
+        for (DocumentSnapshot doc : docs) {
+            ids.add(doc.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Checks if one document comes after another in the feed's order
+     * @param a
+     *      Document to check
+     * @param b
+     *      Document to compare with
+     * @return
+     *      True if a is older than b, with ties broken by document ID as Firestore does
+     */
+    static boolean sortsAfter(DocumentSnapshot a, DocumentSnapshot b) {
+        Timestamp ta = a.getTimestamp("timestamp");
+        Timestamp tb = b.getTimestamp("timestamp");
+        if (ta == null || tb == null) {
+            return false;
+        }
+        int order = ta.compareTo(tb);
+        return order != 0 ? order < 0 : a.getId().compareTo(b.getId()) < 0;
+    }
+}
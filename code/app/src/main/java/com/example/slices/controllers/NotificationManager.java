@@ -6,39 +6,56 @@ import android.annotation.SuppressLint;
 
 import com.example.slices.exceptions.DBOpFailed;
 import com.example.slices.exceptions.NotificationNotFound;
+import com.example.slices.interfaces.BulkDeleteCallback;
+import com.example.slices.interfaces.BulkSendCallback;
 import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.interfaces.NotificationCallback;
 import com.example.slices.interfaces.NotificationListCallback;
+import com.example.slices.interfaces.NotificationPageCallback;
+import com.example.slices.interfaces.UnreadCountCallback;
+import com.example.slices.models.BulkSendResult;
 import com.example.slices.models.Entrant;
 import com.example.slices.models.Event;
 import com.example.slices.models.Invitation;
 import com.example.slices.models.NotSelected;
 import com.example.slices.models.Notification;
 import com.example.slices.models.NotificationType;
-import com.example.slices.models.Profile;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
 import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 /**
  * Singleton class to manage sending notifications and invitations.
  * Handles creating notifications, assigning IDs, writing to the database, and logging.
  * Uses DBConnector for database operations.
+ * Each notification stores an active flag (unread, or not yet answered) and each recipient
+ * has a counter document, notification_counters/{recipientId}, holding how many of their
+ * notifications are active. Every write here that adds, changes or removes a notification
+ * adjusts the counter in the same batch or transaction, so badges need one small read.
  *
  * @author Ryan
- * @version 1.5
+ * @version 1.7
  */
 public class NotificationManager {
 
@@ -51,6 +68,17 @@ public class NotificationManager {
     @SuppressLint("StaticFieldLeak")
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
     private static CollectionReference notificationRef = db.collection("notifications");
+    private static CollectionReference counterRef = db.collection("notification_counters");
+
+    /**
+     * Counter field holding the number of active notifications
+     */
+    private static final String UNREAD = "unread";
+
+    /**
+     * Notifications read and rewritten per batch by backfillInbox
+     */
+    private static final int BACKFILL_PAGE_SIZE = 400;
 
 
     /**
@@ -64,20 +92,7 @@ public class NotificationManager {
      * if profile cannot be fetched to avoid breaking critical flows.
      */
     private static void withRecipientOptIn(int recipientId, Consumer<Boolean> callback) {
-        EntrantController.getEntrant(recipientId, new EntrantCallback() {
-            @Override
-            public void onSuccess(Entrant entrant) {
-                Profile profile = entrant.getProfile();
-                boolean enabled = profile == null || profile.getSendNotifications();
-                callback.accept(enabled);
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                // If we cannot determine preference, default to sending to avoid silent drops
-                callback.accept(true);
-            }
-        });
+        OptInCache.resolve(recipientId, callback);
     }
 
     /**
@@ -101,8 +116,10 @@ public class NotificationManager {
     public static void setTesting(boolean testing) {
         if (testing) {
             notificationRef = db.collection("test_notifications");
+            counterRef = db.collection("test_notification_counters");
         } else {
             notificationRef = db.collection("notifications");
+            counterRef = db.collection("notification_counters");
         }
     }
 
@@ -158,7 +175,7 @@ public class NotificationManager {
             notification.setType(NotificationType.NOTIFICATION);
             notification.setEventId(eventId);
 
-            ref.set(notification)
+            writeNew(ref, notification)
                     .addOnSuccessListener(aVoid ->
                             Logger.logNotification(title + " " + body, recipientId, senderId, new DBWriteCallback() {
                                 @Override
@@ -194,41 +211,31 @@ public class NotificationManager {
      */
     public static void sendBulkNotification(String title, String body, List<Integer> recipients,
                                             int senderId, DBWriteCallback callback) {
-        if (recipients.isEmpty()) {
-            Logger.logSystem("sendBulkNotification called with empty recipients list", null);
-            callback.onSuccess();
-            return;
-        }
-
-        Logger.logSystem("Starting bulk notification send to " + recipients.size() + " recipients", null);
-
-        AtomicInteger completed = new AtomicInteger(0);
-        AtomicBoolean failed = new AtomicBoolean(false);
-        for (int recipient : recipients) {
-            sendNotification(title, body, recipient, senderId, new DBWriteCallback() {
-                @Override
-                public void onSuccess() {
-                    if (failed.get()) {
-                        return;
-                    }
-                    if (completed.incrementAndGet() == recipients.size()) {
-                        if (!failed.get()) {
-                            Logger.logSystem("Bulk notification send completed for " + recipients.size() + " recipients", null);
-                            callback.onSuccess();
-                        }
-                    }
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    if (failed.compareAndSet(false, true)) {
-                        Logger.logError("Bulk notification send failed: " + e.getMessage(), null);
-                        callback.onFailure(e);
-                    }
-                }
-            });
+        sendBulkNotification(title, body, recipients, senderId, toWriteCallback("notification", callback));
+    }
 
-        }
+    /**
+     * Sends a bulk notification to a list of recipients, reporting the outcome for each recipient.
+     * @param title
+     *      Title of the notification
+     * @param body
+     *      Body text of the notification
+     * @param recipients
+     *      List of recipients to send the notification to
+     * @param senderId
+     *      ID of the sender entrant
+     * @param callback
+     *      Callback with the per-recipient result
+     */
+    public static void sendBulkNotification(String title, String body, List<Integer> recipients,
+                                            int senderId, BulkSendCallback callback) {
+        sendBulk("notification", recipients, recipient -> {
+            DocumentReference ref = notificationRef.document();
+            Notification notification = new Notification(title, body, ref.getId(), recipient, senderId);
+            notification.setType(NotificationType.NOTIFICATION);
+            return new NotificationBatchWriter.Delivery(recipient, ref, notification,
+                    Logger.prepareNotification(title + " " + body, recipient, senderId));
+        }, callback);
     }
 
     public static void sendNotSelected(String title, String body,
@@ -246,7 +253,7 @@ public class NotificationManager {
 
             NotSelected notification = new NotSelected(title, body, id, recipientId, senderId, eventId);
 
-            ref.set(notification)
+            writeNew(ref, notification)
                     .addOnSuccessListener(aVoid ->
                             Logger.logNotSelected(title + " " + body, recipientId, senderId, new DBWriteCallback() {
                                 @Override
@@ -269,41 +276,33 @@ public class NotificationManager {
 
     public static void sendBulkNotSelected(String title, String body, List<Integer> recipients,
                                             int senderId, int eventId, DBWriteCallback callback) {
-        if (recipients.isEmpty()) {
-            Logger.logSystem("sendBulkNotSelected called with empty recipients list", null);
-            callback.onSuccess();
-            return;
-        }
-
-        Logger.logSystem("Starting bulk not selected send to " + recipients.size() + " recipients", null);
-
-        AtomicInteger completed = new AtomicInteger(0);
-        AtomicBoolean failed = new AtomicBoolean(false);
-        for (int recipient : recipients) {
-            sendNotSelected(title, body, recipient, senderId, eventId, new DBWriteCallback() {
-                @Override
-                public void onSuccess() {
-                    if (failed.get()) {
-                        return;
-                    }
-                    if (completed.incrementAndGet() == recipients.size()) {
-                        if (!failed.get()) {
-                            Logger.logSystem("Bulk not selected send completed for " + recipients.size() + " recipients", null);
-                            callback.onSuccess();
-                        }
-                    }
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    if (failed.compareAndSet(false, true)) {
-                        Logger.logError("Bulk not selected send failed: " + e.getMessage(), null);
-                        callback.onFailure(e);
-                    }
-                }
-            });
+        sendBulkNotSelected(title, body, recipients, senderId, eventId, toWriteCallback("not selected", callback));
+    }
 
-        }
+    /**
+     * Sends a bulk not-selected notification to a list of recipients, reporting the outcome for
+     * each recipient.
+     * @param title
+     *      Title of the notification
+     * @param body
+     *      Body text of the notification
+     * @param recipients
+     *      List of recipients to send the notification to
+     * @param senderId
+     *      ID of the sender entrant
+     * @param eventId
+     *      ID of the associated event
+     * @param callback
+     *      Callback with the per-recipient result
+     */
+    public static void sendBulkNotSelected(String title, String body, List<Integer> recipients,
+                                           int senderId, int eventId, BulkSendCallback callback) {
+        sendBulk("not selected", recipients, recipient -> {
+            DocumentReference ref = notificationRef.document();
+            NotSelected notification = new NotSelected(title, body, ref.getId(), recipient, senderId, eventId);
+            return new NotificationBatchWriter.Delivery(recipient, ref, notification,
+                    Logger.prepareNotSelected(title + " " + body, recipient, senderId));
+        }, callback);
     }
 
     /**
@@ -323,47 +322,109 @@ public class NotificationManager {
      */
     public static void sendBulkInvitation(String title, String body, List<Integer> recipients,
                                           int senderId, int eventID, DBWriteCallback callback) {
+        sendBulkInvitation(title, body, recipients, senderId, eventID,
+                toWriteCallback("invitation eventId=" + eventID, callback));
+    }
+
+    /**
+     * Sends a bulk invitation to a list of recipients, reporting the outcome for each recipient.
+     * @param title
+     *      Title of the invitation
+     * @param body
+     *      Body text of the invitation
+     * @param recipients
+     *      List of recipients to send the invitation to
+     * @param senderId
+     *      ID of the sender entrant
+     * @param eventID
+     *      ID of the associated event
+     * @param callback
+     *      Callback with the per-recipient result
+     */
+    public static void sendBulkInvitation(String title, String body, List<Integer> recipients,
+                                          int senderId, int eventID, BulkSendCallback callback) {
+        sendBulk("invitation eventId=" + eventID, recipients, recipient -> {
+            DocumentReference ref = notificationRef.document();
+            Invitation invitation = new Invitation(title, body, ref.getId(), recipient, senderId, eventID);
+            invitation.setType(NotificationType.INVITATION);
+            return new NotificationBatchWriter.Delivery(recipient, ref, invitation,
+                    Logger.prepareInvSent(eventID, recipient));
+        }, callback);
+    }
+
+    /**
+     * Resolves opt-ins for the recipients and writes the notifications in batches
+     * @param label
+     *      Kind of send, used in logs
+     * @param recipients
+     *      List of recipients
+     * @param build
+     *      Builds the writes for one recipient
+     * @param callback
+     *      Callback with the per-recipient result
+     */
+    private static void sendBulk(String label, List<Integer> recipients,
+                                 IntFunction<NotificationBatchWriter.Delivery> build, BulkSendCallback callback) {
+        BulkSendResult result = new BulkSendResult();
         if (recipients.isEmpty()) {
-            Logger.logSystem("sendBulkInvitation called with empty recipients list for eventId=" + eventID, null);
-            callback.onSuccess();
+            Logger.logSystem("Bulk " + label + " send called with empty recipients list", null);
+            callback.onSuccess(result);
             return;
         }
 
-        Logger.logSystem("Starting bulk invitation send for eventId=" + eventID
-                + " to " + recipients.size() + " recipients", null);
-
-        AtomicInteger completed = new AtomicInteger(0);
-        AtomicBoolean failed = new AtomicBoolean(false);
-        for (int recipient : recipients) {
-            sendInvitation(title, body, recipient, senderId, eventID, new DBWriteCallback() {
-                @Override
-                public void onSuccess() {
-                    if (failed.get()) {
-                        return;
-                    }
-                    if (completed.incrementAndGet() == recipients.size()) {
-                        if (!failed.get()) {
-                            Logger.logSystem("Bulk invitation send completed for eventId=" + eventID, null);
-                            callback.onSuccess();
-                        }
-                    }
+        Logger.logSystem("Starting bulk " + label + " send to " + recipients.size() + " recipients", null);
+
+        OptInCache.resolve(recipients, optIns -> {
+            List<NotificationBatchWriter.Delivery> deliveries = new ArrayList<>();
+            for (int recipient : recipients) {
+                if (Boolean.FALSE.equals(optIns.get(recipient))) {
+                    result.addSkipped(recipient);
+                } else {
+                    deliveries.add(build.apply(recipient));
                 }
-                @Override
-                public void onFailure(Exception e) {
-                    if (failed.compareAndSet(false, true)) {
-                        Logger.logError("Bulk invitation send failed for eventId=" + eventID + ": " + e.getMessage(), null);
-                        callback.onFailure(e);
-                    }
+            }
+            NotificationBatchWriter.write(deliveries, result, () -> {
+                Logger.logSystem("Bulk " + label + " send completed: delivered=" + result.getDelivered().size()
+                        + " skipped=" + result.getSkipped().size()
+                        + " failed=" + result.getFailed().size(), null);
+                if (!deliveries.isEmpty() && result.getDelivered().isEmpty()) {
+                    callback.onFailure(new DBOpFailed("Bulk " + label + " send failed for every recipient"));
+                } else {
+                    callback.onSuccess(result);
                 }
             });
-        }
+        });
     }
 
+    /**
+     * Adapts a bulk send result to a single success or failure
+     * @param label
+     *      Kind of send, used in logs
+     * @param callback
+     *      Callback that succeeds only if every recipient was delivered to or skipped
+     * @return
+     *      Bulk send callback
+     */
+    private static BulkSendCallback toWriteCallback(String label, DBWriteCallback callback) {
+        return new BulkSendCallback() {
+            @Override
+            public void onSuccess(BulkSendResult result) {
+                if (result.hasFailures()) {
+                    Logger.logError("Bulk " + label + " send failed for " + result.getFailed().size() + " recipients", null);
+                    callback.onFailure(new DBOpFailed("Failed to send to "
+                            + result.getFailed().size() + " recipients"));
+                } else {
+                    callback.onSuccess();
+                }
+            }
 
-
-
-
-
+            @Override
+            public void onFailure(Exception e) {
+                Logger.logError("Bulk " + label + " send failed: " + e.getMessage(), null);
+                callback.onFailure(e);
+            }
+        };
+    }
 
     /**
      * Sends an invitation notification for an event.
@@ -398,7 +459,7 @@ public class NotificationManager {
             Invitation invitation = new Invitation(title, body, id, recipientId, senderId, eventId);
             invitation.setType(NotificationType.INVITATION);
 
-            ref.set(invitation)
+            writeNew(ref, invitation)
                     .addOnSuccessListener(aVoid ->
                             Logger.logInvSent(eventId, recipientId, new DBWriteCallback() {
                                 @Override
@@ -427,6 +488,350 @@ public class NotificationManager {
 
 
 
+    /**
+     * Gets a recipient's unread counter document
+     * @param recipientId
+     *      ID of the recipient
+     * @return
+     *      Reference to the counter document
+     */
+    static DocumentReference counterDoc(int recipientId) {
+        return counterRef.document(String.valueOf(recipientId));
+    }
+
+    /**
+     * Adds a change to a recipient's unread counter to a batch
+     * @param batch
+     *      Batch to add to
+     * @param recipientId
+     *      ID of the recipient
+     * @param delta
+     *      Amount to add, negative to subtract
+     */
+    static void countUnread(WriteBatch batch, int recipientId, long delta) {
+        batch.set(counterDoc(recipientId), Collections.singletonMap(UNREAD, FieldValue.increment(delta)),
+                SetOptions.merge());
+    }
+
+    /**
+     * Adds a change to a recipient's unread counter to a transaction
+     * @param transaction
+     *      Transaction to add to
+     * @param recipientId
+     *      ID of the recipient
+     * @param delta
+     *      Amount to add, negative to subtract
+     */
+    static void countUnread(Transaction transaction, int recipientId, long delta) {
+        transaction.set(counterDoc(recipientId), Collections.singletonMap(UNREAD, FieldValue.increment(delta)),
+                SetOptions.merge());
+    }
+
+    /**
+     * Writes a new notification and counts it if it is active
+     * @param ref
+     *      Document to write to
+     * @param notification
+     *      Notification to write
+     * @return
+     *      Task that completes when both writes are committed
+     */
+    private static Task<Void> writeNew(DocumentReference ref, Notification notification) {
+        WriteBatch batch = db.batch();
+        batch.set(ref, notification);
+        if (notification.getActive()) {
+            countUnread(batch, notification.getRecipientId(), 1);
+        }
+        return batch.commit();
+    }
+
+    /**
+     * Writes a notification over its stored copy in a transaction, adjusting the recipient's
+     * counter if the write makes it active or inactive
+     * @param notification
+     *      Notification to write
+     * @return
+     *      Task that completes when the transaction is committed
+     */
+    private static Task<Void> saveTracked(Notification notification) {
+        DocumentReference ref = notificationRef.document(String.valueOf(notification.getId()));
+        DocumentReference counter = counterDoc(notification.getRecipientId());
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot stored = transaction.get(ref);
+            boolean wasActive = stored.exists() && isActive(stored);
+            transaction.set(ref, notification);
+            long delta = (notification.getActive() ? 1 : 0) - (wasActive ? 1 : 0);
+            if (delta != 0) {
+                transaction.set(counter, Collections.singletonMap(UNREAD, FieldValue.increment(delta)),
+                        SetOptions.merge());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Checks if a stored notification is active
+     * @param doc
+     *      Stored notification
+     * @return
+     *      The stored flag, or the flag derived from the other fields for notifications
+     *      written before it existed
+     */
+    private static boolean isActive(DocumentSnapshot doc) {
+        Boolean active = doc.getBoolean("active");
+        if (active != null) {
+            return active;
+        }
+        Notification stored = toNotification(doc);
+        return stored != null && stored.getActive();
+    }
+
+    /**
+     * Converts a stored notification to the class matching its type
+     * @param doc
+     *      Stored notification
+     * @return
+     *      Notification, Invitation or NotSelected, or null if the document is empty
+     */
+    private static Notification toNotification(DocumentSnapshot doc) {
+        NotificationType type = null;
+        try {
+            String typeStr = doc.getString("type");
+            if (typeStr != null) {
+                type = NotificationType.valueOf(typeStr);
+            }
+        } catch (Exception ignored) {}
+
+        if (type == NotificationType.INVITATION) {
+            return doc.toObject(Invitation.class);
+        } else if (type == NotificationType.NOT_SELECTED) {
+            return doc.toObject(NotSelected.class);
+        }
+        return doc.toObject(Notification.class);
+    }
+
+    /**
+     * Gets one page of a recipient's inbox: their active notifications of every type, newest first.
+     * Needs the composite index (recipientId, active, timestamp descending)
+     * @param recipientId
+     *      ID of the recipient
+     * @param pageSize
+     *      Maximum number of notifications to return
+     * @param startAfter
+     *      Cursor returned with the previous page, or null for the first page
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getInbox(int recipientId, int pageSize, DocumentSnapshot startAfter,
+                                NotificationPageCallback callback) {
+        Query query = notificationRef
+                .whereEqualTo("recipientId", recipientId)
+                .whereEqualTo("active", true)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(pageSize);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.get()
+                .addOnSuccessListener(page -> {
+                    List<Notification> notifications = new ArrayList<>();
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        Notification notification = toNotification(doc);
+                        if (notification != null) {
+                            notifications.add(notification);
+                        }
+                    }
+                    Logger.logSystem("Fetched inbox page of " + notifications.size()
+                            + " for recipientId=" + recipientId, null);
+                    callback.onSuccess(notifications, RosterController.nextCursor(page, pageSize));
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Failed to get inbox for recipientId=" + recipientId, null);
+                    callback.onFailure(new DBOpFailed("Failed to get notifications"));
+                });
+    }
+
+    /**
+     * Gets the query behind the admin notification feed
+     * @return
+     *      Every notification, newest first, for use with NotificationFeed
+     */
+    public static Query getFeedQuery() {
+        return notificationRef.orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Gets how many active notifications a recipient has
+     * @param recipientId
+     *      ID of the recipient
+     * @param callback
+     *      Callback with the count, 0 if the recipient has never had a notification
+     */
+    public static void getUnreadCount(int recipientId, UnreadCountCallback callback) {
+        counterDoc(recipientId).get()
+                .addOnSuccessListener(doc -> {
+                    Long unread = doc.getLong(UNREAD);
+                    callback.onSuccess(unread != null ? Math.max(0, unread) : 0);
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Failed to get unread count for recipientId=" + recipientId, null);
+                    callback.onFailure(new DBOpFailed("Failed to get unread count"));
+                });
+    }
+
+    /**
+     * Writes the active flag on every stored notification and recounts every recipient's
+     * counter, a page at a time. Needed once for notifications written before the inbox existed;
+     * run it while no notifications are being sent, as the counters are overwritten at the end.
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void backfillInbox(DBWriteCallback callback) {
+        backfillFrom(null, new HashMap<>(), 0, callback);
+    }
+
+    /**
+     * Flags the notifications after a cursor and then the remaining pages
+     * @param startAfter
+     *      Last notification of the previous page, or null to start at the beginning
+     * @param counts
+     *      Active notifications counted so far, by recipient
+     * @param checked
+     *      Number of notifications checked so far
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void backfillFrom(DocumentSnapshot startAfter, Map<Integer, Long> counts, int checked,
+                                     DBWriteCallback callback) {
+        Query query = notificationRef.orderBy(FieldPath.documentId()).limit(BACKFILL_PAGE_SIZE);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.get()
+                .addOnSuccessListener(page -> {
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        boolean active = isActive(doc);
+                        if (doc.getBoolean("active") == null) {
+                            batch.update(doc.getReference(), "active", active);
+                        }
+                        Long recipient = doc.getLong("recipientId");
+                        if (active && recipient != null) {
+                            counts.merge(recipient.intValue(), 1L, Long::sum);
+                        }
+                    }
+                    int total = checked + page.size();
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                DocumentSnapshot next = RosterController.nextCursor(page, BACKFILL_PAGE_SIZE);
+                                if (next != null) {
+                                    backfillFrom(next, counts, total, callback);
+                                } else {
+                                    writeCounts(counts, new ArrayList<>(counts.keySet()), 0, total, callback);
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Logger.logError("Inbox backfill failed after " + checked + " notifications", null);
+                                callback.onFailure(new DBOpFailed("Failed to backfill inbox"));
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Inbox backfill failed to read notifications", null);
+                    callback.onFailure(new DBOpFailed("Failed to backfill inbox"));
+                });
+    }
+
+    /**
+     * Overwrites the recipients' counters with recounted values, a batch at a time,
+     * then clears the counters of recipients with no active notifications left
+     * @param counts
+     *      Active notifications by recipient
+     * @param recipients
+     *      Recipients in counts, in the order they are written
+     * @param from
+     *      Index of the first recipient to write
+     * @param checked
+     *      Number of notifications checked, for the log
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void writeCounts(Map<Integer, Long> counts, List<Integer> recipients, int from, int checked,
+                                    DBWriteCallback callback) {
+        if (from >= recipients.size()) {
+            resetCounts(null, counts, 0, checked, callback);
+            return;
+        }
+        int to = Math.min(from + BACKFILL_PAGE_SIZE, recipients.size());
+        WriteBatch batch = db.batch();
+        for (int recipient : recipients.subList(from, to)) {
+            batch.set(counterDoc(recipient), Collections.singletonMap(UNREAD, counts.get(recipient)));
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> writeCounts(counts, recipients, to, checked, callback))
+                .addOnFailureListener(e -> {
+                    Logger.logError("Inbox backfill failed writing counters", null);
+                    callback.onFailure(new DBOpFailed("Failed to backfill inbox"));
+                });
+    }
+
+    /**
+     * Sets the counters of recipients that were not recounted to 0, a page at a time,
+     * so a recipient whose notifications are all inactive is not left with an old count
+     * @param startAfter
+     *      Last counter of the previous page, or null to start at the beginning
+     * @param counts
+     *      Active notifications by recipient
+     * @param reset
+     *      Number of counters cleared so far
+     * @param checked
+     *      Number of notifications checked, for the log
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void resetCounts(DocumentSnapshot startAfter, Map<Integer, Long> counts, int reset,
+                                    int checked, DBWriteCallback callback) {
+        Query query = counterRef.orderBy(FieldPath.documentId()).limit(BACKFILL_PAGE_SIZE);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.get()
+                .addOnSuccessListener(page -> {
+                    WriteBatch batch = db.batch();
+                    int cleared = 0;
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        Long unread = doc.getLong(UNREAD);
+                        if (unread == null || unread == 0) continue;
+                        try {
+                            if (counts.containsKey(Integer.parseInt(doc.getId()))) continue;
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+                        batch.set(doc.getReference(), Collections.singletonMap(UNREAD, 0L));
+                        cleared++;
+                    }
+                    int total = reset + cleared;
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                DocumentSnapshot next = RosterController.nextCursor(page, BACKFILL_PAGE_SIZE);
+                                if (next != null) {
+                                    resetCounts(next, counts, total, checked, callback);
+                                } else {
+                                    Logger.logSystem("Inbox backfill checked " + checked + " notifications for "
+                                            + counts.size() + " recipients, cleared " + total + " counters", null);
+                                    callback.onSuccess();
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Logger.logError("Inbox backfill failed clearing counters", null);
+                                callback.onFailure(new DBOpFailed("Failed to backfill inbox"));
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Inbox backfill failed to read counters", null);
+                    callback.onFailure(new DBOpFailed("Failed to backfill inbox"));
+                });
+    }
+
     /**
      * Gets all notifications from the database asynchronously
      * @param callback
@@ -475,30 +880,77 @@ public class NotificationManager {
      * Used by both user and organizer flows for "clear all notifications".
      */
     public static void clearNotificationsForRecipient(int recipientId, DBWriteCallback callback) {
-        notificationRef.whereEqualTo("recipientId", recipientId)
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    if (snapshot.isEmpty()) {
-                        Logger.logSystem("No notifications to clear for recipientId=" + recipientId, null);
-                        callback.onSuccess();
-                        return;
-                    }
-                    WriteBatch batch = db.batch();
-                    snapshot.getDocuments().forEach(doc -> batch.delete(doc.getReference()));
-                    batch.commit()
-                            .addOnSuccessListener(aVoid -> {
-                                Logger.logSystem("Cleared " + snapshot.size() + " notifications for recipientId=" + recipientId, null);
-                                callback.onSuccess();
-                            })
-                            .addOnFailureListener(e -> {
-                                Logger.logError("Failed to clear notifications for recipientId=" + recipientId, null);
-                                callback.onFailure(new DBOpFailed("Failed to clear notifications"));
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Logger.logError("Failed to fetch notifications for clear-all recipientId=" + recipientId, null);
-                    callback.onFailure(new DBOpFailed("Failed to clear notifications"));
-                });
+        clearNotificationsForRecipient(recipientId, new BulkDeleteCallback() {
+            @Override
+            public void onProgress(int deleted) {}
+
+            @Override
+            public void onSuccess(int deleted) {
+                Logger.logSystem("Cleared " + deleted + " notifications for recipientId=" + recipientId, null);
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Logger.logError("Failed to clear notifications for recipientId=" + recipientId, null);
+                callback.onFailure(new DBOpFailed("Failed to clear notifications"));
+            }
+        });
+    }
+
+    /**
+     * Deletes all notifications for a recipient in batches, however many there are.
+     * The active notifications of each page are deleted first, in a transaction that lowers the
+     * unread counter by those still active when it commits
+     * @param recipientId
+     *      ID of the recipient
+     * @param callback
+     *      Callback to call with progress and when every notification is deleted
+     * @return
+     *      Job that can be cancelled; clearing again resumes it
+     */
+    public static BulkDeleter.Job clearNotificationsForRecipient(int recipientId, BulkDeleteCallback callback) {
+        return BulkDeleter.of(notificationRef.whereEqualTo("recipientId", recipientId))
+                .beforeBatch(docs -> deleteActive(recipientId, docs))
+                .start(callback);
+    }
+
+    /**
+     * Deletes the notifications of a page that were active when it was read. The transaction
+     * reads them again, so one marked read since the page was read is not uncounted a second time.
+     * The rest of the page is left to the page's batch; a notification made active again in
+     * between is not uncounted, and backfillInbox repairs the counter
+     * @param recipientId
+     *      ID of the recipient
+     * @param docs
+     *      Page being deleted
+     * @return
+     *      Task that completes when the active notifications are deleted
+     */
+    private static Task<Void> deleteActive(int recipientId, List<DocumentSnapshot> docs) {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            if (isActive(doc)) refs.add(doc.getReference());
+        }
+        if (refs.isEmpty()) {
+            return Tasks.forResult(null);
+        }
+        return db.runTransaction(transaction -> {
+            List<DocumentSnapshot> stored = new ArrayList<>();
+            for (DocumentReference ref : refs) {
+                stored.add(transaction.get(ref));
+            }
+            long active = 0;
+            for (DocumentSnapshot doc : stored) {
+                if (!doc.exists()) continue;
+                if (isActive(doc)) active++;
+                transaction.delete(doc.getReference());
+            }
+            if (active > 0) {
+                countUnread(transaction, recipientId, -active);
+            }
+            return null;
+        });
     }
 
     /**
@@ -549,8 +1001,17 @@ public class NotificationManager {
      */
 
     public static void deleteNotification (String id, DBWriteCallback callback){
-        notificationRef.document(String.valueOf(id))
-                .delete()
+        DocumentReference ref = notificationRef.document(String.valueOf(id));
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot stored = transaction.get(ref);
+                    Long recipient = stored.getLong("recipientId");
+                    if (stored.exists() && recipient != null && isActive(stored)) {
+                        transaction.set(counterDoc(recipient.intValue()),
+                                Collections.singletonMap(UNREAD, FieldValue.increment(-1)), SetOptions.merge());
+                    }
+                    transaction.delete(ref);
+                    return null;
+                })
                 .addOnSuccessListener(aVoid -> {
                     Logger.logSystem("Deleted notification with id=" + id, null);
                     callback.onSuccess();
@@ -571,8 +1032,7 @@ public class NotificationManager {
      */
 
     public static void writeNotification (Notification notification, DBWriteCallback callback){
-        notificationRef.document(String.valueOf(notification.getId()))
-                .set(notification)
+        saveTracked(notification)
                 .addOnSuccessListener(aVoid -> {
                     Logger.logSystem("Notification written with id=" + notification.getId(), null);
                     callback.onSuccess();
@@ -591,8 +1051,7 @@ public class NotificationManager {
      *      Callback to call when the operation is complete
      */
     public static void updateNotification (Notification notification, DBWriteCallback callback){
-        notificationRef.document(String.valueOf(notification.getId()))
-                .set(notification)
+        saveTracked(notification)
                 .addOnSuccessListener(aVoid -> {
                     Logger.logSystem("Notification updated with id=" + notification.getId(), null);
                     callback.onSuccess();
@@ -611,32 +1070,23 @@ public class NotificationManager {
      */
 
     public static void clearNotifications(Runnable onComplete) {
-        notificationRef.get()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        Logger.logSystem("clearNotifications: no notifications to clear", null);
-                        onComplete.run();
-                        return;
-                    }
-                    WriteBatch batch = db.batch();
-                    for (DocumentSnapshot doc : querySnapshot) {
-                        batch.delete(doc.getReference());
-                    }
-                    batch.commit()
-                            .addOnSuccessListener(aVoid -> {
-                                Logger.logSystem("All notifications cleared successfully", null);
-                                onComplete.run();
-                            })
-                            .addOnFailureListener(e -> {
-                                Logger.logError("Failed to clear notifications in batch commit: " + e.getMessage(), null);
-                                onComplete.run();
-                            });
+        clearNotifications(BulkDeleter.completing(onComplete));
+    }
+
+    /**
+     * Deletes every notification in batches, then every unread counter
+     * @param callback
+     *      Callback to call with progress and when every notification is deleted
+     * @return
+     *      Job that can be cancelled; calling clearNotifications again resumes it
+     */
+    public static BulkDeleter.Job clearNotifications(BulkDeleteCallback callback) {
+        return BulkDeleter.of(notificationRef)
+                .afterAll(done -> {
+                    Logger.logSystem("All notifications cleared successfully", null);
+                    BulkDeleter.of(counterRef).start(BulkDeleter.completing(done));
                 })
-                .addOnFailureListener(e -> {
-                    Logger.logError("Failed to clear notifications: " + e.getMessage(), null);
-                    System.out.println("Failed to clear notifications: " + e.getMessage());
-                    onComplete.run();
-                });
+                .start(callback);
     }
 
     /**
@@ -862,8 +1312,7 @@ public class NotificationManager {
      * @param callback
      */
     public static void updateNotSelected(NotSelected notSelected, DBWriteCallback callback) {
-        notificationRef.document(String.valueOf(notSelected.getId()))
-                .set(notSelected)
+        saveTracked(notSelected)
                 .addOnSuccessListener(aVoid -> {
                     Logger.logSystem("NotSelected updated with id=" + notSelected.getId(), null);
                     callback.onSuccess();
@@ -942,8 +1391,7 @@ public class NotificationManager {
      *      Callback to call when the operation is complete
      */
     public static void updateInvitation(Invitation invitation, DBWriteCallback callback) {
-        notificationRef.document(String.valueOf(invitation.getId()))
-                .set(invitation)
+        saveTracked(invitation)
                 .addOnSuccessListener(aVoid -> {
                     Logger.logSystem("Invitation updated with id=" + invitation.getId(), null);
                     callback.onSuccess();
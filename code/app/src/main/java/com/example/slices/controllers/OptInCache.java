@@ -0,0 +1,172 @@
+package com.example.slices.controllers;
+
+import com.example.slices.interfaces.EntrantListCallback;
+import com.example.slices.models.Entrant;
+import com.example.slices.models.Profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Short-lived cache of each entrant's profile.sendNotifications flag.
+ * Notification sends resolve every recipient's preference here before writing; flags that are
+ * not cached are fetched together with EntrantController.getEntrants instead of one read per
+ * recipient. EntrantController's writers call put/invalidate so a preference change on this
+ * client takes effect immediately; changes from other clients are picked up once the TTL expires.
+ * @version 1.0
+ */
+public class OptInCache {
+    /**
+     * How long a cached flag is trusted before it is re-read
+     */
+    private static long ttlMillis = 30_000;
+
+    /**
+     * Cached flag with the time it was stored
+     */
+    private static class Entry {
+        final boolean enabled;
+        final long storedAt;
+
+        Entry(boolean enabled, long storedAt) {
+            this.enabled = enabled;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * Flags by entrant ID; a getEntrants read that overlapped a preference change is not stored,
+     * so the stale profile it returned cannot hide the change until the TTL runs out
+     */
+    private static final GuardedCache<Integer, Entry> cache = new GuardedCache<>(new HashMap<>());
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private OptInCache() {}
+
+    /**
+     * Resolves whether each recipient wants notifications.
+     * Recipients who cannot be found, or whose lookup fails, are treated as opted in
+     * so that critical notifications are never silently dropped.
+     * @param recipientIds
+     *      IDs of the recipients, duplicates are allowed
+     * @param callback
+     *      Receives a flag for every distinct recipient
+     */
+    public static void resolve(List<Integer> recipientIds, Consumer<Map<Integer, Boolean>> callback) {
+        Map<Integer, Boolean> flags = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long startGeneration = cache.generation();
+        for (int id : new LinkedHashSet<>(recipientIds)) {
+            Entry entry = cache.lookup(id, e -> now - e.storedAt < ttlMillis);
+            if (entry != null) {
+                flags.put(id, entry.enabled);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.accept(flags);
+            return;
+        }
+
+        EntrantController.getEntrants(missing, new EntrantListCallback() {
+            @Override
+            public void onSuccess(List<Entrant> entrants) {
+                long storedAt = System.currentTimeMillis();
+                Map<Integer, Entry> fetched = new HashMap<>();
+                for (Entrant entrant : entrants) {
+                    Profile profile = entrant.getProfile();
+                    boolean enabled = profile == null || profile.getSendNotifications();
+                    fetched.put(entrant.getId(), new Entry(enabled, storedAt));
+                    flags.put(entrant.getId(), enabled);
+                }
+                cache.putAllIfCurrent(startGeneration, fetched);
+                for (int id : missing) {
+                    flags.putIfAbsent(id, true);
+                }
+                callback.accept(flags);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // If we cannot determine preference, default to sending to avoid silent drops
+                Logger.logError("Failed to resolve notification preferences for "
+                        + missing.size() + " recipients", null);
+                for (int id : missing) {
+                    flags.put(id, true);
+                }
+                callback.accept(flags);
+            }
+        });
+    }
+
+    /**
+     * Resolves whether a single recipient wants notifications
+     * @param recipientId
+     *      ID of the recipient
+     * @param callback
+     *      Receives the flag
+     */
+    public static void resolve(int recipientId, Consumer<Boolean> callback) {
+        resolve(Collections.singletonList(recipientId), flags -> callback.accept(flags.get(recipientId)));
+    }
+
+    /**
+     * Stores a flag that was just written
+     * @param entrantId
+     *      ID of the entrant
+     * @param enabled
+     *      Their sendNotifications flag
+     */
+    public static void put(int entrantId, boolean enabled) {
+        cache.put(entrantId, new Entry(enabled, System.currentTimeMillis()));
+    }
+
+    /**
+     * Drops an entrant's cached flag
+     * @param entrantId
+     *      ID of the entrant
+     */
+    public static void invalidate(int entrantId) {
+        cache.remove(entrantId);
+    }
+
+    /**
+     * Drops every cached flag
+     */
+    public static void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Sets how long flags are cached: Used for testing
+     * @param millis
+     *      TTL in milliseconds
+     */
+    public static void setTtlMillis(long millis) {
+        ttlMillis = millis;
+    }
+
+    public static long getHits() {
+        return cache.getHits();
+    }
+
+    public static long getMisses() {
+        return cache.getMisses();
+    }
+
+    /**
+     * Resets the hit and miss counters: Used for testing
+     */
+    public static void resetStats() {
+        cache.resetStats();
+    }
+}
@@ -57,21 +57,18 @@ public class ProfileController {
      * Profile is organizer if organizedEvents is not null
      */
     public static void getProfileById(int id, ProfileCallback callback) {
-        entrantRef.whereEqualTo("id", id)
-                .get()
-                .addOnSuccessListener(query -> {
-                    if (!query.isEmpty()) {
-                        Profile p = query.getDocuments().get(0).toObject(Profile.class);
-
-                        List<?> organizedEvents = (List<?>) query.getDocuments().get(0).get("organizedEvents");
-                        p.setOrganizer(organizedEvents != null && !organizedEvents.isEmpty());
-
-                        callback.onSuccess(p);
-                    } else {
-                        callback.onFailure(new DBOpFailed("Profile not found"));
-                    }
-                })
-                .addOnFailureListener(callback::onFailure);
+        KeyedReader.read(entrantRef, id, doc -> {
+            if (doc != null) {
+                Profile p = doc.toObject(Profile.class);
+
+                List<?> organizedEvents = (List<?>) doc.get("organizedEvents");
+                p.setOrganizer(organizedEvents != null && !organizedEvents.isEmpty());
+
+                callback.onSuccess(p);
+            } else {
+                callback.onFailure(new DBOpFailed("Profile not found"));
+            }
+        }, callback::onFailure);
     }
 
     /**
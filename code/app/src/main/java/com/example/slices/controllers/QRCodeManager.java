@@ -3,24 +3,53 @@ package com.example.slices.controllers;
 import android.content.ContentValues;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
+import android.util.LruCache;
 
+import com.example.slices.interfaces.ArchiveExportCallback;
 import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.interfaces.QRCodeCallback;
+import com.example.slices.models.Event;
 import com.example.slices.models.QREncoder;
 import com.example.slices.testing.DebugLogger;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Manager class for QR code generation and management operations
  * Provides static methods for generating, decoding, and saving QR codes
  *
+ * Generated bitmaps are kept in a memory LRU keyed by event ID and size, and as PNGs in a
+ * disk cache under the app's cache directory, so showing an event's QR code again costs
+ * nothing and showing it after a restart costs one PNG decode. Generation, saving and bulk
+ * export run on background threads; callbacks are delivered on the main thread.
+ *
  * @author Saahil
  */
 public class QRCodeManager {
@@ -29,17 +58,92 @@ public class QRCodeManager {
     private static final String TAG = "QRCodeManager";
 
     /**
-     * Generates a QR code bitmap for an event
+     * Memory budget for cached bitmaps
+     */
+    static final int MEMORY_CACHE_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Most PNGs kept on disk; the least recently used are deleted first
+     */
+    static final int MAX_DISK_FILES = 200;
+
+    private static final String DISK_CACHE_DIR = "qr_codes";
+
+    private static final LruCache<String, Bitmap> memoryCache = new LruCache<String, Bitmap>(MEMORY_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    /**
+     * Generates and saves the QR codes shown on screen, one at a time
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Runs bulk exports, so they never hold up a QR code being shown
+     */
+    private static final ExecutorService exporter = Executors.newSingleThreadExecutor();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Guards trims of the disk cache against the export reading files out of it
+     */
+    private static final Object diskLock = new Object();
+
+    /**
+     * Exports running on the exporter; the disk cache is not trimmed while any is. Guarded by diskLock
+     */
+    private static int exportsRunning;
+
+    /**
+     * A running bulk export
+     */
+    public static final class ExportJob {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        /**
+         * Stops the export after the QR code being written; the partial archive is deleted
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    /**
+     * Generates a QR code bitmap for an event, or returns the cached one
      * Uses the QREncoder class to create the QR code
+     * Runs on the caller's thread; prefer getQRCode from the main thread
      *
      * @param eventId Event ID to encode in the QR code
      * @return Bitmap of the generated QR code, or null if generation fails
      */
     public static Bitmap generateQRCode(int eventId) {
+        return generateQRCode(eventId, QREncoder.DEFAULT_SIZE);
+    }
+
+    /**
+     * Generates a QR code bitmap for an event at a size, or returns the cached one
+     *
+     * @param eventId Event ID to encode in the QR code
+     * @param size Width and height in pixels
+     * @return Bitmap of the generated QR code, or null if generation fails
+     */
+    public static Bitmap generateQRCode(int eventId, int size) {
+        String key = cacheKey(eventId, size);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
         try {
             String qrData = QR_CODE_PREFIX + eventId;
             DebugLogger.d(TAG, "Generating QR code for event: " + eventId);
-            Bitmap qrBitmap = QREncoder.encode(qrData);
+            Bitmap qrBitmap = QREncoder.encode(qrData, size);
 
             if (qrBitmap == null) {
                 DebugLogger.d(TAG, "QR code generation failed for event: " + eventId);
@@ -47,6 +151,7 @@ public class QRCodeManager {
             }
 
             DebugLogger.d(TAG, "QR code generated successfully for event: " + eventId);
+            memoryCache.put(key, qrBitmap);
             return qrBitmap;
         } catch (Exception e) {
             DebugLogger.d(TAG, "Exception during QR code generation: " + e.getMessage());
@@ -54,6 +159,146 @@ public class QRCodeManager {
         }
     }
 
+    /**
+     * Gets an event's QR code at the default size, from the memory cache, the disk cache or by
+     * generating it on a background thread
+     *
+     * @param context Context for the disk cache
+     * @param eventId Event ID to encode in the QR code
+     * @param callback Callback with the bitmap; a memory hit is delivered before this returns
+     */
+    public static void getQRCode(Context context, int eventId, QRCodeCallback callback) {
+        getQRCode(context, eventId, QREncoder.DEFAULT_SIZE, callback);
+    }
+
+    /**
+     * Gets an event's QR code, from the memory cache, the disk cache or by generating it on a
+     * background thread. Call from the main thread
+     *
+     * @param context Context for the disk cache
+     * @param eventId Event ID to encode in the QR code
+     * @param size Width and height in pixels
+     * @param callback Callback with the bitmap; a memory hit is delivered before this returns
+     */
+    public static void getQRCode(Context context, int eventId, int size, QRCodeCallback callback) {
+        String key = cacheKey(eventId, size);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            callback.onSuccess(cached);
+            return;
+        }
+        File dir = diskCacheDir(context);
+        executor.execute(() -> {
+            Bitmap bitmap = memoryCache.get(key);
+            if (bitmap == null) {
+                bitmap = readDiskCache(dir, key);
+                if (bitmap != null) {
+                    memoryCache.put(key, bitmap);
+                } else {
+                    bitmap = generateQRCode(eventId, size);
+                    if (bitmap != null) {
+                        try {
+                            writeDiskCache(dir, key, bitmap, true);
+                        } catch (IOException e) {
+                            // The bitmap in memory is still good; it is just not kept across restarts
+                            DebugLogger.d(TAG, "Failed to cache QR code on disk: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+            Bitmap result = bitmap;
+            handler.post(() -> {
+                if (result != null) {
+                    callback.onSuccess(result);
+                } else {
+                    callback.onFailure(new IOException("QR code generation failed for event: " + eventId));
+                }
+            });
+        });
+    }
+
+    /**
+     * Gets the key an event's QR code is cached under
+     *
+     * @param eventId Event ID
+     * @param size Width and height in pixels
+     * @return Cache key, also used as the disk cache file name
+     */
+    static String cacheKey(int eventId, int size) {
+        return eventId + "_" + size;
+    }
+
+    /**
+     * Drops every bitmap from the memory cache; the disk cache is kept. Used for testing
+     */
+    public static void clearMemoryCache() {
+        memoryCache.evictAll();
+    }
+
+    private static File diskCacheDir(Context context) {
+        return new File(context.getApplicationContext().getCacheDir(), DISK_CACHE_DIR);
+    }
+
+    /**
+     * Reads a cached PNG, marking it recently used
+     */
+    private static Bitmap readDiskCache(File dir, String key) {
+        File file = new File(dir, key + ".png");
+        if (!file.isFile()) {
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
+        if (bitmap != null) {
+            file.setLastModified(System.currentTimeMillis());
+        }
+        return bitmap;
+    }
+
+    /**
+     * Writes a PNG to the disk cache through a temporary file, so readers never see half a file
+     *
+     * @param trim Whether to delete the least recently used files past MAX_DISK_FILES
+     * @return The cached file
+     */
+    private static File writeDiskCache(File dir, String key, Bitmap bitmap, boolean trim) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create QR code cache");
+        }
+        File file = new File(dir, key + ".png");
+        File temp = File.createTempFile(key, ".tmp", dir);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to store QR code " + key);
+        }
+        if (trim) {
+            trimDiskCache(dir);
+        }
+        return file;
+    }
+
+    /**
+     * Deletes the least recently used PNGs past MAX_DISK_FILES, unless an export is running,
+     * as it may be about to read any of them; the export trims once it is done
+     */
+    private static void trimDiskCache(File dir) {
+        synchronized (diskLock) {
+            if (exportsRunning > 0) {
+                return;
+            }
+            File[] files = dir.listFiles((d, name) -> name.endsWith(".png"));
+            if (files == null || files.length <= MAX_DISK_FILES) {
+                return;
+            }
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < files.length - MAX_DISK_FILES; i++) {
+                files[i].delete();
+            }
+        }
+    }
+
     /**
      * Decodes QR code data to extract the event ID
      * Validates that the QR code follows the expected format
@@ -85,6 +330,7 @@ public class QRCodeManager {
     /**
      * Saves a QR code bitmap to device storage
      * Handles both legacy (pre-Q) and modern Android storage approaches
+     * The PNG is written on a background thread; the callback is called on the main thread
      *
      * @param context Application context
      * @param bitmap QR code bitmap to save
@@ -101,24 +347,131 @@ public class QRCodeManager {
             return;
         }
 
-        try {
-            // Sanitize event name for filename
-            String sanitizedName = eventName.replaceAll("[^a-zA-Z0-9-_]", "_");
-            String filename = "QR_" + sanitizedName + "_" + System.currentTimeMillis() + ".png";
+        DBWriteCallback mainCallback = callback == null ? null : new DBWriteCallback() {
+            @Override
+            public void onSuccess() {
+                handler.post(callback::onSuccess);
+            }
 
-            DebugLogger.d(TAG, "Saving QR code with filename: " + filename);
+            @Override
+            public void onFailure(Exception e) {
+                handler.post(() -> callback.onFailure(e));
+            }
+        };
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            try {
+                // Sanitize event name for filename
+                String filename = "QR_" + sanitize(eventName) + "_" + System.currentTimeMillis() + ".png";
+
+                DebugLogger.d(TAG, "Saving QR code with filename: " + filename);
 
-            // Use MediaStore for Android Q and above
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                saveQRCodeModern(context, bitmap, filename, callback);
-            } else {
-                saveQRCodeLegacy(context, bitmap, filename, callback);
+                // Use MediaStore for Android Q and above
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                    saveQRCodeModern(appContext, bitmap, filename, mainCallback);
+                } else {
+                    saveQRCodeLegacy(appContext, bitmap, filename, mainCallback);
+                }
+            } catch (Exception e) {
+                DebugLogger.d(TAG, "Exception during QR code save: " + e.getMessage());
+                if (mainCallback != null) {
+                    mainCallback.onFailure(e);
+                }
             }
-        } catch (Exception e) {
-            DebugLogger.d(TAG, "Exception during QR code save: " + e.getMessage());
-            if (callback != null) {
-                callback.onFailure(e);
+        });
+    }
+
+    private static String sanitize(String eventName) {
+        return eventName.replaceAll("[^a-zA-Z0-9-_]", "_");
+    }
+
+    /**
+     * Saves the QR codes of several events into one zip archive in Downloads
+     * PNGs come from the disk cache and are generated there first if missing. They are stored
+     * without compression, as PNG data does not shrink further
+     *
+     * @param context Context used to write the archive
+     * @param events Events to export
+     * @param callback Callback for progress and the archive's location, called on the main thread
+     * @return Job that can cancel the export
+     */
+    public static ExportJob exportQRCodes(Context context, List<Event> events, ArchiveExportCallback callback) {
+        ExportJob job = new ExportJob();
+        Context appContext = context.getApplicationContext();
+        List<Event> snapshot = new ArrayList<>(events);
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        DownloadTarget target = DownloadTarget.create(appContext, "QR_codes_" + stamp + ".zip", "application/zip");
+        File dir = diskCacheDir(appContext);
+        exporter.execute(() -> {
+            synchronized (diskLock) {
+                exportsRunning++;
+            }
+            try {
+                int total = snapshot.size();
+                try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(target.open()))) {
+                    zip.setLevel(Deflater.NO_COMPRESSION);
+                    byte[] buffer = new byte[8192];
+                    for (int i = 0; i < total; i++) {
+                        if (job.isCancelled()) {
+                            throw new CancellationException();
+                        }
+                        Event event = snapshot.get(i);
+                        String name = event.getEventInfo() != null && event.getEventInfo().getName() != null
+                                ? event.getEventInfo().getName() : "event";
+                        zip.putNextEntry(new ZipEntry("QR_" + sanitize(name) + "_" + event.getId() + ".png"));
+                        try (InputStream in = new FileInputStream(cachedFile(dir, event.getId()))) {
+                            int read;
+                            while ((read = in.read(buffer)) != -1) {
+                                zip.write(buffer, 0, read);
+                            }
+                        }
+                        zip.closeEntry();
+                        int added = i + 1;
+                        handler.post(() -> callback.onProgress(added, total));
+                    }
+                }
+                String location = target.publish();
+                DebugLogger.d(TAG, "Exported " + total + " QR codes to: " + location);
+                handler.post(() -> callback.onSuccess(location));
+            } catch (CancellationException e) {
+                target.discard();
+                handler.post(callback::onCancelled);
+            } catch (Exception e) {
+                DebugLogger.d(TAG, "Exception during QR code export: " + e.getMessage());
+                target.discard();
+                handler.post(() -> callback.onFailure(e));
+            } finally {
+                synchronized (diskLock) {
+                    exportsRunning--;
+                }
+                trimDiskCache(dir);
             }
+        });
+        return job;
+    }
+
+    /**
+     * Gets an event's default-size PNG from the disk cache, generating it if missing
+     * Bypasses the memory cache so a long export does not evict the codes on screen
+     */
+    private static File cachedFile(File dir, int eventId) throws IOException {
+        String key = cacheKey(eventId, QREncoder.DEFAULT_SIZE);
+        File file = new File(dir, key + ".png");
+        if (file.isFile()) {
+            return file;
+        }
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            return writeDiskCache(dir, key, bitmap, false);
+        }
+        bitmap = QREncoder.encode(generateQRCodeData(eventId), QREncoder.DEFAULT_SIZE);
+        if (bitmap == null) {
+            throw new IOException("QR code generation failed for event: " + eventId);
+        }
+        try {
+            return writeDiskCache(dir, key, bitmap, false);
+        } finally {
+            bitmap.recycle();
         }
     }
 
@@ -0,0 +1,870 @@
+package com.example.slices.controllers;
+
+import android.annotation.SuppressLint;
+import android.location.Location;
+
+import com.example.slices.exceptions.DBOpFailed;
+import com.example.slices.exceptions.DuplicateEntry;
+import com.example.slices.exceptions.EventNotFound;
+import com.example.slices.exceptions.WaitlistFull;
+import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.interfaces.EntrantPageCallback;
+import com.example.slices.models.Entrant;
+import com.example.slices.models.Event;
+import com.example.slices.models.Membership;
+import com.example.slices.models.RosterChange;
+import com.example.slices.models.RosterEntry;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.TransactionOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Stores event rosters as subcollections of the event document:
+ * events/{id}/waitlist/{entrantId} and events/{id}/entrants/{entrantId}.
+ * The event document keeps the ID lists and counters so membership checks and
+ * list screens never have to read a roster. Rosters are read a page at a time
+ * in join order.
+ * Events written before this layout embed their rosters; migrate moves them into
+ * the subcollections and is run before the first write to such an event.
+ * Waitlist membership (waitlist.entrantIds and waitlist.currentEntrants) is only ever
+ * changed with field transforms, so joins and leaves from many clients never overwrite
+ * each other; joinWaitlist checks capacity and duplicates inside a transaction.
+ * Every write that changes a roster also updates the entrant's membership index
+ * (entrants/{id}/memberships/{eventId}) in the same batch or transaction.
+ * @version 1.2
+ */
+public class RosterController {
+    /**
+     * Reference to the database
+     */
+    @SuppressLint("StaticFieldLeak")
+    private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+    /**
+     * Number of entrants read per page unless specified
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Firestore allows 500 writes per batch; leave room for the parent document
+     */
+    private static final int MAX_BATCH_OPS = 450;
+
+    /**
+     * Join transactions contend on the event document when registration opens, so allow
+     * more retries than the default of 5
+     */
+    private static final int MAX_JOIN_ATTEMPTS = 25;
+
+    /**
+     * Event fields written whole by an update: the ones an organizer edits, which are every stored
+     * EventInfo field but currentEntrants. The counters and ID lists are left out so an update
+     * cannot undo a join, leave or invitation made by another client since the event was read;
+     * the lists are changed with transforms and the counters are recounted from them.
+     * A field added to EventInfo must be added here to be saved by updates.
+     */
+    private static final SetOptions UPDATE_FIELDS = SetOptions.mergeFields(
+            "id", "rosterVersion", "waitlist.maxCapacity",
+            "eventInfo.id", "eventInfo.organizerID", "eventInfo.name", "eventInfo.nameLower",
+            "eventInfo.searchTokens", "eventInfo.description", "eventInfo.guidelines",
+            "eventInfo.address", "eventInfo.eventLatitude", "eventInfo.eventLongitude",
+            "eventInfo.geohash", "eventInfo.eventDate", "eventInfo.regStart", "eventInfo.regEnd",
+            "eventInfo.maxEntrants", "eventInfo.maxWaiting", "eventInfo.imageUrl", "eventInfo.image",
+            "eventInfo.entrantLoc", "eventInfo.entrantDist", "eventInfo.entrantRadius");
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private RosterController() {}
+
+    /**
+     * Gets the subcollection holding one of an event's rosters
+     * @param eventDoc
+     *      Event document
+     * @param roster
+     *      Roster to get
+     * @return
+     *      Reference to the roster subcollection
+     */
+    public static CollectionReference rosterRef(DocumentReference eventDoc, RosterChange.Roster roster) {
+        return eventDoc.collection(roster == RosterChange.Roster.WAITLIST ? "waitlist" : "entrants");
+    }
+
+    /**
+     * Gets an entrant's membership entry for an event
+     * @param entrantId
+     *      ID of the entrant
+     * @param eventId
+     *      ID of the event
+     * @return
+     *      Reference to the membership document
+     */
+    public static DocumentReference membershipRef(int entrantId, int eventId) {
+        return EntrantController.membershipRef(entrantId).document(String.valueOf(eventId));
+    }
+
+    /**
+     * Writes an event document together with its pending roster changes and the
+     * membership entries of the entrants they touch.
+     * Changes that do not fit in one batch are written first in their own batches,
+     * so the parent document is only written once every roster document is in place.
+     * An update writes the parent in a transaction that applies each waitlist change only if
+     * it changes membership, so a retried or repeated change cannot skew the waitlist count,
+     * and writes the entrant, cancelled and invited IDs that changed as array transforms.
+     * @param eventDoc
+     *      Event document
+     * @param event
+     *      Event to write
+     * @param changes
+     *      Roster changes to write, in the order they were made
+     * @param create
+     *      True to write the whole document, false to update it
+     * @return
+     *      Task that completes when everything is written
+     */
+    public static Task<Void> commit(DocumentReference eventDoc, Event event, List<RosterChange> changes,
+                                    boolean create) {
+        List<Event.IdListChange> idChanges = event.idListChanges();
+        List<WriteBatch> batches = new ArrayList<>();
+        WriteBatch batch = db.batch();
+        int ops = 0;
+        for (RosterChange change : changes) {
+            if (ops == MAX_BATCH_OPS) {
+                batches.add(batch);
+                batch = db.batch();
+                ops = 0;
+            }
+            DocumentReference doc = rosterRef(eventDoc, change.getRoster())
+                    .document(String.valueOf(change.getEntrantId()));
+            if (change.isRemoval()) {
+                batch.delete(doc);
+            } else {
+                batch.set(doc, new RosterEntry(change.getEntrant(), change.getLocation()));
+            }
+            ops++;
+        }
+        for (int entrantId : touchedEntrants(changes)) {
+            if (ops == MAX_BATCH_OPS) {
+                batches.add(batch);
+                batch = db.batch();
+                ops = 0;
+            }
+            writeMembership(batch, event, entrantId);
+            ops++;
+        }
+        if (create) {
+            batch.set(eventDoc, event);
+            batches.add(batch);
+            return commitInOrder(batches, 0)
+                    .addOnSuccessListener(aVoid -> event.markIdListsStored(idChanges));
+        }
+        batches.add(batch);
+        return commitInOrder(batches, 0)
+                .onSuccessTask(aVoid -> updateParent(eventDoc, event, changes, idChanges))
+                .addOnSuccessListener(aVoid -> event.markIdListsStored(idChanges));
+    }
+
+    /**
+     * Writes an updated event document in a transaction and bumps its revision
+     * @param eventDoc
+     *      Event document
+     * @param event
+     *      Event to write
+     * @param changes
+     *      Roster changes being written, in the order they were made
+     * @param idChanges
+     *      Changes to the event's ID lists since they were last stored
+     * @return
+     *      Task that fails with EventNotFound if the event was deleted
+     */
+    @SuppressWarnings("unchecked")
+    private static Task<Void> updateParent(DocumentReference eventDoc, Event event, List<RosterChange> changes,
+                                           List<Event.IdListChange> idChanges) {
+        TransactionOptions options = new TransactionOptions.Builder()
+                .setMaxAttempts(MAX_JOIN_ATTEMPTS)
+                .build();
+        return db.runTransaction(options, transaction -> {
+            DocumentSnapshot snapshot = transaction.get(eventDoc);
+            if (!snapshot.exists()) {
+                throw new EventNotFound("Event not found", eventDoc.getId());
+            }
+            Long revision = snapshot.getLong("revision");
+            long next = (revision != null ? revision : 0) + 1;
+            // Replay the waitlist changes against the stored membership, skipping the ones
+            // that would not change it
+            List<Long> stored = (List<Long>) snapshot.get("waitlist.entrantIds");
+            LinkedHashSet<Long> waiting = stored != null ? new LinkedHashSet<>(stored) : new LinkedHashSet<>();
+            LinkedHashSet<Long> joined = new LinkedHashSet<>();
+            LinkedHashSet<Long> left = new LinkedHashSet<>();
+            for (RosterChange change : changes) {
+                if (change.getRoster() != RosterChange.Roster.WAITLIST) continue;
+                long id = change.getEntrantId();
+                if (change.isRemoval()) {
+                    if (waiting.remove(id) && !joined.remove(id)) left.add(id);
+                } else if (waiting.add(id) && !left.remove(id)) {
+                    joined.add(id);
+                }
+            }
+
+            transaction.set(eventDoc, event, UPDATE_FIELDS);
+            Map<String, Object> added = new HashMap<>();
+            Map<String, Object> removed = new HashMap<>();
+            added.put("revision", next);
+            if (!joined.isEmpty()) added.put("waitlist.entrantIds", FieldValue.arrayUnion(joined.toArray()));
+            if (!left.isEmpty()) removed.put("waitlist.entrantIds", FieldValue.arrayRemove(left.toArray()));
+            if (stored == null || !joined.isEmpty() || !left.isEmpty()) {
+                // Counted from the membership, which also repairs a count that drifted before
+                added.put("waitlist.currentEntrants", waiting.size());
+            }
+            for (Event.IdListChange change : idChanges) {
+                if (!change.added.isEmpty()) added.put(change.field, FieldValue.arrayUnion(change.added.toArray()));
+                if (!change.removed.isEmpty()) removed.put(change.field, FieldValue.arrayRemove(change.removed.toArray()));
+                if (change.field.equals("entrantIds")) {
+                    // Counted from the stored list with this change applied, like the waitlist
+                    List<Long> enrolled = (List<Long>) snapshot.get("entrantIds");
+                    LinkedHashSet<Long> entrants = enrolled != null ? new LinkedHashSet<>(enrolled) : new LinkedHashSet<>();
+                    for (int id : change.added) entrants.add((long) id);
+                    for (int id : change.removed) entrants.remove((long) id);
+                    added.put("eventInfo.currentEntrants", entrants.size());
+                }
+            }
+            // A field can only be transformed once per write, so unions and removals are separate
+            transaction.update(eventDoc, added);
+            if (!removed.isEmpty()) transaction.update(eventDoc, removed);
+            return next;
+        }).onSuccessTask(next -> {
+            event.setRevision(next);
+            return Tasks.forResult(null);
+        });
+    }
+
+    /**
+     * Adds an entrant to an event's waitlist in a transaction.
+     * The capacity and duplicate checks run against the stored event inside the transaction,
+     * and only the waitlist fields, the cancelled/invited lists and the entrant's waitlist
+     * document are written.
+     * @param eventDoc
+     *      Event document
+     * @param entrant
+     *      Entrant joining
+     * @param location
+     *      Location they joined from, or null
+     * @return
+     *      Task that fails with EventNotFound, DuplicateEntry or WaitlistFull if the join is refused
+     */
+    @SuppressWarnings("unchecked")
+    public static Task<Void> joinWaitlist(DocumentReference eventDoc, Entrant entrant, Location location) {
+        DocumentReference entry = rosterRef(eventDoc, RosterChange.Roster.WAITLIST)
+                .document(String.valueOf(entrant.getId()));
+        DocumentReference membership = membershipRef(entrant.getId(), Integer.parseInt(eventDoc.getId()));
+        long id = entrant.getId();
+        TransactionOptions options = new TransactionOptions.Builder()
+                .setMaxAttempts(MAX_JOIN_ATTEMPTS)
+                .build();
+        return db.runTransaction(options, transaction -> {
+            DocumentSnapshot snapshot = transaction.get(eventDoc);
+            if (!snapshot.exists()) {
+                throw new EventNotFound("Event not found", eventDoc.getId());
+            }
+            List<Long> enrolled = (List<Long>) snapshot.get("entrantIds");
+            List<Long> waiting = (List<Long>) snapshot.get("waitlist.entrantIds");
+            Long capacity = snapshot.getLong("waitlist.maxCapacity");
+            if (enrolled != null && enrolled.contains(id)) {
+                throw new DuplicateEntry("Entrant already in event");
+            }
+            if (waiting != null && waiting.contains(id)) {
+                throw new DuplicateEntry("Entrant is already in the waitlist");
+            }
+            if (capacity != null && waiting != null && waiting.size() >= capacity) {
+                throw new WaitlistFull("Waitlist is full");
+            }
+            transaction.update(eventDoc,
+                    "waitlist.entrantIds", FieldValue.arrayUnion(entrant.getId()),
+                    "waitlist.currentEntrants", FieldValue.increment(1),
+                    "cancelledIds", FieldValue.arrayRemove(entrant.getId()),
+                    "invitedIds", FieldValue.arrayRemove(entrant.getId()),
+                    "revision", FieldValue.increment(1));
+            transaction.set(entry, new RosterEntry(entrant, location));
+            transaction.set(membership, new Membership(Integer.parseInt(eventDoc.getId()),
+                    Membership.Status.WAITLISTED, snapshot.getTimestamp("eventInfo.eventDate")));
+            return null;
+        });
+    }
+
+    /**
+     * Removes an entrant from an event's waitlist in a transaction
+     * @param eventDoc
+     *      Event document
+     * @param entrantId
+     *      ID of the entrant leaving
+     * @return
+     *      Task that resolves to false if the entrant was not on the waitlist
+     */
+    @SuppressWarnings("unchecked")
+    public static Task<Boolean> leaveWaitlist(DocumentReference eventDoc, int entrantId) {
+        DocumentReference entry = rosterRef(eventDoc, RosterChange.Roster.WAITLIST)
+                .document(String.valueOf(entrantId));
+        DocumentReference membership = membershipRef(entrantId, Integer.parseInt(eventDoc.getId()));
+        TransactionOptions options = new TransactionOptions.Builder()
+                .setMaxAttempts(MAX_JOIN_ATTEMPTS)
+                .build();
+        return db.runTransaction(options, transaction -> {
+            DocumentSnapshot snapshot = transaction.get(eventDoc);
+            List<Long> waiting = (List<Long>) snapshot.get("waitlist.entrantIds");
+            if (!snapshot.exists() || waiting == null || !waiting.contains((long) entrantId)) {
+                return false;
+            }
+            transaction.update(eventDoc,
+                    "waitlist.entrantIds", FieldValue.arrayRemove(entrantId),
+                    "waitlist.currentEntrants", FieldValue.increment(-1),
+                    "revision", FieldValue.increment(1));
+            transaction.delete(entry);
+            // An entrant accepted into the event keeps their enrolled entry
+            List<Long> enrolled = (List<Long>) snapshot.get("entrantIds");
+            if (enrolled == null || !enrolled.contains((long) entrantId)) {
+                transaction.delete(membership);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Gets the distinct entrants a list of roster changes applies to
+     * @param changes
+     *      Roster changes
+     * @return
+     *      Entrant IDs in the order they were first changed
+     */
+    private static LinkedHashSet<Integer> touchedEntrants(List<RosterChange> changes) {
+        LinkedHashSet<Integer> ids = new LinkedHashSet<>();
+        for (RosterChange change : changes) {
+            ids.add(change.getEntrantId());
+        }
+        return ids;
+    }
+
+    /**
+     * Adds the write that brings an entrant's membership entry in line with the event
+     * @param batch
+     *      Batch to add to
+     * @param event
+     *      Event as it is being written
+     * @param entrantId
+     *      ID of the entrant
+     */
+    private static void writeMembership(WriteBatch batch, Event event, int entrantId) {
+        DocumentReference doc = membershipRef(entrantId, event.getId());
+        Membership membership = Membership.of(event, entrantId);
+        if (membership == null) {
+            batch.delete(doc);
+        } else {
+            batch.set(doc, membership);
+        }
+    }
+
+    /**
+     * Commits batches one after another
+     * @param batches
+     *      Batches to commit
+     * @param index
+     *      Index of the next batch
+     * @return
+     *      Task that completes when the last batch is committed
+     */
+    private static Task<Void> commitInOrder(List<WriteBatch> batches, int index) {
+        Task<Void> task = batches.get(index).commit();
+        if (index == batches.size() - 1) {
+            return task;
+        }
+        return task.continueWithTask(t -> {
+            if (!t.isSuccessful()) {
+                return Tasks.forException(t.getException());
+            }
+            return commitInOrder(batches, index + 1);
+        });
+    }
+
+    /**
+     * Reads one page of a roster in join order
+     * @param eventDoc
+     *      Event document
+     * @param roster
+     *      Roster to read
+     * @param pageSize
+     *      Maximum number of entrants to return
+     * @param startAfter
+     *      Cursor returned with the previous page, or null for the first page
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void getPage(DocumentReference eventDoc, RosterChange.Roster roster, int pageSize,
+                               DocumentSnapshot startAfter, EntrantPageCallback callback) {
+        pageQuery(eventDoc, roster, pageSize, startAfter)
+                .get()
+                .addOnSuccessListener(query -> {
+                    List<Entrant> entrants = new ArrayList<>();
+                    for (RosterEntry entry : toEntries(query)) {
+                        entrants.add(entry.getEntrant());
+                    }
+                    callback.onSuccess(entrants, nextCursor(query, pageSize));
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Failed to read roster page for event " + eventDoc.getId(), null);
+                    callback.onFailure(new DBOpFailed("Failed to get roster"));
+                });
+    }
+
+    /**
+     * Reads a whole roster, a page at a time
+     * @param eventDoc
+     *      Event document
+     * @param roster
+     *      Roster to read
+     * @param onResult
+     *      Receives every entry in join order
+     * @param onFailure
+     *      Receives the exception if a page fails to load
+     */
+    public static void readAll(DocumentReference eventDoc, RosterChange.Roster roster,
+                               Consumer<List<RosterEntry>> onResult, Consumer<Exception> onFailure) {
+        readFrom(eventDoc, roster, null, new ArrayList<>(), onResult, onFailure);
+    }
+
+    /**
+     * Reads the remaining pages of a roster
+     * @param eventDoc
+     *      Event document
+     * @param roster
+     *      Roster to read
+     * @param startAfter
+     *      Cursor of the last page read, or null to start at the beginning
+     * @param acc
+     *      Entries read so far
+     * @param onResult
+     *      Receives every entry in join order
+     * @param onFailure
+     *      Receives the exception if a page fails to load
+     */
+    private static void readFrom(DocumentReference eventDoc, RosterChange.Roster roster, DocumentSnapshot startAfter,
+                                 List<RosterEntry> acc, Consumer<List<RosterEntry>> onResult,
+                                 Consumer<Exception> onFailure) {
+        pageQuery(eventDoc, roster, DEFAULT_PAGE_SIZE, startAfter)
+                .get()
+                .addOnSuccessListener(query -> {
+                    acc.addAll(toEntries(query));
+                    DocumentSnapshot next = nextCursor(query, DEFAULT_PAGE_SIZE);
+                    if (next == null) {
+                        onResult.accept(acc);
+                    } else {
+                        readFrom(eventDoc, roster, next, acc, onResult, onFailure);
+                    }
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    /**
+     * Fills an event's in-memory entrant list, waitlist and join locations from its rosters
+     * @param eventDoc
+     *      Event document
+     * @param event
+     *      Event to fill
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void loadRoster(DocumentReference eventDoc, Event event, DBWriteCallback callback) {
+        readAll(eventDoc, RosterChange.Roster.ENTRANTS, entrants -> {
+            readAll(eventDoc, RosterChange.Roster.WAITLIST, waiting -> {
+                List<Entrant> enrolled = new ArrayList<>();
+                for (RosterEntry entry : entrants) {
+                    enrolled.add(entry.getEntrant());
+                }
+                event.setEntrants(enrolled);
+
+                List<Entrant> waitlisted = new ArrayList<>();
+                Map<String, Map<String, Double>> locations = new HashMap<>();
+                for (RosterEntry entry : waiting) {
+                    waitlisted.add(entry.getEntrant());
+                    Location location = entry.toLocation();
+                    if (location != null) {
+                        Map<String, Double> point = new HashMap<>();
+                        point.put("latitude", location.getLatitude());
+                        point.put("longitude", location.getLongitude());
+                        locations.put(String.valueOf(entry.getEntrant().getId()), point);
+                    }
+                }
+                event.getWaitlist().setEntrants(waitlisted);
+                event.getWaitlist().setEntrantLocations(locations);
+                callback.onSuccess();
+            }, e -> {
+                Logger.logError("Failed to load waitlist for event id=" + event.getId(), null);
+                callback.onFailure(new DBOpFailed("Failed to get waitlist"));
+            });
+        }, e -> {
+            Logger.logError("Failed to load entrants for event id=" + event.getId(), null);
+            callback.onFailure(new DBOpFailed("Failed to get entrants"));
+        });
+    }
+
+    /**
+     * Replaces the stored copy of an entrant in one roster, leaving their join time and location
+     * @param eventDoc
+     *      Event document
+     * @param roster
+     *      Roster the entrant is in
+     * @param entrant
+     *      Updated entrant
+     * @return
+     *      Task that completes when the write is done
+     */
+    public static Task<Void> updateEntrant(DocumentReference eventDoc, RosterChange.Roster roster, Entrant entrant) {
+        return rosterRef(eventDoc, roster)
+                .document(String.valueOf(entrant.getId()))
+                .update("entrant", entrant);
+    }
+
+    /**
+     * Moves the rosters embedded in an older event document into the roster subcollections.
+     * Does nothing if the document is already migrated. Safe to run more than once.
+     * @param eventDoc
+     *      Event document
+     * @return
+     *      Task that completes when the migration is written
+     */
+    @SuppressWarnings("unchecked")
+    public static Task<Void> migrate(DocumentReference eventDoc) {
+        return eventDoc.get().continueWithTask(t -> {
+            if (!t.isSuccessful()) {
+                return Tasks.forException(t.getException());
+            }
+            DocumentSnapshot snapshot = t.getResult();
+            Long version = snapshot.getLong("rosterVersion");
+            if (!snapshot.exists() || (version != null && version >= Event.ROSTER_VERSION)) {
+                return Tasks.forResult(null);
+            }
+
+            List<Map<String, Object>> entrants = (List<Map<String, Object>>) snapshot.get("entrants");
+            List<Map<String, Object>> waiting = (List<Map<String, Object>>) snapshot.get("waitlist.entrants");
+            Map<String, Map<String, Object>> locations =
+                    (Map<String, Map<String, Object>>) snapshot.get("waitlist.entrantLocations");
+            if (entrants == null) {
+                entrants = new ArrayList<>();
+            }
+            if (waiting == null) {
+                waiting = new ArrayList<>();
+            }
+            if (locations == null) {
+                locations = new HashMap<>();
+            }
+
+            List<WriteBatch> batches = new ArrayList<>();
+            WriteBatch batch = db.batch();
+            int ops = 0;
+            // Embedded rosters have no join times; keep their order and place them before any new joins
+            long base = System.currentTimeMillis() - entrants.size() - waiting.size();
+            int order = 0;
+            for (int i = 0; i < entrants.size() + waiting.size(); i++) {
+                boolean isWaitlist = i >= entrants.size();
+                Map<String, Object> entrant = isWaitlist ? waiting.get(i - entrants.size()) : entrants.get(i);
+                Object id = entrant.get("id");
+                if (!(id instanceof Number)) {
+                    continue;
+                }
+                String key = String.valueOf(((Number) id).intValue());
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("entrant", entrant);
+                entry.put("joinedAt", new Timestamp(new Date(base + order++)));
+                if (isWaitlist && locations.get(key) != null) {
+                    entry.put("latitude", locations.get(key).get("latitude"));
+                    entry.put("longitude", locations.get(key).get("longitude"));
+                }
+                if (ops == MAX_BATCH_OPS) {
+                    batches.add(batch);
+                    batch = db.batch();
+                    ops = 0;
+                }
+                RosterChange.Roster roster = isWaitlist ? RosterChange.Roster.WAITLIST : RosterChange.Roster.ENTRANTS;
+                batch.set(rosterRef(eventDoc, roster).document(key), entry);
+                ops++;
+            }
+            batch.update(eventDoc,
+                    "rosterVersion", Event.ROSTER_VERSION,
+                    "entrants", FieldValue.delete(),
+                    "waitlist.entrants", FieldValue.delete(),
+                    "waitlist.entrantLocations", FieldValue.delete(),
+                    "waitlist.currentEntrants", waiting.size(),
+                    "eventInfo.currentEntrants", entrants.size(),
+                    "revision", FieldValue.increment(1));
+            batches.add(batch);
+            Logger.logSystem("Migrating roster for event " + eventDoc.getId() + ": "
+                    + entrants.size() + " entrants, " + waiting.size() + " waiting", null);
+            return commitInOrder(batches, 0);
+        });
+    }
+
+    /**
+     * Migrates every event in a collection, a page of events at a time
+     * @param events
+     *      Events collection
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void migrateAll(CollectionReference events, DBWriteCallback callback) {
+        migrateFrom(events, null, 0, callback);
+    }
+
+    /**
+     * Migrates the events after a cursor and then the remaining pages
+     * @param events
+     *      Events collection
+     * @param startAfter
+     *      Last event of the previous page, or null to start at the beginning
+     * @param migrated
+     *      Number of events checked so far
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void migrateFrom(CollectionReference events, DocumentSnapshot startAfter, int migrated,
+                                    DBWriteCallback callback) {
+        Query query = events.orderBy("id").limit(DEFAULT_PAGE_SIZE);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.get()
+                .addOnSuccessListener(page -> {
+                    List<Task<Void>> tasks = new ArrayList<>();
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        tasks.add(migrate(doc.getReference()));
+                    }
+                    Tasks.whenAll(tasks)
+                            .addOnSuccessListener(v -> {
+                                int total = migrated + page.size();
+                                DocumentSnapshot next = nextCursor(page, DEFAULT_PAGE_SIZE);
+                                if (next == null) {
+                                    Logger.logSystem("Roster migration checked " + total + " events", null);
+                                    callback.onSuccess();
+                                } else {
+                                    migrateFrom(events, next, total, callback);
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Logger.logError("Roster migration failed after " + migrated + " events", null);
+                                callback.onFailure(new DBOpFailed("Failed to migrate rosters"));
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Roster migration failed to read events", null);
+                    callback.onFailure(new DBOpFailed("Failed to migrate rosters"));
+                });
+    }
+
+    /**
+     * Writes the membership index entries for every event in a collection, a page of events
+     * at a time. Needed once for events whose rosters changed before the index existed;
+     * entries that are already current are rewritten unchanged.
+     * @param events
+     *      Events collection
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    public static void backfillMemberships(CollectionReference events, DBWriteCallback callback) {
+        backfillFrom(events, null, 0, 0, callback);
+    }
+
+    /**
+     * Writes the membership entries for the events after a cursor and then the remaining pages
+     * @param events
+     *      Events collection
+     * @param startAfter
+     *      Last event of the previous page, or null to start at the beginning
+     * @param checked
+     *      Number of events checked so far
+     * @param written
+     *      Number of entries written so far
+     * @param callback
+     *      Callback to call when the operation is complete
+     */
+    private static void backfillFrom(CollectionReference events, DocumentSnapshot startAfter, int checked,
+                                     int written, DBWriteCallback callback) {
+        Query query = events.orderBy("id").limit(DEFAULT_PAGE_SIZE);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.get()
+                .addOnSuccessListener(page -> {
+                    List<WriteBatch> batches = new ArrayList<>();
+                    WriteBatch batch = db.batch();
+                    int ops = 0;
+                    int entries = 0;
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        Event event = doc.toObject(Event.class);
+                        if (event == null) {
+                            continue;
+                        }
+                        LinkedHashSet<Integer> members = new LinkedHashSet<>();
+                        addAll(members, event.getEntrantIds());
+                        addAll(members, event.getWaitlist() != null ? event.getWaitlist().getEntrantIds() : null);
+                        addAll(members, event.getCancelledIds());
+                        for (int entrantId : members) {
+                            if (ops == MAX_BATCH_OPS) {
+                                batches.add(batch);
+                                batch = db.batch();
+                                ops = 0;
+                            }
+                            writeMembership(batch, event, entrantId);
+                            ops++;
+                            entries++;
+                        }
+                    }
+                    batches.add(batch);
+                    int total = checked + page.size();
+                    int totalWritten = written + entries;
+                    commitInOrder(batches, 0)
+                            .addOnSuccessListener(v -> {
+                                DocumentSnapshot next = nextCursor(page, DEFAULT_PAGE_SIZE);
+                                if (next == null) {
+                                    Logger.logSystem("Membership backfill checked " + total + " events, wrote "
+                                            + totalWritten + " entries", null);
+                                    callback.onSuccess();
+                                } else {
+                                    backfillFrom(events, next, total, totalWritten, callback);
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Logger.logError("Membership backfill failed after " + checked + " events", null);
+                                callback.onFailure(new DBOpFailed("Failed to backfill memberships"));
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Logger.logError("Membership backfill failed to read events", null);
+                    callback.onFailure(new DBOpFailed("Failed to backfill memberships"));
+                });
+    }
+
+    /**
+     * Adds every non-null ID of a list to a set
+     */
+    private static void addAll(LinkedHashSet<Integer> set, List<Integer> ids) {
+        if (ids == null) {
+            return;
+        }
+        for (Integer id : ids) {
+            if (id != null) {
+                set.add(id);
+            }
+        }
+    }
+
+    /**
+     * Deletes both roster subcollections of an event
+     * @param eventDoc
+     *      Event document
+     * @return
+     *      Task that completes when every roster document is deleted
+     */
+    public static Task<Void> deleteRoster(DocumentReference eventDoc) {
+        return Tasks.whenAll(
+                deleteAll(rosterRef(eventDoc, RosterChange.Roster.WAITLIST)),
+                deleteAll(rosterRef(eventDoc, RosterChange.Roster.ENTRANTS)));
+    }
+
+    /**
+     * Deletes an entrant's membership index
+     * @param entrantId
+     *      ID of the entrant
+     * @return
+     *      Task that completes when every membership document is deleted
+     */
+    public static Task<Void> deleteMemberships(int entrantId) {
+        return deleteAll(EntrantController.membershipRef(entrantId));
+    }
+
+    /**
+     * Deletes every document in a subcollection, a batch at a time
+     * @param roster
+     *      Roster or membership subcollection
+     * @return
+     *      Task that completes when the subcollection is empty
+     */
+    static Task<Void> deleteAll(CollectionReference roster) {
+        return roster.limit(MAX_BATCH_OPS).get().continueWithTask(t -> {
+            if (!t.isSuccessful()) {
+                return Tasks.forException(t.getException());
+            }
+            QuerySnapshot page = t.getResult();
+            if (page.isEmpty()) {
+                return Tasks.forResult(null);
+            }
+            WriteBatch batch = db.batch();
+            for (DocumentSnapshot doc : page.getDocuments()) {
+                batch.delete(doc.getReference());
+            }
+            return batch.commit().continueWithTask(c -> {
+                if (!c.isSuccessful()) {
+                    return Tasks.forException(c.getException());
+                }
+                if (page.size() < MAX_BATCH_OPS) {
+                    return Tasks.forResult(null);
+                }
+                return deleteAll(roster);
+            });
+        });
+    }
+
+    /**
+     * Builds the query for one roster page
+     */
+    private static Query pageQuery(DocumentReference eventDoc, RosterChange.Roster roster, int pageSize,
+                                   DocumentSnapshot startAfter) {
+        Query query = rosterRef(eventDoc, roster)
+                .orderBy("joinedAt")
+                .limit(pageSize);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        return query;
+    }
+
+    /**
+     * Converts a page of roster documents into entries, skipping any without an entrant
+     */
+    private static List<RosterEntry> toEntries(QuerySnapshot query) {
+        List<RosterEntry> entries = new ArrayList<>();
+        for (DocumentSnapshot doc : query.getDocuments()) {
+            RosterEntry entry = doc.toObject(RosterEntry.class);
+            if (entry != null && entry.getEntrant() != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the cursor for the page after this one
+     * @return
+     *      Last document of a full page, or null if there are no more pages
+     */
+    static DocumentSnapshot nextCursor(QuerySnapshot query, int pageSize) {
+        if (query.size() < pageSize) {
+            return null;
+        }
+        return query.getDocuments().get(query.size() - 1);
+    }
+}
@@ -18,15 +18,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.slices.R;
 import com.example.slices.adapters.NotificationAdapter;
+import com.example.slices.controllers.NotificationFeed;
+import com.example.slices.controllers.NotificationManager;
 import com.example.slices.models.AdminNotification;
 import com.example.slices.models.Notification;
 
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Fragment that displays notifications sent
@@ -34,8 +31,14 @@ import java.util.List;
  */
 public class AdminNotificationsFragment extends Fragment {
 
+    /**
+     * Cards from the end of the list at which the next older page is read
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+
     private RecyclerView recyclerView;
     private NotificationAdapter adapter;
+    private NotificationFeed feed;
 
     @Nullable
     @Override
@@ -66,59 +69,63 @@ public class AdminNotificationsFragment extends Fragment {
         adapter = new NotificationAdapter(requireContext(), true);
         recyclerView.setAdapter(adapter);
 
-        // Load notifications
-        loadAllNotifications();
+        // Keep the newest notifications live while the view is started, and read older ones on scroll
+        feed = new NotificationFeed(NotificationManager.getFeedQuery(), this::toNotification, adapter);
+        feed.bind(getViewLifecycleOwner());
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (nearEnd()) {
+                    feed.loadMore();
+                }
+            }
+        });
     }
 
-    private void loadAllNotifications() {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
-        db.collection("notifications")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-
-                    if (error != null) {
-                        Log.e("AdminNotifications", "Error loading notifications", error);
-                        return;
-                    }
-
-                    List<Notification> list = new ArrayList<>();
-
-                    if (value != null) {
-                        for (DocumentSnapshot doc : value.getDocuments()) {
-
-                            try {
-                                AdminNotification raw = doc.toObject(AdminNotification.class);
-
-                                if (raw != null) {
-
-
-                                    if (doc.contains("type")) {
-                                        String typeStr = doc.getString("type");
-                                        raw.setType(typeStr);
-                                    }
-
-                                    Notification n = new Notification();
-                                    n.setTitle(raw.getTitle());
-                                    n.setBody(raw.getBody());
-                                    n.setId(raw.getId());
-                                    n.setRecipientId(raw.getRecipientId() != null ? raw.getRecipientId().intValue() : 0);
-                                    n.setSenderId(raw.getSenderId() != null ? raw.getSenderId().intValue() : 0);
-                                    n.setEventId(raw.getEventId() != null ? raw.getEventId().intValue() : 0);
-                                    n.setRead(raw.getRead() != null && raw.getRead());
-                                    n.setTimestamp(raw.getTimestamp());
-                                    n.setType(raw.getType());
-
-                                    list.add(n);
-                                }
-
-                            } catch (Exception e) {
-                                Log.e("AdminNotifications", "Error converting notification", e);
-                            }
-                        }
-                    }
+    /**
+     * Checks if the last cards are on screen
+     * @return
+     *      True if the list is within PREFETCH_DISTANCE items of its end
+     */
+    private boolean nearEnd() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        return layoutManager != null
+                && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - 1 - PREFETCH_DISTANCE;
+    }
 
-                    adapter.setNotifications(list);
-                });
+    /**
+     * Converts a stored notification of any type for display
+     * @param doc
+     *      Notification document
+     * @return
+     *      Notification to show; only the ID is set if the document cannot be read
+     */
+    private Notification toNotification(DocumentSnapshot doc) {
+        Notification n = new Notification();
+        n.setId(doc.getId());
+        try {
+            AdminNotification raw = doc.toObject(AdminNotification.class);
+
+            if (raw != null) {
+                if (doc.contains("type")) {
+                    String typeStr = doc.getString("type");
+                    raw.setType(typeStr);
+                }
+
+                n.setTitle(raw.getTitle());
+                n.setBody(raw.getBody());
+                if (raw.getId() != null) n.setId(raw.getId());
+                n.setRecipientId(raw.getRecipientId() != null ? raw.getRecipientId().intValue() : 0);
+                n.setSenderId(raw.getSenderId() != null ? raw.getSenderId().intValue() : 0);
+                n.setEventId(raw.getEventId() != null ? raw.getEventId().intValue() : 0);
+                n.setRead(raw.getRead() != null && raw.getRead());
+                n.setTimestamp(raw.getTimestamp());
+                n.setType(raw.getType());
+            }
+
+        } catch (Exception e) {
+            Log.e("AdminNotifications", "Error converting notification", e);
+        }
+        return n;
     }
-}
\ No newline at end of file
+}
@@ -21,21 +21,24 @@ import androidx.navigation.NavController;
 import androidx.navigation.NavOptions;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.slices.R;
 import com.example.slices.SharedViewModel;
 import com.example.slices.adapters.EntrantEventAdapter;
 import com.example.slices.controllers.EventController;
+import com.example.slices.controllers.EventRepository;
 import com.example.slices.controllers.LocationManager;
 import com.example.slices.interfaces.LocationCallback;
 import com.example.slices.models.Event;
 import com.example.slices.interfaces.EventCallback;
 
 import com.example.slices.databinding.BrowseFragmentBinding;
-import com.example.slices.interfaces.EventListCallback;
+import com.example.slices.interfaces.EventPageCallback;
 import com.example.slices.models.SearchSettings;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -45,13 +48,39 @@ import java.util.List;
 
 /**
  * Fragment showing a list of all events
- * Will later also include search functionality
+ * Events are loaded a page at a time, soonest first. The page after the one on screen is
+ * fetched in the background, and shown once the list is scrolled near its end
  * @author Brad Erdely, Raj Prasad
  */
 public class BrowseFragment extends Fragment {
+    /**
+     * Events read per page
+     */
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * How many cards from the end of the list the next page is shown
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+
     private BrowseFragmentBinding binding;
-    private ArrayList<Event> eventList = new ArrayList<>();
+    private final ArrayList<Event> eventList = new ArrayList<>();
     private SharedViewModel vm;
+    private SearchSettings feedSearch;
+    /**
+     * Cursor for the next page to read, null when reading the first page
+     */
+    private DocumentSnapshot nextPage;
+    private boolean lastPageRead;
+    private boolean loadingPage;
+    /**
+     * Page read ahead of the list, shown when the list is scrolled near its end
+     */
+    private List<Event> prefetched;
+    /**
+     * Bumped whenever the search changes, so pages of an older search are dropped
+     */
+    private int feedGeneration;
     private EntrantEventAdapter eventAdapter;
     private ActivityResultLauncher<String[]> locationPermissionLauncher;
     private EntrantEventAdapter.JoinWithLocationCallback pendingJoinCallback;
@@ -70,8 +99,21 @@ public class BrowseFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         vm = new ViewModelProvider(requireActivity()).get(SharedViewModel.class);
-        eventAdapter = new EntrantEventAdapter(requireContext(), BrowseFragment.this, eventList);
-        binding.browseList.setLayoutManager(new LinearLayoutManager(requireContext()));
+        eventAdapter = new EntrantEventAdapter(requireContext(), BrowseFragment.this);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        binding.browseList.setLayoutManager(layoutManager);
+        // Set ViewModel on adapter before any data operations to prevent null reference crashes
+        eventAdapter.setViewModel(vm);
+        binding.browseList.setAdapter(eventAdapter);
+        binding.browseList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            // Also called after a layout changes the visible range, so a short list keeps filling
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (nearEnd()) {
+                    showNextPage();
+                }
+            }
+        });
         SearchSettings search = vm.getSearch();
 
         // Set up location permission launcher
@@ -127,7 +169,7 @@ public class BrowseFragment extends Fragment {
      *   The event ID extracted from the QR code
      */
     private void openEventDetailsFromQR(int eventId) {
-        EventController.getEvent(eventId, new EventCallback() {
+        EventRepository.getEvent(eventId, new EventCallback() {
             @Override
             public void onSuccess(Event event) {
                 // Guard against view destruction
@@ -170,40 +212,102 @@ public class BrowseFragment extends Fragment {
         navController.navigate(R.id.action_global_EventDetailsFragment, null, options);
     }
 
+    /**
+     * Starts the feed over for a search
+     * @param search
+     *      Search to show the results of
+     */
     public void setupEvents(SearchSettings search) {
-        // Set ViewModel on adapter before any data operations to prevent null reference crashes
-        eventAdapter.setViewModel(vm);
-        binding.browseList.setAdapter(eventAdapter);
+        feedSearch = search != null ? search : new SearchSettings();
+        feedGeneration++;
+        eventList.clear();
+        nextPage = null;
+        lastPageRead = false;
+        loadingPage = false;
+        prefetched = null;
+        eventAdapter.submitList(new ArrayList<>());
+        readPage();
+    }
+
+    /**
+     * Checks if the list is scrolled close enough to its end to show another page
+     * @return
+     *      True if the next page should be shown
+     */
+    private boolean nearEnd() {
+        if (binding == null) {
+            return false;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) binding.browseList.getLayoutManager();
+        return layoutManager == null
+                || layoutManager.findLastVisibleItemPosition() >= eventList.size() - 1 - PREFETCH_DISTANCE;
+    }
+
+    /**
+     * Shows the page read ahead, if there is one, and reads the one after it
+     */
+    private void showNextPage() {
+        if (prefetched != null) {
+            List<Event> page = prefetched;
+            prefetched = null;
+            append(page);
+        }
+        readPage();
+    }
 
-        EventController.queryEvents(search, new EventListCallback() {
+    /**
+     * Adds a page to the list; the adapter diffs it in the background
+     * @param page
+     *      Events to add
+     */
+    private void append(List<Event> page) {
+        if (page.isEmpty()) {
+            return;
+        }
+        eventList.addAll(page);
+        eventAdapter.submitList(new ArrayList<>(eventList));
+    }
+
+    /**
+     * Reads the next page. It is shown straight away while the list is short or scrolled to
+     * its end, which also keeps reading past pages the device-side filters emptied;
+     * otherwise it is held until the list is scrolled near its end
+     */
+    private void readPage() {
+        if (loadingPage || lastPageRead || prefetched != null) {
+            return;
+        }
+        loadingPage = true;
+        int generation = feedGeneration;
+        EventController.queryEvents(feedSearch, PAGE_SIZE, nextPage, new EventPageCallback() {
             @Override
-            public void onSuccess(List<Event> events) {
-                // Guard against view destruction
-                if (!isAdded()) {
+            public void onSuccess(List<Event> events, DocumentSnapshot next) {
+                // Guard against view destruction and searches that have been replaced
+                if (!isAdded() || binding == null || generation != feedGeneration) {
                     return;
                 }
+                loadingPage = false;
+                nextPage = next;
+                lastPageRead = next == null;
 
-                try {
-                    eventList.clear();
-                    eventList.addAll(events);
-                    eventAdapter.notifyDataSetChanged();
-
-                } catch (Exception e) {
-                    Log.e("BrowseFragment", "Error setting adapter", e);
-                    Toast.makeText(requireContext(), "Error displaying events", Toast.LENGTH_SHORT).show();
+                if (nearEnd()) {
+                    append(events);
+                    readPage();
+                } else {
+                    prefetched = events;
                 }
             }
 
             @Override
             public void onFailure(Exception e) {
                 // Guard against view destruction
-                if (!isAdded()) {
+                if (!isAdded() || generation != feedGeneration) {
                     return;
                 }
+                loadingPage = false;
 
                 Log.e("BrowseFragment", "Error fetching events", e);
                 Toast.makeText(requireContext(), "Failed to load events.", Toast.LENGTH_SHORT).show();
-                eventAdapter.notifyDataSetChanged();
             }
         });
     }
@@ -477,35 +581,10 @@ public class BrowseFragment extends Fragment {
     @Override
     public void onResume() {
         super.onResume();
-        Log.d("BrowseFragment", "onResume - refreshing events and waitlist state");
-        
-        // Refresh events when fragment resumes to ensure button states are current
-        SearchSettings search = vm.getSearch();
-        EventController.queryEvents(search, new EventListCallback() {
-            @Override
-            public void onSuccess(List<Event> events) {
-                if (!isAdded()) return;
-                
-                Log.d("BrowseFragment", "Query succeeded with " + events.size() + " events");
-                eventList.clear();
-                eventList.addAll(events);
-                
-                // Load user's waitlisted events AFTER event list is updated
-                // This ensures proper synchronization between event data and button states
-                loadUserEvents();
-            }
+        Log.d("BrowseFragment", "onResume - refreshing waitlist state");
 
-            @Override
-            public void onFailure(Exception e) {
-                // On failure, preserve existing state but still try to refresh waitlist
-                Log.e("BrowseFragment", "Failed to refresh events on resume", e);
-                
-                // Still attempt to refresh waitlist state even if event query failed
-                if (isAdded()) {
-                    loadUserEvents();
-                }
-            }
-        });
+        // The feed is loaded when the view is created; only the button states can go stale
+        loadUserEvents();
     }
 
     @Override
@@ -1,7 +1,9 @@
 package com.example.slices.fragments;
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Size;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,10 +12,10 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.annotation.OptIn;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
@@ -29,8 +31,10 @@ import android.content.pm.PackageManager;
 
 import com.example.slices.R;
 import com.example.slices.controllers.QRCodeManager;
+import com.example.slices.models.QRFrameDecoder;
 
-import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * CameraFragment
@@ -38,9 +42,19 @@ import java.nio.ByteBuffer;
  *
  *   When a valid QR code containing an Event ID is detected, the event ID is passed back to the
  *   BrowseFragment using FragmentResult
+ *
+ *   Frames are analysed on a dedicated thread by a QRFrameDecoder, which reuses its buffers and
+ *   throttles attempts; only scan results are posted to the main thread
  */
 public class CameraFragment extends Fragment{
+    /**
+     * Analysis resolution; QR codes held up to the camera decode well below full resolution
+     */
+    private static final Size ANALYSIS_SIZE = new Size(1280, 720);
+
     private PreviewView previewView;
+    private ExecutorService analysisExecutor;
+    private final QRFrameDecoder decoder = new QRFrameDecoder();
 
     /**
      * onCreateView
@@ -84,6 +98,7 @@ public class CameraFragment extends Fragment{
         super.onViewCreated(view, savedInstanceState);
 
         previewView = view.findViewById(R.id.camera_preview);
+        analysisExecutor = Executors.newSingleThreadExecutor();
 
         if (hasCameraPermission()) {
             openCamera(previewView);
@@ -92,6 +107,18 @@ public class CameraFragment extends Fragment{
         }
     }
 
+    /**
+     * Stops the analysis thread; CameraX unbinds the use cases with the view's lifecycle
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (analysisExecutor != null) {
+            analysisExecutor.shutdown();
+            analysisExecutor = null;
+        }
+    }
+
     /**
      * hasCameraPermission()
      *   Checks for permission to allow launching the device's Camera app
@@ -134,12 +161,16 @@ public class CameraFragment extends Fragment{
                         cameraProvider.unbindAll();
                         ImageAnalysis analysis = new ImageAnalysis.Builder()
                                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                                .setResolutionSelector(new ResolutionSelector.Builder()
+                                        .setResolutionStrategy(new ResolutionStrategy(ANALYSIS_SIZE,
+                                                ResolutionStrategy.FALLBACK_RULE_CLOSEST_LOWER_THEN_HIGHER))
+                                        .build())
                                 .build();
 
-                        analysis.setAnalyzer(ContextCompat.getMainExecutor(requireContext()),
-                                this::scanImage);
+                        if (analysisExecutor == null) return; // view destroyed before the camera was ready
+                        analysis.setAnalyzer(analysisExecutor, this::scanImage);
 
-                        cameraProvider.bindToLifecycle(this, selector, preview,
+                        cameraProvider.bindToLifecycle(getViewLifecycleOwner(), selector, preview,
                                 analysis);
 
                     } catch (Exception x) {
@@ -149,58 +180,21 @@ public class CameraFragment extends Fragment{
     }
 
     /**
-     * process each frame from the camera using ZXing then convert frame into a source to decode the
-     * QR code. Calls onCodeScanned(String) if it succeeds
+     * process each frame from the camera on the analysis thread, decoding the luminance plane in
+     * place with ZXing. Posts onCodeScanned(String) to the main thread if a new code is found
      * @param image
      *    the ImageProxy frame as provided by CameraX
      */
-    @OptIn(markerClass = ExperimentalGetImage.class)
     private void scanImage(ImageProxy image) {
+        String text;
         try (image) {
-            @ExperimentalGetImage
-            android.media.Image mediaImage = image.getImage();
-            if (mediaImage != null) {
-                int width = mediaImage.getWidth();
-                int height = mediaImage.getHeight();
-
-                ByteBuffer buffer = mediaImage.getPlanes()[0].getBuffer();
-                byte[] bytes = new byte[buffer.remaining()];
-                buffer.get(bytes);
-
-                com.google.zxing.LuminanceSource source =
-                        new com.google.zxing.RGBLuminanceSource(width, height, bytesToInts(bytes));
-
-                com.google.zxing.BinaryBitmap bitmap =
-                        new com.google.zxing.BinaryBitmap(new
-                                com.google.zxing.common.HybridBinarizer(source));
-
-                try {
-                    com.google.zxing.Result result =
-                            new com.google.zxing.qrcode.QRCodeReader().decode(bitmap);
-
-                    onCodeScanned(result.getText());
-
-                } catch (Exception e) {
-                    // Not a QR or unreadable = ignored!
-                }
-            }
+            ImageProxy.PlaneProxy luminance = image.getPlanes()[0];
+            text = decoder.decode(luminance.getBuffer(), luminance.getRowStride(),
+                    image.getWidth(), image.getHeight(), SystemClock.elapsedRealtime());
         }
-    }
-
-    /**
-     * converts y-plane image bbytes into integers for ZXing
-     * @param yuv
-     *    the y-plane bytes
-     * @return
-     *   an int array representing grayscale pixels
-     */
-    private int[] bytesToInts(byte[] yuv) {
-        int[] out = new int[yuv.length];
-        for (int i = 0; i < yuv.length; i++) {
-            int y = yuv[i] & 0xFF;
-            out[i] = 0xFF000000 | (y << 16) | (y << 8) | y;
+        if (text != null && previewView != null) {
+            previewView.post(() -> onCodeScanned(text));
         }
-        return out;
     }
 
     /**
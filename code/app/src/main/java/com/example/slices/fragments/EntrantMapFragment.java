@@ -1,7 +1,12 @@
 package com.example.slices.fragments;
 
-import android.location.Location;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,36 +17,68 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.slices.R;
+import com.example.slices.adapters.EntrantHeatmapProvider;
 import com.example.slices.controllers.EventController;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.models.Entrant;
 import com.example.slices.models.Event;
+import com.example.slices.models.LocationIndex;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.google.android.material.button.MaterialButton;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Fragment for displaying entrant join locations on a map
  * Implements US 02.02.02 - Show where entrants joined from
+ * Locations are decoded and clustered on a background thread; only the clusters on screen
+ * are drawn, and they are re-clustered whenever the camera stops moving
  */
 public class EntrantMapFragment extends Fragment implements OnMapReadyCallback {
 
     private static final String ARG_EVENT_ID = "event_id";
     private static final String ARG_EVENT_NAME = "event_name";
+    private static final String TAG = "EntrantMapFragment";
+
+    /**
+     * Width of a cluster's grid cell, in map pixels
+     */
+    private static final int CLUSTER_CELL = 64;
 
     private int eventId;
     private String eventName;
     private GoogleMap googleMap;
     private Event currentEvent;
 
+    private LocationIndex index;
+    private ExecutorService executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Marker> markers = new ArrayList<>();
+    private final Map<String, BitmapDescriptor> clusterIcons = new HashMap<>();
+    private TileOverlay heatmap;
+    private MaterialButton modeButton;
+
+    /**
+     * Bumped on every render so results for an old camera position are dropped
+     */
+    private int renderGeneration;
+
     public static EntrantMapFragment newInstance(int eventId, String eventName) {
         EntrantMapFragment fragment = new EntrantMapFragment();
         Bundle args = new Bundle();
@@ -79,29 +116,41 @@ public class EntrantMapFragment extends Fragment implements OnMapReadyCallback {
             }
         });
 
+        executor = Executors.newSingleThreadExecutor();
+        modeButton = view.findViewById(R.id.btnMapMode);
+        modeButton.setOnClickListener(v -> toggleHeatmap());
+
         // Initialize map
         SupportMapFragment mapFragment = (SupportMapFragment) getChildFragmentManager()
                 .findFragmentById(R.id.map);
         if (mapFragment != null) {
-            android.util.Log.d("EntrantMapFragment", "Requesting map async...");
             mapFragment.getMapAsync(this);
         } else {
-            android.util.Log.e("EntrantMapFragment", "Map fragment is null!");
+            android.util.Log.e(TAG, "Map fragment is null!");
             Toast.makeText(getContext(), "Failed to initialize map", Toast.LENGTH_LONG).show();
         }
     }
 
     @Override
     public void onMapReady(@NonNull GoogleMap map) {
+        if (executor == null) {
+            return; // View already destroyed
+        }
         this.googleMap = map;
-        
-        android.util.Log.d("EntrantMapFragment", "Map is ready!");
 
         // Configure map
         googleMap.getUiSettings().setZoomControlsEnabled(true);
         googleMap.getUiSettings().setMyLocationButtonEnabled(false);
-        
-        android.util.Log.d("EntrantMapFragment", "Map configured, loading event data...");
+        googleMap.setOnCameraIdleListener(this::render);
+        googleMap.setOnMarkerClickListener(marker -> {
+            // Zoom into a cluster; single entrants show their info window
+            if (marker.getTag() instanceof Integer) {
+                googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(marker.getPosition(),
+                        googleMap.getCameraPosition().zoom + 2));
+                return true;
+            }
+            return false;
+        });
 
         // Load event data and display locations
         loadEventAndDisplayLocations();
@@ -113,7 +162,7 @@ public class EntrantMapFragment extends Fragment implements OnMapReadyCallback {
             return;
         }
 
-        EventController.getEvent(eventId, new EventCallback() {
+        EventController.getEventWithRoster(eventId, new EventCallback() {
             @Override
             public void onSuccess(Event event) {
                 if (getActivity() != null) {
@@ -135,104 +184,162 @@ public class EntrantMapFragment extends Fragment implements OnMapReadyCallback {
         });
     }
 
+    /**
+     * Checks the event can show locations, then decodes them on the background thread
+     */
     private void displayEntrantLocations() {
         if (currentEvent == null || googleMap == null) {
-            android.util.Log.e("EntrantMapFragment", "currentEvent or googleMap is null");
             return;
         }
 
-        android.util.Log.d("EntrantMapFragment", "Event ID: " + currentEvent.getId());
-        android.util.Log.d("EntrantMapFragment", "Event name: " + currentEvent.getEventInfo().getName());
-        android.util.Log.d("EntrantMapFragment", "Geolocation enabled: " + currentEvent.getEventInfo().getEntrantLoc());
-
         // Check if geolocation is enabled for this event
         if (!currentEvent.getEventInfo().getEntrantLoc()) {
-            android.util.Log.w("EntrantMapFragment", "Location tracking is not enabled for this event");
             showError("Location tracking is not enabled for this event");
             return;
         }
 
         // Check if waitlist exists
         if (currentEvent.getWaitlist() == null) {
-            android.util.Log.e("EntrantMapFragment", "Waitlist is null!");
             showError("No waitlist data available");
             return;
         }
 
-        // Get entrant locations from waitlist
-        Map<String, Map<String, Double>> entrantLocations = 
+        Map<String, Map<String, Double>> entrantLocations =
             currentEvent.getWaitlist().getEntrantLocations();
+        executor.execute(() -> {
+            LocationIndex decoded = LocationIndex.decode(entrantLocations);
+            handler.post(() -> onLocationsDecoded(decoded));
+        });
+    }
 
-        android.util.Log.d("EntrantMapFragment", "Entrant locations map: " + 
-            (entrantLocations == null ? "null" : "size=" + entrantLocations.size()));
-
-        if (entrantLocations == null || entrantLocations.isEmpty()) {
-            android.util.Log.w("EntrantMapFragment", "No location data available for entrants");
+    private void onLocationsDecoded(LocationIndex decoded) {
+        if (!isAdded() || googleMap == null) {
+            return;
+        }
+        if (decoded.size() == 0) {
             showError("No location data available for entrants");
             return;
         }
+        index = decoded;
+        android.util.Log.d(TAG, "Decoded " + decoded.size() + " entrant locations");
 
-        // Add markers for each entrant location
-        List<LatLng> positions = new ArrayList<>();
-        int markerCount = 0;
-
-        android.util.Log.d("EntrantMapFragment", "Processing " + entrantLocations.size() + " entrant location entries");
-
-        for (Map.Entry<String, Map<String, Double>> entry : entrantLocations.entrySet()) {
-            String entrantIdStr = entry.getKey();
-            Map<String, Double> locationMap = entry.getValue();
-
-            android.util.Log.d("EntrantMapFragment", "Processing entrant ID: " + entrantIdStr);
-            android.util.Log.d("EntrantMapFragment", "Location map: " + locationMap);
-
-            if (locationMap != null && 
-                locationMap.containsKey("latitude") && 
-                locationMap.containsKey("longitude")) {
-                
-                double lat = locationMap.get("latitude");
-                double lng = locationMap.get("longitude");
-                LatLng position = new LatLng(lat, lng);
+        // Show count
+        Toast.makeText(getContext(),
+            "Showing " + decoded.size() + " entrant location(s)",
+            Toast.LENGTH_SHORT).show();
 
-                android.util.Log.d("EntrantMapFragment", "Adding marker at: " + lat + ", " + lng);
+        modeButton.setEnabled(true);
+        zoomToShowAllMarkers(decoded.bounds());
+        render();
+    }
 
-                // Convert String ID back to Integer for lookup
-                int entrantId;
-                try {
-                    entrantId = Integer.parseInt(entrantIdStr);
-                } catch (NumberFormatException e) {
-                    android.util.Log.e("EntrantMapFragment", "Failed to parse entrant ID: " + entrantIdStr);
-                    continue;
+    /**
+     * Draws the clusters inside the part of the map on screen, clustering for the current zoom
+     * on the background thread. Called whenever the camera stops moving
+     */
+    private void render() {
+        if (index == null || googleMap == null || heatmap != null) {
+            return;
+        }
+        LocationIndex current = index;
+        int zoom = (int) googleMap.getCameraPosition().zoom;
+        LatLngBounds visible = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        int generation = ++renderGeneration;
+        executor.execute(() -> {
+            LocationIndex.Clusters clusters = current.cluster(zoom, CLUSTER_CELL);
+            int[] shown = clusters.visible(visible.southwest.latitude, visible.southwest.longitude,
+                    visible.northeast.latitude, visible.northeast.longitude);
+            handler.post(() -> {
+                // Drop results for a camera position or mode that has since changed
+                if (generation != renderGeneration || googleMap == null || heatmap != null) {
+                    return;
                 }
-                
-                // Get entrant name if available
-                String entrantName = getEntrantName(entrantId);
+                drawClusters(current, clusters, shown);
+            });
+        });
+    }
 
-                // Add marker
-                googleMap.addMarker(new MarkerOptions()
+    private void drawClusters(LocationIndex current, LocationIndex.Clusters clusters, int[] shown) {
+        clearMarkers();
+        for (int c : shown) {
+            LatLng position = new LatLng(clusters.getLatitude(c), clusters.getLongitude(c));
+            int count = clusters.getCount(c);
+            Marker marker;
+            if (count == 1) {
+                marker = googleMap.addMarker(new MarkerOptions()
                         .position(position)
-                        .title(entrantName)
+                        .title(getEntrantName(current.getId(clusters.getFirst(c))))
                         .snippet("Joined from this location"));
-
-                positions.add(position);
-                markerCount++;
             } else {
-                android.util.Log.w("EntrantMapFragment", "Location map missing lat/lng for entrant: " + entrantIdStr);
+                marker = googleMap.addMarker(new MarkerOptions()
+                        .position(position)
+                        .icon(clusterIcon(count))
+                        .anchor(0.5f, 0.5f)
+                        .title(count + " entrants"));
+                if (marker != null) {
+                    marker.setTag(count);
+                }
+            }
+            if (marker != null) {
+                markers.add(marker);
             }
         }
+    }
 
-        android.util.Log.d("EntrantMapFragment", "Added " + markerCount + " markers to map");
+    private void clearMarkers() {
+        for (Marker marker : markers) {
+            marker.remove();
+        }
+        markers.clear();
+    }
 
-        // Show count
-        Toast.makeText(getContext(), 
-            "Showing " + markerCount + " entrant location(s)", 
-            Toast.LENGTH_SHORT).show();
+    /**
+     * Gets the round icon showing how many entrants a cluster holds, shared between clusters
+     * with the same label
+     */
+    private BitmapDescriptor clusterIcon(int count) {
+        String label = count < 1000 ? String.valueOf(count) : (count / 1000) + "k";
+        BitmapDescriptor icon = clusterIcons.get(label);
+        if (icon != null) {
+            return icon;
+        }
+        float density = getResources().getDisplayMetrics().density;
+        int size = (int) ((label.length() > 2 ? 44 : 36) * density);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.parseColor("#7E57C2"));
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, paint);
+        paint.setColor(Color.WHITE);
+        paint.setTextSize(14 * density);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setFakeBoldText(true);
+        canvas.drawText(label, size / 2f, size / 2f - (paint.descent() + paint.ascent()) / 2, paint);
+
+        icon = BitmapDescriptorFactory.fromBitmap(bitmap);
+        clusterIcons.put(label, icon);
+        return icon;
+    }
 
-        // Zoom camera to show all markers
-        if (!positions.isEmpty()) {
-            android.util.Log.d("EntrantMapFragment", "Zooming to show all markers");
-            zoomToShowAllMarkers(positions);
+    /**
+     * Switches between clustered markers and a heatmap of every entrant
+     */
+    private void toggleHeatmap() {
+        if (index == null || googleMap == null) {
+            return;
+        }
+        if (heatmap == null) {
+            renderGeneration++;
+            clearMarkers();
+            heatmap = googleMap.addTileOverlay(new TileOverlayOptions()
+                    .tileProvider(new EntrantHeatmapProvider(index))
+                    .fadeIn(false));
+            modeButton.setText(R.string.show_markers);
         } else {
-            android.util.Log.w("EntrantMapFragment", "No positions to zoom to, staying at default location");
+            heatmap.remove();
+            heatmap = null;
+            modeButton.setText(R.string.show_heatmap);
+            render();
         }
     }
 
@@ -250,27 +357,41 @@ public class EntrantMapFragment extends Fragment implements OnMapReadyCallback {
         return "Entrant #" + entrantId;
     }
 
-    private void zoomToShowAllMarkers(List<LatLng> positions) {
-        if (positions.isEmpty() || googleMap == null) return;
+    private void zoomToShowAllMarkers(double[] bounds) {
+        if (bounds == null || googleMap == null) return;
 
         LatLngBounds.Builder builder = new LatLngBounds.Builder();
-        for (LatLng position : positions) {
-            builder.include(position);
-        }
+        builder.include(new LatLng(bounds[0], bounds[1]));
+        builder.include(new LatLng(bounds[2], bounds[3]));
 
-        LatLngBounds bounds = builder.build();
+        LatLngBounds latLngBounds = builder.build();
         int padding = 100; // padding in pixels
 
         try {
-            googleMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, padding));
+            googleMap.animateCamera(CameraUpdateFactory.newLatLngBounds(latLngBounds, padding));
         } catch (Exception e) {
             // If animation fails, try without animation
-            googleMap.moveCamera(CameraUpdateFactory.newLatLngBounds(bounds, padding));
+            googleMap.moveCamera(CameraUpdateFactory.newLatLngBounds(latLngBounds, padding));
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
         }
+        renderGeneration++;
+        markers.clear();
+        clusterIcons.clear();
+        heatmap = null;
+        googleMap = null;
+        modeButton = null;
     }
 
     private void showError(String message) {
-        android.util.Log.e("EntrantMapFragment", "Error: " + message);
+        android.util.Log.e(TAG, "Error: " + message);
         
         if (getContext() != null) {
             Toast.makeText(getContext(), message, Toast.LENGTH_LONG).show();
@@ -280,7 +401,7 @@ public class EntrantMapFragment extends Fragment implements OnMapReadyCallback {
         if (googleMap != null) {
             LatLng defaultLocation = new LatLng(53.5461, -113.4938); // Edmonton, AB
             googleMap.moveCamera(CameraUpdateFactory.newLatLngZoom(defaultLocation, 10));
-            android.util.Log.d("EntrantMapFragment", "Set map to default location due to error");
+            android.util.Log.d(TAG, "Set map to default location due to error");
         }
         
         // Don't close the fragment - let user see the map and error message
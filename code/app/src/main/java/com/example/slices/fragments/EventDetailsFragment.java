@@ -18,7 +18,9 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.bumptech.glide.Glide;
 
+import com.example.slices.adapters.EventImages;
 import com.example.slices.controllers.EventController;
+import com.example.slices.controllers.EventRepository;
 import com.example.slices.exceptions.DuplicateEntry;
 import com.example.slices.exceptions.WaitlistFull;
 import com.example.slices.interfaces.EventCallback;
@@ -118,7 +120,7 @@ public class EventDetailsFragment extends Fragment {
             }
 
 
-            EventController.getEvent(eventId, new EventCallback() {
+            EventRepository.getEvent(eventId, new EventCallback() {
                 @Override
                 public void onSuccess(Event event) {
                     e = event;
@@ -339,7 +341,7 @@ public class EventDetailsFragment extends Fragment {
                                     }
 
                                     // refresh event obj
-                                    EventController.getEvent(eventId, new EventCallback() {
+                                    EventRepository.getEvent(eventId, new EventCallback() {
                                         @Override
                                         public void onSuccess(Event refreshed) {
                                             e = refreshed; }
@@ -370,7 +372,7 @@ public class EventDetailsFragment extends Fragment {
                             }
 
                             // refresh event obj
-                            EventController.getEvent(eventId, new EventCallback() {
+                            EventRepository.getEvent(eventId, new EventCallback() {
                                 @Override
                                 public void onSuccess(Event refreshed) {
                                     e = refreshed; }
@@ -414,7 +416,7 @@ public class EventDetailsFragment extends Fragment {
                         }
                         
                         // Refresh the event object from database after successful removal
-                        EventController.getEvent(eventId, new EventCallback() {
+                        EventRepository.getEvent(eventId, new EventCallback() {
                             @Override
                             public void onSuccess(Event refreshedEvent) {
                                 e = refreshedEvent;
@@ -494,27 +496,20 @@ public class EventDetailsFragment extends Fragment {
         binding.eventDatetime.setText(whenText);
         binding.eventLocation.setText(e.getEventInfo().getAddress());
 
-        // Load image with graceful fallback
-        String imageUrl = eventInfo.getImageUrl();
-        if (imageUrl == null || imageUrl.trim().isEmpty()) {
-            binding.eventImage.setImageResource(R.drawable.ic_image);
-        } else {
-            Glide.with(this.getContext())
-                    .load(imageUrl)
-                    .placeholder(R.drawable.ic_image)
-                    .error(R.drawable.ic_image)
-                    .into(binding.eventImage);
-        }
+        // Load the full image, keyed on its path and version, with graceful fallback
+        Glide.with(this)
+                .load(EventImages.model(eventInfo, false))
+                .placeholder(R.drawable.ic_image)
+                .error(R.drawable.ic_image)
+                .fallback(R.drawable.ic_image)
+                .into(binding.eventImage);
 
         // counts style reflecting the "Waitlist | Participants" from the xml style
         int wlCount = 0; //waitlist count
-        if (e.getWaitlist() != null && e.getWaitlist().getEntrants() != null) {
-            wlCount = e.getWaitlist().getEntrants().size();
-        }
-        int participantCount = 0; // actual participants count
-        if (e.getEntrants() != null) {
-            participantCount = e.getEntrants().size();
+        if (e.getWaitlist() != null) {
+            wlCount = e.getWaitlist().getCurrentEntrants();
         }
+        int participantCount = e.getEventInfo().getCurrentEntrants(); // actual participants count
         binding.eventCounts.setText(String.format(java.util.Locale.getDefault(),
                 "%d Waitlisted  |  %d Participating", wlCount, participantCount));
 
@@ -580,7 +575,7 @@ public class EventDetailsFragment extends Fragment {
                                 
                                 // Refresh the event object from database after successful join
                                 int eventIdInt = Integer.parseInt(eventIdStr);
-                                EventController.getEvent(eventIdInt, new EventCallback() {
+                                EventRepository.getEvent(eventIdInt, new EventCallback() {
                                     @Override
                                     public void onSuccess(Event refreshedEvent) {
                                         e = refreshedEvent;
@@ -624,7 +619,7 @@ public class EventDetailsFragment extends Fragment {
                                 
                                 // Refresh the event object from database after successful join
                                 int eventIdInt = Integer.parseInt(eventIdStr);
-                                EventController.getEvent(eventIdInt, new EventCallback() {
+                                EventRepository.getEvent(eventIdInt, new EventCallback() {
                                     @Override
                                     public void onSuccess(Event refreshedEvent) {
                                         e = refreshedEvent;
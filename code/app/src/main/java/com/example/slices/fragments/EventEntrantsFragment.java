@@ -43,6 +43,7 @@ public class EventEntrantsFragment extends Fragment {
     private String eventName;
     private int senderId;
     private Event currentEvent;
+    private com.example.slices.controllers.EntrantExporter.Job exportJob;
     private ListType currentListType = ListType.WAITLIST;
 
     /**
@@ -346,7 +347,7 @@ public class EventEntrantsFragment extends Fragment {
             return;
         }
 
-        com.example.slices.controllers.EventController.getEvent(eventId, new EventCallback() {
+        com.example.slices.controllers.EventController.getEventWithRoster(eventId, new EventCallback() {
             @Override
             public void onSuccess(Event event) {
                 if (getActivity() != null) {
@@ -1117,8 +1118,8 @@ public class EventEntrantsFragment extends Fragment {
         }
         
         // Check if enrolled entrants exist
-        List<Entrant> enrolledEntrants = currentEvent.getEntrants();
-        if (enrolledEntrants == null || enrolledEntrants.isEmpty()) {
+        List<Integer> enrolledIds = currentEvent.getEntrantIds();
+        if (enrolledIds == null || enrolledIds.isEmpty()) {
             android.widget.Toast.makeText(requireContext(),
                     "No enrolled entrants to export.",
                     android.widget.Toast.LENGTH_SHORT).show();
@@ -1130,10 +1131,15 @@ public class EventEntrantsFragment extends Fragment {
             binding.progressBar.setVisibility(View.VISIBLE);
         }
         
-        // Call EventController.exportEntrantsToCSV()
-        com.example.slices.controllers.EventController.exportEntrantsToCSV(
+        // Call EventController.exportEntrantsToCSV(), which writes the file in the background
+        if (exportJob != null) {
+            exportJob.cancel();
+        }
+        exportJob = com.example.slices.controllers.EventController.exportEntrantsToCSV(
             currentEvent, 
             requireContext(), 
+            java.util.Collections.singletonList(com.example.slices.models.EntrantCsv.Status.ENROLLED),
+            com.example.slices.models.EntrantCsv.DEFAULT_COLUMNS,
             new com.example.slices.interfaces.CSVExportCallback() {
                 @Override
                 public void onSuccess(String filePath) {
@@ -1165,7 +1171,7 @@ public class EventEntrantsFragment extends Fragment {
                             // Display error toast with more details
                             String errorMessage = "Failed to export CSV: " + e.getMessage();
                             if (e.getMessage() != null) {
-                                if (e.getMessage().contains("No enrolled entrants")) {
+                                if (e.getMessage().contains("No entrants")) {
                                     errorMessage = "No enrolled entrants to export.";
                                 } else if (e.getMessage().contains("storage") || e.getMessage().contains("permission")) {
                                     errorMessage = "Failed to create CSV file. Check storage permissions.";
@@ -1178,6 +1184,13 @@ public class EventEntrantsFragment extends Fragment {
                         });
                     }
                 }
+
+                @Override
+                public void onCancelled() {
+                    if (binding != null) {
+                        binding.progressBar.setVisibility(View.GONE);
+                    }
+                }
             }
         );
     }
@@ -1205,33 +1218,36 @@ public class EventEntrantsFragment extends Fragment {
     }
     
     /**
-     * Opens the text file with an appropriate app
+     * Opens the CSV file with an appropriate app
      * 
-     * @param filePath Path to the file
+     * @param filePath Path to the file, or its content URI on Android 10 and later
      */
     private void openCSVFile(String filePath) {
         try {
-            java.io.File file = new java.io.File(filePath);
-            
-            // Get URI using FileProvider
-            android.net.Uri fileUri = androidx.core.content.FileProvider.getUriForFile(
-                requireContext(),
-                requireContext().getPackageName() + ".fileprovider",
-                file
-            );
+            android.net.Uri fileUri;
+            if (filePath.startsWith("content://")) {
+                fileUri = android.net.Uri.parse(filePath);
+            } else {
+                // Get URI using FileProvider
+                fileUri = androidx.core.content.FileProvider.getUriForFile(
+                    requireContext(),
+                    requireContext().getPackageName() + ".fileprovider",
+                    new java.io.File(filePath)
+                );
+            }
             
-            // Create intent to view the file as plain text
+            // Create intent to view the file as CSV
             android.content.Intent intent = new android.content.Intent(android.content.Intent.ACTION_VIEW);
-            intent.setDataAndType(fileUri, "text/plain");
+            intent.setDataAndType(fileUri, "text/csv");
             intent.addFlags(android.content.Intent.FLAG_GRANT_READ_URI_PERMISSION);
             
             // Try to open with an app
             try {
                 startActivity(android.content.Intent.createChooser(intent, "Open with"));
             } catch (android.content.ActivityNotFoundException e) {
-                // No app can handle text files (very unlikely)
+                // No app can handle CSV files (very unlikely)
                 android.widget.Toast.makeText(requireContext(),
-                        "No app found to open text files. File saved to: " + filePath,
+                        "No app found to open CSV files. File saved to: " + filePath,
                         android.widget.Toast.LENGTH_LONG).show();
             }
         } catch (Exception e) {
@@ -1317,6 +1333,10 @@ public class EventEntrantsFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (exportJob != null) {
+            exportJob.cancel();
+            exportJob = null;
+        }
         binding = null;
     }
 }
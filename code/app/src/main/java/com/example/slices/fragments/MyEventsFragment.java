@@ -14,7 +14,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import com.example.slices.SharedViewModel;
 
 import com.example.slices.controllers.EventController;
-import com.example.slices.interfaces.EntrantEventCallback;
+import com.example.slices.interfaces.MyEventsCallback;
 import com.example.slices.models.Event;
 import com.example.slices.adapters.EventAdapter;
 import com.example.slices.databinding.MyEventsFragmentBinding;
@@ -61,9 +61,9 @@ public class MyEventsFragment extends Fragment {
      */
     public void setupEvents() {
 
-        EventController.getEventsForEntrant(sharedViewModel.getUser(), new EntrantEventCallback() {
+        EventController.getMyEvents(sharedViewModel.getUser(), new MyEventsCallback() {
             @Override
-            public void onSuccess(List<Event> events, List<Event> waitEvents) {
+            public void onSuccess(List<Event> events, List<Event> waitEvents, List<Event> pastEvents) {
                 // Guard against view destruction - check if fragment is still added and binding exists
                 if (!isAdded() || binding == null) {
                     return;
@@ -71,6 +71,7 @@ public class MyEventsFragment extends Fragment {
 
                 sharedViewModel.setEvents(events);
                 sharedViewModel.setWaitlistedEvents(waitEvents);
+                sharedViewModel.setPastEvents(pastEvents);
 
                 // Populate waitlistedEventIds from the loaded waitlist events
                 // This ensures the browse screen shows correct button states
@@ -88,31 +89,7 @@ public class MyEventsFragment extends Fragment {
                 binding.waitlistList.setLayoutManager(new LinearLayoutManager(requireContext()));
                 binding.waitlistList.setAdapter(waitlistAdapter);
 
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                // Guard against view destruction
-                if (!isAdded()) {
-                    return;
-                }
-                Toast.makeText(requireContext(), "Failed to load events.", Toast.LENGTH_SHORT).show();
-
-            }
-        });
-
-        EventController.getPastEventsForEntrant(sharedViewModel.getUser(), new EntrantEventCallback() {
-            @Override
-            public void onSuccess(List<Event> events, List<Event> waitEvents) {
-                // Guard against view destruction - check if fragment is still added and binding exists
-                if (!isAdded() || binding == null) {
-                    return;
-                }
-
-                events.addAll(waitEvents);
-                sharedViewModel.setPastEvents(events);
-
-                EventAdapter pastAdapter = new EventAdapter(requireContext(), events, MyEventsFragment.this);
+                EventAdapter pastAdapter = new EventAdapter(requireContext(), pastEvents, MyEventsFragment.this);
                 binding.pastList.setLayoutManager(new LinearLayoutManager(requireContext()));
                 binding.pastList.setAdapter(pastAdapter);
 
@@ -124,7 +101,7 @@ public class MyEventsFragment extends Fragment {
                 if (!isAdded()) {
                     return;
                 }
-                Toast.makeText(requireContext(), "Failed to load past events.", Toast.LENGTH_SHORT).show();
+                Toast.makeText(requireContext(), "Failed to load events.", Toast.LENGTH_SHORT).show();
 
             }
         });
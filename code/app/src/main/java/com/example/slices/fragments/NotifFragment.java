@@ -14,19 +14,17 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.slices.MainActivity;
 import com.example.slices.SharedViewModel;
 import com.example.slices.adapters.NotificationAdapter;
 
-import com.example.slices.controllers.EventController;
 import com.example.slices.controllers.NotificationManager;
 import com.example.slices.databinding.NotifFragmentBinding;
 import com.example.slices.interfaces.DBWriteCallback;
-import com.example.slices.interfaces.EventCallback;
-import com.example.slices.interfaces.NotificationListCallback;
-import com.example.slices.models.Event;
-import com.example.slices.models.Invitation;
-import com.example.slices.models.NotSelected;
+import com.example.slices.interfaces.NotificationPageCallback;
 import com.example.slices.models.Notification;
+import com.example.slices.models.NotificationType;
+import com.google.firebase.firestore.DocumentSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,11 +32,30 @@ import java.util.List;
 /**
  * Fragment that displays a list of notifications and invitations for the
  * current user.
- * Invitations are always displayed before general notifications.
+ * The inbox is read a page at a time, newest first, as the list is scrolled.
  * @author Bhupinder Singh
  */
 public class NotifFragment extends Fragment {
+    /**
+     * Notifications read per page
+     */
+    private static final int PAGE_SIZE = 20;
+    /**
+     * Read the next page when this many cards are left below the last visible one
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+
     private NotifFragmentBinding binding;
+    /**
+     * Cursor for the next page to read, null when reading the first page
+     */
+    private DocumentSnapshot nextPage;
+    private boolean lastPageRead;
+    private boolean loadingPage;
+    /**
+     * Bumped for each new view so pages read for an earlier view are dropped
+     */
+    private int inboxGeneration;
 
     private SharedViewModel vm;
     private NotificationAdapter notificationAdapter;
@@ -57,6 +74,10 @@ public class NotifFragment extends Fragment {
     public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         vm = new ViewModelProvider(requireActivity()).get(SharedViewModel.class);
+        inboxGeneration++;
+        nextPage = null;
+        lastPageRead = false;
+        loadingPage = false;
 
         // Sets up the recycler view for the notifications
         recyclerView = binding.notificationRecycler;
@@ -74,6 +95,11 @@ public class NotifFragment extends Fragment {
                     if (!isAdded()) return;
                     b.clearNotificationsButton.setEnabled(true);
                     notificationAdapter.setNotifications(new ArrayList<>());
+                    // Drop any page still being read; the inbox is now empty
+                    inboxGeneration++;
+                    loadingPage = false;
+                    nextPage = null;
+                    lastPageRead = true;
                     b.noNotifText.setVisibility(View.VISIBLE);
                     Toast.makeText(requireContext(), "Notifications cleared", Toast.LENGTH_SHORT).show();
                 }
@@ -87,92 +113,85 @@ public class NotifFragment extends Fragment {
             });
         });
 
-        List<Notification> recyclerNotifications = new ArrayList<>();
-
-        // Fetches the notifications and invitations from the database
-        // and adds them to the recycler view
-        NotificationManager.getInvitationByRecipientId(vm.getUser().getId(), new NotificationListCallback() {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            // Also called after a layout changes the visible range, so a short list keeps filling
             @Override
-            public void onSuccess(List<Notification> invitations) {
-                for (Notification invitation : invitations) {
-                    if (!((Invitation) invitation).isAccepted() && !((Invitation) invitation).isDeclined()) {
-                        recyclerNotifications.add(invitation);
-                    }
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (nearEnd()) {
+                    loadPage();
+                }
+            }
+        });
+        // Dismissing, accepting or declining removes the card once the change is stored
+        notificationAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                if (isAdded() && requireActivity() instanceof MainActivity) {
+                    ((MainActivity) requireActivity()).refreshUnreadBadge();
                 }
-                NotificationManager.getNotSelectedByRecipientId(vm.getUser().getId(), new NotificationListCallback() {
-                    @Override
-                    public void onSuccess(List<Notification> notSelected) {
-                        for (Notification notSelectedNotification : notSelected) {
-                            if (!((NotSelected) notSelectedNotification).isStayed() && !((NotSelected) notSelectedNotification).isDeclined()) {
-                                recyclerNotifications.add(notSelectedNotification);
-                            }
-                        }
-                        if (vm.getUser().getProfile().getSendNotifications()) {
-                            NotificationManager.getNotificationsByRecipientId(vm.getUser().getId(), new NotificationListCallback() {
-                                // Adds the notifications to the recycler view,
-                                @Override
-                                public void onSuccess(List<Notification> notifications) {
-                                    NotifFragmentBinding b = binding;
-                                    if (!isAdded() || b == null) return; // view destroyed; ignore callback
-                                    for (Notification notification : notifications) {
-                                        if (!notification.getRead()) {
-                                            recyclerNotifications.add(notification);
-                                        }
-                                    }
-
-                                    // Sort by timestamp in descending order (most recent first)
-                                    recyclerNotifications.sort((n1, n2) -> {
-                                        if (n1.getTimestamp() == null && n2.getTimestamp() == null) return 0;
-                                        if (n1.getTimestamp() == null) return 1;
-                                        if (n2.getTimestamp() == null) return -1;
-                                        return n2.getTimestamp().compareTo(n1.getTimestamp());
-                                    });
-
-                                    notificationAdapter.setNotifications(recyclerNotifications);
-                                    if (recyclerNotifications.isEmpty()) {
-                                        b.noNotifText.setVisibility(View.VISIBLE);
-                                    } else {
-                                        b.noNotifText.setVisibility(View.GONE);
-                                    }
-                                }
-                                @Override
-                                public void onFailure(Exception e) {
-                                    if (!isAdded()) return;
-                                    Log.e("NotifFragment", "Error fetching notifications", e);
-                                    Toast.makeText(requireContext(), "Error: Couldn't load notifications", Toast.LENGTH_SHORT).show();
-                                }
-                            });
-                        } else {
-                            NotifFragmentBinding b = binding;
-                            if (!isAdded() || b == null) return;
-                            recyclerNotifications.sort((n1, n2) -> {
-                                if (n1.getTimestamp() == null && n2.getTimestamp() == null) return 0;
-                                if (n1.getTimestamp() == null) return 1;
-                                if (n2.getTimestamp() == null) return -1;
-                                return n2.getTimestamp().compareTo(n1.getTimestamp());
-                            });
-
-                            notificationAdapter.setNotifications(recyclerNotifications);
-                            if (recyclerNotifications.isEmpty()) {
-                                b.noNotifText.setVisibility(View.VISIBLE);
-                            } else {
-                                b.noNotifText.setVisibility(View.GONE);
-                            }
-                        }
+            }
+        });
 
+        // Fetches the first page of the inbox: active invitations, not-selected notices
+        // and unread notifications, newest first
+        loadPage();
+    }
+
+    /**
+     * Checks if the list is scrolled close enough to the end to read the next page
+     * @return
+     *      True if the next page should be read
+     */
+    private boolean nearEnd() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        return layoutManager != null
+                && layoutManager.findLastVisibleItemPosition() >= notificationAdapter.getItemCount() - 1 - PREFETCH_DISTANCE;
+    }
+
+    /**
+     * Reads the next page of the inbox and appends it to the list
+     */
+    private void loadPage() {
+        if (loadingPage || lastPageRead || vm.getUser() == null) {
+            return;
+        }
+        loadingPage = true;
+        int generation = inboxGeneration;
+        boolean showNotifications = vm.getUser().getProfile().getSendNotifications();
+        NotificationManager.getInbox(vm.getUser().getId(), PAGE_SIZE, nextPage, new NotificationPageCallback() {
+            @Override
+            public void onSuccess(List<Notification> notifications, DocumentSnapshot next) {
+                NotifFragmentBinding b = binding;
+                // view destroyed or replaced; ignore callback
+                if (!isAdded() || b == null || generation != inboxGeneration) return;
+                loadingPage = false;
+                nextPage = next;
+                lastPageRead = next == null;
+
+                List<Notification> page = new ArrayList<>();
+                for (Notification notification : notifications) {
+                    // General notifications are hidden from users who turned them off
+                    if (showNotifications || notification.getType() != NotificationType.NOTIFICATION) {
+                        page.add(notification);
                     }
-                    @Override
-                    public void onFailure(Exception e) {
-                        if (!isAdded()) return;
-                        Log.e("NotifFragment", "Error fetching NotSelected", e);
-                        Toast.makeText(requireContext(), "Error: Couldn't load notifications", Toast.LENGTH_SHORT).show();
-                    }
-                });
+                }
+                notificationAdapter.addNotifications(page);
+                if (notificationAdapter.getItemCount() == 0 && lastPageRead) {
+                    b.noNotifText.setVisibility(View.VISIBLE);
+                } else {
+                    b.noNotifText.setVisibility(View.GONE);
+                }
+                if (nearEnd()) {
+                    loadPage();
+                }
             }
+
             @Override
             public void onFailure(Exception e) {
+                if (generation != inboxGeneration) return;
+                loadingPage = false;
                 if (!isAdded()) return;
-                Log.e("NotifFragment", "Error fetching invitations", e);
+                Log.e("NotifFragment", "Error fetching notifications", e);
                 Toast.makeText(requireContext(), "Error: Couldn't load notifications", Toast.LENGTH_SHORT).show();
             }
         });
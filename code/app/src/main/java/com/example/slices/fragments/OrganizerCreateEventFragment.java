@@ -3,6 +3,7 @@ package com.example.slices.fragments;
 import android.Manifest;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.location.Location;
@@ -35,6 +36,7 @@ import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.interfaces.EventIDCallback;
 import com.example.slices.interfaces.ImageUploadCallback;
+import com.example.slices.interfaces.QRCodeCallback;
 import com.example.slices.models.Event;
 import com.example.slices.models.EventInfo;
 import com.example.slices.models.Image;
@@ -422,15 +424,20 @@ public class OrganizerCreateEventFragment extends Fragment {
         EventController.createEvent(eventInfo, new EventCallback() {
             @Override
             public void onSuccess(Event createdEvent) {
-                // Generate QR code for the event
-                String qrCodeData = QRCodeManager.generateQRCodeData(createdEvent.getId());
-                Bitmap qrCodeBitmap = QRCodeManager.generateQRCode(createdEvent.getId());
+                // Generate QR code for the event in the background; it is cached for the edit screen
+                // The app context is used as this fragment is gone by the time it is ready
+                Context appContext = requireContext().getApplicationContext();
+                QRCodeManager.getQRCode(appContext, createdEvent.getId(), new QRCodeCallback() {
+                    @Override
+                    public void onSuccess(Bitmap bitmap) {
+                        Toast.makeText(appContext, "Event created successfully with QR code!", Toast.LENGTH_SHORT).show();
+                    }
 
-                if (qrCodeBitmap != null) {
-                    Toast.makeText(getContext(), "Event created successfully with QR code!", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(getContext(), "Event created successfully! (QR code generation failed)", Toast.LENGTH_SHORT).show();
-                }
+                    @Override
+                    public void onFailure(Exception e) {
+                        Toast.makeText(appContext, "Event created successfully! (QR code generation failed)", Toast.LENGTH_SHORT).show();
+                    }
+                });
 
                 // Clear pending event info on success
                 pendingEventInfo = null;
@@ -34,10 +34,12 @@ import androidx.navigation.fragment.NavHostFragment;
 import com.bumptech.glide.Glide;
 import com.example.slices.R;
 
+import com.example.slices.adapters.EventImages;
 import com.example.slices.controllers.EventController;
 import com.example.slices.controllers.ImageController;
 import com.example.slices.controllers.QRCodeManager;
 import com.example.slices.interfaces.ImageUploadCallback;
+import com.example.slices.interfaces.QRCodeCallback;
 import com.example.slices.models.Event;
 import com.example.slices.interfaces.EventCallback;
 import com.example.slices.interfaces.DBWriteCallback;
@@ -314,24 +316,12 @@ public class OrganizerEditEventFragment extends Fragment {
                 switchEntrantLocation.setChecked(requiresLocation);
                 if (requiresLocation) {
                     layoutMaxDistance.setVisibility(View.VISIBLE);
-                    String distMetersStr = eventInfo.getEntrantDist();
-                    if (distMetersStr != null && !distMetersStr.isEmpty()) {
-                        try {
-                            // Convert meters to kilometers for display
-                            int distanceMeters = Integer.parseInt(distMetersStr);
-                            int distanceKm = distanceMeters / 1000;
-                            // Only show the value if it's greater than 0
-                            if (distanceKm > 0) {
-                                editMaxDistance.setText(String.valueOf(distanceKm));
-                            } else {
-                                editMaxDistance.setText("500"); // Default if 0
-                            }
-                        } catch (NumberFormatException e) {
-                            // If parsing fails, show default
-                            editMaxDistance.setText("500");
-                        }
+                    // Convert meters to kilometers for display
+                    int distanceKm = (int) (eventInfo.getEntrantRadius() / 1000);
+                    // Only show the value if it's greater than 0, otherwise show default
+                    if (distanceKm > 0) {
+                        editMaxDistance.setText(String.valueOf(distanceKm));
                     } else {
-                        // No distance set, show default
                         editMaxDistance.setText("500");
                     }
                 } else {
@@ -339,7 +329,7 @@ public class OrganizerEditEventFragment extends Fragment {
                 }
 
                 Glide.with(requireContext())
-                        .load(eventInfo.getImageUrl())
+                        .load(EventImages.model(eventInfo, false))
                         .placeholder(R.drawable.ic_image)
                         .into(eventImage);
 
@@ -555,15 +545,22 @@ public class OrganizerEditEventFragment extends Fragment {
      * @param eventId The event ID to generate QR code for
      */
     private void displayQRCode(int eventId) {
-        qrCodeBitmap = QRCodeManager.generateQRCode(eventId);
+        QRCodeManager.getQRCode(requireContext(), eventId, new QRCodeCallback() {
+            @Override
+            public void onSuccess(Bitmap bitmap) {
+                if (!isAdded() || getView() == null) return;
+                qrCodeBitmap = bitmap;
+                qrCodeImageView.setImageBitmap(qrCodeBitmap);
+                qrCodeImageView.setVisibility(View.VISIBLE);
+                buttonShareQRCode.setEnabled(true);
+            }
 
-        if (qrCodeBitmap != null) {
-            qrCodeImageView.setImageBitmap(qrCodeBitmap);
-            qrCodeImageView.setVisibility(View.VISIBLE);
-            buttonShareQRCode.setEnabled(true);
-        } else {
-            handleMissingQRCode();
-        }
+            @Override
+            public void onFailure(Exception e) {
+                if (!isAdded() || getView() == null) return;
+                handleMissingQRCode();
+            }
+        });
     }
 
     /**
@@ -1110,7 +1107,7 @@ public class OrganizerEditEventFragment extends Fragment {
                 // Revert to old image on failure
                 if (currentEvent.getEventInfo().getImageUrl() != null) {
                     Glide.with(requireContext())
-                            .load(currentEvent.getEventInfo().getImageUrl())
+                            .load(EventImages.model(currentEvent.getEventInfo(), false))
                             .placeholder(R.drawable.ic_image)
                             .into(eventImage);
                 }
@@ -1140,7 +1137,7 @@ public class OrganizerEditEventFragment extends Fragment {
 
         // Check if there are spots available
         int maxEntrants = currentEvent.getEventInfo().getMaxEntrants();
-        int currentEntrants = currentEvent.getEntrants().size();
+        int currentEntrants = currentEvent.getEventInfo().getCurrentEntrants();
         int availableSpots = maxEntrants - currentEntrants;
 
         if (availableSpots <= 0) {
@@ -1149,7 +1146,7 @@ public class OrganizerEditEventFragment extends Fragment {
         }
 
         // Check if there are entrants in the waitlist
-        int waitlistSize = currentEvent.getWaitlist().getEntrants().size();
+        int waitlistSize = currentEvent.getWaitlist().getCurrentEntrants();
         if (waitlistSize == 0) {
             Toast.makeText(getContext(), "No entrants in waitlist", Toast.LENGTH_SHORT).show();
             return;
@@ -1222,7 +1219,7 @@ public class OrganizerEditEventFragment extends Fragment {
 
         // Check if event is full
         int maxEntrants = currentEvent.getEventInfo().getMaxEntrants();
-        int currentEntrants = currentEvent.getEntrants() != null ? currentEvent.getEntrants().size() : 0;
+        int currentEntrants = currentEvent.getEventInfo().getCurrentEntrants();
         boolean isFull = currentEntrants >= maxEntrants;
 
         if (isFull) {
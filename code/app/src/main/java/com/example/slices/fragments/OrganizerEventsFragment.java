@@ -15,7 +15,9 @@ import com.example.slices.SharedViewModel;
 import com.example.slices.adapters.OrganizerEventAdapter;
 
 import com.example.slices.controllers.EventController;
+import com.example.slices.controllers.QRCodeManager;
 import com.example.slices.databinding.OrganizerEventsFragmentBinding;
+import com.example.slices.interfaces.ArchiveExportCallback;
 import com.example.slices.interfaces.EventListCallback;
 import com.example.slices.models.Event;
 import com.example.slices.models.EventInfo;
@@ -50,6 +52,9 @@ public class OrganizerEventsFragment extends Fragment {
 
     private SharedViewModel vm;
 
+    // Running QR code export, cancelled when the view goes away
+    private QRCodeManager.ExportJob qrExportJob;
+
 
 
 
@@ -86,10 +91,57 @@ public class OrganizerEventsFragment extends Fragment {
         binding.rvInProgress.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.rvPast.setLayoutManager(new LinearLayoutManager(requireContext()));
 
+        binding.btnExportQRCodes.setOnClickListener(v -> exportQRCodes());
+
         // Load organizer's events from the database
         loadOrganizerEvents();
     }
 
+    /**
+     * Saves the QR codes of all of the organizer's events into one zip in Downloads.
+     * Runs in the background; the button is disabled until it finishes.
+     */
+    private void exportQRCodes() {
+        List<Event> events = new ArrayList<>(upcomingEvents);
+        events.addAll(inProgressEvents);
+        events.addAll(pastEvents);
+        if (events.isEmpty()) {
+            Toast.makeText(requireContext(), "No events to export.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        binding.btnExportQRCodes.setEnabled(false);
+        qrExportJob = QRCodeManager.exportQRCodes(requireContext(), events, new ArchiveExportCallback() {
+            @Override
+            public void onProgress(int added, int total) {
+                if (binding != null) {
+                    binding.btnExportQRCodes.setText("Exporting " + added + "/" + total);
+                }
+            }
+
+            @Override
+            public void onSuccess(String location) {
+                qrExportJob = null;
+                if (!isAdded() || binding == null) return;
+                resetExportButton();
+                Toast.makeText(requireContext(), "QR codes saved to Downloads", Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                qrExportJob = null;
+                if (!isAdded() || binding == null) return;
+                resetExportButton();
+                Toast.makeText(requireContext(), "Failed to export QR codes.", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void resetExportButton() {
+        binding.btnExportQRCodes.setText("Export QR codes");
+        binding.btnExportQRCodes.setEnabled(true);
+    }
+
     /**
      * Loads events from the database and categorizes them as Upcoming, In Progress, or Past.
      * Updates the corresponding RecyclerViews with an OrganizerEventAdapter.
@@ -133,6 +185,7 @@ public class OrganizerEventsFragment extends Fragment {
                 binding.rvUpcoming.setAdapter(new OrganizerEventAdapter(requireContext(), upcomingEvents, OrganizerEventsFragment.this));
                 binding.rvInProgress.setAdapter(new OrganizerEventAdapter(requireContext(), inProgressEvents, OrganizerEventsFragment.this));
                 binding.rvPast.setAdapter(new OrganizerEventAdapter(requireContext(), pastEvents, OrganizerEventsFragment.this));
+                binding.btnExportQRCodes.setEnabled(qrExportJob == null && !events.isEmpty());
             }
 
             @Override
@@ -152,6 +205,10 @@ public class OrganizerEventsFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (qrExportJob != null) {
+            qrExportJob.cancel();
+            qrExportJob = null;
+        }
         binding = null;
     }
 
@@ -0,0 +1,34 @@
+package com.example.slices.interfaces;
+
+/**
+ * Callback interface for exports that write several files into one archive
+ * Every method is called on the main thread
+ * @version 1.0
+ */
+public interface ArchiveExportCallback {
+    /**
+     * Called when the archive has been saved
+     * @param location Path or content URI where the archive was saved
+     */
+    void onSuccess(String location);
+
+    /**
+     * Called when the export fails; the partial archive is deleted
+     * @param e Exception that caused the failure
+     */
+    void onFailure(Exception e);
+
+    /**
+     * Called after each file is added to the archive
+     * @param added Files added so far
+     * @param total Files being exported
+     */
+    default void onProgress(int added, int total) {
+    }
+
+    /**
+     * Called instead of onSuccess when the export was cancelled; the partial archive is deleted
+     */
+    default void onCancelled() {
+    }
+}
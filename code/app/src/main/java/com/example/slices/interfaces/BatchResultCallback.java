@@ -0,0 +1,18 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.AsyncBatchExecutor;
+
+import java.util.List;
+
+/**
+ * Interface for AsyncBatchExecutor completion callbacks
+ * @version 1.0
+ */
+public interface BatchResultCallback {
+    /**
+     * Called once every operation in the batch has succeeded or given up
+     * @param results
+     *      One result per operation, in the order they were submitted
+     */
+    void onComplete(List<AsyncBatchExecutor.Result> results);
+}
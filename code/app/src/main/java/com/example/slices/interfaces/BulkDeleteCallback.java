@@ -0,0 +1,22 @@
+package com.example.slices.interfaces;
+
+/**
+ * Interface for BulkDeleter callbacks
+ * @version 1.0
+ */
+public interface BulkDeleteCallback {
+    /**
+     * Called after each batch is committed
+     * @param deleted
+     *      Documents deleted so far
+     */
+    void onProgress(int deleted);
+
+    /**
+     * Called once nothing is left to delete, or once a cancelled purge has stopped
+     * @param deleted
+     *      Documents deleted in total
+     */
+    void onSuccess(int deleted);
+    void onFailure(Exception e);
+}
@@ -0,0 +1,17 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.BulkSendResult;
+
+/**
+ * Interface for bulk notification send callbacks
+ * @version 1.0
+ */
+public interface BulkSendCallback {
+    /**
+     * Called once every recipient has been delivered to, skipped or given up on
+     * @param result
+     *      Outcome for each recipient
+     */
+    void onSuccess(BulkSendResult result);
+    void onFailure(Exception e);
+}
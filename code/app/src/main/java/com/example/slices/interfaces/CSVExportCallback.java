@@ -2,13 +2,14 @@ package com.example.slices.interfaces;
 
 /**
  * Callback interface for CSV export operations
+ * Every method is called on the main thread
  * @author Kiro
- * @version 1.0
+ * @version 1.1
  */
 public interface CSVExportCallback {
     /**
      * Called when CSV export succeeds
-     * @param filePath Path where the CSV file was saved
+     * @param filePath Path or content URI where the CSV file was saved
      */
     void onSuccess(String filePath);
 
@@ -17,4 +18,18 @@ public interface CSVExportCallback {
      * @param e Exception that caused the failure
      */
     void onFailure(Exception e);
+
+    /**
+     * Called after each page of entrants is written
+     * @param exported Entrants written so far
+     * @param total Entrants being exported
+     */
+    default void onProgress(int exported, int total) {
+    }
+
+    /**
+     * Called instead of onSuccess when the export was cancelled; the partial file is deleted
+     */
+    default void onCancelled() {
+    }
 }
@@ -0,0 +1,22 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.Entrant;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+
+/**
+ * Interface for paged entrant list callbacks
+ * @version 1.0
+ */
+public interface EntrantPageCallback {
+    /**
+     * Called with one page of a roster
+     * @param entrants
+     *      Entrants on this page
+     * @param next
+     *      Cursor to pass to read the next page, or null if this was the last page
+     */
+    void onSuccess(List<Entrant> entrants, DocumentSnapshot next);
+    void onFailure(Exception e);
+}
@@ -0,0 +1,22 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.Event;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+
+/**
+ * Interface for paged event list callbacks
+ * @version 1.0
+ */
+public interface EventPageCallback {
+    /**
+     * Called with one page of events
+     * @param events
+     *      Events on this page that passed the search filters; may be fewer than the page size
+     * @param next
+     *      Cursor to pass to read the next page, or null if this was the last page
+     */
+    void onSuccess(List<Event> events, DocumentSnapshot next);
+    void onFailure(Exception e);
+}
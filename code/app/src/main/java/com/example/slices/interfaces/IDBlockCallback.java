@@ -0,0 +1,17 @@
+package com.example.slices.interfaces;
+
+/**
+ * Interface for ID block lease callbacks
+ * @version 1.0
+ */
+public interface IDBlockCallback {
+    /**
+     * Called with a freshly leased block of IDs
+     * @param start
+     *      First ID in the block
+     * @param size
+     *      Number of consecutive IDs in the block
+     */
+    void onSuccess(int start, int size);
+    void onFailure(Exception e);
+}
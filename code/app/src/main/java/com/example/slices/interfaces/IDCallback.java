@@ -0,0 +1,10 @@
+package com.example.slices.interfaces;
+
+/**
+ * Interface for generic ID allocation callbacks
+ * @version 1.0
+ */
+public interface IDCallback {
+    void onSuccess(int id);
+    void onFailure(Exception e);
+}
@@ -0,0 +1,21 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.Image;
+
+import java.util.List;
+
+/**
+ * Interface for paged image catalog callbacks
+ * @version 1.0
+ */
+public interface ImagePageCallback {
+    /**
+     * Called with one page of images
+     * @param images
+     *      Images on this page, in listing order
+     * @param nextPageToken
+     *      Token to pass to read the next page, or null if this was the last page
+     */
+    void onSuccess(List<Image> images, String nextPageToken);
+    void onFailure(Exception e);
+}
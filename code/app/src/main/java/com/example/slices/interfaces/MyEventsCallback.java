@@ -0,0 +1,23 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.Event;
+
+import java.util.List;
+
+/**
+ * Interface for callbacks receiving every event an entrant belongs to
+ * @version 1.0
+ */
+public interface MyEventsCallback {
+    /**
+     * Called with the entrant's events, each list in event date order
+     * @param events
+     *      Upcoming events the entrant is enrolled in
+     * @param waitEvents
+     *      Upcoming events the entrant is waitlisted for
+     * @param pastEvents
+     *      Past events the entrant was enrolled in or waitlisted for
+     */
+    void onSuccess(List<Event> events, List<Event> waitEvents, List<Event> pastEvents);
+    void onFailure(Exception e);
+}
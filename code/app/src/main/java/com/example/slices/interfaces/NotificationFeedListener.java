@@ -0,0 +1,29 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.Notification;
+
+import java.util.List;
+
+/**
+ * Interface for NotificationFeed updates; positions are positions in the feed
+ * @version 1.0
+ */
+public interface NotificationFeedListener {
+    /**
+     * Called when the whole feed is replaced, such as on the first snapshot after attaching
+     * @param notifications
+     *      Every notification in the feed, newest first
+     */
+    void onReplaced(List<Notification> notifications);
+
+    /**
+     * Called when an older page is added to the end of the feed
+     * @param notifications
+     *      Notifications in the page, newest first
+     */
+    void onAppended(List<Notification> notifications);
+    void onInserted(int position, Notification notification);
+    void onChanged(int position, Notification notification);
+    void onMoved(int from, int to);
+    void onRemoved(int position);
+}
@@ -0,0 +1,22 @@
+package com.example.slices.interfaces;
+
+import com.example.slices.models.Notification;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+
+/**
+ * Interface for paged notification list callbacks
+ * @version 1.0
+ */
+public interface NotificationPageCallback {
+    /**
+     * Called with one page of notifications
+     * @param notifications
+     *      Notifications on this page, newest first
+     * @param next
+     *      Cursor to pass to read the next page, or null if this was the last page
+     */
+    void onSuccess(List<Notification> notifications, DocumentSnapshot next);
+    void onFailure(Exception e);
+}
@@ -0,0 +1,17 @@
+package com.example.slices.interfaces;
+
+import android.graphics.Bitmap;
+
+/**
+ * Callback interface for QR code bitmaps
+ * Every method is called on the main thread
+ * @version 1.0
+ */
+public interface QRCodeCallback {
+    /**
+     * Called with the QR code; the bitmap is shared through the cache and must not be recycled
+     * @param bitmap QR code bitmap
+     */
+    void onSuccess(Bitmap bitmap);
+    void onFailure(Exception e);
+}
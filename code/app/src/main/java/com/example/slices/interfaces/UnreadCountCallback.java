@@ -0,0 +1,10 @@
+package com.example.slices.interfaces;
+
+/**
+ * Interface for unread notification count callbacks
+ * @version 1.0
+ */
+public interface UnreadCountCallback {
+    void onSuccess(long unread);
+    void onFailure(Exception e);
+}
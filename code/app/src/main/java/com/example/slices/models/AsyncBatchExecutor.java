@@ -1,23 +1,176 @@
 package com.example.slices.models;
 
+import com.example.slices.interfaces.BatchResultCallback;
 import com.example.slices.interfaces.DBWriteCallback;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 
 /**
  * Utility class for running batches of asynchronous Firestore-style operations.
- * Each operation is expressed as a Runnable that triggers a DBWriteCallback.
- * A single final callback is invoked once all operations have completed:
- *  - onSuccess() when every operation succeeds
- *  - onFailure() when any operation fails
+ * Each operation is expressed as a Consumer that triggers a DBWriteCallback.
+ * At most maxInFlight operations are started at once; each completion starts the next one,
+ * and the batch finishes when the last operation reports back, so no thread ever waits on it.
+ * Every operation gets its own Result, operations can be given a timeout and a retry policy,
+ * and the final callback is delivered on a chosen executor.
+ * Timeouts and retry delays share one lazily created timer thread; batches that use neither
+ * never touch it.
+ * @version 2.0
  */
 public class AsyncBatchExecutor {
+    /**
+     * Operations in flight at once when no limit is given
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private final int maxInFlight;
+    private long timeoutMillis = 0;
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+    private Executor callbackExecutor = Runnable::run;
+
+    /**
+     * Decides whether a failed attempt is tried again
+     */
+    public interface RetryPolicy {
+        /**
+         * Never retry
+         */
+        RetryPolicy NONE = (attempt, e) -> -1;
+
+        /**
+         * @param attempt
+         *      Number of the attempt that just failed, starting at 1
+         * @param e
+         *      Why it failed
+         * @return
+         *      Delay in milliseconds before the next attempt, or a negative number to give up
+         */
+        long retryDelay(int attempt, Exception e);
+
+        /**
+         * Retries any failure with a delay that doubles after each attempt
+         * @param maxAttempts
+         *      Attempts per operation, including the first
+         * @param initialDelayMillis
+         *      Delay before the first retry
+         * @return
+         *      Retry policy
+         */
+        static RetryPolicy exponential(int maxAttempts, long initialDelayMillis) {
+            return (attempt, e) -> attempt < maxAttempts ? initialDelayMillis << (attempt - 1) : -1;
+        }
+    }
+
+    /**
+     * Outcome of a single operation
+     */
+    public static final class Result {
+        private final int index;
+        private final Exception error;
+        private final int attempts;
+
+        Result(int index, Exception error, int attempts) {
+            this.index = index;
+            this.error = error;
+            this.attempts = attempts;
+        }
+
+        /**
+         * @return
+         *      Position of the operation in the submitted list
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return
+         *      Error from the last attempt, or null if the operation succeeded
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+
+    /**
+     * Creates an executor with the default concurrency limit
+     */
+    public AsyncBatchExecutor() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Creates an executor
+     * @param maxInFlight
+     *      Maximum number of operations started but not yet completed
+     */
+    public AsyncBatchExecutor(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sets how long an attempt may take before it counts as failed with a TimeoutException
+     * @param timeoutMillis
+     *      Timeout in milliseconds, 0 for none
+     * @return
+     *      This executor
+     */
+    public AsyncBatchExecutor setTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets the retry policy for failed attempts
+     * @param retryPolicy
+     *      Policy to use
+     * @return
+     *      This executor
+     */
+    public AsyncBatchExecutor setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
 
     /**
-     * Runs a batch of asynchronous operations and waits for all of them to complete.
+     * Sets where the final callback runs. By default it runs on the thread that completed
+     * the last operation
+     * @param callbackExecutor
+     *      Executor for the final callback
+     * @return
+     *      This executor
+     */
+    public AsyncBatchExecutor setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * Runs a batch of asynchronous operations with the default settings.
+     * Kept for existing callers: succeeds only if every operation succeeds.
      *
      * @param operations
      *      List of operations, each accepting a DBWriteCallback
@@ -25,47 +178,179 @@ public class AsyncBatchExecutor {
      *      Callback invoked once the batch completes
      */
     public static void runBatch(List<Consumer<DBWriteCallback>> operations, DBWriteCallback finalCallback) {
+        new AsyncBatchExecutor().run(operations, results -> {
+            if (finalCallback == null) return;
+
+            int failed = 0;
+            Exception first = null;
+            for (Result result : results) {
+                if (!result.isSuccess()) {
+                    failed++;
+                    if (first == null) first = result.getError();
+                }
+            }
+            if (failed > 0) {
+                finalCallback.onFailure(new Exception("Batch operation failed: " + failed
+                        + " of " + results.size() + " operations", first));
+            } else {
+                finalCallback.onSuccess();
+            }
+        });
+    }
+
+    /**
+     * Runs a batch of asynchronous operations
+     * @param operations
+     *      List of operations, each accepting a DBWriteCallback
+     * @param callback
+     *      Receives one Result per operation, in submission order
+     */
+    public void run(List<Consumer<DBWriteCallback>> operations, BatchResultCallback callback) {
         if (operations == null || operations.isEmpty()) {
-            if (finalCallback != null) finalCallback.onSuccess();
+            callbackExecutor.execute(() -> callback.onComplete(Collections.emptyList()));
             return;
         }
+        new Run(operations, callback).drain();
+    }
+
+    /**
+     * State of one call to run
+     */
+    private final class Run {
+        private final List<Consumer<DBWriteCallback>> operations;
+        private final BatchResultCallback callback;
+        private final AtomicReferenceArray<Result> results;
+        /**
+         * Work-in-progress counter, so drain never recurses when operations complete synchronously
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        /**
+         * Next operation to start, only touched inside drain
+         */
+        private int next = 0;
 
-        CountDownLatch latch = new CountDownLatch(operations.size());
-        AtomicBoolean failed = new AtomicBoolean(false);
+        Run(List<Consumer<DBWriteCallback>> operations, BatchResultCallback callback) {
+            this.operations = operations;
+            this.callback = callback;
+            this.results = new AtomicReferenceArray<>(operations.size());
+        }
 
-        for (Consumer<DBWriteCallback> op : operations) {
-            op.accept(new DBWriteCallback() {
+        /**
+         * Starts operations until the limit is reached or none are left
+         */
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (next < operations.size() && inFlight.get() < maxInFlight) {
+                    inFlight.incrementAndGet();
+                    attempt(next++, 1);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        /**
+         * Runs one attempt of an operation
+         * @param index
+         *      Operation index
+         * @param attempt
+         *      Attempt number, starting at 1
+         */
+        void attempt(int index, int attempt) {
+            AtomicBoolean done = new AtomicBoolean(false);
+            AtomicReference<ScheduledFuture<?>> timeout = new AtomicReference<>();
+            DBWriteCallback attemptCallback = new DBWriteCallback() {
                 @Override
                 public void onSuccess() {
-                    latch.countDown();
+                    if (done.compareAndSet(false, true)) {
+                        cancel(timeout.get());
+                        finish(index, null, attempt);
+                    }
                 }
 
                 @Override
                 public void onFailure(Exception e) {
-                    failed.set(true);
-                    latch.countDown();
+                    if (done.compareAndSet(false, true)) {
+                        cancel(timeout.get());
+                        failed(index, attempt, e);
+                    }
                 }
-            });
-        }
-
-        new Thread(() -> {
+            };
+            if (timeoutMillis > 0) {
+                timeout.set(timer().schedule(() -> {
+                    if (done.compareAndSet(false, true)) {
+                        failed(index, attempt, new TimeoutException("Operation timed out after " + timeoutMillis + "ms"));
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS));
+            }
             try {
-                latch.await();
+                operations.get(index).accept(attemptCallback);
+            } catch (RuntimeException e) {
+                attemptCallback.onFailure(e);
+            }
+        }
 
-                if (finalCallback == null) return;
+        /**
+         * Cancels a pending timeout, if there is one
+         */
+        void cancel(ScheduledFuture<?> timeout) {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
 
-                if (failed.get()) {
-                    finalCallback.onFailure(new Exception("Batch operation failed"));
-                } else {
-                    finalCallback.onSuccess();
-                }
+        /**
+         * Retries a failed attempt if the policy allows, otherwise records the failure
+         */
+        void failed(int index, int attempt, Exception e) {
+            long delay = retryPolicy.retryDelay(attempt, e);
+            if (delay < 0) {
+                finish(index, e, attempt);
+            } else if (delay == 0) {
+                attempt(index, attempt + 1);
+            } else {
+                timer().schedule(() -> attempt(index, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            }
+        }
 
-            } catch (InterruptedException e) {
-                if (finalCallback != null) {
-                    finalCallback.onFailure(e);
+        /**
+         * Records an operation's outcome and starts the next one
+         */
+        void finish(int index, Exception error, int attempts) {
+            results.set(index, new Result(index, error, attempts));
+            inFlight.decrementAndGet();
+            if (completed.incrementAndGet() == operations.size()) {
+                List<Result> list = new ArrayList<>(operations.size());
+                for (int i = 0; i < operations.size(); i++) {
+                    list.add(results.get(i));
                 }
+                callbackExecutor.execute(() -> callback.onComplete(list));
+            } else {
+                drain();
             }
-        }).start();
+        }
     }
 
+    private static ScheduledExecutorService timer;
+
+    /**
+     * Shared timer for timeouts and retry delays, created on first use
+     * @return
+     *      Timer
+     */
+    private static synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "AsyncBatchExecutor-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            timer = executor;
+        }
+        return timer;
+    }
 }
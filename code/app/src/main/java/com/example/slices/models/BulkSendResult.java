@@ -0,0 +1,77 @@
+package com.example.slices.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk notification send, recorded per recipient
+ * @version 1.0
+ */
+public class BulkSendResult {
+    /**
+     * Recipients whose notification was written
+     */
+    private final List<Integer> delivered = new ArrayList<>();
+
+    /**
+     * Recipients skipped because they opted out of notifications
+     */
+    private final List<Integer> skipped = new ArrayList<>();
+
+    /**
+     * Recipients whose notification could not be written, with the cause
+     */
+    private final Map<Integer, Exception> failed = new LinkedHashMap<>();
+
+    /**
+     * Records a delivered recipient
+     * @param recipientId
+     *      ID of the recipient
+     */
+    public synchronized void addDelivered(int recipientId) {
+        delivered.add(recipientId);
+    }
+
+    /**
+     * Records a recipient who opted out
+     * @param recipientId
+     *      ID of the recipient
+     */
+    public synchronized void addSkipped(int recipientId) {
+        skipped.add(recipientId);
+    }
+
+    /**
+     * Records a recipient whose notification could not be written
+     * @param recipientId
+     *      ID of the recipient
+     * @param e
+     *      Cause of the failure
+     */
+    public synchronized void addFailed(int recipientId, Exception e) {
+        failed.put(recipientId, e);
+    }
+
+    public synchronized List<Integer> getDelivered() {
+        return new ArrayList<>(delivered);
+    }
+
+    public synchronized List<Integer> getSkipped() {
+        return new ArrayList<>(skipped);
+    }
+
+    public synchronized Map<Integer, Exception> getFailed() {
+        return new LinkedHashMap<>(failed);
+    }
+
+    /**
+     * Checks if any recipient failed
+     * @return
+     *      True if at least one notification could not be written
+     */
+    public synchronized boolean hasFailures() {
+        return !failed.isEmpty();
+    }
+}
@@ -8,6 +8,7 @@ import com.example.slices.exceptions.EntrantNotFound;
 import com.example.slices.exceptions.EventFull;
 import com.example.slices.exceptions.WaitlistFull;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 
 import java.util.ArrayList;
@@ -17,17 +18,28 @@ import java.util.Objects;
 
 /**
  * Class representing an event
+ * The entrant and waitlist rosters are stored in the events/{id}/entrants and
+ * events/{id}/waitlist subcollections rather than on the event document; the document
+ * only holds the ID lists and counters. The in-memory lists are filled by
+ * EventController.getEventWithRoster and changes to them are recorded so
+ * EventController.updateEvent can write the affected roster documents.
+ * The entrant ID lists are IdLists, so joins, leaves and accepts check membership in O(1).
  * @author Ryan Haubrich
- * @version 1.5
+ * @version 1.7
  *
  */
 @IgnoreExtraProperties
 public class Event implements Comparable<Event> {
 
     /**
-     * List of entrants in the event
+     * Roster layout written by this version of the app
      */
-    private List<Entrant> entrants; // Represents the entrants in the event
+    public static final int ROSTER_VERSION = 2;
+
+    /**
+     * List of entrants in the event, only filled when the roster is loaded
+     */
+    private List<Entrant> entrants = new ArrayList<>(); // Represents the entrants in the event
     /**
      * Waitlist for the event
      */
@@ -38,13 +50,37 @@ public class Event implements Comparable<Event> {
     private int id;
 
     private EventInfo eventInfo;
-    private List<Integer> entrantIds;
+    private IdList entrantIds;
     private List<Integer> cancelledIds;
     private List<Integer> invitedIds;
 
+    /**
+     * Roster layout of the stored document, 0 for documents that still embed their rosters
+     */
+    private int rosterVersion;
+
+    /**
+     * Number of updates written to the stored document through RosterController, so
+     * EventRepository can tell a newer copy of the event from an older one
+     */
+    private long revision;
+
     @com.google.firebase.firestore.Exclude
     private ArrayList<Location> entrantLocs;
 
+    /**
+     * Roster changes made in memory that have not been written yet
+     */
+    private final List<RosterChange> rosterChanges = new ArrayList<>();
+
+    /**
+     * ID lists as last read from or written to the database, so an update only writes the IDs
+     * that changed. Taken when a list is first set, which for a loaded event is by Firestore
+     */
+    private List<Integer> storedEntrantIds;
+    private List<Integer> storedCancelledIds;
+    private List<Integer> storedInvitedIds;
+
 
     /**
      * No argument Event constructor
@@ -59,22 +95,57 @@ public class Event implements Comparable<Event> {
         this.eventInfo = new EventInfo(name, description, address,  guidelines, imgUrl,
                 eventDate, regStart, regEnd, maxEntrants, maxWaiting, entrantLoc, entrantDist, id, organizerID, image);
         this.id = id;
+        this.rosterVersion = ROSTER_VERSION;
         this.entrants = new ArrayList<Entrant>();
         this.waitlist = new Waitlist(maxWaiting);
-        this.entrantIds = new ArrayList<>();
+        this.entrantIds = new IdList();
         this.cancelledIds = new ArrayList<>();
         this.invitedIds = new ArrayList<>();
+        this.storedEntrantIds = new ArrayList<>();
+        this.storedCancelledIds = new ArrayList<>();
+        this.storedInvitedIds = new ArrayList<>();
     }
 
     public Event(EventInfo eventInfo) {
         this.eventInfo = eventInfo;
         this.id = eventInfo.getId();
+        this.rosterVersion = ROSTER_VERSION;
         this.entrants = new ArrayList<Entrant>();
         this.waitlist = new Waitlist(eventInfo.getMaxWaiting());
-        this.entrantIds = new ArrayList<>();
+        this.entrantIds = new IdList();
         this.cancelledIds = new ArrayList<>();
         this.invitedIds = new ArrayList<>();
+        this.storedEntrantIds = new ArrayList<>();
+        this.storedCancelledIds = new ArrayList<>();
+        this.storedInvitedIds = new ArrayList<>();
+    }
+
+    /**
+     * Copies an event, so a cached event can be handed out without callers sharing its lists.
+     * The ID lists, waitlist and event info are copied along with the unwritten roster changes;
+     * the entrants in the rosters are shared
+     * @param other
+     *      Event to copy
+     */
+    public Event(Event other) {
+        this.id = other.id;
+        this.rosterVersion = other.rosterVersion;
+        this.revision = other.revision;
+        this.eventInfo = other.eventInfo != null ? new EventInfo(other.eventInfo) : null;
+        this.entrants = other.entrants != null ? new ArrayList<>(other.entrants) : new ArrayList<>();
+        this.waitlist = other.waitlist != null ? new Waitlist(other.waitlist) : null;
+        this.entrantIds = other.entrantIds != null ? new IdList(other.entrantIds) : null;
+        this.cancelledIds = copyIds(other.cancelledIds);
+        this.invitedIds = copyIds(other.invitedIds);
+        this.entrantLocs = other.entrantLocs != null ? new ArrayList<>(other.entrantLocs) : null;
+        this.storedEntrantIds = copyIds(other.storedEntrantIds);
+        this.storedCancelledIds = copyIds(other.storedCancelledIds);
+        this.storedInvitedIds = copyIds(other.storedInvitedIds);
+        synchronized (other.rosterChanges) {
+            this.rosterChanges.addAll(other.rosterChanges);
+        }
     }
+
     /**
      * Getter for the ID of the event
      * @return
@@ -86,9 +157,11 @@ public class Event implements Comparable<Event> {
 
     /**
      * Getter for the list of entrants currently in the event
+     * Empty unless the event was loaded with its roster
      * @return
      *      List of entrants
      */
+    @Exclude
     public List<Entrant> getEntrants() {
         return entrants;
     }
@@ -114,25 +187,29 @@ public class Event implements Comparable<Event> {
         if (eventInfo.getCurrentEntrants() >= eventInfo.getMaxEntrants()) {
             throw new EventFull("Event is full");
         }
+        if (entrantIds == null) {
+            entrantIds = new IdList();
+        }
         //Check if the entrant is already in the event
-        if (entrants.contains(entrant)) {
+        if (entrantIds.containsId(entrant.getId())) {
             throw new DuplicateEntry("Entrant is already in the event");
         }
         //Add the entrant to the event
         entrants.add(entrant);
-        entrantIds.add((Integer)entrant.getId());
+        entrantIds.addId(entrant.getId());
         //Increment the current entrants
         eventInfo.setCurrentEntrants(eventInfo.getCurrentEntrants() + 1);
+        recordRosterChange(RosterChange.put(RosterChange.Roster.ENTRANTS, entrant, null));
         return true;
     }
 
     public boolean removeEntrant(Entrant entrant) {
-        if (!entrants.contains(entrant)) {
+        if (entrantIds == null || !entrantIds.removeId(entrant.getId())) {
             throw new EntrantNotFound("Entrant not in event", String.valueOf(entrant.getId()));
         }
         entrants.remove(entrant);
-        entrantIds.remove((Integer)entrant.getId());
         eventInfo.setCurrentEntrants(eventInfo.getCurrentEntrants() - 1);
+        recordRosterChange(RosterChange.remove(RosterChange.Roster.ENTRANTS, entrant.getId()));
         return true;
     }
 
@@ -140,8 +217,16 @@ public class Event implements Comparable<Event> {
         return entrantIds;
     }
 
+    /**
+     * Setter for the IDs of the entrants in the event, indexing them for lookups
+     * @param entrantIds
+     *      IDs of the entrants
+     */
     public void setEntrantIds(List<Integer> entrantIds) {
-        this.entrantIds = entrantIds;
+        this.entrantIds = IdList.of(entrantIds);
+        if (storedEntrantIds == null) {
+            storedEntrantIds = copyIds(entrantIds);
+        }
     }
 
     public List<Integer> getCancelledIds() {
@@ -150,6 +235,9 @@ public class Event implements Comparable<Event> {
 
     public void setCancelledIds(List<Integer> cancelledIds) {
         this.cancelledIds = cancelledIds;
+        if (storedCancelledIds == null) {
+            storedCancelledIds = copyIds(cancelledIds);
+        }
     }
 
     public List<Integer> getInvitedIds() {
@@ -158,6 +246,97 @@ public class Event implements Comparable<Event> {
 
     public void setInvitedIds(List<Integer> invitedIds) {
         this.invitedIds = invitedIds;
+        if (storedInvitedIds == null) {
+            storedInvitedIds = copyIds(invitedIds);
+        }
+    }
+
+    private static List<Integer> copyIds(List<Integer> ids) {
+        return ids == null ? new ArrayList<>() : new ArrayList<>(ids);
+    }
+
+    /**
+     * IDs added to and removed from one of the event's ID lists since it was last stored
+     */
+    public static final class IdListChange {
+        /**
+         * Name of the field holding the list
+         */
+        public final String field;
+        public final List<Integer> added;
+        public final List<Integer> removed;
+
+        IdListChange(String field, List<Integer> added, List<Integer> removed) {
+            this.field = field;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    /**
+     * Finds the changes to the entrant, cancelled and invited ID lists since they were last
+     * stored, so they can be written as array transforms without overwriting other clients'
+     * changes
+     * @return
+     *      One change per list that changed
+     */
+    public List<IdListChange> idListChanges() {
+        List<IdListChange> changes = new ArrayList<>();
+        addIdListChange(changes, "entrantIds", storedEntrantIds, entrantIds);
+        addIdListChange(changes, "cancelledIds", storedCancelledIds, cancelledIds);
+        addIdListChange(changes, "invitedIds", storedInvitedIds, invitedIds);
+        return changes;
+    }
+
+    private static void addIdListChange(List<IdListChange> changes, String field,
+                                        List<Integer> stored, List<Integer> current) {
+        IntHashSet before = new IntHashSet(stored);
+        IntHashSet after = new IntHashSet(current);
+        List<Integer> added = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        // Adding to the other list's set also skips repeated IDs
+        if (current != null) {
+            for (Integer id : current) {
+                if (id != null && before.add(id)) added.add(id);
+            }
+        }
+        if (stored != null) {
+            for (Integer id : stored) {
+                if (id != null && after.add(id)) removed.add(id);
+            }
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            changes.add(new IdListChange(field, added, removed));
+        }
+    }
+
+    /**
+     * Records ID list changes as stored, once they have been written
+     * Changes made after idListChanges was called stay pending
+     * @param written
+     *      Changes returned by idListChanges
+     */
+    public void markIdListsStored(List<IdListChange> written) {
+        for (IdListChange change : written) {
+            switch (change.field) {
+                case "entrantIds":
+                    storedEntrantIds = applyIdListChange(storedEntrantIds, change);
+                    break;
+                case "cancelledIds":
+                    storedCancelledIds = applyIdListChange(storedCancelledIds, change);
+                    break;
+                default:
+                    storedInvitedIds = applyIdListChange(storedInvitedIds, change);
+                    break;
+            }
+        }
+    }
+
+    private static List<Integer> applyIdListChange(List<Integer> stored, IdListChange change) {
+        List<Integer> updated = copyIds(stored);
+        updated.removeAll(change.removed);
+        updated.addAll(change.added);
+        return updated;
     }
 
     /**
@@ -178,11 +357,11 @@ public class Event implements Comparable<Event> {
      */
     public boolean addEntrantToWaitlist(Entrant entrant, Location location) {
         //Check if the waitlist is full
-        if (waitlist.getEntrants().size() >= waitlist.getMaxCapacity()) {
+        if (waitlist.getEntrantIds().size() >= waitlist.getMaxCapacity()) {
             throw new WaitlistFull("Waitlist is full");
         }
         //Check if the entrant is already in the waitlist
-        if (waitlist.getEntrants().contains(entrant)) {
+        if (waitlist.containsEntrant(entrant.getId())) {
             throw new DuplicateEntry("Entrant is already in the waitlist");
         }
         //Otherwise add the entrant to the waitlist
@@ -191,6 +370,7 @@ public class Event implements Comparable<Event> {
         if (location != null) {
             waitlist.setEntrantLocation(entrant.getId(), location);
         }
+        recordRosterChange(RosterChange.put(RosterChange.Roster.WAITLIST, entrant, location));
         return true;
     }
 
@@ -200,18 +380,97 @@ public class Event implements Comparable<Event> {
      *      Entrant to remove from the waitlist
      */
     public boolean removeEntrantFromWaitlist(Entrant entrant) {
-        if(!waitlist.getEntrants().contains(entrant)) {
-            return false;
-        }
-        //Should not be possible to get to this one
-        if(waitlist.getEntrants().isEmpty()) {
+        return removeEntrantFromWaitlist(entrant.getId());
+    }
+
+    /**
+     * Removes an entrant from the event's waitlist by ID
+     * @param entrantId
+     *      ID of the entrant to remove from the waitlist
+     * @return
+     *      True if the entrant was on the waitlist, false otherwise
+     */
+    public boolean removeEntrantFromWaitlist(int entrantId) {
+        if(!waitlist.containsEntrant(entrantId)) {
             return false;
         }
         //Otherwise remove the entrant from the waitlist
-        waitlist.removeEntrant(entrant);
+        waitlist.removeEntrant(entrantId);
+        recordRosterChange(RosterChange.remove(RosterChange.Roster.WAITLIST, entrantId));
         return true;
     }
 
+    /**
+     * Records a roster change to be written with the next update
+     * @param change
+     *      Change to record
+     */
+    private void recordRosterChange(RosterChange change) {
+        synchronized (rosterChanges) {
+            rosterChanges.add(change);
+        }
+    }
+
+    /**
+     * Takes all roster changes recorded since the last call
+     * @return
+     *      Changes in the order they were made
+     */
+    public List<RosterChange> drainRosterChanges() {
+        synchronized (rosterChanges) {
+            List<RosterChange> changes = new ArrayList<>(rosterChanges);
+            rosterChanges.clear();
+            return changes;
+        }
+    }
+
+    /**
+     * Puts back roster changes whose write failed so the next update retries them
+     * @param changes
+     *      Changes returned by drainRosterChanges
+     */
+    public void restoreRosterChanges(List<RosterChange> changes) {
+        synchronized (rosterChanges) {
+            rosterChanges.addAll(0, changes);
+        }
+    }
+
+    /**
+     * Getter for the roster layout of the stored document
+     * @return
+     *      Roster version
+     */
+    public int getRosterVersion() {
+        return rosterVersion;
+    }
+
+    /**
+     * Setter for the roster layout of the stored document
+     * @param rosterVersion
+     *      Roster version
+     */
+    public void setRosterVersion(int rosterVersion) {
+        this.rosterVersion = rosterVersion;
+    }
+
+    /**
+     * Getter for the number of updates written to the stored document
+     * @return
+     *      Revision of the event
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Setter for the number of updates written to the stored document
+     * @param revision
+     *      Revision of the event
+     */
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
     /**
      * Comparison method so events can be sorted by the earliest date first
      * @param other
@@ -254,6 +513,7 @@ public class Event implements Comparable<Event> {
      * @param entrants
      *      List of entrants to set
      */
+    @Exclude
     public void setEntrants(List<Entrant> entrants) {
         this.entrants = entrants;
     }
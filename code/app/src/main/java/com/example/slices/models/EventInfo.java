@@ -7,6 +7,8 @@ import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 
+import java.util.List;
+
 @IgnoreExtraProperties
 public class EventInfo {
     /**
@@ -77,6 +79,12 @@ public class EventInfo {
 
     private String entrantDist;
 
+    /**
+     * Most metres an entrant may be from the event to join, read from entrantDist when it is set
+     * Stored so the join check compares numbers; 0 if no distance is set
+     */
+    private double entrantRadius;
+
     private int organizerID;
     private Image image;
 
@@ -107,12 +115,41 @@ public class EventInfo {
         this.maxWaiting = maxWaiting;
         this.entrantLoc = entrantLoc;
         this.entrantDist = entrantDist;
+        this.entrantRadius = parseRadius(entrantDist);
         this.organizerID = organizerID;
         this.address = address;
         this.image = image;
 
     }
 
+    /**
+     * Copies event info, including its location and image
+     * @param other
+     *      Event info to copy
+     */
+    public EventInfo(EventInfo other) {
+        this.name = other.name;
+        this.description = other.description;
+        this.location = other.location != null ? new Location(other.location) : null;
+        this.eventLatitude = other.eventLatitude;
+        this.eventLongitude = other.eventLongitude;
+        this.address = other.address;
+        this.eventDate = other.eventDate;
+        this.regStart = other.regStart;
+        this.regEnd = other.regEnd;
+        this.id = other.id;
+        this.maxEntrants = other.maxEntrants;
+        this.currentEntrants = other.currentEntrants;
+        this.guidelines = other.guidelines;
+        this.imageUrl = other.imageUrl;
+        this.maxWaiting = other.maxWaiting;
+        this.entrantLoc = other.entrantLoc;
+        this.entrantDist = other.entrantDist;
+        this.entrantRadius = other.entrantRadius;
+        this.organizerID = other.organizerID;
+        this.image = other.image != null ? new Image(other.image) : null;
+    }
+
     public Image getImage() {
         return image;
     }
@@ -136,6 +173,26 @@ public class EventInfo {
         this.name = name;
     }
 
+    /**
+     * Getter for the normalized name, stored so events can be range-queried and ordered by name
+     * Derived from the name; there is no setter
+     * @return
+     *      Lower-case name without accents
+     */
+    public String getNameLower() {
+        return SearchIndex.normalize(name);
+    }
+
+    /**
+     * Getter for the keyword index used by EventController.queryEvents
+     * Derived from the name, so every write of the event keeps it current; there is no setter
+     * @return
+     *      Every prefix of every word of the name
+     */
+    public List<String> getSearchTokens() {
+        return SearchIndex.tokens(name);
+    }
+
 
     public String getDescription() {
         return description;
@@ -211,6 +268,20 @@ public class EventInfo {
         }
     }
 
+    /**
+     * Getter for the geohash of the event location, stored so events can be range-queried by
+     * EventController.queryEventsNear
+     * Derived from the coordinates; there is no setter
+     * @return
+     *      Geohash of GeoHash.PRECISION characters, or null if the event has no location
+     */
+    public String getGeohash() {
+        if (eventLatitude == null || eventLongitude == null) {
+            return null;
+        }
+        return GeoHash.encode(eventLatitude, eventLongitude);
+    }
+
     /**
      * Get the latitude of the event location
      * @return Event latitude, or null if not set
@@ -335,6 +406,20 @@ public class EventInfo {
         return "https://firebasestorage.googleapis.com/v0/b/slices-11b97.firebasestorage.app/o/placeholder%2Fplaceholder.png?alt=media&token=3450a6b9-5872-46f3-97e1-c56e2777e2fa";
     }
 
+    /**
+     * Getter for the image to show in lists
+     * Not stored; derived from the image
+     * @return
+     *      Thumbnail URL, or the full image URL if the image has no thumbnail
+     */
+    @Exclude
+    public String getThumbnailUrl() {
+        if (image != null && image.getThumbUrl() != null && !image.getThumbUrl().isEmpty()) {
+            return image.getThumbUrl();
+        }
+        return getImageUrl();
+    }
+
     /**
      * INTERNAL USE ONLY - Firestore requires this setter
      * Do NOT call this method directly. Use the update counterpart instead.
@@ -381,8 +466,45 @@ public class EventInfo {
         return entrantDist;
     }
 
+    /**
+     * Sets the entrant distance and the numeric radius read from it
+     * @param entrantDist
+     *      Most metres an entrant may be from the event, as text
+     */
     public void setEntrantDist(String entrantDist) {
         this.entrantDist = entrantDist;
+        this.entrantRadius = parseRadius(entrantDist);
+    }
+
+    /**
+     * Getter for the most metres an entrant may be from the event to join
+     * @return
+     *      Radius in metres, or 0 if no valid distance is set
+     */
+    public double getEntrantRadius() {
+        return entrantRadius;
+    }
+
+    /**
+     * INTERNAL USE ONLY - Firestore requires this setter
+     * Do NOT call this method directly. Use setEntrantDist instead.
+     * @param entrantRadius
+     *      Radius in metres to set
+     */
+    public void setEntrantRadius(double entrantRadius) {
+        this.entrantRadius = entrantRadius;
+    }
+
+    private static double parseRadius(String entrantDist) {
+        if (entrantDist == null) {
+            return 0;
+        }
+        try {
+            double radius = Double.parseDouble(entrantDist.trim());
+            return radius > 0 && !Double.isInfinite(radius) ? radius : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     public int getOrganizerID() {
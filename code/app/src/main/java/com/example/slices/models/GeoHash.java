@@ -0,0 +1,200 @@
+package com.example.slices.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the geohash stored with each located event so events near a point can be found with
+ * range queries in Firestore. A geohash names a cell of a grid over the globe; longer hashes
+ * name smaller cells, and every point in a cell has a hash starting with the cell's hash.
+ * A circle is covered by the cell around its center and the eight cells next to it, each read
+ * as one range of hashes; the results are then checked with the exact distance.
+ * @version 1.0
+ */
+public class GeoHash {
+    /**
+     * Length of the geohash stored with an event, naming a cell about a metre across
+     */
+    public static final int PRECISION = 10;
+
+    /**
+     * Mean radius of the earth in metres
+     */
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    /**
+     * Fewest metres in a degree of latitude, so radii are never under-estimated in degrees
+     */
+    private static final double METRES_PER_DEGREE = 110574;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    /**
+     * Sorts after every geohash character, closing a range of hashes with a prefix
+     */
+    private static final char RANGE_END = '~';
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private GeoHash() {}
+
+    /**
+     * Encodes a point as a geohash
+     * @param lat
+     *      Latitude in degrees
+     * @param lng
+     *      Longitude in degrees
+     * @param precision
+     *      Number of characters
+     * @return
+     *      Geohash of the cell containing the point
+     */
+    public static String encode(double lat, double lng, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bits = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            // Bits alternate between longitude and latitude, starting with longitude
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (lng >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(ch));
+                bits = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Encodes a point as a geohash of PRECISION characters
+     * @param lat
+     *      Latitude in degrees
+     * @param lng
+     *      Longitude in degrees
+     * @return
+     *      Geohash to store with an event
+     */
+    public static String encode(double lat, double lng) {
+        return encode(lat, lng, PRECISION);
+    }
+
+    /**
+     * Gets the height of a geohash cell
+     * @param precision
+     *      Number of characters
+     * @return
+     *      Height in degrees of latitude
+     */
+    static double cellHeight(int precision) {
+        return 180 / Math.pow(2, (5 * precision) / 2);
+    }
+
+    /**
+     * Gets the width of a geohash cell
+     * @param precision
+     *      Number of characters
+     * @return
+     *      Width in degrees of longitude
+     */
+    static double cellWidth(int precision) {
+        return 360 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+
+    /**
+     * Finds the ranges of geohashes to read to get every point within a radius
+     * @param lat
+     *      Latitude of the center in degrees
+     * @param lng
+     *      Longitude of the center in degrees
+     * @param radius
+     *      Radius in metres
+     * @return
+     *      Up to nine ranges of {start, end}, both inclusive; the points found may be
+     *      further than the radius and must be checked with distance
+     */
+    public static List<String[]> queryBounds(double lat, double lng, double radius) {
+        double latDelta = radius / METRES_PER_DEGREE;
+        // Longitude degrees shrink toward the poles; use the latitude in range closest to one
+        double farLat = Math.min(90, Math.abs(lat) + latDelta);
+        double cos = Math.cos(Math.toRadians(farLat));
+        double lngDelta = cos > 1e-9 ? latDelta / cos : 360;
+
+        int precision = PRECISION;
+        while (precision > 0 && (cellHeight(precision) < latDelta || cellWidth(precision) < lngDelta)) {
+            precision--;
+        }
+        List<String[]> bounds = new ArrayList<>();
+        if (precision == 0) {
+            bounds.add(new String[]{"", String.valueOf(RANGE_END)});
+            return bounds;
+        }
+
+        // A cell is at least as big as the radius, so the circle fits in the 3x3 block around it
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        Set<String> cells = new LinkedHashSet<>();
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            double cellLat = Math.max(-90, Math.min(90, lat + dLat * height));
+            for (int dLng = -1; dLng <= 1; dLng++) {
+                cells.add(encode(cellLat, wrapLongitude(lng + dLng * width), precision));
+            }
+        }
+        for (String cell : cells) {
+            bounds.add(new String[]{cell, cell + RANGE_END});
+        }
+        return bounds;
+    }
+
+    private static double wrapLongitude(double lng) {
+        if (lng >= 180) return lng - 360;
+        if (lng < -180) return lng + 360;
+        return lng;
+    }
+
+    /**
+     * Gets the great-circle distance between two points with the haversine formula
+     * @param lat1
+     *      Latitude of the first point in degrees
+     * @param lng1
+     *      Longitude of the first point in degrees
+     * @param lat2
+     *      Latitude of the second point in degrees
+     * @param lng2
+     *      Longitude of the second point in degrees
+     * @return
+     *      Distance in metres
+     */
+    public static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
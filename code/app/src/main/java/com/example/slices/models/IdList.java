@@ -0,0 +1,383 @@
+package com.example.slices.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Insertion-ordered list of unique entrant IDs with constant time contains, add and remove.
+ * IDs are kept in a primitive array and their membership in an IntHashSet, so checks neither
+ * scan nor box. Removing an ID only records it as removed; the array is compacted when it next
+ * has to grow or be read by index, which keeps removal O(1) while preserving the order
+ * Firestore sees.
+ * It is a List of Integer so it serializes to the same array field as the lists it replaces.
+ * Every list operation is supported, but IDs stay unique: adding an ID that is already present
+ * does nothing, and setting a position to an ID held elsewhere swaps the two, so sort and
+ * shuffle reorder the list in place.
+ * @version 1.1
+ */
+public class IdList extends AbstractList<Integer> implements RandomAccess {
+    /**
+     * IDs in insertion order, including removed ones until the next compaction
+     */
+    private int[] ids;
+    /**
+     * Number of slots in use
+     */
+    private int end;
+    /**
+     * Bumped on every compaction, so iterators can find their place again
+     */
+    private int compactions;
+    /**
+     * Position last read by get, checked first when set is given an ID already in the list
+     */
+    private int lastRead;
+
+    /**
+     * IDs present
+     */
+    private final IntHashSet members;
+    /**
+     * IDs removed whose slots have not been compacted away yet; never also in members
+     */
+    private final IntHashSet removed;
+
+    /**
+     * Creates an empty list
+     */
+    public IdList() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty list sized for the expected number of IDs
+     * @param expected
+     *      Number of IDs expected
+     */
+    public IdList(int expected) {
+        int capacity = Math.max(expected, 8);
+        ids = new int[capacity];
+        members = new IntHashSet(capacity);
+        removed = new IntHashSet();
+    }
+
+    /**
+     * Creates a list holding the given IDs in order, skipping nulls and repeats
+     * @param values
+     *      IDs to add
+     */
+    public IdList(Collection<Integer> values) {
+        this(values.size());
+        for (Integer value : values) {
+            if (value != null) addId(value);
+        }
+    }
+
+    /**
+     * Wraps a list read from Firestore or built by a caller
+     * @param values
+     *      IDs, may be null
+     * @return
+     *      The same list if it already is an IdList, otherwise an indexed copy; null for null
+     */
+    public static IdList of(Collection<Integer> values) {
+        if (values == null || values instanceof IdList) {
+            return (IdList) values;
+        }
+        return new IdList(values);
+    }
+
+    /**
+     * Checks for an ID
+     * @param id
+     *      ID to look for
+     * @return
+     *      True if the ID is present
+     */
+    public boolean containsId(int id) {
+        return members.contains(id);
+    }
+
+    /**
+     * Appends an ID if it is not already present
+     * @param id
+     *      ID to add
+     * @return
+     *      True if the ID was added
+     */
+    public boolean addId(int id) {
+        if (members.contains(id)) {
+            return false;
+        }
+        // A removed copy still in the array would be read as present again, so drop it first
+        if (removed.contains(id) || (end == ids.length && removed.size() > end / 4)) {
+            compact();
+        }
+        if (end == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[end++] = id;
+        members.add(id);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes an ID
+     * @param id
+     *      ID to remove
+     * @return
+     *      True if the ID was present
+     */
+    public boolean removeId(int id) {
+        if (!members.remove(id)) {
+            return false;
+        }
+        removed.add(id);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Moves the remaining IDs to the front of the array
+     */
+    private void compact() {
+        if (removed.isEmpty()) {
+            return;
+        }
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            if (!removed.contains(ids[i])) {
+                ids[n++] = ids[i];
+            }
+        }
+        removed.clear();
+        end = n;
+        compactions++;
+    }
+
+    /**
+     * Copies the IDs out
+     * @return
+     *      IDs in insertion order
+     */
+    public int[] toIntArray() {
+        compact();
+        return Arrays.copyOf(ids, end);
+    }
+
+    @Override
+    public int size() {
+        return members.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsId((Integer) o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!contains(o)) {
+            return -1;
+        }
+        compact();
+        int id = (Integer) o;
+        int i = 0;
+        while (ids[i] != id) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public Integer get(int index) {
+        checkIndex(index, size());
+        compact();
+        lastRead = index;
+        return ids[index];
+    }
+
+    /**
+     * Replaces the ID at a position. If the new ID is already elsewhere in the list the two
+     * positions are swapped instead, so IDs stay unique
+     * @throws NullPointerException
+     *      If the ID is null
+     */
+    @Override
+    public Integer set(int index, Integer id) {
+        checkIndex(index, size());
+        if (id == null) {
+            throw new NullPointerException("IdList does not hold null IDs");
+        }
+        compact();
+        int old = ids[index];
+        if (old == id) {
+            return old;
+        }
+        if (members.contains(id)) {
+            // A swap reads the ID it moves just before setting it, so look there first
+            int from = lastRead < members.size() && ids[lastRead] == id ? lastRead : indexOf(id);
+            ids[from] = old;
+        } else {
+            members.remove(old);
+            members.add(id);
+        }
+        ids[index] = id;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Inserts an ID at a position; repeats and nulls are ignored, as with add
+     */
+    @Override
+    public void add(int index, Integer id) {
+        checkIndex(index, size() + 1);
+        if (id == null || members.contains(id)) {
+            return;
+        }
+        compact();
+        if (end == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        System.arraycopy(ids, index, ids, index + 1, end - index);
+        ids[index] = id;
+        end++;
+        members.add(id);
+        modCount++;
+    }
+
+    /**
+     * Sorts the IDs in place without swapping them one at a time
+     */
+    @Override
+    public void sort(Comparator<? super Integer> c) {
+        compact();
+        if (c == null) {
+            Arrays.sort(ids, 0, end);
+        } else {
+            Integer[] boxed = new Integer[end];
+            for (int i = 0; i < end; i++) boxed[i] = ids[i];
+            Arrays.sort(boxed, c);
+            for (int i = 0; i < end; i++) ids[i] = boxed[i];
+        }
+        modCount++;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Appends an ID; repeats and nulls are ignored, since an entrant is only ever listed once
+     */
+    @Override
+    public boolean add(Integer id) {
+        return id != null && addId(id);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && removeId((Integer) o);
+    }
+
+    @Override
+    public Integer remove(int index) {
+        Integer id = get(index);
+        removeId(id);
+        return id;
+    }
+
+    @Override
+    public void clear() {
+        members.clear();
+        removed.clear();
+        end = 0;
+        modCount++;
+    }
+
+    /**
+     * Iterates in insertion order without compacting, so removing through the iterator stays O(1)
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            /**
+             * Next slot to look at
+             */
+            private int cursor = 0;
+            /**
+             * Slot of the last ID returned, -1 once it has been removed
+             */
+            private int last = -1;
+            /**
+             * IDs returned and still present, which is the cursor's slot after a compaction
+             */
+            private int passed = 0;
+            private int stamp = compactions;
+            private int expectedModCount = modCount;
+
+            /**
+             * Finds the cursor again if a read by index compacted the array
+             */
+            private void sync() {
+                if (stamp != compactions) {
+                    cursor = passed;
+                    last = last < 0 ? -1 : passed - 1;
+                    stamp = compactions;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                sync();
+                while (cursor < end && removed.contains(ids[cursor])) {
+                    cursor++;
+                }
+                return cursor < end;
+            }
+
+            @Override
+            public Integer next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor++;
+                passed++;
+                return ids[last];
+            }
+
+            @Override
+            public void remove() {
+                sync();
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeId(ids[last]);
+                last = -1;
+                passed--;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
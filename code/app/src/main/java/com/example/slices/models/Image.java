@@ -1,17 +1,47 @@
 package com.example.slices.models;
 
+/**
+ * An uploaded event image: the full-size file shown on the details screen and, for images
+ * uploaded through ImageController, a small thumbnail shown in lists
+ */
 public class Image {
     private String path;
     private String url;
+    /**
+     * Storage path and download URL of the thumbnail; null for images uploaded before thumbnails
+     */
+    private String thumbPath;
+    private String thumbUrl;
+    /**
+     * When the file at path was last written; replacing the image in place bumps it so cached
+     * copies keyed on the path are not reused
+     */
+    private long version;
 
     public Image(String path, String url) {
         this.path = path;
         this.url = url;
     }
 
+    public Image(String path, String url, String thumbPath, String thumbUrl) {
+        this(path, url);
+        this.thumbPath = thumbPath;
+        this.thumbUrl = thumbUrl;
+    }
+
     public Image () {
     }
 
+    /**
+     * Copies an image
+     * @param other
+     *      Image to copy
+     */
+    public Image(Image other) {
+        this(other.path, other.url, other.thumbPath, other.thumbUrl);
+        this.version = other.version;
+    }
+
     public String getUrl() {
         return url;
     }
@@ -27,4 +57,28 @@ public class Image {
     public void setPath(String path) {
         this.path = path;
     }
+
+    public String getThumbPath() {
+        return thumbPath;
+    }
+
+    public void setThumbPath(String thumbPath) {
+        this.thumbPath = thumbPath;
+    }
+
+    public String getThumbUrl() {
+        return thumbUrl;
+    }
+
+    public void setThumbUrl(String thumbUrl) {
+        this.thumbUrl = thumbUrl;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
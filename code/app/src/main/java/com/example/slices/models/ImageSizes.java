@@ -0,0 +1,76 @@
+package com.example.slices.models;
+
+/**
+ * Size limits for uploaded event images and the arithmetic for meeting them.
+ * Uploads are decoded at a power-of-two sample size no smaller than needed, scaled so their
+ * longer side fits the limit, and re-encoded until they fit the byte cap.
+ * @version 1.0
+ */
+public class ImageSizes {
+    /**
+     * Longest side of the full image shown on the details screen
+     */
+    public static final int FULL_MAX_DIMENSION = 1600;
+
+    /**
+     * Longest side of the thumbnail shown in lists
+     */
+    public static final int THUMB_MAX_DIMENSION = 320;
+
+    /**
+     * Largest encoded full image
+     */
+    public static final int FULL_MAX_BYTES = 500 * 1024;
+
+    /**
+     * Largest encoded thumbnail
+     */
+    public static final int THUMB_MAX_BYTES = 40 * 1024;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ImageSizes() {}
+
+    /**
+     * Picks the decoder sample size for an image
+     * @param width
+     *      Width of the stored image
+     * @param height
+     *      Height of the stored image
+     * @param maxDimension
+     *      Longest side wanted after scaling
+     * @return
+     *      Largest power of two that still decodes the longer side to at least maxDimension
+     */
+    public static int sampleSize(int width, int height, int maxDimension) {
+        int longer = Math.max(width, height);
+        int sample = 1;
+        while (longer / (sample * 2) >= maxDimension) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /**
+     * Scales a size down to fit a limit, keeping its aspect ratio
+     * @param width
+     *      Current width
+     * @param height
+     *      Current height
+     * @param maxDimension
+     *      Longest side allowed
+     * @return
+     *      New width and height; unchanged if already within the limit, never below 1
+     */
+    public static int[] fit(int width, int height, int maxDimension) {
+        int longer = Math.max(width, height);
+        if (longer <= maxDimension) {
+            return new int[]{width, height};
+        }
+        double scale = (double) maxDimension / longer;
+        return new int[]{
+                Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale))};
+    }
+}
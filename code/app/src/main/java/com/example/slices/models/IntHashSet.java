@@ -0,0 +1,195 @@
+package com.example.slices.models;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Set of ints using open addressing, so lookups do not box or allocate.
+ * Used for entrant ID membership checks on large waitlists.
+ * @version 1.0
+ */
+public class IntHashSet {
+    /**
+     * Marks an empty slot; the value itself is tracked separately
+     */
+    private static final int EMPTY = 0;
+
+    private int[] slots;
+    private int size;
+    private boolean hasZero;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Creates an empty set
+     */
+    public IntHashSet() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty set sized for the expected number of values
+     * @param expected
+     *      Number of values expected
+     */
+    public IntHashSet(int expected) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expected) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Creates a set holding the given values
+     * @param values
+     *      Values to add, may be null
+     */
+    public IntHashSet(Collection<Integer> values) {
+        this(values == null ? 0 : values.size());
+        if (values != null) {
+            for (Integer value : values) {
+                if (value != null) add(value);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity * 3 / 4;
+    }
+
+    /**
+     * Spreads the bits of a value so sequential IDs do not cluster
+     */
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Adds a value
+     * @param value
+     *      Value to add
+     * @return
+     *      True if the value was not already present
+     */
+    public boolean add(int value) {
+        if (value == EMPTY) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = hash(value) & mask;
+        while (slots[i] != EMPTY) {
+            if (slots[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        if (++size > resizeAt) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Checks for a value
+     * @param value
+     *      Value to look for
+     * @return
+     *      True if the value is present
+     */
+    public boolean contains(int value) {
+        if (value == EMPTY) return hasZero;
+        int i = hash(value) & mask;
+        while (slots[i] != EMPTY) {
+            if (slots[i] == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a value
+     * @param value
+     *      Value to remove
+     * @return
+     *      True if the value was present
+     */
+    public boolean remove(int value) {
+        if (value == EMPTY) {
+            if (!hasZero) return false;
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int i = hash(value) & mask;
+        while (slots[i] != value) {
+            if (slots[i] == EMPTY) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = EMPTY;
+        size--;
+        // Shift later entries of the probe run back so lookups never stop early
+        int j = (i + 1) & mask;
+        while (slots[j] != EMPTY) {
+            int moved = slots[j];
+            int home = hash(moved) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                slots[i] = moved;
+                slots[j] = EMPTY;
+                i = j;
+            }
+            j = (j + 1) & mask;
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        allocate(capacity);
+        for (int value : old) {
+            if (value != EMPTY) {
+                int i = hash(value) & mask;
+                while (slots[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every value, keeping the allocated capacity
+     */
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        hasZero = false;
+        size = 0;
+    }
+
+    /**
+     * Copies the values out
+     * @return
+     *      Values in no particular order
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        int n = 0;
+        if (hasZero) values[n++] = 0;
+        for (int value : slots) {
+            if (value != EMPTY) values[n++] = value;
+        }
+        return values;
+    }
+}
@@ -7,12 +7,14 @@ import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.IgnoreExtraProperties;
 
 /**
  * Class representing an invitation
  * @author Ryan Haubrich
  * @version 1.0
  */
+@IgnoreExtraProperties
 public class Invitation extends Notification {
     //private int eventId;
 
@@ -96,4 +98,14 @@ public class Invitation extends Notification {
     public void setDeclined(boolean declined) {
         this.declined = declined;
     }
+
+    /**
+     * Getter for whether the invitation is still waiting for an answer
+     * @return
+     *      True if the invitation has been neither accepted nor declined
+     */
+    @Override
+    public boolean getActive() {
+        return !accepted && !declined;
+    }
 }
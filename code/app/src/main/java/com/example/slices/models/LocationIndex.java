@@ -0,0 +1,441 @@
+package com.example.slices.models;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Entrant join locations decoded into primitive arrays, with grid clustering for drawing them
+ * on a map. Points are projected once onto the Web Mercator square used by map tiles; at each
+ * zoom level they are grouped by the grid cell they fall in, so a map shows one marker per
+ * cell instead of one per entrant. The most recently used clusterings are cached per zoom
+ * level and cell size.
+ * Safe to share between threads once decoded.
+ * @version 1.0
+ */
+public class LocationIndex {
+    /**
+     * Width and height of a map tile in pixels
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * Highest zoom level clustered; closer zooms reuse it
+     */
+    public static final int MAX_ZOOM = 21;
+
+    /**
+     * Furthest latitude the Mercator projection shows
+     */
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    /**
+     * Clusterings kept in memory; the map and the heatmap use up to three cell sizes per zoom,
+     * so this holds the levels around the one on screen
+     */
+    private static final int MAX_CACHED = 12;
+
+    private final int[] ids;
+    private final double[] lat;
+    private final double[] lng;
+    private final double[] x;
+    private final double[] y;
+    private final int size;
+
+    /**
+     * Access-ordered so the eldest entry is the least recently used
+     */
+    private final Map<Long, Clusters> cache = new LinkedHashMap<Long, Clusters>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Clusters> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    /**
+     * Creates an index over decoded points
+     * @param ids
+     *      Entrant IDs
+     * @param lat
+     *      Latitudes in degrees
+     * @param lng
+     *      Longitudes in degrees
+     * @param size
+     *      Number of points used from the arrays
+     */
+    public LocationIndex(int[] ids, double[] lat, double[] lng, int size) {
+        this.ids = ids;
+        this.lat = lat;
+        this.lng = lng;
+        this.size = size;
+        this.x = new double[size];
+        this.y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = projectX(lng[i]);
+            y[i] = projectY(lat[i]);
+        }
+    }
+
+    /**
+     * Decodes the entrant locations stored on a waitlist, skipping entries without a valid
+     * ID or coordinates
+     * @param locations
+     *      Map of entrant ID to a map with "latitude" and "longitude", may be null
+     * @return
+     *      Index over the valid locations
+     */
+    public static LocationIndex decode(Map<String, Map<String, Double>> locations) {
+        int capacity = locations == null ? 0 : locations.size();
+        int[] ids = new int[capacity];
+        double[] lat = new double[capacity];
+        double[] lng = new double[capacity];
+        int n = 0;
+        if (locations != null) {
+            for (Map.Entry<String, Map<String, Double>> entry : locations.entrySet()) {
+                Map<String, Double> location = entry.getValue();
+                if (location == null) continue;
+                Double latitude = location.get("latitude");
+                Double longitude = location.get("longitude");
+                if (latitude == null || longitude == null
+                        || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) continue;
+                try {
+                    ids[n] = Integer.parseInt(entry.getKey());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                lat[n] = latitude;
+                lng[n] = longitude;
+                n++;
+            }
+        }
+        return new LocationIndex(ids, lat, lng, n);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public double getLatitude(int i) {
+        return lat[i];
+    }
+
+    public double getLongitude(int i) {
+        return lng[i];
+    }
+
+    /**
+     * Gets the box around every point
+     * @return
+     *      {south, west, north, east} in degrees, or null if the index is empty
+     */
+    public double[] bounds() {
+        if (size == 0) {
+            return null;
+        }
+        double south = 90, west = 180, north = -90, east = -180;
+        for (int i = 0; i < size; i++) {
+            south = Math.min(south, lat[i]);
+            north = Math.max(north, lat[i]);
+            west = Math.min(west, lng[i]);
+            east = Math.max(east, lng[i]);
+        }
+        return new double[]{south, west, north, east};
+    }
+
+    static double projectX(double lng) {
+        return (lng + 180) / 360;
+    }
+
+    static double projectY(double lat) {
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    static double unprojectLat(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * Groups the points by grid cell at a zoom level
+     * @param zoom
+     *      Map zoom level, capped at MAX_ZOOM
+     * @param cellPx
+     *      Width and height of a grid cell in screen pixels
+     * @return
+     *      Clusters, cached for later calls with the same arguments while they are recently used
+     */
+    public synchronized Clusters cluster(int zoom, int cellPx) {
+        int z = Math.max(0, Math.min(MAX_ZOOM, zoom));
+        long cacheKey = ((long) z << 32) | cellPx;
+        Clusters cached = cache.get(cacheKey);
+        if (cached == null) {
+            cached = new Clusters(this, z, cellPx);
+            cache.put(cacheKey, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Adds up the heat of the points around a map tile, each point spreading over a radius
+     * with a smooth falloff. Nearby points are merged into clusters first and only the grid
+     * cells within the radius of the tile are looked up, so the work depends on the size of
+     * the tile rather than on how many entrants there are
+     * @param tileX
+     *      Tile column
+     * @param tileY
+     *      Tile row
+     * @param zoom
+     *      Zoom level of the tile
+     * @param radiusPx
+     *      Radius each point spreads over, in pixels
+     * @param out
+     *      TILE_SIZE * TILE_SIZE intensities, row by row; cleared first
+     * @return
+     *      Intensity that should show as the hottest colour at this zoom, at least 1
+     */
+    public float density(int tileX, int tileY, int zoom, int radiusPx, float[] out) {
+        Arrays.fill(out, 0);
+        int cellPx = Math.max(1, radiusPx / 4);
+        Clusters clusters = cluster(zoom, cellPx);
+        double worldPx = TILE_SIZE * Math.pow(2, zoom);
+        double originX = (double) tileX * TILE_SIZE;
+        double originY = (double) tileY * TILE_SIZE;
+        float r2 = (float) radiusPx * radiusPx;
+
+        // Cells the tile and its margin overlap, padded by one for rounding at the edges
+        long minCx = (long) Math.floor((originX - radiusPx) / worldPx / clusters.cell) - 1;
+        long maxCx = (long) Math.floor((originX + TILE_SIZE + radiusPx) / worldPx / clusters.cell) + 1;
+        long minCy = (long) Math.floor((originY - radiusPx) / worldPx / clusters.cell) - 1;
+        long maxCy = (long) Math.floor((originY + TILE_SIZE + radiusPx) / worldPx / clusters.cell) + 1;
+        if ((maxCx - minCx + 1) * (maxCy - minCy + 1) >= clusters.size) {
+            // Fewer clusters than cells to look up, so checking each cluster is cheaper
+            for (int c = 0; c < clusters.size; c++) {
+                splat(clusters, c, worldPx, originX, originY, radiusPx, r2, out);
+            }
+        } else {
+            for (long cx = minCx; cx <= maxCx; cx++) {
+                for (long cy = minCy; cy <= maxCy; cy++) {
+                    int c = clusters.cells.get(cellKey(cx, cy));
+                    if (c >= 0) {
+                        splat(clusters, c, worldPx, originX, originY, radiusPx, r2, out);
+                    }
+                }
+            }
+        }
+        // Scale by the busiest area at this zoom, so adjacent tiles use the same colours
+        return Math.max(1, cluster(zoom, radiusPx).maxCount);
+    }
+
+    /**
+     * Adds the heat of one cluster to the pixels of a tile within the radius
+     */
+    private static void splat(Clusters clusters, int c, double worldPx, double originX, double originY,
+                              int radiusPx, float r2, float[] out) {
+        double px = clusters.x[c] * worldPx - originX;
+        double py = clusters.y[c] * worldPx - originY;
+        if (px < -radiusPx || py < -radiusPx || px >= TILE_SIZE + radiusPx || py >= TILE_SIZE + radiusPx) {
+            return;
+        }
+        int minX = Math.max(0, (int) Math.floor(px - radiusPx));
+        int maxX = Math.min(TILE_SIZE - 1, (int) Math.ceil(px + radiusPx));
+        int minY = Math.max(0, (int) Math.floor(py - radiusPx));
+        int maxY = Math.min(TILE_SIZE - 1, (int) Math.ceil(py + radiusPx));
+        float weight = clusters.count[c];
+        for (int row = minY; row <= maxY; row++) {
+            float dy = (float) (row + 0.5 - py);
+            for (int col = minX; col <= maxX; col++) {
+                float dx = (float) (col + 0.5 - px);
+                float d2 = dx * dx + dy * dy;
+                if (d2 < r2) {
+                    float falloff = 1 - d2 / r2;
+                    out[row * TILE_SIZE + col] += weight * falloff * falloff;
+                }
+            }
+        }
+    }
+
+    private static long cellKey(long cx, long cy) {
+        return (cx << 32) ^ cy;
+    }
+
+    /**
+     * Points grouped by grid cell at one zoom level, as parallel arrays
+     */
+    public static final class Clusters {
+        /**
+         * Number of clusters
+         */
+        public final int size;
+        private final double[] x;
+        private final double[] y;
+        private final double[] lat;
+        private final double[] lng;
+        private final int[] count;
+        private final int[] first;
+        /**
+         * Width of a grid cell on the projected unit square
+         */
+        private final double cell;
+        /**
+         * Cluster of each occupied grid cell
+         */
+        private final CellTable cells;
+        private final int maxCount;
+
+        private Clusters(LocationIndex index, int zoom, int cellPx) {
+            cell = cellPx / (TILE_SIZE * Math.pow(2, zoom));
+            int n = index.size;
+            double[] sumX = new double[n];
+            double[] sumY = new double[n];
+            int[] counts = new int[n];
+            int[] firsts = new int[n];
+            CellTable table = new CellTable(n);
+            int clusters = 0;
+            for (int i = 0; i < n; i++) {
+                long cx = (long) Math.floor(index.x[i] / cell);
+                long cy = (long) Math.floor(index.y[i] / cell);
+                int slot = table.slot(cellKey(cx, cy), clusters);
+                if (slot == clusters) {
+                    firsts[slot] = i;
+                    clusters++;
+                }
+                sumX[slot] += index.x[i];
+                sumY[slot] += index.y[i];
+                counts[slot]++;
+            }
+
+            size = clusters;
+            cells = table;
+            x = new double[clusters];
+            y = new double[clusters];
+            lat = new double[clusters];
+            lng = new double[clusters];
+            count = Arrays.copyOf(counts, clusters);
+            first = Arrays.copyOf(firsts, clusters);
+            int max = 0;
+            for (int c = 0; c < clusters; c++) {
+                max = Math.max(max, counts[c]);
+                if (counts[c] == 1) {
+                    // Keep a lone point exactly where it is
+                    int i = firsts[c];
+                    x[c] = index.x[i];
+                    y[c] = index.y[i];
+                    lat[c] = index.lat[i];
+                    lng[c] = index.lng[i];
+                } else {
+                    x[c] = sumX[c] / counts[c];
+                    y[c] = sumY[c] / counts[c];
+                    lat[c] = unprojectLat(y[c]);
+                    lng[c] = x[c] * 360 - 180;
+                }
+            }
+            maxCount = max;
+        }
+
+        public double getLatitude(int c) {
+            return lat[c];
+        }
+
+        public double getLongitude(int c) {
+            return lng[c];
+        }
+
+        /**
+         * Gets the number of points in a cluster
+         */
+        public int getCount(int c) {
+            return count[c];
+        }
+
+        /**
+         * Gets a point in a cluster, the only one if its count is 1
+         * @return
+         *      Index of the point in the LocationIndex
+         */
+        public int getFirst(int c) {
+            return first[c];
+        }
+
+        /**
+         * Finds the clusters inside a box, such as the part of the map on screen
+         * @param south
+         *      Southern edge in degrees
+         * @param west
+         *      Western edge in degrees; greater than east when the box crosses longitude 180
+         * @param north
+         *      Northern edge in degrees
+         * @param east
+         *      Eastern edge in degrees
+         * @return
+         *      Indexes of the clusters inside
+         */
+        public int[] visible(double south, double west, double north, double east) {
+            boolean wraps = west > east;
+            int[] result = new int[size];
+            int n = 0;
+            for (int c = 0; c < size; c++) {
+                if (lat[c] < south || lat[c] > north) continue;
+                boolean inside = wraps ? (lng[c] >= west || lng[c] <= east) : (lng[c] >= west && lng[c] <= east);
+                if (inside) {
+                    result[n++] = c;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+    }
+
+    /**
+     * Open-addressing map from grid cell to cluster number, so clustering does not box
+     */
+    private static final class CellTable {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        CellTable(int expected) {
+            int capacity = 16;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, -1);
+            mask = capacity - 1;
+        }
+
+        /**
+         * Gets the cluster of a cell
+         * @return
+         *      Cluster number, or -1 if no point is in the cell
+         */
+        int get(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int i = (int) (h ^ (h >>> 32)) & mask;
+            while (values[i] != -1) {
+                if (keys[i] == key) return values[i];
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Gets the cluster of a cell, adding it with the given number if it is new
+         */
+        int slot(long key, int next) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int i = (int) (h ^ (h >>> 32)) & mask;
+            while (values[i] != -1) {
+                if (keys[i] == key) return values[i];
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = next;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.slices.models;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Draws lottery winners from a pool of entrant IDs.
+ * The eligible IDs are sorted so the draw depends only on which entrants are in the pool,
+ * not on the order they were read in, and winners are chosen with a partial Fisher-Yates
+ * shuffle driven by a seeded SplittableRandom. Choosing k winners takes O(k) swaps after the
+ * pool is built, and anyone holding the seed and the pool can repeat the draw exactly.
+ * Draw.toRecord gives what a log entry needs to do that, and verify(Map) repeats a logged draw.
+ * @version 1.0
+ */
+public class Lottery {
+    private static final SecureRandom seeds = new SecureRandom();
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private Lottery() {}
+
+    /**
+     * Result of a draw
+     */
+    public static final class Draw {
+        private final long seed;
+        private final int[] pool;
+        private final int winnerCount;
+        private final int[] excluded;
+
+        Draw(long seed, int[] pool, int winnerCount, int[] excluded) {
+            this.seed = seed;
+            this.pool = pool;
+            this.winnerCount = winnerCount;
+            this.excluded = excluded;
+        }
+
+        /**
+         * @return
+         *      Seed the draw was made with
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * @return
+         *      Number of eligible entrants
+         */
+        public int getPoolSize() {
+            return pool.length;
+        }
+
+        /**
+         * @return
+         *      IDs of the winners, in the order they were drawn
+         */
+        public int[] getWinners() {
+            return Arrays.copyOfRange(pool, 0, winnerCount);
+        }
+
+        /**
+         * @return
+         *      IDs of the eligible entrants who were not drawn
+         */
+        public int[] getLosers() {
+            return Arrays.copyOfRange(pool, winnerCount, pool.length);
+        }
+
+        /**
+         * @return
+         *      IDs of the eligible entrants, sorted
+         */
+        public int[] getPool() {
+            int[] sorted = pool.clone();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        /**
+         * @return
+         *      IDs that were in the pool given to the draw but could not win, sorted
+         */
+        public int[] getExcluded() {
+            return excluded.clone();
+        }
+
+        /**
+         * Gets everything a log entry needs to repeat the draw with verify(Map)
+         * @return
+         *      Seed, pool size, sorted pool, sorted excluded IDs and winners in draw order
+         */
+        public Map<String, Object> toRecord() {
+            Map<String, Object> record = new HashMap<>();
+            record.put("seed", seed);
+            record.put("poolSize", pool.length);
+            record.put("pool", toList(getPool()));
+            record.put("excluded", toList(excluded));
+            record.put("winners", toList(getWinners()));
+            return record;
+        }
+    }
+
+    /**
+     * Creates a new random seed
+     * @return
+     *      Seed
+     */
+    public static long newSeed() {
+        return seeds.nextLong();
+    }
+
+    /**
+     * Draws winners
+     * @param ids
+     *      IDs of the entrants in the pool; not modified
+     * @param winners
+     *      Number of winners wanted; everyone eligible wins if there are fewer
+     * @param excluded
+     *      IDs that may not win, may be null
+     * @param seed
+     *      Seed for the draw
+     * @return
+     *      The draw
+     */
+    public static Draw draw(int[] ids, int winners, IntHashSet excluded, long seed) {
+        if (winners < 0) {
+            throw new IllegalArgumentException("winners must not be negative");
+        }
+        int[] pool = new int[ids.length];
+        int[] left = new int[excluded == null ? 0 : ids.length];
+        int n = 0;
+        int m = 0;
+        IntHashSet seen = new IntHashSet(ids.length);
+        for (int id : ids) {
+            if (!seen.add(id)) {
+                continue;
+            }
+            if (excluded != null && excluded.contains(id)) {
+                left[m++] = id;
+            } else {
+                pool[n++] = id;
+            }
+        }
+        if (n < pool.length) {
+            pool = Arrays.copyOf(pool, n);
+        }
+        Arrays.sort(pool);
+        left = Arrays.copyOf(left, m);
+        Arrays.sort(left);
+
+        int k = Math.min(winners, n);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int swap = pool[i];
+            pool[i] = pool[j];
+            pool[j] = swap;
+        }
+        return new Draw(seed, pool, k, left);
+    }
+
+    /**
+     * Repeats a recorded draw and checks it gave the recorded winners
+     * @param ids
+     *      IDs of the entrants in the pool
+     * @param excluded
+     *      IDs that could not win, may be null
+     * @param seed
+     *      Recorded seed
+     * @param winners
+     *      Recorded winners, in draw order
+     * @return
+     *      True if the draw reproduces exactly
+     */
+    public static boolean verify(int[] ids, IntHashSet excluded, long seed, int[] winners) {
+        return Arrays.equals(draw(ids, winners.length, excluded, seed).getWinners(), winners);
+    }
+
+    /**
+     * Repeats a draw from its log entry. The excluded IDs go back into the pool as excluded, so
+     * the check also fails if any of them was drawn
+     * @param record
+     *      Data of the log entry, as written by Draw.toRecord; numbers may come back as any
+     *      Number type
+     * @return
+     *      True if the draw reproduces exactly
+     */
+    public static boolean verify(Map<String, ?> record) {
+        int[] pool = toArray(record.get("pool"));
+        int[] left = toArray(record.get("excluded"));
+        int[] ids = Arrays.copyOf(pool, pool.length + left.length);
+        System.arraycopy(left, 0, ids, pool.length, left.length);
+        IntHashSet excluded = new IntHashSet(left.length);
+        for (int id : left) {
+            excluded.add(id);
+        }
+        long seed = ((Number) record.get("seed")).longValue();
+        return verify(ids, excluded, seed, toArray(record.get("winners")));
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        List<Integer> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static int[] toArray(Object ids) {
+        List<?> list = (List<?>) ids;
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ((Number) list.get(i)).intValue();
+        }
+        return array;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.slices.models;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.List;
+
+/**
+ * One entry of an entrant's membership index, stored at entrants/{id}/memberships/{eventId}.
+ * Written by RosterController in the same transaction or batch that changes the event's
+ * rosters, so an entrant's events can be found with a single read of their own index
+ * instead of array-contains queries over every event.
+ * @version 1.0
+ */
+@IgnoreExtraProperties
+public class Membership {
+    /**
+     * How the entrant is related to the event
+     */
+    public enum Status { WAITLISTED, ENROLLED, CANCELLED }
+
+    private int eventId;
+    private Status status;
+    /**
+     * Date of the event when the entry was written, used to order the index
+     */
+    private Timestamp eventDate;
+
+    public Membership() {}
+
+    public Membership(int eventId, Status status, Timestamp eventDate) {
+        this.eventId = eventId;
+        this.status = status;
+        this.eventDate = eventDate;
+    }
+
+    /**
+     * Builds the entry for an entrant from an event's in-memory lists
+     * @param event
+     *      Event the entrant may belong to
+     * @param entrantId
+     *      ID of the entrant
+     * @return
+     *      The entry, or null if the entrant is not enrolled, waiting or cancelled
+     */
+    public static Membership of(Event event, int entrantId) {
+        Status status = statusIn(event, entrantId);
+        if (status == null) {
+            return null;
+        }
+        Timestamp date = event.getEventInfo() != null ? event.getEventInfo().getEventDate() : null;
+        return new Membership(event.getId(), status, date);
+    }
+
+    /**
+     * Finds an entrant's status in an event's in-memory lists
+     * @param event
+     *      Event to check
+     * @param entrantId
+     *      ID of the entrant
+     * @return
+     *      The entrant's status, or null if they are in none of the lists
+     */
+    public static Status statusIn(Event event, int entrantId) {
+        if (contains(event.getEntrantIds(), entrantId)) {
+            return Status.ENROLLED;
+        }
+        if (event.getWaitlist() != null && event.getWaitlist().containsEntrant(entrantId)) {
+            return Status.WAITLISTED;
+        }
+        if (contains(event.getCancelledIds(), entrantId)) {
+            return Status.CANCELLED;
+        }
+        return null;
+    }
+
+    private static boolean contains(List<Integer> ids, int id) {
+        if (ids instanceof IdList) {
+            return ((IdList) ids).containsId(id);
+        }
+        return ids != null && ids.contains(id);
+    }
+
+    public int getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(int eventId) {
+        this.eventId = eventId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Timestamp getEventDate() {
+        return eventDate;
+    }
+
+    public void setEventDate(Timestamp eventDate) {
+        this.eventDate = eventDate;
+    }
+}
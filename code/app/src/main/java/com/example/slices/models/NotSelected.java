@@ -7,11 +7,13 @@ import com.example.slices.interfaces.DBWriteCallback;
 import com.example.slices.interfaces.EntrantCallback;
 import com.example.slices.interfaces.EventCallback;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.IgnoreExtraProperties;
 
 /**
  * Class representing a not selected notification
  * @author Bhupinder
  */
+@IgnoreExtraProperties
 public class NotSelected extends Notification {
     /**
      * Whether the entrant stayed in the waitlist
@@ -91,4 +93,14 @@ public class NotSelected extends Notification {
     public void setDeclined(boolean declined) {
         this.declined = declined;
     }
+
+    /**
+     * Getter for whether the notice is still waiting for an answer
+     * @return
+     *      True if the entrant has neither stayed nor declined
+     */
+    @Override
+    public boolean getActive() {
+        return !stayed && !declined;
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.slices.models;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.IgnoreExtraProperties;
 
 
 /**
@@ -8,6 +9,7 @@ import com.google.firebase.Timestamp;
  * @author Ryan Haubrich
  * @version 1.0
  */
+@IgnoreExtraProperties
 public class Notification {
     /**
      * Title of the notification
@@ -164,6 +166,16 @@ public class Notification {
         return read;
     }
 
+    /**
+     * Getter for whether the notification still needs the recipient's attention.
+     * Stored so the inbox can query active notifications; derived, so there is no setter
+     * @return
+     *      True if the notification has not been read
+     */
+    public boolean getActive() {
+        return !read;
+    }
+
     /**
      * Setter for the notification ID
      * @param id
@@ -8,6 +8,11 @@ import com.journeyapps.barcodescanner.BarcodeEncoder;
 
 
 public class QREncoder {
+    /**
+     * Width and height of QRCodes shown in the app
+     */
+    public static final int DEFAULT_SIZE = 400;
+
     /**
      * Function that takes a string and turns it into a QRCode
      * @param
@@ -17,9 +22,22 @@ public class QREncoder {
      * @author Brad Erdely
      */
     public static Bitmap encode(String msg) {
+        return encode(msg, DEFAULT_SIZE);
+    }
+
+    /**
+     * Function that takes a string and turns it into a square QRCode
+     * @param
+     *      msg - String to encode into a QRCode
+     * @param
+     *      size - Width and height of the bitmap in pixels
+     * @return
+     *      Bitmap of QRCode, or null if the string cannot be encoded
+     */
+    public static Bitmap encode(String msg, int size) {
         BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
         try {
-            return barcodeEncoder.encodeBitmap(msg, BarcodeFormat.QR_CODE, 400, 400);
+            return barcodeEncoder.encodeBitmap(msg, BarcodeFormat.QR_CODE, size, size);
         }
         catch (WriterException e) {
             return null;
@@ -0,0 +1,153 @@
+package com.example.slices.models;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Decodes QR codes from camera frames for CameraFragment.
+ * Reads the luminance (Y) plane directly, honouring its row stride, and only looks at a centred
+ * square where the user aims the code. The frame buffer and the reader are reused, so a frame
+ * allocates nothing beyond ZXing's own binarizer. Attempts closer together than the minimum
+ * interval are skipped, and a code is not reported again until the debounce time has passed.
+ * Not thread-safe: feed it from a single analysis thread.
+ * @version 1.0
+ */
+public class QRFrameDecoder {
+    /**
+     * Side of the scanned square as a fraction of the frame's shorter side
+     */
+    public static final float ROI_FRACTION = 0.7f;
+
+    /**
+     * Shortest time between decode attempts
+     */
+    public static final long MIN_INTERVAL_MS = 150;
+
+    /**
+     * How long the same text is suppressed after it is reported
+     */
+    public static final long DEBOUNCE_MS = 2000;
+
+    private final QRCodeReader reader = new QRCodeReader();
+    private final Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+    private final long minIntervalMs;
+    private final long debounceMs;
+
+    private byte[] frame = new byte[0];
+    private long lastAttempt = Long.MIN_VALUE;
+    private String lastText;
+    private long lastReported = Long.MIN_VALUE;
+
+    public QRFrameDecoder() {
+        this(MIN_INTERVAL_MS, DEBOUNCE_MS);
+    }
+
+    /**
+     * @param minIntervalMs
+     *      Shortest time between decode attempts, 0 to try every frame
+     * @param debounceMs
+     *      How long the same text is suppressed after it is reported
+     */
+    public QRFrameDecoder(long minIntervalMs, long debounceMs) {
+        this.minIntervalMs = minIntervalMs;
+        this.debounceMs = debounceMs;
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.QR_CODE));
+    }
+
+    /**
+     * Decodes a frame
+     * @param yPlane
+     *      Luminance plane; read from its start, its position is left at the end
+     * @param rowStride
+     *      Bytes between the starts of two rows, at least width
+     * @param width
+     *      Frame width in pixels
+     * @param height
+     *      Frame height in pixels
+     * @param nowMillis
+     *      Current time, used for throttling and debouncing
+     * @return
+     *      Text of a newly seen code, or null if the attempt was skipped, found nothing or
+     *      found the code reported last
+     */
+    public String decode(ByteBuffer yPlane, int rowStride, int width, int height, long nowMillis) {
+        if (lastAttempt != Long.MIN_VALUE && nowMillis - lastAttempt < minIntervalMs) {
+            return null;
+        }
+        lastAttempt = nowMillis;
+
+        int size = rowStride * height;
+        if (frame.length < size) {
+            frame = new byte[size];
+        }
+        yPlane.rewind();
+        yPlane.get(frame, 0, Math.min(size, yPlane.remaining()));
+
+        String text = decode(frame, rowStride, width, height);
+        if (text == null) {
+            return null;
+        }
+        if (text.equals(lastText) && nowMillis - lastReported < debounceMs) {
+            return null;
+        }
+        lastText = text;
+        lastReported = nowMillis;
+        return text;
+    }
+
+    /**
+     * Decodes the centre of a luminance frame, without throttling or debouncing
+     * @param data
+     *      Luminance bytes, rowStride per row
+     * @param rowStride
+     *      Bytes between the starts of two rows, at least width
+     * @param width
+     *      Frame width in pixels
+     * @param height
+     *      Frame height in pixels
+     * @return
+     *      Decoded text, or null if no code was found
+     */
+    public String decode(byte[] data, int rowStride, int width, int height) {
+        int[] roi = centerSquare(width, height, ROI_FRACTION);
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(
+                data, rowStride, height, roi[0], roi[1], roi[2], roi[2], false);
+        try {
+            Result result = reader.decode(new BinaryBitmap(new HybridBinarizer(source)), hints);
+            return result.getText();
+        } catch (ReaderException e) {
+            // Not a QR or unreadable = ignored!
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Finds the centred square scanned in a frame
+     * @param width
+     *      Frame width
+     * @param height
+     *      Frame height
+     * @param fraction
+     *      Side of the square as a fraction of the shorter side
+     * @return
+     *      Left, top and side of the square
+     */
+    public static int[] centerSquare(int width, int height, float fraction) {
+        int side = Math.max(1, Math.min(Math.round(Math.min(width, height) * fraction), Math.min(width, height)));
+        return new int[]{(width - side) / 2, (height - side) / 2, side};
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.slices.models;
+
+import android.location.Location;
+
+/**
+ * A pending change to one of an event's roster subcollections.
+ * Recorded by the Event model as entrants are added or removed in memory, and
+ * written alongside the parent document by EventController.updateEvent.
+ * @version 1.0
+ */
+public class RosterChange {
+    /**
+     * Roster subcollection the change applies to
+     */
+    public enum Roster { WAITLIST, ENTRANTS }
+
+    private final Roster roster;
+    private final int entrantId;
+    /**
+     * Entrant to store, or null if the entrant is being removed
+     */
+    private final Entrant entrant;
+    private final Location location;
+
+    private RosterChange(Roster roster, int entrantId, Entrant entrant, Location location) {
+        this.roster = roster;
+        this.entrantId = entrantId;
+        this.entrant = entrant;
+        this.location = location;
+    }
+
+    /**
+     * Creates a change that stores an entrant in a roster
+     * @param roster
+     *      Roster to add to
+     * @param entrant
+     *      Entrant to add
+     * @param location
+     *      Join location, or null
+     * @return
+     *      The change
+     */
+    public static RosterChange put(Roster roster, Entrant entrant, Location location) {
+        return new RosterChange(roster, entrant.getId(), entrant, location);
+    }
+
+    /**
+     * Creates a change that removes an entrant from a roster
+     * @param roster
+     *      Roster to remove from
+     * @param entrantId
+     *      ID of the entrant to remove
+     * @return
+     *      The change
+     */
+    public static RosterChange remove(Roster roster, int entrantId) {
+        return new RosterChange(roster, entrantId, null, null);
+    }
+
+    public Roster getRoster() {
+        return roster;
+    }
+
+    public int getEntrantId() {
+        return entrantId;
+    }
+
+    public Entrant getEntrant() {
+        return entrant;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * Checks if this change removes the entrant
+     * @return
+     *      True for a removal, false for a put
+     */
+    public boolean isRemoval() {
+        return entrant == null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.slices.models;
+
+import android.location.Location;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+import com.google.firebase.firestore.ServerTimestamp;
+
+/**
+ * A single member of an event roster, stored as its own document under
+ * events/{eventId}/waitlist/{entrantId} or events/{eventId}/entrants/{entrantId}
+ * @version 1.0
+ */
+@IgnoreExtraProperties
+public class RosterEntry {
+    /**
+     * Copy of the entrant at the time they joined
+     */
+    private Entrant entrant;
+
+    /**
+     * When the entrant joined, set by the server; rosters are paged in this order
+     */
+    @ServerTimestamp
+    private Timestamp joinedAt;
+
+    /**
+     * Join location, only stored for waitlists of geolocation events
+     */
+    private Double latitude;
+    private Double longitude;
+
+    /**
+     * Default constructor, needed for serialization
+     */
+    public RosterEntry() {}
+
+    /**
+     * Constructor for a new roster entry
+     * @param entrant
+     *      Entrant joining
+     * @param location
+     *      Location they joined from, or null
+     */
+    public RosterEntry(Entrant entrant, Location location) {
+        this.entrant = entrant;
+        if (location != null) {
+            this.latitude = location.getLatitude();
+            this.longitude = location.getLongitude();
+        }
+    }
+
+    public Entrant getEntrant() {
+        return entrant;
+    }
+
+    public void setEntrant(Entrant entrant) {
+        this.entrant = entrant;
+    }
+
+    public Timestamp getJoinedAt() {
+        return joinedAt;
+    }
+
+    public void setJoinedAt(Timestamp joinedAt) {
+        this.joinedAt = joinedAt;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * Gets the join location
+     * @return
+     *      Location, or null if none was stored
+     */
+    @Exclude
+    public Location toLocation() {
+        if (latitude == null || longitude == null) {
+            return null;
+        }
+        Location location = new Location("stored");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.slices.models;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the keyword index stored with each event so names can be searched in Firestore.
+ * A name is lower-cased, stripped of accents and split into words; every prefix of every word
+ * becomes a search token, so a query word matches an event when it starts one of the event's
+ * words. Queries use the same normalization.
+ * @version 1.0
+ */
+public class SearchIndex {
+    /**
+     * Longest prefix stored per word; longer query words are cut to this length
+     */
+    public static final int MAX_TOKEN_LENGTH = 20;
+
+    /**
+     * Most tokens stored for one name, keeping long names well under Firestore's index limits
+     */
+    public static final int MAX_TOKENS = 200;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private SearchIndex() {}
+
+    /**
+     * Normalizes text for searching
+     * @param text
+     *      Text to normalize, may be null
+     * @return
+     *      Lower-case text without accents, or null for null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).trim();
+    }
+
+    /**
+     * Splits text into normalized words
+     * @param text
+     *      Text to split, may be null
+     * @return
+     *      Words in order, without repeats
+     */
+    public static List<String> words(String text) {
+        String normalized = normalize(text);
+        if (normalized == null || normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : SEPARATORS.split(normalized)) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Builds the search tokens for a name
+     * @param name
+     *      Event name, may be null
+     * @return
+     *      Every prefix of every word, up to MAX_TOKEN_LENGTH characters
+     */
+    public static List<String> tokens(String name) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : words(name)) {
+            int length = Math.min(word.length(), MAX_TOKEN_LENGTH);
+            for (int i = 1; i <= length && tokens.size() < MAX_TOKENS; i++) {
+                tokens.add(word.substring(0, i));
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Picks the query token to look up in Firestore, which only allows one array-contains
+     * filter per query. The longest word matches the fewest events
+     * @param queryWords
+     *      Normalized query words, not empty
+     * @return
+     *      Token to query with
+     */
+    public static String lookupToken(List<String> queryWords) {
+        String best = queryWords.get(0);
+        for (String word : queryWords) {
+            if (word.length() > best.length()) best = word;
+        }
+        return best.length() > MAX_TOKEN_LENGTH ? best.substring(0, MAX_TOKEN_LENGTH) : best;
+    }
+
+    /**
+     * Checks a name against every query word
+     * @param name
+     *      Event name
+     * @param queryWords
+     *      Normalized query words
+     * @return
+     *      True if each query word starts some word of the name
+     */
+    public static boolean matches(String name, List<String> queryWords) {
+        List<String> nameWords = words(name);
+        for (String query : queryWords) {
+            boolean found = false;
+            for (String word : nameWords) {
+                if (word.startsWith(query)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+}
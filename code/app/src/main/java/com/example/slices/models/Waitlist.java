@@ -2,6 +2,7 @@ package com.example.slices.models;
 
 import android.location.Location;
 
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 
 import java.util.ArrayList;
@@ -11,18 +12,27 @@ import java.util.Map;
 
 /**
  * Class representing a waitlist for an event
+ * Only the entrant IDs and counters are stored on the event document; the entrants and
+ * their join locations live in events/{id}/waitlist and are only filled in memory when
+ * the roster is loaded. Entrant IDs are held in an IdList so membership checks and
+ * removals do not scan the list
  * @author Ryan Haubrich
- * @version 1.6
+ * @version 1.8
  */
 
 @IgnoreExtraProperties
 public class Waitlist {
     /**
-     * List of entrants on the waitlist
+     * List of entrants on the waitlist, only filled when the roster is loaded
      */
     private List<Entrant> entrants;
 
-    private List<Integer> entrantIds;
+    /**
+     * Loaded entrants by ID, built on first lookup
+     */
+    private Map<Integer, Entrant> entrantsById;
+
+    private IdList entrantIds;
 
     /**
      * Maximum capacity of the waitlist
@@ -50,7 +60,7 @@ public class Waitlist {
         this.entrants = new ArrayList<>();
         this.currentEntrants = 0;
         this.maxCapacity = 32768;
-        this.entrantIds = new ArrayList<>();
+        this.entrantIds = new IdList();
         this.entrantLocations = new HashMap<>();
     }
 
@@ -63,19 +73,69 @@ public class Waitlist {
         this.entrants = new ArrayList<>();
         this.maxCapacity = maxCapacity;
         this.currentEntrants = 0;
-        this.entrantIds = new ArrayList<>();
+        this.entrantIds = new IdList();
         this.entrantLocations = new HashMap<>();
     }
 
+    /**
+     * Copies a waitlist; the lists and locations are copied, the entrants in them are shared
+     * @param other
+     *      Waitlist to copy
+     */
+    public Waitlist(Waitlist other) {
+        this.entrants = other.entrants != null ? new ArrayList<>(other.entrants) : new ArrayList<>();
+        this.maxCapacity = other.maxCapacity;
+        this.currentEntrants = other.currentEntrants;
+        this.entrantIds = other.entrantIds != null ? new IdList(other.entrantIds) : new IdList();
+        this.entrantLocations = new HashMap<>();
+        if (other.entrantLocations != null) {
+            for (Map.Entry<String, Map<String, Double>> entry : other.entrantLocations.entrySet()) {
+                this.entrantLocations.put(entry.getKey(),
+                        entry.getValue() != null ? new HashMap<>(entry.getValue()) : null);
+            }
+        }
+    }
+
     /**
      * Adds an entrant to the waitlist
      * @param entrant
      *      Entrant to add
      */
     public void addEntrant(Entrant entrant) {
+        if (entrants == null) {
+            entrants = new ArrayList<>();
+        }
         entrants.add(entrant);
-        entrantIds.add((Integer)entrant.getId());
-        currentEntrants++;
+        entrantIndex().put(entrant.getId(), entrant);
+        if (entrantIds.addId(entrant.getId())) {
+            currentEntrants++;
+        }
+    }
+
+    /**
+     * Checks if an entrant is on the waitlist
+     * @param entrantId
+     *      ID of the entrant
+     * @return
+     *      True if the entrant's ID is on the waitlist
+     */
+    public boolean containsEntrant(int entrantId) {
+        return entrantIds != null && entrantIds.containsId(entrantId);
+    }
+
+    /**
+     * Gets the index of loaded entrants by ID, rebuilding it if the list was changed directly
+     * @return
+     *      Map of entrant IDs to entrants
+     */
+    private Map<Integer, Entrant> entrantIndex() {
+        if (entrantsById == null || entrantsById.size() != entrants.size()) {
+            entrantsById = new HashMap<>(entrants.size() * 2);
+            for (Entrant entrant : entrants) {
+                entrantsById.put(entrant.getId(), entrant);
+            }
+        }
+        return entrantsById;
     }
 
     /**
@@ -89,9 +149,11 @@ public class Waitlist {
 
     /**
      * Getter for the list of entrants on the waitlist
+     * Empty unless the event was loaded with its roster
      * @return
      *      List of entrants
      */
+    @Exclude
     public List<Entrant> getEntrants() {
         return entrants;
     }
@@ -103,12 +165,27 @@ public class Waitlist {
      *      Entrant to remove
      */
     public void removeEntrant(Entrant entrant) {
-        entrants.remove(entrant);
-        entrantIds.remove((Integer)entrant.getId());
-        currentEntrants--;
+        removeEntrant(entrant.getId());
+    }
+
+    /**
+     * Removes an entrant from the waitlist by ID
+     * Also removes their stored location if present
+     * @param entrantId
+     *      ID of the entrant to remove
+     */
+    public void removeEntrant(int entrantId) {
+        // Only scan the loaded roster when the entrant is actually in it
+        if (entrants != null && entrantIndex().remove(entrantId) != null) {
+            entrants.removeIf(e -> e.getId() == entrantId);
+        }
+        // Only count entrants that were actually on the waitlist
+        if (entrantIds.removeId(entrantId)) {
+            currentEntrants--;
+        }
         // Remove the entrant's location from the map if it exists
         if (entrantLocations != null) {
-            entrantLocations.remove(String.valueOf(entrant.getId()));
+            entrantLocations.remove(String.valueOf(entrantId));
         }
     }
 
@@ -126,6 +203,8 @@ public class Waitlist {
      */
     public void clearWaitlist() {
         entrants.clear();
+        entrantsById = null;
+        entrantIds.clear();
         currentEntrants = 0;
     }
 
@@ -152,8 +231,9 @@ public class Waitlist {
      * @return
      *      True if no entrants are on the waitlist, false otherwise
      */
+    @Exclude
     public boolean isEmpty() {
-        return entrants.isEmpty();
+        return entrantIds == null || entrantIds.isEmpty();
     }
 
     /**
@@ -164,10 +244,8 @@ public class Waitlist {
      *      The matching Entrant object from the waitlist, or null if not found
      */
     public Entrant getEntrant(Entrant entrant) {
-        if (!entrants.contains(entrant)) {
-            return null;
-        }
-        return entrants.get(entrants.indexOf(entrant));
+        Entrant found = getEntrant(entrant.getId());
+        return entrant.equals(found) ? found : null;
     }
 
     /**
@@ -178,20 +256,20 @@ public class Waitlist {
      *      The matching Entrant object, or null if no entrant has the given ID
      */
     public Entrant getEntrant(int id) {
-        for (Entrant entrant : entrants) {
-            if (entrant.getId() == id) {
-                return entrant;
-            }
-        }
-        return null;
+        return entrants == null ? null : entrantIndex().get(id);
     }
 
     public List<Integer> getEntrantIds() {
         return entrantIds;
     }
 
+    /**
+     * Setter for the entrant IDs, indexing them for lookups
+     * @param entrantIds
+     *      IDs of the entrants on the waitlist
+     */
     public void setEntrantIds(List<Integer> entrantIds) {
-        this.entrantIds = entrantIds;
+        this.entrantIds = IdList.of(entrantIds);
     }
 
     /**
@@ -199,8 +277,10 @@ public class Waitlist {
      * @param entrants
      *      New list of entrants
      */
+    @Exclude
     public void setEntrants(List<Entrant> entrants) {
         this.entrants = entrants;
+        this.entrantsById = null;
     }
 
     /**
@@ -261,6 +341,7 @@ public class Waitlist {
      * @return
      *      Map of entrant IDs (as Strings) to their join locations (never null, returns empty map if not initialized)
      */
+    @Exclude
     public Map<String, Map<String, Double>> getEntrantLocations() {
         // Return empty map if not initialized (backward compatibility)
         if (entrantLocations == null) {
@@ -274,6 +355,7 @@ public class Waitlist {
      * @param entrantLocations
      *      Map of entrant locations with String keys
      */
+    @Exclude
     public void setEntrantLocations(Map<String, Map<String, Double>> entrantLocations) {
         this.entrantLocations = entrantLocations != null ? entrantLocations : new HashMap<>();
     }
@@ -0,0 +1,251 @@
+package com.example.slices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.slices.interfaces.DBWriteCallback;
+import com.example.slices.models.AsyncBatchExecutor;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Local tests and a benchmark for AsyncBatchExecutor.
+ * Operations complete on a small pool standing in for Firestore's callback threads.
+ */
+public class AsyncBatchExecutorTest {
+    private static final int OPS = 10_000;
+
+    private static ThreadPoolExecutor io;
+
+    @BeforeClass
+    public static void setup() {
+        io = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        io.prestartAllCoreThreads();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        io.shutdownNow();
+    }
+
+    /**
+     * Builds operations that complete on the io pool, failing those whose index is a multiple of failEvery
+     * @param count
+     *      Number of operations
+     * @param failEvery
+     *      Fail every nth operation, 0 for none
+     * @param inFlight
+     *      Tracks operations started but not completed
+     * @param peak
+     *      Highest value inFlight reached
+     * @return
+     *      Operations
+     */
+    private static List<Consumer<DBWriteCallback>> ops(int count, int failEvery, AtomicInteger inFlight, AtomicInteger peak) {
+        List<Consumer<DBWriteCallback>> ops = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean fail = failEvery > 0 && i % failEvery == 0;
+            ops.add(cb -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                io.execute(() -> {
+                    inFlight.decrementAndGet();
+                    if (fail) {
+                        cb.onFailure(new Exception("fail"));
+                    } else {
+                        cb.onSuccess();
+                    }
+                });
+            });
+        }
+        return ops;
+    }
+
+    /**
+     * Runs a batch and waits for its results
+     */
+    private static List<AsyncBatchExecutor.Result> runAndWait(AsyncBatchExecutor executor,
+                                                             List<Consumer<DBWriteCallback>> ops) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<List<AsyncBatchExecutor.Result>> ref = new AtomicReference<>();
+        executor.run(ops, results -> {
+            ref.set(results);
+            latch.countDown();
+        });
+        assertTrue("Timed out waiting for batch", latch.await(30, TimeUnit.SECONDS));
+        return ref.get();
+    }
+
+    /**
+     * The batch runner this class replaced: starts everything and parks a new thread on a latch
+     */
+    private static void legacyRunBatch(List<Consumer<DBWriteCallback>> operations, DBWriteCallback finalCallback) {
+        CountDownLatch latch = new CountDownLatch(operations.size());
+        AtomicBoolean failed = new AtomicBoolean(false);
+        for (Consumer<DBWriteCallback> op : operations) {
+            op.accept(new DBWriteCallback() {
+                @Override
+                public void onSuccess() {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    failed.set(true);
+                    latch.countDown();
+                }
+            });
+        }
+        new Thread(() -> {
+            try {
+                latch.await();
+                if (failed.get()) {
+                    finalCallback.onFailure(new Exception("Batch operation failed"));
+                } else {
+                    finalCallback.onSuccess();
+                }
+            } catch (InterruptedException e) {
+                finalCallback.onFailure(e);
+            }
+        }).start();
+    }
+
+    @Test
+    public void testPerOperationResultsAndBoundedConcurrency() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<AsyncBatchExecutor.Result> results = runAndWait(new AsyncBatchExecutor(16), ops(OPS, 100, inFlight, peak));
+
+        assertEquals(OPS, results.size());
+        assertTrue("peak in flight " + peak.get(), peak.get() <= 16);
+        for (int i = 0; i < OPS; i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertEquals(i % 100 != 0, results.get(i).isSuccess());
+        }
+    }
+
+    @Test
+    public void testSynchronousOperationsDoNotRecurse() throws InterruptedException {
+        List<Consumer<DBWriteCallback>> ops = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            ops.add(DBWriteCallback::onSuccess);
+        }
+        List<AsyncBatchExecutor.Result> results = runAndWait(new AsyncBatchExecutor(1), ops);
+        assertEquals(100_000, results.size());
+    }
+
+    @Test
+    public void testTimeoutAndRetry() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        List<Consumer<DBWriteCallback>> ops = new ArrayList<>();
+        // Never completes
+        ops.add(cb -> {});
+        // Fails once, then succeeds
+        ops.add(cb -> {
+            if (calls.incrementAndGet() == 1) {
+                cb.onFailure(new Exception("transient"));
+            } else {
+                cb.onSuccess();
+            }
+        });
+        AsyncBatchExecutor executor = new AsyncBatchExecutor(4)
+                .setTimeout(100)
+                .setRetryPolicy(AsyncBatchExecutor.RetryPolicy.exponential(3, 10));
+        List<AsyncBatchExecutor.Result> results = runAndWait(executor, ops);
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getError() instanceof TimeoutException);
+        assertEquals(3, results.get(0).getAttempts());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(2, results.get(1).getAttempts());
+    }
+
+    @Test
+    public void testCallbackRunsOnChosenExecutor() throws InterruptedException {
+        ExecutorService callbacks = Executors.newSingleThreadExecutor(r -> new Thread(r, "callbacks"));
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<String> thread = new AtomicReference<>();
+            new AsyncBatchExecutor()
+                    .setCallbackExecutor(callbacks)
+                    .run(ops(10, 0, new AtomicInteger(), new AtomicInteger()), results -> {
+                        thread.set(Thread.currentThread().getName());
+                        latch.countDown();
+                    });
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals("callbacks", thread.get());
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs 10k operations as 100 concurrent batches of 100 on the legacy runner and on the rewrite.
+     * The legacy runner parks a new thread per batch; the rewrite starts none and never has more
+     * than DEFAULT_MAX_IN_FLIGHT of a batch's operations in flight.
+     */
+    @Test
+    public void benchmarkTenThousandOperations() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int batches = 100;
+        int perBatch = OPS / batches;
+
+        // Legacy
+        AtomicInteger legacyInFlight = new AtomicInteger();
+        AtomicInteger legacyPeak = new AtomicInteger();
+        long legacyThreads = threads.getTotalStartedThreadCount();
+        CountDownLatch legacyDone = new CountDownLatch(batches);
+        for (int b = 0; b < batches; b++) {
+            legacyRunBatch(ops(perBatch, 0, legacyInFlight, legacyPeak), new DBWriteCallback() {
+                @Override
+                public void onSuccess() {
+                    legacyDone.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    legacyDone.countDown();
+                }
+            });
+        }
+        assertTrue(legacyDone.await(30, TimeUnit.SECONDS));
+        legacyThreads = threads.getTotalStartedThreadCount() - legacyThreads;
+
+        // Rewrite, with in-flight counters per batch since the limit applies to each run
+        List<AtomicInteger> peaks = new ArrayList<>(batches);
+        long newThreads = threads.getTotalStartedThreadCount();
+        CountDownLatch done = new CountDownLatch(batches);
+        AsyncBatchExecutor executor = new AsyncBatchExecutor();
+        for (int b = 0; b < batches; b++) {
+            AtomicInteger peak = new AtomicInteger();
+            peaks.add(peak);
+            executor.run(ops(perBatch, 0, new AtomicInteger(), peak), results -> done.countDown());
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        newThreads = threads.getTotalStartedThreadCount() - newThreads;
+
+        assertEquals(batches, legacyThreads);
+        assertEquals(0, newThreads);
+        for (AtomicInteger peak : peaks) {
+            assertTrue("peak in flight " + peak.get(), peak.get() <= AsyncBatchExecutor.DEFAULT_MAX_IN_FLIGHT);
+        }
+    }
+}
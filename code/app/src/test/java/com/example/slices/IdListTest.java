@@ -0,0 +1,203 @@
+package com.example.slices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.slices.models.IdList;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Local tests and microbenchmarks for IdList, the membership index behind Event and Waitlist
+ */
+public class IdListTest {
+
+    @Test
+    public void testKeepsInsertionOrderAcrossRemovals() {
+        IdList ids = new IdList();
+        List<Integer> expected = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            int id = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove((Integer) id), ids.remove((Integer) id));
+            } else {
+                boolean added = !expected.contains(id);
+                if (added) expected.add(id);
+                assertEquals(added, ids.add(id));
+            }
+            assertEquals(expected.size(), ids.size());
+        }
+        assertEquals(expected, ids);
+        assertEquals(expected, new ArrayList<>(ids));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), ids.get(i));
+            assertEquals(i, ids.indexOf(expected.get(i)));
+        }
+    }
+
+    @Test
+    public void testWrapsExistingLists() {
+        List<Integer> stored = Arrays.asList(4, 8, null, 4, 15);
+        IdList ids = IdList.of(stored);
+        assertEquals(Arrays.asList(4, 8, 15), ids);
+        assertTrue(ids == IdList.of(ids));
+        assertEquals(null, IdList.of(null));
+        assertFalse(ids.contains("4"));
+        assertTrue(ids.containsId(15));
+    }
+
+    @Test
+    public void testIteratorRemoveAndIndexedReads() {
+        IdList ids = new IdList();
+        for (int i = 0; i < 100; i++) ids.addId(i);
+        Iterator<Integer> it = ids.iterator();
+        int seen = 0;
+        while (it.hasNext()) {
+            int id = it.next();
+            seen++;
+            if (id % 2 == 0) {
+                it.remove();
+                // Reading by index compacts the array under the iterator
+                ids.get(0);
+            }
+        }
+        assertEquals(100, seen);
+        assertEquals(50, ids.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(2 * i + 1), ids.get(i));
+        }
+        ids.removeIf(id -> id > 50);
+        assertEquals(25, ids.size());
+        ids.clear();
+        assertTrue(ids.isEmpty());
+        assertFalse(ids.containsId(1));
+    }
+
+    @Test
+    public void testReorderingKeepsIdsUnique() {
+        IdList ids = new IdList();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.addId(i * 7 % 1000);
+            expected.add(i * 7 % 1000);
+        }
+        for (int i = 0; i < 1000; i += 3) ids.removeId(i);
+        expected.removeIf(id -> id % 3 == 0);
+
+        Collections.shuffle(ids, new Random(5));
+        Collections.shuffle(expected, new Random(5));
+        assertEquals(expected, ids);
+        ids.sort(null);
+        Collections.sort(expected);
+        assertEquals(expected, ids);
+        ids.sort(Collections.reverseOrder());
+        expected.sort(Collections.reverseOrder());
+        assertEquals(expected, ids);
+
+        // Setting a new ID replaces the old one; setting one held elsewhere swaps them
+        assertEquals(expected.get(0), ids.set(0, 5000));
+        assertFalse(ids.containsId(expected.get(0)));
+        assertTrue(ids.containsId(5000));
+        int last = ids.get(ids.size() - 1);
+        ids.set(0, last);
+        assertEquals(Integer.valueOf(last), ids.get(0));
+        assertEquals(Integer.valueOf(5000), ids.get(ids.size() - 1));
+        assertEquals(expected.size(), ids.size());
+
+        ids.add(1, -1);
+        ids.add(1, -1);
+        assertEquals(Integer.valueOf(-1), ids.get(1));
+        assertEquals(expected.size() + 1, ids.size());
+        assertEquals(1, ids.indexOf(-1));
+        assertTrue(ids.removeId(-1));
+        ids.add(0, -1);
+        assertEquals(0, ids.indexOf(-1));
+    }
+
+    /**
+     * Times 2,000 joins, membership checks and leaves against rosters of 1k to 100k members,
+     * comparing IdList with the ArrayList of boxed IDs the models used before.
+     * Prints the timings; asserts only the final sizes.
+     */
+    @Test
+    public void benchmarkMembership() {
+        int ops = 2_000;
+        System.out.println("Membership benchmark, " + ops + " ops each (us): members, list join/check/leave, index join/check/leave");
+        for (int members : new int[]{1_000, 10_000, 100_000}) {
+            int[] order = shuffled(members, members);
+            int sample = Math.min(ops, members);
+            int existing = members - sample;
+
+            List<Integer> list = new ArrayList<>(members);
+            IdList ids = new IdList(members);
+            for (int i = 0; i < existing; i++) {
+                list.add(order[i]);
+                ids.addId(order[i]);
+            }
+
+            long t0 = System.nanoTime();
+            for (int i = existing; i < members; i++) {
+                if (!list.contains(order[i])) list.add(order[i]);
+            }
+            long t1 = System.nanoTime();
+            int hits = 0;
+            for (int i = 0; i < sample; i++) {
+                if (list.contains(order[i])) hits++;
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < sample; i++) {
+                list.remove((Integer) order[i]);
+            }
+            long t3 = System.nanoTime();
+
+            long u0 = System.nanoTime();
+            for (int i = existing; i < members; i++) {
+                ids.addId(order[i]);
+            }
+            long u1 = System.nanoTime();
+            int indexHits = 0;
+            for (int i = 0; i < sample; i++) {
+                if (ids.containsId(order[i])) indexHits++;
+            }
+            long u2 = System.nanoTime();
+            for (int i = 0; i < sample; i++) {
+                ids.removeId(order[i]);
+            }
+            long u3 = System.nanoTime();
+
+            assertEquals(sample, hits);
+            assertEquals(sample, indexHits);
+            assertEquals(existing, list.size());
+            assertEquals(existing, ids.size());
+            System.out.println("  " + members + ": "
+                    + us(t1 - t0) + "/" + us(t2 - t1) + "/" + us(t3 - t2) + ", "
+                    + us(u1 - u0) + "/" + us(u2 - u1) + "/" + us(u3 - u2));
+        }
+    }
+
+    private static int[] shuffled(int count, long seed) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) ids[i] = i + 1;
+        Random random = new Random(seed);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+
+    private static String us(long nanos) {
+        return String.valueOf(nanos / 1_000);
+    }
+}
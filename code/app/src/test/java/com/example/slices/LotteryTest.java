@@ -0,0 +1,200 @@
+package com.example.slices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.slices.models.IntHashSet;
+import com.example.slices.models.Lottery;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Local tests and a benchmark for Lottery and IntHashSet
+ */
+public class LotteryTest {
+    private static final int ENTRANTS = 100_000;
+
+    private static int[] range(int from, int to) {
+        int[] ids = new int[to - from];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = from + i;
+        }
+        return ids;
+    }
+
+    @Test
+    public void testSameSeedSameWinners() {
+        int[] ids = range(1, 1001);
+        int[] shuffled = ids.clone();
+        Random random = new Random(7);
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+
+        Lottery.Draw first = Lottery.draw(ids, 50, null, 42L);
+        Lottery.Draw second = Lottery.draw(shuffled, 50, null, 42L);
+        assertArrayEquals(first.getWinners(), second.getWinners());
+        assertEquals(42L, first.getSeed());
+        assertFalse(Arrays.equals(first.getWinners(), Lottery.draw(ids, 50, null, 43L).getWinners()));
+    }
+
+    @Test
+    public void testWinnersAndLosersPartitionPool() {
+        int[] ids = range(1, 501);
+        IntHashSet excluded = new IntHashSet(Arrays.asList(1, 2, 3, 250));
+        Lottery.Draw draw = Lottery.draw(ids, 100, excluded, Lottery.newSeed());
+
+        assertEquals(496, draw.getPoolSize());
+        assertEquals(100, draw.getWinners().length);
+        assertEquals(396, draw.getLosers().length);
+
+        IntHashSet seen = new IntHashSet();
+        for (int id : draw.getWinners()) {
+            assertFalse(excluded.contains(id));
+            assertTrue(seen.add(id));
+        }
+        for (int id : draw.getLosers()) {
+            assertFalse(excluded.contains(id));
+            assertTrue(seen.add(id));
+        }
+        assertEquals(496, seen.size());
+    }
+
+    @Test
+    public void testFewerEntrantsThanSpots() {
+        // Duplicate IDs only enter the pool once
+        Lottery.Draw draw = Lottery.draw(new int[]{5, 3, 5, 9}, 10, null, 1L);
+        assertEquals(3, draw.getPoolSize());
+        int[] winners = draw.getWinners();
+        Arrays.sort(winners);
+        assertArrayEquals(new int[]{3, 5, 9}, winners);
+        assertEquals(0, draw.getLosers().length);
+
+        assertEquals(0, Lottery.draw(new int[]{1, 2}, 5, new IntHashSet(Arrays.asList(1, 2)), 1L).getPoolSize());
+    }
+
+    @Test
+    public void testVerify() {
+        int[] ids = range(0, 2000);
+        IntHashSet excluded = new IntHashSet(Arrays.asList(0, 10, 20));
+        long seed = Lottery.newSeed();
+        int[] winners = Lottery.draw(ids, 25, excluded, seed).getWinners();
+
+        assertTrue(Lottery.verify(ids, excluded, seed, winners));
+        assertFalse(Lottery.verify(ids, null, seed + 1, winners));
+    }
+
+    @Test
+    public void testVerifyLoggedDraw() {
+        int[] ids = range(0, 2000);
+        IntHashSet excluded = new IntHashSet(Arrays.asList(0, 10, 20, 5000));
+        Lottery.Draw draw = Lottery.draw(ids, 25, excluded, Lottery.newSeed());
+        Map<String, Object> record = draw.toRecord();
+        assertArrayEquals(new int[]{0, 10, 20}, draw.getExcluded());
+        assertEquals(1997, draw.getPool().length);
+
+        // Firestore hands integers back as Longs
+        Map<String, Object> logged = new HashMap<>();
+        for (Map.Entry<String, Object> entry : record.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof List) {
+                List<Long> longs = new ArrayList<>();
+                for (Object id : (List<?>) value) longs.add(((Number) id).longValue());
+                value = longs;
+            } else if (value instanceof Integer) {
+                value = ((Integer) value).longValue();
+            }
+            logged.put(entry.getKey(), value);
+        }
+        assertTrue(Lottery.verify(logged));
+
+        List<Object> winners = new ArrayList<>((List<?>) logged.get("winners"));
+        winners.set(0, 10L);
+        logged.put("winners", winners);
+        assertFalse(Lottery.verify(logged));
+    }
+
+    @Test
+    public void testIntHashSet() {
+        IntHashSet set = new IntHashSet();
+        for (int i = -1000; i <= 1000; i++) {
+            assertTrue(set.add(i));
+        }
+        assertFalse(set.add(0));
+        assertEquals(2001, set.size());
+        for (int i = -1000; i <= 1000; i += 2) {
+            assertTrue(set.remove(i));
+        }
+        assertFalse(set.remove(-1000));
+        for (int i = -1000; i <= 1000; i++) {
+            assertEquals(i % 2 != 0, set.contains(i));
+        }
+        assertEquals(1000, set.size());
+        assertEquals(1000, set.toArray().length);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(1));
+    }
+
+    /**
+     * The draw this engine replaced: random removal from an ArrayList, with exclusions
+     * filtered through List.contains
+     */
+    private static List<Integer> legacyDraw(List<Integer> entrants, List<Integer> excluded, int spots) {
+        List<Integer> pool = new ArrayList<>();
+        for (Integer id : entrants) {
+            if (!excluded.contains(id)) pool.add(id);
+        }
+        List<Integer> winners = new ArrayList<>();
+        for (int i = 0; i < spots && !pool.isEmpty(); i++) {
+            winners.add(pool.remove((int) (Math.random() * pool.size())));
+        }
+        return winners;
+    }
+
+    /**
+     * Draws from 100k entrants with 1k exclusions at several winner counts.
+     * Prints the timings; asserts only the result sizes.
+     */
+    @Test
+    public void benchmarkHundredThousandEntrants() {
+        int[] ids = range(1, ENTRANTS + 1);
+        List<Integer> boxedIds = new ArrayList<>(ENTRANTS);
+        for (int id : ids) boxedIds.add(id);
+        List<Integer> excludedList = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) excludedList.add(i * 97);
+        IntHashSet excluded = new IntHashSet(excludedList);
+
+        System.out.println("Lottery benchmark, " + ENTRANTS + " entrants, " + excludedList.size() + " excluded");
+        for (int spots : new int[]{10, 1000, 10_000}) {
+            // Warm up both paths once
+            legacyDraw(boxedIds, excludedList, spots);
+            Lottery.draw(ids, spots, excluded, 1L);
+
+            long start = System.nanoTime();
+            List<Integer> legacy = legacyDraw(boxedIds, excludedList, spots);
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Lottery.Draw draw = Lottery.draw(ids, spots, excluded, Lottery.newSeed());
+            long newNanos = System.nanoTime() - start;
+
+            assertEquals(spots, legacy.size());
+            assertEquals(spots, draw.getWinners().length);
+            System.out.println("  winners=" + spots + " legacy ms=" + legacyNanos / 1_000_000
+                    + " engine ms=" + newNanos / 1_000_000);
+        }
+    }
+}
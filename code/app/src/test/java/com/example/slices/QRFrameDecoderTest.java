@@ -0,0 +1,162 @@
+package com.example.slices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.slices.models.QRFrameDecoder;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Local tests and a benchmark for QRFrameDecoder, the scan pipeline behind CameraFragment.
+ * Frames are recorded synthetically: a QR code drawn into a noisy luminance plane the size
+ * and row stride CameraX delivers at the analysis resolution.
+ */
+public class QRFrameDecoderTest {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int PADDED_STRIDE = 1344;
+    private static final String TEXT = "EVENT:42";
+
+    /**
+     * Records a frame
+     * @param text
+     *      Text to draw as a QR code in the centre, or null for a frame without one
+     * @param rowStride
+     *      Bytes per row
+     * @param seed
+     *      Seed of the sensor noise
+     */
+    private static byte[] frame(String text, int rowStride, long seed) throws WriterException {
+        byte[] data = new byte[rowStride * HEIGHT];
+        Random noise = new Random(seed);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                data[y * rowStride + x] = (byte) (190 + noise.nextInt(41) - 20);
+            }
+        }
+        if (text != null) {
+            int side = 360;
+            BitMatrix code = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, side, side);
+            int left = (WIDTH - code.getWidth()) / 2;
+            int top = (HEIGHT - code.getHeight()) / 2;
+            for (int y = 0; y < code.getHeight(); y++) {
+                for (int x = 0; x < code.getWidth(); x++) {
+                    if (code.get(x, y)) {
+                        data[(top + y) * rowStride + left + x] = (byte) (40 + noise.nextInt(21));
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void testDecodesPaddedFrames() throws WriterException {
+        QRFrameDecoder decoder = new QRFrameDecoder(0, 0);
+        assertEquals(TEXT, decoder.decode(ByteBuffer.wrap(frame(TEXT, PADDED_STRIDE, 1)),
+                PADDED_STRIDE, WIDTH, HEIGHT, 0));
+        assertNull(decoder.decode(ByteBuffer.wrap(frame(null, PADDED_STRIDE, 2)),
+                PADDED_STRIDE, WIDTH, HEIGHT, 1));
+
+        // The last row of a camera plane is often not padded
+        byte[] full = frame(TEXT, PADDED_STRIDE, 3);
+        ByteBuffer trimmed = ByteBuffer.wrap(full, 0, full.length - (PADDED_STRIDE - WIDTH)).slice();
+        assertEquals(TEXT, decoder.decode(trimmed, PADDED_STRIDE, WIDTH, HEIGHT, 2));
+    }
+
+    @Test
+    public void testThrottlesAndDebounces() throws WriterException {
+        QRFrameDecoder decoder = new QRFrameDecoder(150, 2000);
+        ByteBuffer plane = ByteBuffer.wrap(frame(TEXT, WIDTH, 4));
+        assertEquals(TEXT, decoder.decode(plane, WIDTH, WIDTH, HEIGHT, 0));
+        assertNull("Attempt inside the interval is skipped", decoder.decode(plane, WIDTH, WIDTH, HEIGHT, 100));
+        assertNull("Same code is debounced", decoder.decode(plane, WIDTH, WIDTH, HEIGHT, 200));
+        assertEquals(TEXT, decoder.decode(plane, WIDTH, WIDTH, HEIGHT, 2300));
+    }
+
+    @Test
+    public void testCenterSquare() {
+        assertArrayEquals(new int[]{388, 108, 504}, QRFrameDecoder.centerSquare(1280, 720, 0.7f));
+        assertArrayEquals(new int[]{0, 0, 10}, QRFrameDecoder.centerSquare(10, 10, 1.5f));
+    }
+
+    /**
+     * The pipeline CameraFragment ran before QRFrameDecoder: copy, expand to ARGB, new reader
+     */
+    private static String legacyDecode(ByteBuffer buffer, int width, int height) {
+        buffer.rewind();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        int[] pixels = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            int y = bytes[i] & 0xFF;
+            pixels[i] = 0xFF000000 | (y << 16) | (y << 8) | y;
+        }
+        LuminanceSource source = new RGBLuminanceSource(width, height, pixels);
+        try {
+            Result result = new QRCodeReader().decode(new BinaryBitmap(new HybridBinarizer(source)));
+            return result.getText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the same recorded frames with the legacy pipeline and QRFrameDecoder.
+     * Frames are unpadded so the legacy pipeline, which ignored the row stride, can read them.
+     * Prints the timings; asserts only that both find the same codes.
+     */
+    @Test
+    public void benchmarkRecordedFrames() throws WriterException {
+        ByteBuffer[] frames = {
+                ByteBuffer.wrap(frame(TEXT, WIDTH, 10)),
+                ByteBuffer.wrap(frame(null, WIDTH, 11)),
+                ByteBuffer.wrap(frame(TEXT, WIDTH, 12)),
+                ByteBuffer.wrap(frame(null, WIDTH, 13)),
+        };
+        int rounds = 30;
+        QRFrameDecoder decoder = new QRFrameDecoder(0, 0);
+
+        // Warm up both paths once
+        for (ByteBuffer frame : frames) {
+            legacyDecode(frame, WIDTH, HEIGHT);
+            decoder.decode(frame, WIDTH, WIDTH, HEIGHT, 0);
+        }
+
+        int legacyFound = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds * frames.length; i++) {
+            if (legacyDecode(frames[i % frames.length], WIDTH, HEIGHT) != null) legacyFound++;
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds * frames.length; i++) {
+            if (decoder.decode(frames[i % frames.length], WIDTH, WIDTH, HEIGHT, i) != null) found++;
+        }
+        long newNanos = System.nanoTime() - start;
+
+        assertEquals(rounds * 2, legacyFound);
+        assertEquals(rounds * 2, found);
+        int count = rounds * frames.length;
+        System.out.println("QR scan benchmark, " + count + " frames " + WIDTH + "x" + HEIGHT
+                + ": legacy us/frame=" + legacyNanos / 1000 / count
+                + " decoder us/frame=" + newNanos / 1000 / count);
+    }
+}